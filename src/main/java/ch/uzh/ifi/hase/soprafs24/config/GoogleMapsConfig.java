@@ -9,7 +9,14 @@ import org.springframework.core.io.support.PropertiesLoaderUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.io.IOException;
+import java.time.Duration;
 import java.util.Properties;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import ch.uzh.ifi.hase.soprafs24.service.CircuitBreaker;
 
 @Configuration
 @PropertySource(value = "file:.env.local", ignoreResourceNotFound = true)
@@ -71,4 +78,33 @@ public class GoogleMapsConfig {
         log.info("Successfully loaded Google Maps API key");
         return apiKey;
     }
-} 
\ No newline at end of file
+
+    /**
+     * Bounded thread pool for concurrent Google Maps requests. When the queue is full
+     * further requests are rejected and their futures fail, so the calling request
+     * threads are never blocked by the API.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor googleMapsExecutor(
+            @Value("${google.maps.max-concurrent-requests:4}") int maxConcurrentRequests) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrentRequests);
+        executor.setMaxPoolSize(maxConcurrentRequests);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("google-maps-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        return executor;
+    }
+
+    /**
+     * Circuit breaker for the Google Maps API, see {@link CircuitBreaker}
+     */
+    @Bean
+    public CircuitBreaker googleMapsCircuitBreaker(
+            @Value("${google.maps.circuit-breaker.failure-rate-threshold:0.5}") double failureRateThreshold,
+            @Value("${google.maps.circuit-breaker.window-size:20}") int windowSize,
+            @Value("${google.maps.circuit-breaker.minimum-calls:10}") int minimumCalls,
+            @Value("${google.maps.circuit-breaker.open-duration:PT30S}") Duration openDuration) {
+        return new CircuitBreaker("google-maps", failureRateThreshold, windowSize, minimumCalls, openDuration);
+    }
+}
@@ -0,0 +1,135 @@
+package ch.uzh.ifi.hase.soprafs24.config;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * HttpClientMetrics
+ * Counters of the outbound HTTP client, in total and per host. New connections
+ * are counted per TLS handshake, so connections to plain HTTP hosts are not included.
+ */
+public class HttpClientMetrics {
+
+    private static final Logger log = LoggerFactory.getLogger(HttpClientMetrics.class);
+
+    private final Counters total = new Counters();
+    // The client only talks to a few fixed hosts, e.g. the Google Maps API
+    private final Map<String, Counters> hosts = new ConcurrentHashMap<>();
+
+    void requestSent(String host) {
+        update(host, counters -> counters.requests.incrementAndGet());
+    }
+
+    void requestFailed(String host) {
+        update(host, counters -> counters.failures.incrementAndGet());
+    }
+
+    void connectionOpened(String host) {
+        update(host, counters -> counters.connectionsOpened.incrementAndGet());
+    }
+
+    void waitedForRoute(String host) {
+        update(host, counters -> counters.routeWaits.incrementAndGet());
+    }
+
+    void rejectedByRoute(String host) {
+        update(host, counters -> counters.routeRejections.incrementAndGet());
+    }
+
+    void compressedResponseReceived(String host) {
+        update(host, counters -> counters.compressedResponses.incrementAndGet());
+    }
+
+    void bytesReceived(String host, long bytes) {
+        update(host, counters -> counters.bytesReceived.addAndGet(bytes));
+    }
+
+    /**
+     * @return Counters of all hosts together
+     */
+    public Stats getStats() {
+        return total.toStats();
+    }
+
+    /**
+     * @return Counters per host, requests without a known host are only in the total
+     */
+    public Map<String, Stats> getStatsByHost() {
+        Map<String, Stats> stats = new TreeMap<>();
+        hosts.forEach((host, counters) -> stats.put(host, counters.toStats()));
+        return stats;
+    }
+
+    @Scheduled(fixedDelay = 600000) // Run every 10 minutes
+    public void logStats() {
+        log.debug("Outbound HTTP client: {}", getStats());
+        getStatsByHost().forEach((host, stats) -> log.debug("Outbound HTTP client, host {}: {}", host, stats));
+    }
+
+    private void update(String host, Consumer<Counters> increment) {
+        increment.accept(total);
+        if (host != null) {
+            increment.accept(hosts.computeIfAbsent(host, key -> new Counters()));
+        }
+    }
+
+    private static final class Counters {
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong connectionsOpened = new AtomicLong();
+        private final AtomicLong routeWaits = new AtomicLong();
+        private final AtomicLong routeRejections = new AtomicLong();
+        private final AtomicLong compressedResponses = new AtomicLong();
+        private final AtomicLong bytesReceived = new AtomicLong();
+
+        Stats toStats() {
+            return new Stats(requests.get(), failures.get(), connectionsOpened.get(), routeWaits.get(),
+                    routeRejections.get(), compressedResponses.get(), bytesReceived.get());
+        }
+    }
+
+    /**
+     * Snapshot of the client counters
+     */
+    @Getter
+    @ToString
+    public static final class Stats {
+        private final long requests;
+        private final long failures;
+        private final long connectionsOpened;
+        private final long routeWaits;
+        private final long routeRejections;
+        private final long compressedResponses;
+        private final long bytesReceived;
+
+        Stats(long requests, long failures, long connectionsOpened, long routeWaits, long routeRejections,
+                long compressedResponses, long bytesReceived) {
+            this.requests = requests;
+            this.failures = failures;
+            this.connectionsOpened = connectionsOpened;
+            this.routeWaits = routeWaits;
+            this.routeRejections = routeRejections;
+            this.compressedResponses = compressedResponses;
+            this.bytesReceived = bytesReceived;
+        }
+
+        /**
+         * Share of requests that were sent over an already open connection. New
+         * connections are only seen through their TLS handshake, so the rate is only
+         * meaningful for HTTPS hosts, requests to plain HTTP hosts count as reused.
+         */
+        public double getTlsConnectionReuseRate() {
+            return requests == 0 ? 0.0 : Math.max(0.0, 1.0 - (double) connectionsOpened / requests);
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package ch.uzh.ifi.hase.soprafs24.config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.AbstractClientHttpRequest;
+import org.springframework.http.client.AbstractClientHttpResponse;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.util.StreamUtils;
+
+/**
+ * PooledClientHttpRequestFactory
+ * Sends the requests of a RestTemplate through a shared {@link HttpClient}, which keeps
+ * connections open between requests (and multiplexes them over HTTP/2 where the
+ * server supports it). At most maxConnectionsPerRoute requests are in flight per
+ * host, further requests wait up to maxWait for a free slot. This limits concurrency
+ * only, how many connections stay open is up to the HttpClient. Responses are requested
+ * gzip compressed and decoded transparently.
+ */
+public class PooledClientHttpRequestFactory implements ClientHttpRequestFactory {
+
+    // Headers the HttpClient sets itself and does not allow to be set
+    private static final Set<String> RESTRICTED_HEADERS = Set.of("connection", "content-length", "expect", "host",
+            "upgrade");
+
+    private final HttpClient httpClient;
+    private final Duration readTimeout;
+    private final int maxConnectionsPerRoute;
+    private final long maxWaitNanos;
+    private final HttpClientMetrics metrics;
+    private final Map<String, Semaphore> routes = new ConcurrentHashMap<>();
+
+    public PooledClientHttpRequestFactory(HttpClient httpClient, Duration readTimeout, int maxConnectionsPerRoute,
+            Duration maxWait, HttpClientMetrics metrics) {
+        this.httpClient = httpClient;
+        this.readTimeout = readTimeout;
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.metrics = metrics;
+    }
+
+    @Override
+    public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) {
+        return new PooledClientHttpRequest(uri, httpMethod);
+    }
+
+    private Semaphore acquireRoute(URI uri) throws IOException {
+        String route = uri.getScheme() + "://" + uri.getAuthority();
+        Semaphore permits = routes.computeIfAbsent(route, key -> new Semaphore(maxConnectionsPerRoute));
+        if (permits.tryAcquire()) {
+            return permits;
+        }
+        metrics.waitedForRoute(uri.getHost());
+        try {
+            if (permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS)) {
+                return permits;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a connection to " + route);
+        }
+        metrics.rejectedByRoute(uri.getHost());
+        throw new IOException("No free connection to " + route + " within " + maxWaitNanos / 1_000_000 + " ms");
+    }
+
+    private final class PooledClientHttpRequest extends AbstractClientHttpRequest {
+
+        private final URI uri;
+        private final HttpMethod method;
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream(256);
+
+        PooledClientHttpRequest(URI uri, HttpMethod method) {
+            this.uri = uri;
+            this.method = method;
+        }
+
+        @Override
+        public String getMethodValue() {
+            return method.name();
+        }
+
+        @Override
+        public URI getURI() {
+            return uri;
+        }
+
+        @Override
+        protected OutputStream getBodyInternal(HttpHeaders headers) {
+            return body;
+        }
+
+        @Override
+        protected ClientHttpResponse executeInternal(HttpHeaders headers) throws IOException {
+            HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                    .timeout(readTimeout)
+                    .method(method.name(), body.size() == 0
+                            ? HttpRequest.BodyPublishers.noBody()
+                            : HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()));
+            headers.forEach((name, values) -> {
+                if (!RESTRICTED_HEADERS.contains(name.toLowerCase())) {
+                    values.forEach(value -> builder.header(name, value));
+                }
+            });
+            if (!headers.containsKey(HttpHeaders.ACCEPT_ENCODING)) {
+                builder.header(HttpHeaders.ACCEPT_ENCODING, "gzip");
+            }
+
+            Semaphore route = acquireRoute(uri);
+            metrics.requestSent(uri.getHost());
+            try {
+                HttpResponse<InputStream> response = httpClient.send(builder.build(),
+                        HttpResponse.BodyHandlers.ofInputStream());
+                return new PooledClientHttpResponse(response, route, uri.getHost());
+            } catch (InterruptedException e) {
+                route.release();
+                metrics.requestFailed(uri.getHost());
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for " + uri);
+            } catch (IOException | RuntimeException e) {
+                route.release();
+                metrics.requestFailed(uri.getHost());
+                throw e;
+            }
+        }
+    }
+
+    private final class PooledClientHttpResponse extends AbstractClientHttpResponse {
+
+        private final HttpResponse<InputStream> response;
+        private final Semaphore route;
+        private final String host;
+        private final boolean gzip;
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private HttpHeaders headers;
+        private InputStream body;
+
+        PooledClientHttpResponse(HttpResponse<InputStream> response, Semaphore route, String host) {
+            this.response = response;
+            this.route = route;
+            this.host = host;
+            this.gzip = response.headers().firstValue(HttpHeaders.CONTENT_ENCODING)
+                    .map("gzip"::equalsIgnoreCase).orElse(false);
+            if (gzip) {
+                metrics.compressedResponseReceived(host);
+            }
+        }
+
+        @Override
+        public int getRawStatusCode() {
+            return response.statusCode();
+        }
+
+        @Override
+        public String getStatusText() {
+            return "";
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            if (headers == null) {
+                HttpHeaders converted = new HttpHeaders();
+                for (Map.Entry<String, List<String>> header : response.headers().map().entrySet()) {
+                    converted.addAll(header.getKey(), header.getValue());
+                }
+                if (gzip) {
+                    // The body is handed out decoded
+                    converted.remove(HttpHeaders.CONTENT_ENCODING);
+                    converted.remove(HttpHeaders.CONTENT_LENGTH);
+                }
+                headers = converted;
+            }
+            return headers;
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                InputStream counted = new CountingInputStream(response.body(), host);
+                body = gzip ? new GZIPInputStream(counted) : counted;
+            }
+            return body;
+        }
+
+        @Override
+        public void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            // Reading the body to the end lets the client keep the connection open
+            try (InputStream remaining = response.body()) {
+                StreamUtils.drain(remaining);
+            } catch (IOException e) {
+                // The connection is discarded by the client
+            } finally {
+                route.release();
+            }
+        }
+    }
+
+    private final class CountingInputStream extends FilterInputStream {
+
+        private final String host;
+
+        CountingInputStream(InputStream in, String host) {
+            super(in);
+            this.host = host;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value >= 0) {
+                metrics.bytesReceived(host, 1);
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int count = super.read(buffer, offset, length);
+            if (count > 0) {
+                metrics.bytesReceived(host, count);
+            }
+            return count;
+        }
+    }
+}
@@ -1,14 +1,60 @@
 package ch.uzh.ifi.hase.soprafs24.config;
 
+import java.net.http.HttpClient;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+
+import javax.net.ssl.SSLContext;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.client.RestTemplate;
 
 @Configuration
 public class RestTemplateConfig {
-    
+
+    // Read by the JDK once, when the first HttpClient of the JVM opens a connection pool
+    private static final String KEEP_ALIVE_TIMEOUT_PROPERTY = "jdk.httpclient.keepalive.timeout";
+
+    @Bean
+    public HttpClientMetrics httpClientMetrics() {
+        return new HttpClientMetrics();
+    }
+
+    /**
+     * Shared client for outbound requests, e.g. to the Google Maps API. Connections
+     * are kept open for reuse and closed after idleTimeout without requests. The JDK
+     * only supports this as the JVM wide jdk.httpclient.keepalive.timeout system
+     * property, so it is set here before the client is built, unless it was passed at
+     * launch (-D), and applies to every HttpClient of the JVM.
+     */
+    @Bean
+    public HttpClient outboundHttpClient(@Value("${http.client.connect-timeout:PT2S}") Duration connectTimeout,
+            @Value("${http.client.idle-timeout:PT60S}") Duration idleTimeout,
+            HttpClientMetrics metrics) throws NoSuchAlgorithmException {
+        if (System.getProperty(KEEP_ALIVE_TIMEOUT_PROPERTY) == null) {
+            System.setProperty(KEEP_ALIVE_TIMEOUT_PROPERTY, String.valueOf(Math.max(1, idleTimeout.toSeconds())));
+        }
+        return HttpClient.newBuilder()
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .sslContext(new ConnectionCountingSSLContext(SSLContext.getDefault(), metrics))
+                .build();
+    }
+
+    /**
+     * Without timeouts a hanging remote service would block the calling request
+     * thread indefinitely. max-connections-per-route limits the requests in flight per
+     * host, the connections themselves are pooled by the HttpClient.
+     */
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(HttpClient outboundHttpClient,
+            @Value("${http.client.read-timeout:PT5S}") Duration readTimeout,
+            @Value("${http.client.max-connections-per-route:20}") int maxConnectionsPerRoute,
+            @Value("${http.client.connection-request-timeout:PT1S}") Duration connectionRequestTimeout,
+            HttpClientMetrics metrics) {
+        return new RestTemplate(new PooledClientHttpRequestFactory(outboundHttpClient, readTimeout,
+                maxConnectionsPerRoute, connectionRequestTimeout, metrics));
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,183 @@
+package ch.uzh.ifi.hase.soprafs24.config;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * SchedulerLeases
+ * Leases in the SCHEDULER_LEASE table, so that a scheduled job runs on only one of
+ * several instances sharing the database. A lease is held until it expires, also after
+ * the job finished, so instances whose schedule fires a bit later do not run the job
+ * again in the same interval. Lease times are based on the clocks of the instances,
+ * which therefore have to be synchronized.
+ * Partitioned jobs are split between the instances that ran them recently: every
+ * instance announces itself with an own row per job and takes at most its share of the
+ * partitions, preferring partitions it did not sweep last.
+ */
+@Component
+public class SchedulerLeases {
+
+    private static final Logger log = LoggerFactory.getLogger(SchedulerLeases.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String owner;
+    private final Clock clock;
+
+    @Autowired
+    public SchedulerLeases(DataSource dataSource, @Value("${scheduler.lease.owner:}") String owner) {
+        this(dataSource, owner, Clock.systemUTC());
+    }
+
+    SchedulerLeases(DataSource dataSource, String owner, Clock clock) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        // pid@host plus a random suffix, which also distinguishes instances in the same JVM
+        this.owner = owner == null || owner.isEmpty()
+                ? ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID().toString().substring(0, 8)
+                : owner;
+        this.clock = clock;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    /**
+     * Acquires the lease if no other instance holds it. Renews the lease if this instance
+     * already holds it.
+     *
+     * @param name      Name of the lease, e.g. of the scheduled job
+     * @param leaseTime Time until the lease expires
+     * @return true if this instance holds the lease now
+     */
+    public boolean tryAcquire(String name, Duration leaseTime) {
+        return tryAcquire(name, leaseTime, true);
+    }
+
+    /**
+     * @param renew Whether a lease this instance holds is renewed, otherwise only free or
+     *              expired leases are acquired
+     */
+    private boolean tryAcquire(String name, Duration leaseTime, boolean renew) {
+        Instant now = clock.instant();
+        Timestamp acquiredAt = Timestamp.from(now);
+        Timestamp lockedUntil = Timestamp.from(now.plus(leaseTime));
+
+        // One statement, so instances that do not get the lease do not fail on a duplicate key
+        String condition = renew ? "T.LOCKED_UNTIL <= S.ACQUIRED_AT OR T.OWNER = S.OWNER"
+                : "T.LOCKED_UNTIL <= S.ACQUIRED_AT";
+        try {
+            return merge(condition, name, lockedUntil, acquiredAt) > 0;
+        } catch (DataIntegrityViolationException e) {
+            // Inserted at the same time by another instance
+            return false;
+        }
+    }
+
+    /**
+     * Inserts the lease, or updates it if the condition on the stored lease T and the
+     * new lease S holds
+     *
+     * @return Number of inserted or updated rows
+     */
+    private int merge(String condition, String name, Timestamp lockedUntil, Timestamp acquiredAt) {
+        return jdbcTemplate.update("MERGE INTO SCHEDULER_LEASE T "
+                + "USING (SELECT CAST(? AS VARCHAR(100)) AS NAME, CAST(? AS VARCHAR(200)) AS OWNER, "
+                + "CAST(? AS TIMESTAMP) AS LOCKED_UNTIL, CAST(? AS TIMESTAMP) AS ACQUIRED_AT) S ON T.NAME = S.NAME "
+                + "WHEN MATCHED AND (" + condition + ") THEN UPDATE SET OWNER = S.OWNER, "
+                + "LOCKED_UNTIL = S.LOCKED_UNTIL, ACQUIRED_AT = S.ACQUIRED_AT "
+                + "WHEN NOT MATCHED THEN INSERT (NAME, OWNER, LOCKED_UNTIL, ACQUIRED_AT) "
+                + "VALUES (S.NAME, S.OWNER, S.LOCKED_UNTIL, S.ACQUIRED_AT)",
+                name, owner, lockedUntil, acquiredAt);
+    }
+
+    /**
+     * Acquires the leases of free or expired partitions of a job, at most the share of
+     * this instance among the instances that ran the job within the last two lease
+     * times. Leases are not renewed, a partition swept by this instance becomes
+     * available to the others once its lease expired. Partitions that another instance
+     * swept last are tried first, the rest in a random order, so the partitions rotate
+     * between the instances.
+     *
+     * @param name       Name of the job, the partitions are leased as name:partition
+     * @param partitions Number of partitions
+     * @param leaseTime  Time until the leases expire, slightly less than the interval of the job
+     * @return The partitions this instance holds now
+     */
+    public List<Integer> tryAcquirePartitions(String name, int partitions, Duration leaseTime) {
+        int instances = announceInstance(name, leaseTime.multipliedBy(2));
+        int share = (partitions + instances - 1) / instances;
+
+        Set<String> sweptLast = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT NAME FROM SCHEDULER_LEASE WHERE NAME LIKE ? AND OWNER = ?", String.class,
+                name + ":%", owner));
+        List<Integer> candidates = new ArrayList<>();
+        for (int partition = 0; partition < partitions; partition++) {
+            candidates.add(partition);
+        }
+        Collections.shuffle(candidates, ThreadLocalRandom.current());
+        candidates.sort(Comparator.comparing(partition -> sweptLast.contains(name + ":" + partition)));
+
+        List<Integer> acquired = new ArrayList<>();
+        for (int partition : candidates) {
+            if (acquired.size() == share) {
+                break;
+            }
+            if (tryAcquire(name + ":" + partition, leaseTime, false)) {
+                acquired.add(partition);
+            }
+        }
+        log.debug("{} acquired partitions {} of {} as one of {} instances", owner, acquired, name, instances);
+        return acquired;
+    }
+
+    /**
+     * Marks this instance as running the job until the given time passed
+     *
+     * @return Number of instances running the job, including this one
+     */
+    private int announceInstance(String name, Duration presence) {
+        Instant now = clock.instant();
+        Timestamp acquiredAt = Timestamp.from(now);
+        Timestamp lockedUntil = Timestamp.from(now.plus(presence));
+        // The owner can be longer than the NAME column, its hash is short enough
+        String instanceName = name + "#" + Integer.toHexString(owner.hashCode());
+
+        try {
+            merge("1 = 1", instanceName, lockedUntil, acquiredAt);
+        } catch (DataIntegrityViolationException e) {
+            // Inserted at the same time by an instance whose owner has the same hash
+        }
+        Integer instances = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM SCHEDULER_LEASE "
+                + "WHERE NAME LIKE ? AND LOCKED_UNTIL > ?", Integer.class, name + "#%", acquiredAt);
+        return instances == null || instances == 0 ? 1 : instances;
+    }
+
+    /**
+     * Releases the lease if this instance holds it, so other instances can acquire it
+     * before it expires
+     */
+    public void release(String name) {
+        jdbcTemplate.update("DELETE FROM SCHEDULER_LEASE WHERE NAME = ? AND OWNER = ?", name, owner);
+    }
+}
@@ -0,0 +1,126 @@
+package ch.uzh.ifi.hase.soprafs24.config;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * SchemaMigrations
+ * Applies the versioned SQL migrations in db/migration (V&lt;version&gt;__&lt;description&gt;.sql)
+ * that are not yet recorded in the SCHEMA_VERSION table, in the order of their version.
+ * The tables themselves are created by Hibernate, so migrations run after the entity
+ * manager factory is initialized and add what the entity mappings do not express, e.g.
+ * the indexes of the repository queries. If Hibernate recreates the schema on startup
+ * (ddl-auto create or create-drop), all migrations are applied again.
+ */
+@Component
+public class SchemaMigrations implements InitializingBean {
+
+    private static final Logger log = LoggerFactory.getLogger(SchemaMigrations.class);
+
+    private static final Pattern MIGRATION_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean schemaRecreated;
+    private final String locationPattern;
+
+    public SchemaMigrations(DataSource dataSource, EntityManagerFactory entityManagerFactory,
+            @Value("${db.migrations.location:classpath:db/migration/V*__*.sql}") String locationPattern) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        Object ddlAuto = entityManagerFactory.getProperties().get("hibernate.hbm2ddl.auto");
+        this.schemaRecreated = "create".equals(ddlAuto) || "create-drop".equals(ddlAuto);
+        this.locationPattern = locationPattern;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS SCHEMA_VERSION ("
+                + "VERSION INT NOT NULL PRIMARY KEY, "
+                + "DESCRIPTION VARCHAR(200) NOT NULL, "
+                + "INSTALLED_ON TIMESTAMP NOT NULL)");
+        if (schemaRecreated) {
+            jdbcTemplate.update("DELETE FROM SCHEMA_VERSION");
+        }
+        Set<Integer> applied = new HashSet<>(jdbcTemplate.queryForList("SELECT VERSION FROM SCHEMA_VERSION",
+                Integer.class));
+
+        for (Migration migration : findMigrations()) {
+            if (!applied.contains(migration.version)) {
+                apply(migration);
+            }
+        }
+    }
+
+    private List<Migration> findMigrations() throws IOException {
+        Resource[] resources = new PathMatchingResourcePatternResolver().getResources(locationPattern);
+        List<Migration> migrations = Arrays.stream(resources)
+                .map(Migration::of)
+                .sorted(Comparator.comparingInt(migration -> migration.version))
+                .collect(Collectors.toList());
+        for (int i = 1; i < migrations.size(); i++) {
+            if (migrations.get(i).version == migrations.get(i - 1).version) {
+                throw new IllegalStateException("Duplicate schema migration version " + migrations.get(i).version);
+            }
+        }
+        return migrations;
+    }
+
+    private void apply(Migration migration) {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute((Connection connection) -> {
+                ScriptUtils.executeSqlScript(connection, new EncodedResource(migration.resource, "UTF-8"));
+                return null;
+            });
+            jdbcTemplate.update("INSERT INTO SCHEMA_VERSION (VERSION, DESCRIPTION, INSTALLED_ON) VALUES (?, ?, ?)",
+                    migration.version, migration.description, Timestamp.valueOf(LocalDateTime.now()));
+        });
+        log.info("Applied schema migration V{} ({})", migration.version, migration.description);
+    }
+
+    private static final class Migration {
+        private final int version;
+        private final String description;
+        private final Resource resource;
+
+        private Migration(int version, String description, Resource resource) {
+            this.version = version;
+            this.description = description;
+            this.resource = resource;
+        }
+
+        static Migration of(Resource resource) {
+            Matcher matcher = MIGRATION_NAME.matcher(String.valueOf(resource.getFilename()));
+            if (!matcher.matches()) {
+                throw new IllegalStateException("Invalid schema migration name: " + resource.getFilename());
+            }
+            return new Migration(Integer.parseInt(matcher.group(1)), matcher.group(2).replace('_', ' '), resource);
+        }
+    }
+}
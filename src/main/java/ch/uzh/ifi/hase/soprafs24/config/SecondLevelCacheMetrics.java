@@ -0,0 +1,84 @@
+package ch.uzh.ifi.hase.soprafs24.config;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * SecondLevelCacheMetrics
+ * Hit ratio of the Hibernate second-level and query cache regions. The counters are
+ * only collected with hibernate.generate_statistics enabled.
+ */
+@Component
+public class SecondLevelCacheMetrics {
+
+    private static final Logger log = LoggerFactory.getLogger(SecondLevelCacheMetrics.class);
+
+    private final SessionFactoryImplementor sessionFactory;
+
+    @Autowired
+    public SecondLevelCacheMetrics(EntityManagerFactory entityManagerFactory) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+    }
+
+    /**
+     * Counters per cache region, sorted by region name
+     */
+    public Map<String, Stats> getStats() {
+        Statistics statistics = sessionFactory.getStatistics();
+        Map<String, Stats> stats = new TreeMap<>();
+        for (String regionName : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics region = statistics.getCacheRegionStatistics(regionName);
+            if (region != null) {
+                stats.put(regionName, new Stats(region.getHitCount(), region.getMissCount(), region.getPutCount(),
+                        region.getElementCountInMemory()));
+            }
+        }
+        return stats;
+    }
+
+    @Scheduled(fixedDelay = 600000) // Run every 10 minutes
+    public void logStats() {
+        if (sessionFactory.getStatistics().isStatisticsEnabled()) {
+            getStats().forEach((regionName, stats) -> log.debug("Second-level cache region {}: {}", regionName, stats));
+        }
+    }
+
+    /**
+     * Snapshot of the counters of a cache region
+     */
+    @Getter
+    @ToString
+    public static final class Stats {
+        private final long hits;
+        private final long misses;
+        private final long puts;
+        // Negative if the cache provider does not report it
+        private final long size;
+
+        Stats(long hits, long misses, long puts, long size) {
+            this.hits = hits;
+            this.misses = misses;
+            this.puts = puts;
+            this.size = size;
+        }
+
+        public double getHitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0.0 : (double) hits / lookups;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package ch.uzh.ifi.hase.soprafs24.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Streamed responses (e.g. NDJSON listings) are written on a separate thread after
+ * the controller returned. Without this configuration Spring MVC would start a new
+ * thread per streamed response.
+ */
+@Configuration
+public class StreamingConfig implements WebMvcConfigurer {
+
+    private final ThreadPoolTaskExecutor streamingExecutor;
+    private final Duration timeout;
+
+    public StreamingConfig(@Qualifier("streamingExecutor") ThreadPoolTaskExecutor streamingExecutor,
+            @Value("${streaming.timeout:PT5M}") Duration timeout) {
+        this.streamingExecutor = streamingExecutor;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public void configureAsyncSupport(@NonNull AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(streamingExecutor);
+        configurer.setDefaultTimeout(timeout.toMillis());
+    }
+
+    @Configuration
+    static class StreamingExecutorConfig {
+
+        @Bean
+        public ThreadPoolTaskExecutor streamingExecutor(
+                @Value("${streaming.max-concurrent-streams:10}") int maxConcurrentStreams) {
+            ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+            executor.setCorePoolSize(maxConcurrentStreams);
+            executor.setMaxPoolSize(maxConcurrentStreams);
+            executor.setQueueCapacity(maxConcurrentStreams * 4);
+            executor.setThreadNamePrefix("streaming-");
+            return executor;
+        }
+
+        /**
+         * Writes the server-sent change events, see
+         * {@link ch.uzh.ifi.hase.soprafs24.service.UserEventStreams}. Each connection
+         * occupies a thread only while its queued events are written.
+         */
+        @Bean
+        public ThreadPoolTaskExecutor eventStreamExecutor(
+                @Value("${events.stream.sender-threads:4}") int senderThreads) {
+            ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+            executor.setCorePoolSize(senderThreads);
+            executor.setMaxPoolSize(senderThreads);
+            executor.setThreadNamePrefix("events-");
+            return executor;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package ch.uzh.ifi.hase.soprafs24.constant;
+
+/**
+ * Kinds of events pushed to the users, see
+ * {@link ch.uzh.ifi.hase.soprafs24.rest.dto.event.ChangeEventDTO}
+ */
+public enum ChangeEventType {
+    CONTRACT,
+    OFFER,
+    // The missed events are no longer available, the client has to reload its lists
+    RESYNC
+}
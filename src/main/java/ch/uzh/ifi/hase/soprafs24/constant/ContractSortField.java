@@ -0,0 +1,37 @@
+package ch.uzh.ifi.hase.soprafs24.constant;
+
+public enum ContractSortField {
+    MOVE_DATE_TIME("moveDateTime"),
+    PRICE("price"),
+    CREATION_DATE_TIME("creationDateTime"),
+    DISTANCE("distance");
+
+    private final String property;
+
+    ContractSortField(String property) {
+        this.property = property;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    /**
+     * Resolves the value of the sort request parameter, e.g. "moveDateTime"
+     *
+     * @throws IllegalArgumentException if no sort field has the given name
+     */
+    public static ContractSortField fromProperty(String property) {
+        for (ContractSortField field : values()) {
+            if (field.property.equalsIgnoreCase(property)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("Unknown sort field: " + property);
+    }
+
+    @Override
+    public String toString() {
+        return property;
+    }
+}
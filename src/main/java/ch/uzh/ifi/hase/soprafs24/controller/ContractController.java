@@ -24,10 +24,12 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
+import ch.uzh.ifi.hase.soprafs24.constant.ContractSortField;
 import ch.uzh.ifi.hase.soprafs24.constant.ContractStatus;
 import ch.uzh.ifi.hase.soprafs24.constant.UserAccountType;
 import ch.uzh.ifi.hase.soprafs24.entity.Contract;
@@ -43,9 +45,12 @@ import ch.uzh.ifi.hase.soprafs24.rest.dto.contract.ContractPutDTO;
 import ch.uzh.ifi.hase.soprafs24.rest.mapper.ContractDTOMapper;
 import ch.uzh.ifi.hase.soprafs24.rest.mapper.LocationDTOMapper;
 import ch.uzh.ifi.hase.soprafs24.rest.mapper.UserDTOMapper;
+import ch.uzh.ifi.hase.soprafs24.security.authorization.service.AuthenticatedPrincipal;
 import ch.uzh.ifi.hase.soprafs24.security.authorization.service.AuthorizationService;
+import ch.uzh.ifi.hase.soprafs24.service.ContractPage;
 import ch.uzh.ifi.hase.soprafs24.service.ContractService;
 import ch.uzh.ifi.hase.soprafs24.service.LocationService;
+import ch.uzh.ifi.hase.soprafs24.service.TransitionRetry;
 
 @RestController
 public class ContractController {
@@ -66,23 +71,33 @@ public class ContractController {
     private static final String ERROR_NOT_AUTHORIZED_TO_FULFILL = "You are not authorized to fulfill this contract";
     private static final String ERROR_NOT_AUTHORIZED_TO_VIEW_DRIVER = "You are not authorized to view driver details for this contract";
 
+    // Keyset pagination of the contract listing
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final UserRepository userRepository;
     private final ContractService contractService;
     private final LocationService locationService;
     private final AuthorizationService authorizationService;
     private final UserDTOMapper userDTOMapper;
+    private final ObjectMapper objectMapper;
+    private final TransitionRetry transitionRetry;
 
     public ContractController(
             ContractService contractService, 
             LocationService locationService, 
             UserRepository userRepository,
             AuthorizationService authorizationService,
-            UserDTOMapper userDTOMapper) {
+            UserDTOMapper userDTOMapper,
+            ObjectMapper objectMapper,
+            TransitionRetry transitionRetry) {
         this.contractService = contractService;
         this.locationService = locationService;
         this.userRepository = userRepository;
         this.authorizationService = authorizationService;
         this.userDTOMapper = userDTOMapper;
+        this.objectMapper = objectMapper;
+        this.transitionRetry = transitionRetry;
     }
 
     /**
@@ -122,7 +137,7 @@ public class ContractController {
      * @param userId The user ID to check against
      * @return true if authorized, false otherwise
      */
-    private boolean isAuthorizedToAccessContract(User authenticatedUser, Contract contract, Long userId) {
+    private boolean isAuthorizedToAccessContract(AuthenticatedPrincipal authenticatedUser, Contract contract, Long userId) {
         if (authenticatedUser.getUserAccountType() == UserAccountType.DRIVER) {
             // Drivers can only access contracts that are:
             // 1. In REQUESTED state (available for offers)
@@ -149,7 +164,7 @@ public class ContractController {
      * @param userId The user ID to check against
      * @return true if authorized, false otherwise
      */
-    private boolean isAuthorizedToViewDriver(User authenticatedUser, Contract contract, Long userId) {
+    private boolean isAuthorizedToViewDriver(AuthenticatedPrincipal authenticatedUser, Contract contract, Long userId) {
         if (authenticatedUser.getUserAccountType() == UserAccountType.REQUESTER) {
             // Requesters can only view driver details for their own contracts
             return contract.getRequester().getUserId().equals(userId);
@@ -168,7 +183,7 @@ public class ContractController {
      * @param requiredType The required user account type
      * @return true if authorized, false otherwise
      */
-    private boolean checkContractAuthorization(User authenticatedUser, Contract contract, Long userId, 
+    private boolean checkContractAuthorization(AuthenticatedPrincipal authenticatedUser, Contract contract, Long userId, 
                                             UserAccountType requiredType) {
         if (!authenticatedUser.getUserAccountType().equals(requiredType)) {
             return false;
@@ -186,7 +201,21 @@ public class ContractController {
      * @param token Authentication token from header
      * @param lat Latitude for location-based search
      * @param lng Longitude for location-based search
+     * Passing limit, cursor or sort switches to keyset pagination. The response then
+     * additionally contains a nextCursor, which is passed as cursor to fetch the next
+     * page and is null on the last page.
+     * GET /api/v1/contracts?sort=price&order=desc&limit=20
+     * GET /api/v1/contracts?sort=price&order=desc&limit=20&cursor={nextCursor}
+     * 
+     * @param userId User ID from header
+     * @param token Authentication token from header
+     * @param lat Latitude for location-based search
+     * @param lng Longitude for location-based search
      * @param filters JSON string containing filter criteria
+     * @param limit Maximum number of contracts per page
+     * @param cursor Opaque cursor of the page to fetch
+     * @param sort Sort field: moveDateTime, price, creationDateTime or distance
+     * @param order Sort order: asc or desc
      * @return List of contracts matching the criteria
      */
     @GetMapping("/api/v1/contracts")
@@ -195,60 +224,178 @@ public class ContractController {
             @RequestHeader("Authorization") String token,
             @RequestParam(required = false) Double lat,
             @RequestParam(required = false) Double lng,
-            @RequestParam(required = false) String filters) {
+            @RequestParam(required = false) String filters,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String order) {
 
         // Authenticate user
-        User authenticatedUser = authorizationService.authenticateUser(userId, token);
+        AuthenticatedPrincipal authenticatedUser = authorizationService.authenticate(userId, token);
         if (authenticatedUser == null) {
             return createResponse(null, ERROR_INVALID_CREDENTIALS, HttpStatus.UNAUTHORIZED);
         }
 
         // Parse filters if provided
-        ContractFilterDTO filterDTO = null;
-        if (filters != null && !filters.isEmpty()) {
-            try {
-                filters = URLDecoder.decode(filters, StandardCharsets.UTF_8.name());
+        ContractFilterDTO filterDTO;
+        try {
+            filterDTO = parseFilters(filters);
+        } catch (ResponseStatusException e) {
+            return createResponse(null, e.getReason(), e.getStatus());
+        }
 
-                ObjectMapper objectMapper = new ObjectMapper();
-                objectMapper.registerModule(new JavaTimeModule()); // Register JavaTimeModule
+        if (limit != null || cursor != null || sort != null) {
+            // Drivers may only page through open contracts
+            return getContractPage(lat, lng, filterDTO, authenticatedUser.getUserAccountType() == UserAccountType.DRIVER,
+                    limit, cursor, sort, order);
+        }
 
-                filterDTO = objectMapper.readValue(filters, ContractFilterDTO.class);
+        // Get filtered contracts from service, read directly as DTOs. Drivers may only
+        // see open contracts, which are searched in memory.
+        List<ContractGetDTO> contractDTOs = authenticatedUser.getUserAccountType() == UserAccountType.DRIVER
+                ? contractService.getOpenContractDTOs(lat, lng, filterDTO)
+                : contractService.getContractDTOs(lat, lng, filterDTO);
 
-                // Validate moveDate format if provided
-                if (filterDTO.getMoveDate() != null) {
-                    ResponseEntity<Object> moveDateValidationResponse = validateMoveDateFormat(filterDTO.getMoveDate());
-                    if (moveDateValidationResponse != null) {
-                        return moveDateValidationResponse;
-                    }
-                }
-                log.info("Filters applied: {}", filterDTO);
+        return createResponse(contractDTOs, null, HttpStatus.OK);
+    }
 
-            } catch (Exception e) {
-                log.error("Failed to parse filters: {}", filters, e);
-                return createResponse(null, "Invalid filters format", HttpStatus.BAD_REQUEST);
+    private ResponseEntity<Object> getContractPage(Double lat, Double lng, ContractFilterDTO filterDTO,
+            boolean openOnly, Integer limit, String cursor, String sort, String order) {
+        ContractSortField sortField = ContractSortField.MOVE_DATE_TIME;
+        if (sort != null) {
+            try {
+                sortField = ContractSortField.fromProperty(sort);
+            } catch (IllegalArgumentException e) {
+                return createResponse(null, "Invalid sort field. Expected one of: moveDateTime, price, creationDateTime, distance", HttpStatus.BAD_REQUEST);
             }
         }
+        if (order != null && !order.equalsIgnoreCase("asc") && !order.equalsIgnoreCase("desc")) {
+            return createResponse(null, "Invalid order. Expected asc or desc", HttpStatus.BAD_REQUEST);
+        }
+        boolean descending = "desc".equalsIgnoreCase(order);
+        int pageSize = limit != null ? limit : DEFAULT_PAGE_SIZE;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            return createResponse(null, "Limit must be between 1 and " + MAX_PAGE_SIZE, HttpStatus.BAD_REQUEST);
+        }
 
-        // Get filtered contracts from service
-        List<Contract> contracts = contractService.getContracts(lat, lng, filterDTO);
+        ContractPage page;
+        try {
+            page = contractService.getContractPage(lat, lng, filterDTO, openOnly, sortField, descending, cursor, pageSize);
+        } catch (ResponseStatusException e) {
+            return createResponse(null, e.getReason(), e.getStatus());
+        }
 
-        // Convert to DTOs
-        List<ContractGetDTO> contractDTOs = contracts.stream()
+        List<ContractGetDTO> contractDTOs = page.getContracts().stream()
                 .map(ContractDTOMapper.INSTANCE::convertContractEntityToContractGetDTO)
                 .toList();
 
-        return createResponse(contractDTOs, null, HttpStatus.OK);
+        Map<String, Object> response = new HashMap<>();
+        response.put("contracts", contractDTOs);
+        response.put("nextCursor", page.getNextCursor());
+        response.put("timestamp", System.currentTimeMillis());
+        return new ResponseEntity<>(response, HttpStatus.OK);
     }
 
     /**
-     * Validates the moveDate format. Returns a ResponseEntity with an error if invalid, otherwise null.
+     * Get all contracts as a stream of newline delimited JSON, one contract per line.
+     * Selected by requesting the application/x-ndjson media type and otherwise behaves
+     * like {@link #getAllContracts}, without pagination. Contracts are read from the
+     * database and written to the client one by one, so memory usage does not grow
+     * with the number of contracts and the first contracts arrive right away.
+     * 
+     * Example request:
+     * GET /api/v1/contracts
+     * Accept: application/x-ndjson
+     * 
+     * @param userId User ID from header
+     * @param token Authentication token from header
+     * @param lat Latitude for location-based search
+     * @param lng Longitude for location-based search
+     * @param filters JSON string containing filter criteria
+     * @return Stream of contracts matching the criteria
      */
-    private ResponseEntity<Object> validateMoveDateFormat(Object moveDate) {
+    @GetMapping(value = "/api/v1/contracts", produces = NdjsonWriter.NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllContracts(
+            @RequestHeader("UserId") Long userId,
+            @RequestHeader("Authorization") String token,
+            @RequestParam(required = false) Double lat,
+            @RequestParam(required = false) Double lng,
+            @RequestParam(required = false) String filters) {
+
+        AuthenticatedPrincipal authenticatedUser = authorizationService.authenticate(userId, token);
+        if (authenticatedUser == null) {
+            return createStreamingError(ERROR_INVALID_CREDENTIALS, HttpStatus.UNAUTHORIZED);
+        }
+
+        ContractFilterDTO filterDTO;
         try {
-            LocalDate.parse(moveDate.toString());
+            filterDTO = parseFilters(filters);
+        } catch (ResponseStatusException e) {
+            return createStreamingError(e.getReason(), e.getStatus());
+        }
+
+        // Drivers may only see open contracts
+        boolean openOnly = authenticatedUser.getUserAccountType() == UserAccountType.DRIVER;
+        StreamingResponseBody body = outputStream -> {
+            NdjsonWriter writer = new NdjsonWriter(objectMapper, outputStream);
+            contractService.streamContracts(lat, lng, filterDTO, openOnly, writer::write);
+            writer.finish();
+        };
+        return ResponseEntity.ok().contentType(NdjsonWriter.NDJSON).body(body);
+    }
+
+    private ResponseEntity<StreamingResponseBody> createStreamingError(String message, HttpStatus status) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("message", message);
+        response.put("timestamp", System.currentTimeMillis());
+        return ResponseEntity.status(status).contentType(NdjsonWriter.NDJSON).body(outputStream -> {
+            NdjsonWriter writer = new NdjsonWriter(objectMapper, outputStream);
+            writer.write(response);
+            writer.finish();
+        });
+    }
+
+    /**
+     * Parses the URL encoded JSON filters of the contract listing
+     *
+     * @return The filters, null if none are given
+     * @throws ResponseStatusException with status 400 if the filters are invalid
+     */
+    private ContractFilterDTO parseFilters(String filters) {
+        if (filters == null || filters.isEmpty()) {
             return null;
+        }
+        ContractFilterDTO filterDTO;
+        try {
+            String decoded = URLDecoder.decode(filters, StandardCharsets.UTF_8.name());
+
+            ObjectMapper filterMapper = new ObjectMapper();
+            filterMapper.registerModule(new JavaTimeModule()); // Register JavaTimeModule
+
+            filterDTO = filterMapper.readValue(decoded, ContractFilterDTO.class);
+        } catch (Exception e) {
+            log.error("Failed to parse filters: {}", filters, e);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid filters format");
+        }
+
+        // Validate moveDate format if provided
+        if (filterDTO.getMoveDate() != null) {
+            validateMoveDateFormat(filterDTO.getMoveDate());
+        }
+        log.info("Filters applied: {}", filterDTO);
+        return filterDTO;
+    }
+
+    /**
+     * Validates the moveDate format
+     *
+     * @throws ResponseStatusException with status 400 if the format is invalid
+     */
+    private void validateMoveDateFormat(Object moveDate) {
+        try {
+            LocalDate.parse(moveDate.toString());
         } catch (Exception e) {
-            return createResponse(null, "Invalid moveDate format. Expected format: yyyy-MM-dd", HttpStatus.BAD_REQUEST);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid moveDate format. Expected format: yyyy-MM-dd");
         }
     }
 
@@ -269,7 +416,7 @@ public class ContractController {
         log.info("Created new contract: {}", contractPostDTO);
 
         // Authenticate user
-        User authenticatedUser = authorizationService.authenticateUser(userId, token);
+        AuthenticatedPrincipal authenticatedUser = authorizationService.authenticate(userId, token);
         if (authenticatedUser == null) {
             return createResponse(null, ERROR_INVALID_CREDENTIALS, HttpStatus.UNAUTHORIZED);
         }
@@ -391,6 +538,9 @@ public class ContractController {
      * Example request:
      * GET /api/v1/contracts/123
      * 
+     * The response is tagged with the version of the contract, so a request with a
+     * matching If-None-Match header is answered with 304 Not Modified.
+     * 
      * @param contractId The ID of the contract to retrieve
      * @return The contract details
      */
@@ -402,7 +552,7 @@ public class ContractController {
             @RequestHeader("Authorization") String token) {
         
         // Authenticate user
-        User authenticatedUser = authorizationService.authenticateUser(userId, token);
+        AuthenticatedPrincipal authenticatedUser = authorizationService.authenticate(userId, token);
         if (authenticatedUser == null) {
             return createResponse(null, ERROR_INVALID_CREDENTIALS, HttpStatus.UNAUTHORIZED);
         }
@@ -437,7 +587,9 @@ public class ContractController {
             return createResponse(null, ERROR_NOT_AUTHORIZED_TO_VIEW_CONTRACT, HttpStatus.FORBIDDEN);
         }
 
-        return createResponse(ContractDTOMapper.INSTANCE.convertContractEntityToContractGetDTO(contract), null, HttpStatus.OK);
+        return ETags.withETag(
+                createResponse(ContractDTOMapper.INSTANCE.convertContractEntityToContractGetDTO(contract), null, HttpStatus.OK),
+                ETags.ofVersion("contract", contract.getContractId(), contract.getVersion(), contract.getCreationDateTime()));
     }
 
     /**
@@ -464,7 +616,7 @@ public class ContractController {
             @RequestBody ContractPutDTO contractPutDTO) {
         
         // Authenticate user
-        User authenticatedUser = authorizationService.authenticateUser(userId, token);
+        AuthenticatedPrincipal authenticatedUser = authorizationService.authenticate(userId, token);
         if (authenticatedUser == null) {
             return createResponse(null, ERROR_INVALID_CREDENTIALS, HttpStatus.UNAUTHORIZED);
         }
@@ -577,7 +729,7 @@ public class ContractController {
             @RequestBody ContractCancelDTO contractCancelDTO) {
         
         // Authenticate user
-        User authenticatedUser = authorizationService.authenticateUser(userId, token);
+        AuthenticatedPrincipal authenticatedUser = authorizationService.authenticate(userId, token);
         if (authenticatedUser == null) {
             return createResponse(null, ERROR_INVALID_CREDENTIALS, HttpStatus.UNAUTHORIZED);
         }
@@ -603,8 +755,10 @@ public class ContractController {
             return createResponse(null, "Cancellation reason is required", HttpStatus.BAD_REQUEST);
         }
         
-        // Cancel the contract
-        Contract cancelledContract = contractService.cancelContract(contractId, contractCancelDTO.getReason());
+        // Cancel the contract, retried if it is changed concurrently
+        Contract cancelledContract = transitionRetry.execute(
+                () -> contractService.cancelContract(contractId, contractCancelDTO.getReason()),
+                "contract", () -> currentContract(contractId));
         
         return createResponse(ContractDTOMapper.INSTANCE.convertContractEntityToContractGetDTO(cancelledContract), null, HttpStatus.OK);
     }
@@ -623,7 +777,7 @@ public class ContractController {
             @RequestHeader("Authorization") String token) {
         
         // Authenticate user
-        User authenticatedUser = authorizationService.authenticateUser(userId, token);
+        AuthenticatedPrincipal authenticatedUser = authorizationService.authenticate(userId, token);
         if (authenticatedUser == null) {
             return createResponse(null, ERROR_INVALID_CREDENTIALS, HttpStatus.UNAUTHORIZED);
         }
@@ -669,7 +823,7 @@ public class ContractController {
             @RequestHeader("Authorization") String token) {
 
         // Authenticate user
-        User authenticatedUser = authorizationService.authenticateUser(userId, token);
+        AuthenticatedPrincipal authenticatedUser = authorizationService.authenticate(userId, token);
         if (authenticatedUser == null) {
              return createResponse(null, ERROR_INVALID_CREDENTIALS, HttpStatus.UNAUTHORIZED);
         }
@@ -699,6 +853,7 @@ public class ContractController {
      * 
      * @param userId The ID of the user
      * @param status Optional status to filter by
+     * @param ifNoneMatch Tag of the list the client has, an unchanged list is answered with 304 Not Modified
      * @return List of contracts for the user
      */
     @GetMapping("/api/v1/users/{userId}/contracts")
@@ -707,10 +862,11 @@ public class ContractController {
             @PathVariable Long userId,
             @RequestHeader("UserId") Long requestUserId,
             @RequestHeader("Authorization") String token,
-            @RequestParam(required = false) ContractStatus status) {
+            @RequestParam(required = false) ContractStatus status,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
         
         // Authenticate user
-        User authenticatedUser = authorizationService.authenticateUser(requestUserId, token);
+        AuthenticatedPrincipal authenticatedUser = authorizationService.authenticate(requestUserId, token);
         if (authenticatedUser == null) {
             return createResponse(null, ERROR_INVALID_CREDENTIALS, HttpStatus.UNAUTHORIZED);
         }
@@ -721,25 +877,29 @@ public class ContractController {
         }
         
         // Check if user is a Requester
-        List<Contract> contracts;
+        List<ContractGetDTO> contractDTOs;
         User user = userRepository.findByUserId(userId)
             .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, 
                 "User with ID " + userId + " not found"));
             
+        // Tag the list with the versions of its contracts, an unchanged list is not loaded again.
+        // The tag is read before the list, so a concurrent change can only make it outdated.
+        String eTag = ETags.ofVersions("contracts", user instanceof Requester
+                ? contractService.getContractVersionsByRequesterId(userId, status)
+                : contractService.getContractVersionsByDriverId(userId, status));
+        if (ETags.matches(ifNoneMatch, eTag)) {
+            return ETags.notModified(eTag);
+        }
+
         if (user instanceof Requester) {
             // Get contracts from service with optional status filter
-            contracts = contractService.getContractsByRequesterId(userId, status);
+            contractDTOs = contractService.getContractDTOsByRequesterId(userId, status);
         } else {
             // Get contracts from service with optional status filter
-            contracts = contractService.getContractsByDriverId(userId, status);
+            contractDTOs = contractService.getContractDTOsByDriverId(userId, status);
         }
-        
-        // Convert to DTOs
-        List<ContractGetDTO> contractDTOs = contracts.stream()
-            .map(ContractDTOMapper.INSTANCE::convertContractEntityToContractGetDTO)
-            .toList();
 
-        return createResponse(contractDTOs, null, HttpStatus.OK);
+        return ETags.withETag(createResponse(contractDTOs, null, HttpStatus.OK), eTag);
     }
 
     /**
@@ -757,7 +917,7 @@ public class ContractController {
             @RequestHeader("Authorization") String token) {
         
         // Authenticate user
-        User authenticatedUser = authorizationService.authenticateUser(userId, token);
+        AuthenticatedPrincipal authenticatedUser = authorizationService.authenticate(userId, token);
         if (authenticatedUser == null) {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, ERROR_INVALID_CREDENTIALS);
         }
@@ -773,8 +933,17 @@ public class ContractController {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, ERROR_NOT_AUTHORIZED_TO_DELETE);
         }
 
-        // If authorized, delete the contract
-        contractService.deleteContract(contractId);
+        // If authorized, delete the contract, retried if it is changed concurrently
+        transitionRetry.execute(() -> contractService.deleteContract(contractId),
+                "contract", () -> currentContract(contractId));
+    }
+
+    /**
+     * Current state of a contract, returned when a transition conflicts with a concurrent one
+     */
+    private ContractGetDTO currentContract(Long contractId) {
+        return ContractDTOMapper.INSTANCE.convertContractEntityToContractGetDTO(
+                contractService.getContractById(contractId));
     }
 
     /**
@@ -796,7 +965,7 @@ public class ContractController {
             @RequestHeader("Authorization") String token) {
         
         // Authenticate user
-        User authenticatedUser = authorizationService.authenticateUser(userId, token);
+        AuthenticatedPrincipal authenticatedUser = authorizationService.authenticate(userId, token);
         if (authenticatedUser == null) {
             return createResponse(null, ERROR_INVALID_CREDENTIALS, HttpStatus.UNAUTHORIZED);
         }
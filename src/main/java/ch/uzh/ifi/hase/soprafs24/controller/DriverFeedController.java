@@ -0,0 +1,88 @@
+package ch.uzh.ifi.hase.soprafs24.controller;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import ch.uzh.ifi.hase.soprafs24.constant.UserAccountType;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.contract.ContractGetDTO;
+import ch.uzh.ifi.hase.soprafs24.security.authorization.service.AuthenticatedPrincipal;
+import ch.uzh.ifi.hase.soprafs24.security.authorization.service.AuthorizationService;
+import ch.uzh.ifi.hase.soprafs24.service.ContractService;
+import ch.uzh.ifi.hase.soprafs24.service.DriverFeed;
+
+/**
+ * Driver Feed Controller
+ * This class is responsible for the precomputed job feeds of the drivers.
+ */
+@RestController
+public class DriverFeedController {
+
+    private static final String MESSAGE_KEY = "message";
+    private static final String TIMESTAMP_KEY = "timestamp";
+
+    private final DriverFeed driverFeed;
+    private final ContractService contractService;
+    private final AuthorizationService authorizationService;
+
+    DriverFeedController(DriverFeed driverFeed, ContractService contractService,
+            AuthorizationService authorizationService) {
+        this.driverFeed = driverFeed;
+        this.contractService = contractService;
+        this.authorizationService = authorizationService;
+    }
+
+    /**
+     * Get the open contracts matching a driver's location, preferred range and car,
+     * closest first
+     *
+     * Example request:
+     * GET /api/v1/drivers/123/feed
+     *
+     * @param driverId The ID of the driver
+     * @param userId User ID from header
+     * @param token Authentication token from header
+     * @return The contracts of the driver's feed
+     */
+    @GetMapping("/api/v1/drivers/{driverId}/feed")
+    @ResponseStatus(HttpStatus.OK)
+    public ResponseEntity<Object> getDriverFeed(
+            @PathVariable Long driverId,
+            @RequestHeader("UserId") Long userId,
+            @RequestHeader("Authorization") String token) {
+
+        // Authenticate user
+        AuthenticatedPrincipal authenticatedUser = authorizationService.authenticate(userId, token);
+        if (authenticatedUser == null) {
+            return createResponse(null, "Invalid credentials", HttpStatus.UNAUTHORIZED);
+        }
+
+        // Drivers can only view their own feed
+        if (authenticatedUser.getUserAccountType() != UserAccountType.DRIVER || !driverId.equals(userId)) {
+            return createResponse(null, "You are not authorized to view this feed", HttpStatus.FORBIDDEN);
+        }
+
+        List<ContractGetDTO> contracts = contractService.getOpenContractDTOsByIds(driverFeed.getContractIds(driverId));
+        return createResponse(contracts, null, HttpStatus.OK);
+    }
+
+    private ResponseEntity<Object> createResponse(List<ContractGetDTO> contracts, String message, HttpStatus status) {
+        Map<String, Object> response = new HashMap<>();
+        if (contracts != null) {
+            response.put("contracts", contracts);
+        }
+        if (message != null) {
+            response.put(MESSAGE_KEY, message);
+        }
+        response.put(TIMESTAMP_KEY, System.currentTimeMillis());
+        return new ResponseEntity<>(response, status);
+    }
+}
@@ -0,0 +1,103 @@
+package ch.uzh.ifi.hase.soprafs24.controller;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ch.uzh.ifi.hase.soprafs24.repository.VersionSummary;
+
+/**
+ * ETags
+ * Strong entity tags for the GET endpoints, so clients revalidate with If-None-Match
+ * instead of downloading unchanged payloads again. Responses made of versioned contracts
+ * are tagged with their versions. Responses that include unversioned data, like the car
+ * and location of a driver, are tagged with a hash of their payload.
+ * Spring answers a GET with 304 Not Modified if the tag of the returned entity matches
+ * If-None-Match, without writing the body. Lists that can be tagged before they are
+ * loaded check If-None-Match themselves and skip loading them as well.
+ */
+public final class ETags {
+
+    private ETags() {
+    }
+
+    /**
+     * @return Tag of a single versioned entity, null if it was not saved yet
+     */
+    public static String ofVersion(String type, Long id, Long version, LocalDateTime creationDateTime) {
+        if (id == null || version == null) {
+            return null;
+        }
+        return quote(type + "-" + id + "-" + version + "-" + toMillis(creationDateTime));
+    }
+
+    /**
+     * @return Tag of a list of versioned entities
+     */
+    public static String ofVersions(String type, VersionSummary summary) {
+        return quote(type + "-" + summary.getCount() + "-" + summary.getIdSum() + "-" + summary.getVersionSum()
+                + "-" + toMillis(summary.getLastCreated()));
+    }
+
+    /**
+     * @return Tag from the hash of the JSON payload, null if it cannot be serialized
+     */
+    public static String ofContent(ObjectMapper objectMapper, Object content) {
+        try {
+            return quote(DigestUtils.md5DigestAsHex(objectMapper.writeValueAsBytes(content)));
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Checks whether an If-None-Match header lists the tag. Like Spring the weak
+     * comparison is used, so W/ prefixes added by proxies are ignored.
+     */
+    public static boolean matches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null || eTag == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The response with the tag, unchanged if there is no tag
+     */
+    public static <T> ResponseEntity<T> withETag(ResponseEntity<T> response, String eTag) {
+        if (eTag == null) {
+            return response;
+        }
+        return ResponseEntity.status(response.getStatusCode())
+                .headers(response.getHeaders())
+                .eTag(eTag)
+                .body(response.getBody());
+    }
+
+    public static <T> ResponseEntity<T> notModified(String eTag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime != null ? dateTime.toInstant(ZoneOffset.UTC).toEpochMilli() : 0;
+    }
+
+    private static String quote(String tag) {
+        return "\"" + tag + "\"";
+    }
+}
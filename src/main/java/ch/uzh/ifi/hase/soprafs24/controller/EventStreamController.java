@@ -0,0 +1,65 @@
+package ch.uzh.ifi.hase.soprafs24.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import ch.uzh.ifi.hase.soprafs24.security.authorization.service.AuthenticatedPrincipal;
+import ch.uzh.ifi.hase.soprafs24.security.authorization.service.AuthorizationService;
+import ch.uzh.ifi.hase.soprafs24.service.UserEventStreams;
+
+/**
+ * Event Stream Controller
+ * This class is responsible for pushing the changes of a user's contracts and offers,
+ * so clients do not need to poll the contract and offer listings.
+ */
+@RestController
+public class EventStreamController {
+
+    private final UserEventStreams userEventStreams;
+    private final AuthorizationService authorizationService;
+
+    EventStreamController(UserEventStreams userEventStreams, AuthorizationService authorizationService) {
+        this.userEventStreams = userEventStreams;
+        this.authorizationService = authorizationService;
+    }
+
+    /**
+     * Stream the change events of a user as server-sent events
+     *
+     * Example request:
+     * GET /api/v1/users/123/events
+     * Last-Event-ID: lx3k2a-42
+     *
+     * @param userId The ID of the user
+     * @param requestUserId User ID from header
+     * @param token Authentication token from header
+     * @param lastEventId Id of the last event received before reconnecting, to resume after it
+     * @return The event stream
+     */
+    @GetMapping(path = "/api/v1/users/{userId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamEvents(
+            @PathVariable Long userId,
+            @RequestHeader("UserId") Long requestUserId,
+            @RequestHeader("Authorization") String token,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+
+        // Authenticate user
+        AuthenticatedPrincipal authenticatedUser = authorizationService.authenticate(requestUserId, token);
+        if (authenticatedUser == null) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid credentials");
+        }
+
+        // Users can only receive their own events
+        if (!authenticatedUser.getUserId().equals(userId)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You are not authorized to view these events");
+        }
+
+        return userEventStreams.connect(userId, lastEventId);
+    }
+}
@@ -0,0 +1,57 @@
+package ch.uzh.ifi.hase.soprafs24.controller;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+import org.springframework.http.MediaType;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * NdjsonWriter
+ * Writes objects as newline delimited JSON, one object per line. The first line is
+ * flushed right away so the client receives data immediately, afterwards the output
+ * is flushed every FLUSH_INTERVAL lines.
+ */
+final class NdjsonWriter {
+
+    static final String NDJSON_VALUE = "application/x-ndjson";
+    static final MediaType NDJSON = MediaType.parseMediaType(NDJSON_VALUE);
+
+    private static final int FLUSH_INTERVAL = 100;
+
+    private final ObjectWriter objectWriter;
+    private final JsonGenerator generator;
+    private int lines;
+
+    NdjsonWriter(ObjectMapper objectMapper, OutputStream outputStream) throws IOException {
+        this.objectWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.generator = objectMapper.getFactory().createGenerator(outputStream);
+        this.generator.setRootValueSeparator(null);
+    }
+
+    /**
+     * Writes one line. Throws an {@link UncheckedIOException}, e.g. if the client
+     * disconnected, so it can be used as a consumer.
+     */
+    void write(Object value) {
+        try {
+            objectWriter.writeValue(generator, value);
+            generator.writeRaw('\n');
+            lines++;
+            if (lines == 1 || lines % FLUSH_INTERVAL == 0) {
+                generator.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    void finish() throws IOException {
+        generator.flush();
+    }
+}
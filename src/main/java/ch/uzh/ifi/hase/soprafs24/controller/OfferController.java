@@ -18,16 +18,20 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import ch.uzh.ifi.hase.soprafs24.constant.OfferStatus;
 import ch.uzh.ifi.hase.soprafs24.rest.dto.offer.OfferGetDTO;
 import ch.uzh.ifi.hase.soprafs24.rest.dto.offer.OfferPostDTO;
 import ch.uzh.ifi.hase.soprafs24.service.OfferService;
+import ch.uzh.ifi.hase.soprafs24.security.authorization.service.AuthenticatedPrincipal;
 import ch.uzh.ifi.hase.soprafs24.security.authorization.service.AuthorizationService;
-import ch.uzh.ifi.hase.soprafs24.entity.User;
 import ch.uzh.ifi.hase.soprafs24.constant.UserAccountType;
 import ch.uzh.ifi.hase.soprafs24.entity.Contract;
 import ch.uzh.ifi.hase.soprafs24.service.ContractService;
+import ch.uzh.ifi.hase.soprafs24.service.TransitionRetry;
 import ch.uzh.ifi.hase.soprafs24.constant.ContractStatus;
 import ch.uzh.ifi.hase.soprafs24.rest.mapper.UserDTOMapper;
 
@@ -50,11 +54,16 @@ public class OfferController {
     private final OfferService offerService;
     private final AuthorizationService authorizationService;
     private final ContractService contractService;
+    private final ObjectMapper objectMapper;
+    private final TransitionRetry transitionRetry;
 
-    OfferController(OfferService offerService, AuthorizationService authorizationService, ContractService contractService, UserDTOMapper userDTOMapper) {
+    OfferController(OfferService offerService, AuthorizationService authorizationService, ContractService contractService, UserDTOMapper userDTOMapper,
+            ObjectMapper objectMapper, TransitionRetry transitionRetry) {
         this.offerService = offerService;
         this.authorizationService = authorizationService;
         this.contractService = contractService;
+        this.objectMapper = objectMapper;
+        this.transitionRetry = transitionRetry;
     }
 
     /**
@@ -80,6 +89,14 @@ public class OfferController {
         return new ResponseEntity<>(response, status);
     }
 
+    /**
+     * Like createResponse for a successful read, tagged with the hash of the offers.
+     * Offers include the profile of their driver, which has no version.
+     */
+    private ResponseEntity<Object> createTaggedResponse(Object data, String message) {
+        return ETags.withETag(createResponse(data, message, HttpStatus.OK), ETags.ofContent(objectMapper, data));
+    }
+
     /**
      * Get all offers with optional filtering
      * 
@@ -100,7 +117,7 @@ public class OfferController {
             @RequestParam(required = false) OfferStatus status) {
         
         // Authenticate user
-        User authenticatedUser = authorizationService.authenticateUser(userId, token);
+        AuthenticatedPrincipal authenticatedUser = authorizationService.authenticate(userId, token);
         if (authenticatedUser == null) {
             return createResponse(null, INVALID_CREDENTIALS_MSG, HttpStatus.UNAUTHORIZED);
         }
@@ -126,13 +143,74 @@ public class OfferController {
                 for (Contract contract : requesterContracts) {
                     allOffers.addAll(offerService.getOffers(contract.getContractId(), null, status));
                 }
-                return createResponse(allOffers, null, HttpStatus.OK);
+                return createTaggedResponse(allOffers, null);
             }
         }
 
         // Get filtered offers
         List<OfferGetDTO> offers = offerService.getOffers(contractId, driverId, status);
-        return createResponse(offers, null, HttpStatus.OK);
+        return createTaggedResponse(offers, null);
+    }
+
+    /**
+     * Get all offers with optional filtering as a stream of newline delimited JSON,
+     * one offer per line. Selected by requesting the application/x-ndjson media type,
+     * access rules and filters are the same as for {@link #getOffers}. The offers are
+     * read from the database and written to the client one by one.
+     * 
+     * Example call:
+     * GET /api/v1/offers?status=CREATED
+     * Accept: application/x-ndjson
+     */
+    @GetMapping(value = "/api/v1/offers", produces = NdjsonWriter.NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamOffers(
+            @RequestHeader("UserId") Long userId,
+            @RequestHeader("Authorization") String token,
+            @RequestParam(required = false) Long contractId,
+            @RequestParam(required = false) Long driverId,
+            @RequestParam(required = false) OfferStatus status) {
+
+        AuthenticatedPrincipal authenticatedUser = authorizationService.authenticate(userId, token);
+        if (authenticatedUser == null) {
+            return createStreamingError(INVALID_CREDENTIALS_MSG, HttpStatus.UNAUTHORIZED);
+        }
+
+        Long requesterId = null;
+        if (authenticatedUser.getUserAccountType() == UserAccountType.DRIVER) {
+            // Drivers can only see their own offers
+            driverId = userId;
+        } else if (authenticatedUser.getUserAccountType() == UserAccountType.REQUESTER) {
+            // Requesters can only see offers for their contracts
+            if (contractId != null) {
+                Contract contract = contractService.getContractById(contractId);
+                if (!contract.getRequester().getUserId().equals(userId)) {
+                    return createStreamingError(NOT_AUTHORIZED_TO_VIEW_OFFERS_MSG, HttpStatus.FORBIDDEN);
+                }
+            } else {
+                requesterId = userId;
+            }
+        }
+
+        Long contractFilter = contractId;
+        Long driverFilter = driverId;
+        Long requesterFilter = requesterId;
+        StreamingResponseBody body = outputStream -> {
+            NdjsonWriter writer = new NdjsonWriter(objectMapper, outputStream);
+            offerService.streamOffers(contractFilter, driverFilter, requesterFilter, status, writer::write);
+            writer.finish();
+        };
+        return ResponseEntity.ok().contentType(NdjsonWriter.NDJSON).body(body);
+    }
+
+    private ResponseEntity<StreamingResponseBody> createStreamingError(String message, HttpStatus status) {
+        Map<String, Object> response = new HashMap<>();
+        response.put(MESSAGE_KEY, message);
+        response.put(TIMESTAMP_KEY, System.currentTimeMillis());
+        return ResponseEntity.status(status).contentType(NdjsonWriter.NDJSON).body(outputStream -> {
+            NdjsonWriter writer = new NdjsonWriter(objectMapper, outputStream);
+            writer.write(response);
+            writer.finish();
+        });
     }
 
     /**
@@ -149,7 +227,7 @@ public class OfferController {
             @RequestHeader("Authorization") String token) {
         
         // Authenticate user
-        User authenticatedUser = authorizationService.authenticateUser(userId, token);
+        AuthenticatedPrincipal authenticatedUser = authorizationService.authenticate(userId, token);
         if (authenticatedUser == null) {
             return createResponse(null, INVALID_CREDENTIALS_MSG, HttpStatus.UNAUTHORIZED);
         }
@@ -173,7 +251,7 @@ public class OfferController {
             return createResponse(null, INVALID_USER_ACCOUNT_TYPE_MSG, HttpStatus.FORBIDDEN);
         }
 
-        return createResponse(offer, null, HttpStatus.OK);
+        return createTaggedResponse(offer, null);
     }
 
     /**
@@ -190,7 +268,7 @@ public class OfferController {
             @RequestHeader("Authorization") String token) {
         
         // Authenticate user
-        User authenticatedUser = authorizationService.authenticateUser(userId, token);
+        AuthenticatedPrincipal authenticatedUser = authorizationService.authenticate(userId, token);
         if (authenticatedUser == null) {
             return createResponse(null, INVALID_CREDENTIALS_MSG, HttpStatus.UNAUTHORIZED);
         }
@@ -219,7 +297,7 @@ public class OfferController {
 
         // Get offers for the contract
         List<OfferGetDTO> offers = offerService.getOffers(contractId, null, null);
-        return createResponse(offers, "Offers retrieved successfully", HttpStatus.OK);
+        return createTaggedResponse(offers, "Offers retrieved successfully");
     }
 
     /**
@@ -241,7 +319,7 @@ public class OfferController {
             @RequestBody OfferPostDTO offerPostDTO) {
         
         // Authenticate user
-        User authenticatedUser = authorizationService.authenticateUser(userId, token);
+        AuthenticatedPrincipal authenticatedUser = authorizationService.authenticate(userId, token);
         if (authenticatedUser == null) {
             Map<String, Object> response = new HashMap<>();
             response.put(MESSAGE_KEY, INVALID_CREDENTIALS_MSG);
@@ -292,7 +370,7 @@ public class OfferController {
             @RequestHeader("Authorization") String token) {
         
         // Authenticate user
-        User authenticatedUser = authorizationService.authenticateUser(userId, token);
+        AuthenticatedPrincipal authenticatedUser = authorizationService.authenticate(userId, token);
         if (authenticatedUser == null) {
             Map<String, Object> response = new HashMap<>();
             response.put(MESSAGE_KEY, INVALID_CREDENTIALS_MSG);
@@ -356,7 +434,7 @@ public class OfferController {
             @RequestHeader("Authorization") String token) {
         
         // Authenticate user
-        User authenticatedUser = authorizationService.authenticateUser(userId, token);
+        AuthenticatedPrincipal authenticatedUser = authorizationService.authenticate(userId, token);
         if (authenticatedUser == null) {
             Map<String, Object> response = new HashMap<>();
             response.put(MESSAGE_KEY, INVALID_CREDENTIALS_MSG);
@@ -406,8 +484,9 @@ public class OfferController {
             return new ResponseEntity<>(response, HttpStatus.FORBIDDEN);
         }
 
-        // Update the offer status
-        OfferGetDTO updatedOffer = offerService.updateOfferStatus(offerId, status);
+        // Update the offer status, retried if the offer or its contract are changed concurrently
+        OfferGetDTO updatedOffer = transitionRetry.execute(() -> offerService.updateOfferStatus(offerId, status),
+            OFFER_KEY, () -> offerService.getOffer(offerId));
 
         // Return success response
         Map<String, Object> response = new HashMap<>();
@@ -434,7 +513,7 @@ public class OfferController {
             @RequestParam(required = false) OfferStatus status) {
         
         // Authenticate user
-        User authenticatedUser = authorizationService.authenticateUser(userId, token);
+        AuthenticatedPrincipal authenticatedUser = authorizationService.authenticate(userId, token);
         if (authenticatedUser == null) {
             Map<String, Object> response = new HashMap<>();
             response.put(MESSAGE_KEY, INVALID_CREDENTIALS_MSG);
@@ -467,7 +546,7 @@ public class OfferController {
         response.put("offers", offers);
         response.put(TIMESTAMP_KEY, System.currentTimeMillis());
         
-        return new ResponseEntity<>(response, HttpStatus.OK);
+        return ETags.withETag(new ResponseEntity<>(response, HttpStatus.OK), ETags.ofContent(objectMapper, offers));
     }
 
     /**
@@ -488,7 +567,7 @@ public class OfferController {
             @RequestHeader("UserId") Long userId,
             @RequestHeader("Authorization") String token) {
         // Authenticate user
-        User authenticatedUser = authorizationService.authenticateUser(userId, token);
+        AuthenticatedPrincipal authenticatedUser = authorizationService.authenticate(userId, token);
         if (authenticatedUser == null) {
             return createResponse(null, INVALID_CREDENTIALS_MSG, HttpStatus.UNAUTHORIZED);
         }
@@ -70,7 +70,7 @@ public class RatingController {
     @GetMapping("/{id}")
     public ResponseEntity<Object> getRatingById(@PathVariable Long id, @RequestHeader("userId") Long userId, @RequestHeader("Authorization") String token) {
         log.info("Received request to get rating by ID: {}", id);
-        if (authorizationService.authenticateUser(userId, token) == null) {
+        if (authorizationService.authenticate(userId, token) == null) {
             log.warn("Unauthorized attempt to get rating ID: {} by user ID: {}", id, userId);
             return createResponse(null, ERROR_USER_NOT_AUTHORIZED, HttpStatus.UNAUTHORIZED);
         }
@@ -97,7 +97,7 @@ public class RatingController {
             @RequestHeader("Authorization") String token) {
         log.info("Received request to get ratings for user ID: {}", userId);
         // Authenticate user
-        if (authorizationService.authenticateUser(requestUserId, token) == null) {
+        if (authorizationService.authenticate(requestUserId, token) == null) {
             log.warn("Unauthorized attempt to get ratings for user ID: {} by request user ID: {}", userId, requestUserId);
             return createResponse(null, ERROR_USER_NOT_AUTHORIZED, HttpStatus.UNAUTHORIZED);
         }
@@ -124,7 +124,7 @@ public class RatingController {
             @RequestHeader("Authorization") String token) {
         log.info("Received request to get ratings for contract ID: {}", contractId);
         // Authenticate user
-        if (authorizationService.authenticateUser(userId, token) == null) {
+        if (authorizationService.authenticate(userId, token) == null) {
             log.warn("Unauthorized attempt to get ratings for contract ID: {} by user ID: {}", contractId, userId);
             return createResponse(null, ERROR_USER_NOT_AUTHORIZED, HttpStatus.UNAUTHORIZED);
         }
@@ -152,7 +152,7 @@ public class RatingController {
         log.info("Received request to create rating from user ID: {} for contract ID: {}. DTO: {}", userId, ratingPostDTO.getContractId(), dtoString);
 
         // Authenticate user
-        if (authorizationService.authenticateUser(userId, token) == null) {
+        if (authorizationService.authenticate(userId, token) == null) {
             log.warn("Unauthorized attempt to create rating by user ID: {}", userId);
             return createResponse(null, ERROR_USER_NOT_AUTHORIZED, HttpStatus.UNAUTHORIZED);
         }
@@ -189,7 +189,7 @@ public class RatingController {
         log.info("Received request to update rating ID: {} by user ID: {}. DTO: {}", id, userId, dtoString);
 
         // Authenticate user
-        if (authorizationService.authenticateUser(userId, token) == null) {
+        if (authorizationService.authenticate(userId, token) == null) {
             log.warn("Unauthorized attempt to update rating ID: {} by user ID: {}", id, userId);
             return createResponse(null, ERROR_USER_NOT_AUTHORIZED, HttpStatus.UNAUTHORIZED);
         }
@@ -216,7 +216,7 @@ public class RatingController {
             @RequestHeader("Authorization") String token) {
         log.info("Received request to delete rating ID: {} by user ID: {}", id, userId);
         // Authenticate user
-        if (authorizationService.authenticateUser(userId, token) == null) {
+        if (authorizationService.authenticate(userId, token) == null) {
             log.warn("Unauthorized attempt to delete rating ID: {} by user ID: {}", id, userId);
             return createResponse(null, ERROR_USER_NOT_AUTHORIZED, HttpStatus.UNAUTHORIZED);
         }
@@ -248,7 +248,7 @@ public class RatingController {
             @RequestHeader("Authorization") String token) {
         log.info("Received request to get average rating for user ID: {}", userId);
         // Authenticate user
-        if (authorizationService.authenticateUser(requestUserId, token) == null) {
+        if (authorizationService.authenticate(requestUserId, token) == null) {
             log.warn("Unauthorized attempt to get average rating for user ID: {} by request user ID: {}", userId, requestUserId);
             return createResponse(null, ERROR_USER_NOT_AUTHORIZED, HttpStatus.UNAUTHORIZED);
         }
@@ -13,13 +13,20 @@ import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
 import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
+import javax.persistence.NamedSubgraph;
 import javax.persistence.OneToMany;
 import javax.persistence.OneToOne;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Version;
 
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.CreationTimestamp;
 
 import ch.uzh.ifi.hase.soprafs24.constant.ContractStatus;
@@ -30,6 +37,15 @@ import lombok.ToString;
 
 @Entity
 @Table(name="CONTRACTS")
+@NamedEntityGraph(name = Contract.WITH_PARTICIPANTS, attributeNodes = {
+    @NamedAttributeNode("requester"),
+    @NamedAttributeNode(value = "driver", subgraph = "driver"),
+    @NamedAttributeNode("fromAddress"),
+    @NamedAttributeNode("toAddress")
+}, subgraphs = @NamedSubgraph(name = "driver", attributeNodes = {
+    @NamedAttributeNode("car"),
+    @NamedAttributeNode("location")
+}))
 @EqualsAndHashCode
 @ToString(exclude = "requester")
 @Getter @Setter
@@ -37,8 +53,14 @@ public class Contract implements Serializable{
 
     private static final long serialVersionUID = 1L;
 
+    /**
+     * Fetch plan loading the users and addresses of contracts in the same query
+     */
+    public static final String WITH_PARTICIPANTS = "Contract.withParticipants";
+
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "contract_seq")
+    @SequenceGenerator(name = "contract_seq", sequenceName = "CONTRACT_SEQ", allocationSize = 50)
     private Long contractId;
 
     @ManyToOne
@@ -53,6 +75,13 @@ public class Contract implements Serializable{
     @Enumerated(EnumType.STRING)
     private ContractStatus contractStatus;
 
+    /**
+     * Incremented with every update, so that concurrent state transitions of the same contract
+     * fail instead of overwriting each other
+     */
+    @Version
+    private Long version;
+
     @CreationTimestamp
     @Column
     private LocalDateTime creationDateTime;
@@ -104,7 +133,9 @@ public class Contract implements Serializable{
     @Column
     private String contractDescription;
 
+    // Photos of up to 50 contracts of the persistence context are loaded at once
     @ElementCollection
+    @BatchSize(size = 50)
     @CollectionTable(name = "contract_photos", joinColumns = @JoinColumn(name = "contract_id"))
     @Column(name = "photo")
     private List<String> contractPhotos = new ArrayList<>();
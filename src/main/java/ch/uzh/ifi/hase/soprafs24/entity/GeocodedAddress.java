@@ -0,0 +1,43 @@
+package ch.uzh.ifi.hase.soprafs24.entity;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import org.hibernate.annotations.UpdateTimestamp;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * Persisted result of geocoding an address, keyed by the normalized address
+ */
+@Entity
+@Table(name = "GEOCODED_ADDRESS")
+@Getter @Setter
+@EqualsAndHashCode
+@ToString
+public class GeocodedAddress implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @Column(length = 512)
+    private String normalizedAddress;
+
+    @Column(nullable = false)
+    private double latitude;
+
+    @Column(nullable = false)
+    private double longitude;
+
+    @UpdateTimestamp
+    @Column
+    private LocalDateTime resolvedDateTime;
+}
@@ -2,19 +2,30 @@ package ch.uzh.ifi.hase.soprafs24.entity;
 
 import java.io.Serializable;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import lombok.Getter;
 import lombok.Setter;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
 
 @Entity
-@Table(name="LOCATION")
+@Table(name="LOCATION", indexes = {
+    @Index(name = "idx_location_lat_lng", columnList = "latitude, longitude")
+})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "location")
 @Getter @Setter
 @EqualsAndHashCode
 @ToString
@@ -22,7 +33,8 @@ public class Location implements Serializable {
     
     private static final long serialVersionUID = 1L;
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "location_seq")
+    @SequenceGenerator(name = "location_seq", sequenceName = "LOCATION_SEQ", allocationSize = 50)
     private Long id;
 
     @Column
@@ -5,10 +5,16 @@ import java.time.LocalDateTime;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
+import javax.persistence.NamedSubgraph;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Version;
 
 import org.hibernate.annotations.CreationTimestamp;
 
@@ -20,14 +26,34 @@ import lombok.ToString;
 
 @Entity
 @Table(name = "OFFERS")
+@NamedEntityGraph(name = Offer.WITH_CONTRACT_AND_DRIVER, attributeNodes = {
+    @NamedAttributeNode(value = "contract", subgraph = "contract"),
+    @NamedAttributeNode(value = "driver", subgraph = "driver")
+}, subgraphs = {
+    @NamedSubgraph(name = "contract", attributeNodes = {
+        @NamedAttributeNode("requester"),
+        @NamedAttributeNode("fromAddress"),
+        @NamedAttributeNode("toAddress")
+    }),
+    @NamedSubgraph(name = "driver", attributeNodes = {
+        @NamedAttributeNode("car"),
+        @NamedAttributeNode("location")
+    })
+})
 @EqualsAndHashCode
 @ToString
 @Getter @Setter
 public class Offer implements Serializable {
     private static final long serialVersionUID = 1L;
+
+    /**
+     * Fetch plan loading everything an OfferGetDTO is mapped from in the same query
+     */
+    public static final String WITH_CONTRACT_AND_DRIVER = "Offer.withContractAndDriver";
     
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "offer_seq")
+    @SequenceGenerator(name = "offer_seq", sequenceName = "OFFER_SEQ", allocationSize = 50)
     private Long offerId;
 
     @ManyToOne
@@ -45,6 +71,13 @@ public class Offer implements Serializable {
     @Column
     private LocalDateTime creationDateTime;
 
+    /**
+     * Incremented with every update, so that concurrent state transitions of the same offer
+     * fail instead of overwriting each other
+     */
+    @Version
+    private Long version;
+
     public void setContract(Contract contract) {
         this.contract = contract;
     }
@@ -5,9 +5,14 @@ import java.io.Serializable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
+import javax.persistence.NamedSubgraph;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 
 import lombok.Getter;
@@ -17,14 +22,29 @@ import lombok.ToString;
 
 @Entity
 @Table(name = "RATING")
+@NamedEntityGraph(name = Rating.WITH_USERS_AND_CONTRACT, attributeNodes = {
+    @NamedAttributeNode("fromUser"),
+    @NamedAttributeNode("toUser"),
+    @NamedAttributeNode(value = "contract", subgraph = "contract")
+}, subgraphs = @NamedSubgraph(name = "contract", attributeNodes = {
+    @NamedAttributeNode("requester"),
+    @NamedAttributeNode("fromAddress"),
+    @NamedAttributeNode("toAddress")
+}))
 @Getter @Setter
 @EqualsAndHashCode
 @ToString
 public class Rating implements Serializable{
     private static final long serialVersionUID = 1L;
 
+    /**
+     * Fetch plan loading the rated users and the contract in the same query
+     */
+    public static final String WITH_USERS_AND_CONTRACT = "Rating.withUsersAndContract";
+
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "rating_seq")
+    @SequenceGenerator(name = "rating_seq", sequenceName = "RATING_SEQ", allocationSize = 50)
     private Long ratingId;
 
     @ManyToOne
@@ -6,6 +6,7 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.EnumType;
@@ -16,8 +17,12 @@ import javax.persistence.Id;
 import javax.persistence.Inheritance;
 import javax.persistence.InheritanceType;
 import javax.persistence.OneToMany;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 
 import ch.uzh.ifi.hase.soprafs24.constant.UserAccountType;
@@ -35,10 +40,14 @@ import lombok.ToString;
  * - nullable = false -> this cannot be left empty
  * - unique = true -> this value must be unqiue across the database -> composes
  * the primary key
+ * Users are kept in the second-level cache (region "user", shared by drivers and
+ * requesters), since every authenticated request loads the user.
  */
 @Entity
 @Inheritance(strategy = InheritanceType.JOINED)
 @Table(name = "USERS")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "user")
 @Getter @Setter
 @EqualsAndHashCode
 @ToString
@@ -47,7 +56,8 @@ public class User implements Serializable {
   private static final long serialVersionUID = 1L;
 
   @Id
-  @GeneratedValue(strategy=GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_seq")
+  @SequenceGenerator(name = "user_seq", sequenceName = "USER_SEQ", allocationSize = 50)
   private Long userId;
 
   
@@ -81,7 +91,9 @@ public class User implements Serializable {
   @OneToMany(mappedBy = "fromUser")
   private List<Rating> ratingsGiven =  new ArrayList<>();
 
+  // Ratings of up to 50 users of the persistence context are loaded at once
   @OneToMany(mappedBy = "toUser")
+  @BatchSize(size = 50)
   private List<Rating> ratingsReceived =  new ArrayList<>();
 
 
@@ -102,11 +114,19 @@ public class User implements Serializable {
   @Column(nullable=true)
   private String token;
 
+  // Incremented to revoke all signed tokens issued before, see TokenService
+  @Column(nullable=false)
+  private int tokenVersion;
+
 
   
 
 
 
+  public void incrementTokenVersion() {
+    this.tokenVersion++;
+  }
+
   //ratings given
   public void addRatingGiven(Rating rating){
     this.ratingsGiven.add(rating);
@@ -1,5 +1,8 @@
 package ch.uzh.ifi.hase.soprafs24.exceptions;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpHeaders;
@@ -27,6 +30,17 @@ public class GlobalExceptionAdvice extends ResponseEntityExceptionHandler {
     return handleExceptionInternal(ex, bodyOfResponse, new HttpHeaders(), HttpStatus.CONFLICT, request);
   }
 
+  @ExceptionHandler(StateConflictException.class)
+  public ResponseEntity<Object> handleStateConflict(StateConflictException ex) {
+    Map<String, Object> response = new HashMap<>();
+    if (ex.getCurrentState() != null) {
+      response.put(ex.getStateKey(), ex.getCurrentState());
+    }
+    response.put("message", ex.getReason());
+    response.put("timestamp", System.currentTimeMillis());
+    return new ResponseEntity<>(response, HttpStatus.CONFLICT);
+  }
+
   @ExceptionHandler(TransactionSystemException.class)
   public ResponseStatusException handleTransactionSystemException(Exception ex, HttpServletRequest request) {
     log.error("Request: {} raised {}", request.getRequestURL(), ex);
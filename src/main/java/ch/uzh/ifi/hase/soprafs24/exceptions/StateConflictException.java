@@ -0,0 +1,29 @@
+package ch.uzh.ifi.hase.soprafs24.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * A state transition conflicted with a concurrent change of the same contract or offer.
+ * Answered with a 409 containing the current state under the given key, e.g. "contract",
+ * so the client can decide what to do instead of retrying blindly.
+ */
+public class StateConflictException extends ResponseStatusException {
+
+    private final String stateKey;
+    private final transient Object currentState;
+
+    public StateConflictException(String reason, String stateKey, Object currentState, Throwable cause) {
+        super(HttpStatus.CONFLICT, reason, cause);
+        this.stateKey = stateKey;
+        this.currentState = currentState;
+    }
+
+    public String getStateKey() {
+        return stateKey;
+    }
+
+    public Object getCurrentState() {
+        return currentState;
+    }
+}
@@ -1,11 +1,15 @@
 package ch.uzh.ifi.hase.soprafs24.repository;
 
+import javax.persistence.QueryHint;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import ch.uzh.ifi.hase.soprafs24.entity.Car;
 
 @Repository("carRepository")
 public interface CarRepository extends JpaRepository<Car, Long> {
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"))
     Car findByLicensePlate(String licensePlate);
 }
\ No newline at end of file
@@ -0,0 +1,13 @@
+package ch.uzh.ifi.hase.soprafs24.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projection of a contract to its move date, which is the deadline of the contract
+ */
+public interface ContractDeadline {
+
+    Long getContractId();
+
+    LocalDateTime getMoveDateTime();
+}
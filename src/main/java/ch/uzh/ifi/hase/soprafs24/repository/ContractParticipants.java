@@ -0,0 +1,16 @@
+package ch.uzh.ifi.hase.soprafs24.repository;
+
+/**
+ * Projection of a contract to the users taking part in it: the requester, the driver of
+ * the accepted offer and the driver of one offer (one row per offer)
+ */
+public interface ContractParticipants {
+
+    Long getContractId();
+
+    Long getRequesterId();
+
+    Long getDriverId();
+
+    Long getOfferDriverId();
+}
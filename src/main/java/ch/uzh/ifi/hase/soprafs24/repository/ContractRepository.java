@@ -1,19 +1,84 @@
 package ch.uzh.ifi.hase.soprafs24.repository;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import ch.uzh.ifi.hase.soprafs24.entity.Contract;
 import ch.uzh.ifi.hase.soprafs24.constant.ContractStatus;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.time.LocalDateTime;
 
 @Repository("contractRepository")
-public interface ContractRepository extends JpaRepository<Contract, Long> {
-    List<Contract> findByRequester_UserId(Long userId);
-    List<Contract> findByDriver_UserId(Long userId);
+public interface ContractRepository extends JpaRepository<Contract, Long>, JpaSpecificationExecutor<Contract>,
+        ContractRepositoryCustom {
+    @Override
+    @EntityGraph(Contract.WITH_PARTICIPANTS)
+    Optional<Contract> findById(Long contractId);
+    // Derived queries would filter on the joined requester/driver tables, which the database
+    // cannot look up by index. The queries below compare the foreign key columns instead.
+    @EntityGraph(Contract.WITH_PARTICIPANTS)
+    @Query("select c from Contract c where c.requester.userId = :userId")
+    List<Contract> findByRequester_UserId(@Param("userId") Long userId);
+    @EntityGraph(Contract.WITH_PARTICIPANTS)
+    @Query("select c from Contract c where c.driver.userId = :userId")
+    List<Contract> findByDriver_UserId(@Param("userId") Long userId);
     List<Contract> findByContractStatus(ContractStatus status);
-    List<Contract> findByRequester_UserIdAndContractStatus(Long requesterId, ContractStatus status);
-    List<Contract> findByDriver_UserIdAndContractStatus(Long driverId, ContractStatus status);
+    @EntityGraph(Contract.WITH_PARTICIPANTS)
+    @Query("select c from Contract c where c.requester.userId = :requesterId and c.contractStatus = :status")
+    List<Contract> findByRequester_UserIdAndContractStatus(@Param("requesterId") Long requesterId,
+            @Param("status") ContractStatus status);
+    @EntityGraph(Contract.WITH_PARTICIPANTS)
+    @Query("select c from Contract c where c.driver.userId = :driverId and c.contractStatus = :status")
+    List<Contract> findByDriver_UserIdAndContractStatus(@Param("driverId") Long driverId,
+            @Param("status") ContractStatus status);
     List<Contract> findByContractStatusAndMoveDateTimeBefore(ContractStatus status, LocalDateTime dateTime);
+    List<ContractDeadline> findByContractStatusIn(Collection<ContractStatus> statuses);
+    // Users to notify about a change of the contracts, only for contracts in the given status
+    @Query("select c.contractId as contractId, r.userId as requesterId, d.userId as driverId,"
+            + " od.userId as offerDriverId from Contract c join c.requester r left join c.driver d"
+            + " left join c.offers o left join o.driver od"
+            + " where c.contractId in :contractIds and c.contractStatus = :status")
+    List<ContractParticipants> findParticipantsByContractIdInAndContractStatus(
+            @Param("contractIds") Collection<Long> contractIds, @Param("status") ContractStatus status);
+
+    // Bulk transitions of expired contracts. The updates repeat the status and move date
+    // conditions, so contracts changed since their ids were selected are left untouched, and
+    // increment the versions, so concurrent transitions of the updated contracts fail.
+    // Ids are split into partitions by their remainder, so several instances can share a sweep
+    @Query("select c.contractId from Contract c where c.contractStatus in :statuses and c.moveDateTime < :dateTime"
+            + " and mod(c.contractId, :partitions) = :partition order by c.contractId")
+    List<Long> findIdsByContractStatusInAndMoveDateTimeBefore(@Param("statuses") Collection<ContractStatus> statuses,
+            @Param("dateTime") LocalDateTime dateTime, @Param("partitions") int partitions,
+            @Param("partition") int partition, Pageable pageable);
+    @Query("select c.contractId from Contract c where c.contractId in :contractIds and c.contractStatus in :statuses"
+            + " and c.moveDateTime < :dateTime")
+    List<Long> findIdsByContractIdInAndContractStatusInAndMoveDateTimeBefore(
+            @Param("contractIds") Collection<Long> contractIds, @Param("statuses") Collection<ContractStatus> statuses,
+            @Param("dateTime") LocalDateTime dateTime);
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Contract c set c.contractStatus = :newStatus, c.version = c.version + 1"
+            + " where c.contractId in :contractIds and c.contractStatus in :statuses and c.moveDateTime < :dateTime")
+    int updateStatusOfExpiredContracts(@Param("contractIds") Collection<Long> contractIds,
+            @Param("statuses") Collection<ContractStatus> statuses, @Param("dateTime") LocalDateTime dateTime,
+            @Param("newStatus") ContractStatus newStatus);
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Contract c set c.contractStatus = :newStatus, c.cancelReason = :cancelReason,"
+            + " c.version = c.version + 1"
+            + " where c.contractId in :contractIds and c.contractStatus in :statuses and c.moveDateTime < :dateTime")
+    int cancelExpiredContracts(@Param("contractIds") Collection<Long> contractIds,
+            @Param("statuses") Collection<ContractStatus> statuses, @Param("dateTime") LocalDateTime dateTime,
+            @Param("newStatus") ContractStatus newStatus, @Param("cancelReason") String cancelReason);
+    @Query("select c.contractId from Contract c where c.contractId in :contractIds and c.contractStatus = :status"
+            + " and c.cancelReason = :cancelReason")
+    List<Long> findIdsByContractIdInAndContractStatusAndCancelReason(
+            @Param("contractIds") Collection<Long> contractIds, @Param("status") ContractStatus status,
+            @Param("cancelReason") String cancelReason);
 }
\ No newline at end of file
@@ -0,0 +1,39 @@
+package ch.uzh.ifi.hase.soprafs24.repository;
+
+import java.util.List;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import ch.uzh.ifi.hase.soprafs24.entity.Contract;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.contract.ContractGetDTO;
+
+public interface ContractRepositoryCustom {
+
+    /**
+     * Returns at most {@code limit} contracts matching the specification in the given order.
+     * Unlike the pageable variants of {@link org.springframework.data.jpa.repository.JpaSpecificationExecutor}
+     * this does not issue an additional count query, which keeps keyset pagination cheap.
+     */
+    List<Contract> findAll(Specification<Contract> specification, Sort sort, int limit);
+
+    /**
+     * Returns the contracts matching the specification in the given order, read directly
+     * into DTOs. Only the columns of {@link ContractGetDTO} are selected and the photos of
+     * all contracts are loaded with one additional query, no entities are loaded into the
+     * persistence context.
+     */
+    List<ContractGetDTO> findAllAsDTO(Specification<Contract> specification, Sort sort);
+
+    /**
+     * Returns at most {@code limit} contracts matching the specification as DTOs, like
+     * {@link #findAllAsDTO(Specification, Sort)}, e.g. one batch of a keyset-paginated read
+     */
+    List<ContractGetDTO> findAllAsDTO(Specification<Contract> specification, Sort sort, int limit);
+
+    /**
+     * Summarizes the versions of the contracts matching the specification with one
+     * aggregate query, no contracts are loaded.
+     */
+    VersionSummary summarizeVersions(Specification<Contract> specification);
+}
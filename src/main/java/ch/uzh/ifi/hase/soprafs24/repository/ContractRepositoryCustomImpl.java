@@ -0,0 +1,188 @@
+package ch.uzh.ifi.hase.soprafs24.repository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.From;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import ch.uzh.ifi.hase.soprafs24.constant.ContractStatus;
+import ch.uzh.ifi.hase.soprafs24.entity.Contract;
+import ch.uzh.ifi.hase.soprafs24.entity.Location;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.LocationDTO;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.contract.ContractGetDTO;
+
+class ContractRepositoryCustomImpl implements ContractRepositoryCustom {
+
+    // Contract ids per photo query, keeps the IN list within the limits of the database
+    private static final int PHOTO_BATCH_SIZE = 500;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Contract> findAll(Specification<Contract> specification, Sort sort, int limit) {
+        return createQuery(specification, sort)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public List<ContractGetDTO> findAllAsDTO(Specification<Contract> specification, Sort sort) {
+        return findAllAsDTO(specification, sort, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<ContractGetDTO> findAllAsDTO(Specification<Contract> specification, Sort sort, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Contract> root = query.from(Contract.class);
+        Join<Contract, Location> fromAddress = root.join("fromAddress", JoinType.LEFT);
+        Join<Contract, Location> toAddress = root.join("toAddress", JoinType.LEFT);
+
+        if (specification != null) {
+            query.where(specification.toPredicate(root, query, cb));
+        }
+        List<Selection<?>> columns = new ArrayList<>();
+        for (String attribute : List.of("contractId", "title", "weight", "height", "width", "length", "fragile",
+                "coolingRequired", "rideAlong", "manPower", "contractDescription", "price", "moveDateTime",
+                "contractStatus", "creationDateTime", "cancelReason")) {
+            columns.add(root.get(attribute).alias(attribute));
+        }
+        // Only the foreign keys are read, the users themselves are not joined
+        columns.add(root.get("requester").get("userId").alias("requesterId"));
+        columns.add(root.get("driver").get("userId").alias("driverId"));
+        addLocationColumns(columns, fromAddress, "from");
+        addLocationColumns(columns, toAddress, "to");
+        query.multiselect(columns);
+        query.orderBy(QueryUtils.toOrders(sort, root, cb));
+
+        List<ContractGetDTO> contracts = entityManager.createQuery(query).setMaxResults(limit).getResultList().stream()
+                .map(ContractRepositoryCustomImpl::toContractGetDTO)
+                .collect(Collectors.toList());
+        addPhotos(contracts);
+        return contracts;
+    }
+
+    @Override
+    public VersionSummary summarizeVersions(Specification<Contract> specification) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Contract> root = query.from(Contract.class);
+
+        if (specification != null) {
+            query.where(specification.toPredicate(root, query, cb));
+        }
+        query.multiselect(
+                cb.count(root).alias("count"),
+                cb.sum(root.<Long>get("contractId")).alias("idSum"),
+                cb.sum(root.<Long>get("version")).alias("versionSum"),
+                cb.greatest(root.<LocalDateTime>get("creationDateTime")).alias("lastCreated"));
+
+        Tuple row = entityManager.createQuery(query).getSingleResult();
+        // The sums are null if no contract matches
+        Long idSum = row.get("idSum", Long.class);
+        Long versionSum = row.get("versionSum", Long.class);
+        return new VersionSummary(row.get("count", Long.class), idSum != null ? idSum : 0,
+                versionSum != null ? versionSum : 0, row.get("lastCreated", LocalDateTime.class));
+    }
+
+    private TypedQuery<Contract> createQuery(Specification<Contract> specification, Sort sort) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Contract> query = cb.createQuery(Contract.class);
+        Root<Contract> root = query.from(Contract.class);
+
+        if (specification != null) {
+            query.where(specification.toPredicate(root, query, cb));
+        }
+        query.select(root);
+        query.orderBy(QueryUtils.toOrders(sort, root, cb));
+
+        return entityManager.createQuery(query);
+    }
+
+    /**
+     * Loads the photos of all given contracts, in batches of PHOTO_BATCH_SIZE contracts
+     * per query instead of one query per contract
+     */
+    private void addPhotos(List<ContractGetDTO> contracts) {
+        Map<Long, List<String>> photosById = new HashMap<>();
+        for (ContractGetDTO contract : contracts) {
+            contract.setContractPhotos(new ArrayList<>());
+            photosById.put(contract.getContractId(), contract.getContractPhotos());
+        }
+        List<Long> contractIds = new ArrayList<>(photosById.keySet());
+        for (int start = 0; start < contractIds.size(); start += PHOTO_BATCH_SIZE) {
+            List<Long> batch = contractIds.subList(start, Math.min(start + PHOTO_BATCH_SIZE, contractIds.size()));
+            entityManager.createQuery(
+                    "select c.contractId as contractId, photo as photo from Contract c join c.contractPhotos photo "
+                            + "where c.contractId in :contractIds", Tuple.class)
+                    .setParameter("contractIds", batch)
+                    .getResultList()
+                    .forEach(row -> photosById.get(row.get("contractId", Long.class))
+                            .add(row.get("photo", String.class)));
+        }
+    }
+
+    private static void addLocationColumns(List<Selection<?>> columns, From<?, Location> location, String prefix) {
+        columns.add(location.get("id").alias(prefix + "Id"));
+        columns.add(location.get("formattedAddress").alias(prefix + "FormattedAddress"));
+        columns.add(location.get("latitude").alias(prefix + "Latitude"));
+        columns.add(location.get("longitude").alias(prefix + "Longitude"));
+    }
+
+    private static ContractGetDTO toContractGetDTO(Tuple row) {
+        ContractGetDTO contract = new ContractGetDTO();
+        contract.setContractId(row.get("contractId", Long.class));
+        contract.setTitle(row.get("title", String.class));
+        contract.setWeight(row.get("weight", Double.class));
+        contract.setHeight(row.get("height", Double.class));
+        contract.setWidth(row.get("width", Double.class));
+        contract.setLength(row.get("length", Double.class));
+        contract.setFragile(row.get("fragile", Boolean.class));
+        contract.setCoolingRequired(row.get("coolingRequired", Boolean.class));
+        contract.setRideAlong(row.get("rideAlong", Boolean.class));
+        contract.setManPower(row.get("manPower", Integer.class));
+        contract.setContractDescription(row.get("contractDescription", String.class));
+        contract.setPrice(row.get("price", Double.class));
+        contract.setMoveDateTime(row.get("moveDateTime", LocalDateTime.class));
+        contract.setContractStatus(row.get("contractStatus", ContractStatus.class));
+        contract.setCreationDateTime(row.get("creationDateTime", LocalDateTime.class));
+        contract.setCancelReason(row.get("cancelReason", String.class));
+        contract.setRequesterId(row.get("requesterId", Long.class));
+        contract.setDriverId(row.get("driverId", Long.class));
+        contract.setFromLocation(toLocationDTO(row, "from"));
+        contract.setToLocation(toLocationDTO(row, "to"));
+        return contract;
+    }
+
+    private static LocationDTO toLocationDTO(Tuple row, String prefix) {
+        Long id = row.get(prefix + "Id", Long.class);
+        if (id == null) {
+            return null;
+        }
+        LocationDTO location = new LocationDTO();
+        location.setId(id);
+        location.setFormattedAddress(row.get(prefix + "FormattedAddress", String.class));
+        location.setLatitude(row.get(prefix + "Latitude", Double.class));
+        location.setLongitude(row.get(prefix + "Longitude", Double.class));
+        return location;
+    }
+}
@@ -0,0 +1,192 @@
+package ch.uzh.ifi.hase.soprafs24.repository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import ch.uzh.ifi.hase.soprafs24.constant.ContractStatus;
+import ch.uzh.ifi.hase.soprafs24.entity.Contract;
+import ch.uzh.ifi.hase.soprafs24.entity.Location;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.contract.ContractFilterDTO;
+
+/**
+ * ContractSpecifications
+ * Translates the contract search filters into JPA criteria predicates so that
+ * filtering happens in the database instead of in memory.
+ */
+public final class ContractSpecifications {
+
+    private ContractSpecifications() {
+    }
+
+    /**
+     * Builds a specification that turns every non-null field of the given filter
+     * into a SQL predicate. The radius filter is not part of the specification
+     * because it depends on the search origin.
+     *
+     * @param filters Filter criteria, may be null
+     * @return Specification matching all contracts that satisfy the filters
+     */
+    public static Specification<Contract> matchesFilters(ContractFilterDTO filters) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (filters == null) {
+                return cb.conjunction();
+            }
+
+            // Minimum price
+            if (filters.getPrice() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("price"), filters.getPrice()));
+            }
+
+            // Maximum weight and dimensions
+            if (filters.getWeight() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("weight"), filters.getWeight()));
+            }
+            if (filters.getHeight() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("height"), filters.getHeight()));
+            }
+            if (filters.getWidth() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("width"), filters.getWidth()));
+            }
+            if (filters.getLength() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("length"), filters.getLength()));
+            }
+
+            // Maximum required people
+            if (filters.getRequiredPeople() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("manPower"), filters.getRequiredPeople()));
+            }
+
+            // Flags only restrict the result when they are set to true
+            if (Boolean.TRUE.equals(filters.getFragile())) {
+                predicates.add(cb.isTrue(root.get("fragile")));
+            }
+            if (Boolean.TRUE.equals(filters.getCoolingRequired())) {
+                predicates.add(cb.isTrue(root.get("coolingRequired")));
+            }
+            if (Boolean.TRUE.equals(filters.getRideAlong())) {
+                predicates.add(cb.isTrue(root.get("rideAlong")));
+            }
+
+            // Move date as a half-open range so an index on moveDateTime can be used
+            if (filters.getMoveDate() != null) {
+                LocalDateTime startOfDay = filters.getMoveDate().atStartOfDay();
+                LocalDateTime startOfNextDay = filters.getMoveDate().plusDays(1).atStartOfDay();
+                predicates.add(cb.greaterThanOrEqualTo(root.get("moveDateTime"), startOfDay));
+                predicates.add(cb.lessThan(root.get("moveDateTime"), startOfNextDay));
+            }
+
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    /**
+     * Builds a specification that keeps contracts whose pickup location lies inside the
+     * given latitude/longitude bounds. Used as a cheap, index-backed prefilter for radius
+     * searches, so the bounds are expected to enclose the whole search radius.
+     *
+     * @return Specification matching all contracts picked up inside the bounds
+     */
+    public static Specification<Contract> fromAddressWithin(double minLat, double maxLat,
+                                                            double minLng, double maxLng) {
+        return (root, query, cb) -> {
+            Join<Contract, Location> fromAddress = root.join("fromAddress");
+            return cb.and(
+                    cb.between(fromAddress.get("latitude"), minLat, maxLat),
+                    cb.between(fromAddress.get("longitude"), minLng, maxLng));
+        };
+    }
+
+    /**
+     * Builds a specification that keeps contracts in one of the given states
+     *
+     * @return Specification matching all contracts with one of the statuses
+     */
+    public static Specification<Contract> hasStatusIn(Collection<ContractStatus> statuses) {
+        return (root, query, cb) -> root.get("contractStatus").in(statuses);
+    }
+
+    /**
+     * Builds a specification that keeps contracts with a greater id, e.g. to continue
+     * reading in contractId order after the last contract of a batch
+     *
+     * @return Specification matching all contracts after the given id
+     */
+    public static Specification<Contract> hasIdGreaterThan(Long contractId) {
+        return (root, query, cb) -> cb.greaterThan(root.get("contractId"), contractId);
+    }
+
+    /**
+     * Builds a specification that keeps contracts with one of the given ids
+     *
+     * @return Specification matching all contracts with one of the ids
+     */
+    public static Specification<Contract> hasIdIn(Collection<Long> contractIds) {
+        return (root, query, cb) -> root.get("contractId").in(contractIds);
+    }
+
+    /**
+     * Builds a specification that keeps the contracts of the given requester,
+     * optionally only those with the given status
+     *
+     * @param requesterId Id of the requester
+     * @param status      Status to filter by, may be null
+     * @return Specification matching the contracts of the requester
+     */
+    public static Specification<Contract> ofRequester(Long requesterId, ContractStatus status) {
+        return ofUser("requester", requesterId, status);
+    }
+
+    /**
+     * Builds a specification that keeps the contracts assigned to the given driver,
+     * optionally only those with the given status
+     *
+     * @param driverId Id of the driver
+     * @param status   Status to filter by, may be null
+     * @return Specification matching the contracts of the driver
+     */
+    public static Specification<Contract> ofDriver(Long driverId, ContractStatus status) {
+        return ofUser("driver", driverId, status);
+    }
+
+    private static Specification<Contract> ofUser(String association, Long userId, ContractStatus status) {
+        return (root, query, cb) -> {
+            // Compares the foreign key, the user table is not joined
+            Predicate ofUser = cb.equal(root.get(association).get("userId"), userId);
+            return status == null ? ofUser : cb.and(ofUser, cb.equal(root.get("contractStatus"), status));
+        };
+    }
+
+    /**
+     * Builds a keyset (seek) predicate that matches every contract ordered after the given
+     * position when sorting by {@code property} and then by contractId. Contracts without a
+     * value for the sort property are excluded so that the ordering is total.
+     *
+     * @param property   Sort property of the contract
+     * @param value      Sort value of the last contract on the previous page, null for the first page
+     * @param contractId Id of the last contract on the previous page, null for the first page
+     * @param descending Whether the contracts are sorted in descending order
+     * @return Specification matching all contracts after the given position
+     */
+    public static <Y extends Comparable<? super Y>> Specification<Contract> after(
+            String property, Y value, Long contractId, boolean descending) {
+        return (root, query, cb) -> {
+            Path<Y> sortPath = root.get(property);
+            if (value == null || contractId == null) {
+                return cb.isNotNull(sortPath);
+            }
+            Path<Long> idPath = root.get("contractId");
+            Predicate beyondValue = descending ? cb.lessThan(sortPath, value) : cb.greaterThan(sortPath, value);
+            Predicate beyondId = descending ? cb.lessThan(idPath, contractId) : cb.greaterThan(idPath, contractId);
+            return cb.or(beyondValue, cb.and(cb.equal(sortPath, value), beyondId));
+        };
+    }
+}
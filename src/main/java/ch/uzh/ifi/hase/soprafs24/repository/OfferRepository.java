@@ -1,20 +1,72 @@
 package ch.uzh.ifi.hase.soprafs24.repository;
 
+import java.util.Collection;
 import java.util.List;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import ch.uzh.ifi.hase.soprafs24.constant.OfferStatus;
 import ch.uzh.ifi.hase.soprafs24.entity.Offer;
 
 @Repository
-public interface OfferRepository extends JpaRepository<Offer, Long> {
-    List<Offer> findByContract_ContractIdAndDriver_UserIdAndOfferStatus(Long contractId, Long userId, OfferStatus status);
-    List<Offer> findByContract_ContractIdAndDriver_UserId(Long contractId, Long userId);
-    List<Offer> findByContract_ContractIdAndOfferStatus(Long contractId, OfferStatus status);
-    List<Offer> findByDriver_UserIdAndOfferStatus(Long userId, OfferStatus status);
-    List<Offer> findByContract_ContractId(Long contractId);
-    List<Offer> findByDriver_UserId(Long userId);
+public interface OfferRepository extends JpaRepository<Offer, Long>, OfferRepositoryCustom {
+    // Offer listings are mapped to OfferGetDTOs, which need the contract and driver of every offer.
+    // The queries compare the foreign key columns of the offer, so the database can use its indexes
+    // instead of filtering on the joined contract and driver tables.
+    @EntityGraph(Offer.WITH_CONTRACT_AND_DRIVER)
+    @Query("select o from Offer o where o.contract.contractId = :contractId and o.driver.userId = :userId"
+            + " and o.offerStatus = :status")
+    List<Offer> findByContract_ContractIdAndDriver_UserIdAndOfferStatus(@Param("contractId") Long contractId,
+            @Param("userId") Long userId, @Param("status") OfferStatus status);
+    @EntityGraph(Offer.WITH_CONTRACT_AND_DRIVER)
+    @Query("select o from Offer o where o.contract.contractId = :contractId and o.driver.userId = :userId")
+    List<Offer> findByContract_ContractIdAndDriver_UserId(@Param("contractId") Long contractId,
+            @Param("userId") Long userId);
+    @EntityGraph(Offer.WITH_CONTRACT_AND_DRIVER)
+    @Query("select o from Offer o where o.contract.contractId = :contractId and o.offerStatus = :status")
+    List<Offer> findByContract_ContractIdAndOfferStatus(@Param("contractId") Long contractId,
+            @Param("status") OfferStatus status);
+    @EntityGraph(Offer.WITH_CONTRACT_AND_DRIVER)
+    @Query("select o from Offer o where o.driver.userId = :userId and o.offerStatus = :status")
+    List<Offer> findByDriver_UserIdAndOfferStatus(@Param("userId") Long userId, @Param("status") OfferStatus status);
+    @EntityGraph(Offer.WITH_CONTRACT_AND_DRIVER)
+    @Query("select o from Offer o where o.contract.contractId = :contractId")
+    List<Offer> findByContract_ContractId(@Param("contractId") Long contractId);
+    @EntityGraph(Offer.WITH_CONTRACT_AND_DRIVER)
+    @Query("select o from Offer o where o.driver.userId = :userId")
+    List<Offer> findByDriver_UserId(@Param("userId") Long userId);
+    @EntityGraph(Offer.WITH_CONTRACT_AND_DRIVER)
     List<Offer> findByOfferStatus(OfferStatus status);
-} 
\ No newline at end of file
+    @Override
+    @EntityGraph(Offer.WITH_CONTRACT_AND_DRIVER)
+    List<Offer> findAll();
+
+    /**
+     * Sets the status of all offers of the given contracts in one statement, e.g. to reject
+     * the offers of canceled contracts. Offers that already have the status are not updated.
+     * Increments the versions of the updated offers, so concurrent transitions of them fail.
+     * @return Number of updated offers
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Offer o set o.offerStatus = :status, o.version = o.version + 1"
+            + " where o.contract.contractId in :contractIds and o.offerStatus <> :status")
+    int updateOfferStatusByContractIds(@Param("contractIds") Collection<Long> contractIds,
+            @Param("status") OfferStatus status);
+
+    /**
+     * Sets the status of the offers of a contract that have the given status, except one offer,
+     * in one statement, e.g. to reject the other CREATED offers once an offer is accepted.
+     * Increments the versions of the updated offers, so concurrent transitions of them fail.
+     * @return Number of updated offers
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Offer o set o.offerStatus = :newStatus, o.version = o.version + 1"
+            + " where o.contract.contractId = :contractId and o.offerStatus = :status and o.offerId <> :offerId")
+    int updateOfferStatusOfOtherOffers(@Param("contractId") Long contractId, @Param("offerId") Long offerId,
+            @Param("status") OfferStatus status, @Param("newStatus") OfferStatus newStatus);
+}
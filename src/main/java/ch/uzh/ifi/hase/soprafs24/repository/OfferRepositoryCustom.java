@@ -0,0 +1,23 @@
+package ch.uzh.ifi.hase.soprafs24.repository;
+
+import java.util.List;
+
+import ch.uzh.ifi.hase.soprafs24.constant.OfferStatus;
+import ch.uzh.ifi.hase.soprafs24.entity.Offer;
+
+public interface OfferRepositoryCustom {
+
+    /**
+     * Returns at most {@code limit} offers matching the given criteria whose offerId is
+     * greater than {@code afterOfferId}, ordered by offerId, e.g. one batch of a
+     * keyset-paginated read. Null criteria do not restrict the result.
+     *
+     * @param contractId   Id of the contract the offers were made for
+     * @param driverId     Id of the driver who made the offers
+     * @param requesterId  Id of the requester who owns the contracts
+     * @param status       Status of the offers
+     * @param afterOfferId Id of the last offer of the previous batch, null for the first batch
+     */
+    List<Offer> findBatch(Long contractId, Long driverId, Long requesterId, OfferStatus status, Long afterOfferId,
+            int limit);
+}
@@ -0,0 +1,52 @@
+package ch.uzh.ifi.hase.soprafs24.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+import ch.uzh.ifi.hase.soprafs24.constant.OfferStatus;
+import ch.uzh.ifi.hase.soprafs24.entity.Offer;
+
+class OfferRepositoryCustomImpl implements OfferRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Offer> findBatch(Long contractId, Long driverId, Long requesterId, OfferStatus status,
+            Long afterOfferId, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Offer> query = cb.createQuery(Offer.class);
+        Root<Offer> root = query.from(Offer.class);
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (contractId != null) {
+            predicates.add(cb.equal(root.get("contract").get("contractId"), contractId));
+        }
+        if (driverId != null) {
+            predicates.add(cb.equal(root.get("driver").get("userId"), driverId));
+        }
+        if (requesterId != null) {
+            predicates.add(cb.equal(root.get("contract").get("requester").get("userId"), requesterId));
+        }
+        if (status != null) {
+            predicates.add(cb.equal(root.get("offerStatus"), status));
+        }
+        if (afterOfferId != null) {
+            predicates.add(cb.greaterThan(root.get("offerId"), afterOfferId));
+        }
+        query.select(root)
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(cb.asc(root.get("offerId")));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
@@ -1,6 +1,9 @@
 package ch.uzh.ifi.hase.soprafs24.repository;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import ch.uzh.ifi.hase.soprafs24.entity.Rating;
@@ -11,7 +14,14 @@ public interface RatingRepository extends JpaRepository<Rating, Long> {
     // This class is intentionally left empty. The JpaRepository interface provides all the necessary methods for CRUD operations.
     // You can add custom query methods here if needed.
     Rating findByRatingId(Long ratingId);
-    List<Rating> findByToUser_UserId(Long userId);
-    List<Rating> findByContract_ContractId(Long contractId);
-    Rating findByContract_ContractIdAndFromUser_UserId(Long contractId, Long fromUserId);
+    // Compare the foreign key columns of the rating, so the lookups can use its indexes
+    @EntityGraph(Rating.WITH_USERS_AND_CONTRACT)
+    @Query("select r from Rating r where r.toUser.userId = :userId")
+    List<Rating> findByToUser_UserId(@Param("userId") Long userId);
+    @EntityGraph(Rating.WITH_USERS_AND_CONTRACT)
+    @Query("select r from Rating r where r.contract.contractId = :contractId")
+    List<Rating> findByContract_ContractId(@Param("contractId") Long contractId);
+    @Query("select r from Rating r where r.contract.contractId = :contractId and r.fromUser.userId = :fromUserId")
+    Rating findByContract_ContractIdAndFromUser_UserId(@Param("contractId") Long contractId,
+            @Param("fromUserId") Long fromUserId);
 }
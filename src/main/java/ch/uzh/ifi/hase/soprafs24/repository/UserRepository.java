@@ -1,10 +1,17 @@
 package ch.uzh.ifi.hase.soprafs24.repository;
 
+import java.util.List;
 import java.util.Optional;
 
+import javax.persistence.QueryHint;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import ch.uzh.ifi.hase.soprafs24.entity.Driver;
 import ch.uzh.ifi.hase.soprafs24.entity.User;
 
 @Repository("userRepository")
@@ -18,9 +25,17 @@ public interface UserRepository extends JpaRepository<User, Long> {
   boolean existsByToken(String token);
   // JPA dynamically implements "SELECT * FROM user WHERE phoneNumber = :phoneNumber"
   User findByPhoneNumber(String phoneNumber);
+  // Result is kept in the query cache, the user itself in the second-level cache
+  @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"))
   Optional<User> findByUserId(Long userId);
   boolean existsByUsernameAndUserIdNot(String username, Long userId);
   boolean existsByEmailAndUserIdNot(String email, Long userId);
   boolean existsByPhoneNumberAndUserIdNot(String phoneNumber, Long userId);
+  // Only the version is read, for checking signed tokens
+  @Query("select u.tokenVersion from User u where u.userId = :userId")
+  Optional<Integer> findTokenVersionByUserId(@Param("userId") Long userId);
+  // All drivers with the car and location their job feed is matched on
+  @Query("select d from Driver d left join fetch d.car left join fetch d.location")
+  List<Driver> findAllDriversWithCarAndLocation();
 
 }
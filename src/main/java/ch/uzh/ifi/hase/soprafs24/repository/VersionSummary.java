@@ -0,0 +1,31 @@
+package ch.uzh.ifi.hase.soprafs24.repository;
+
+import java.time.LocalDateTime;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Aggregate of the versioned rows matching a query: their number, the sums of their ids
+ * and versions and the latest creation time. Inserting, deleting or updating a matching
+ * row changes it, so it identifies the state of a list without loading the list.
+ * The creation time tells apart rows that reuse the ids of a reset database.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public final class VersionSummary {
+
+    private final long count;
+    private final long idSum;
+    private final long versionSum;
+    private final LocalDateTime lastCreated;
+
+    public VersionSummary(long count, long idSum, long versionSum, LocalDateTime lastCreated) {
+        this.count = count;
+        this.idSum = idSum;
+        this.versionSum = versionSum;
+        this.lastCreated = lastCreated;
+    }
+}
@@ -0,0 +1,21 @@
+package ch.uzh.ifi.hase.soprafs24.rest.dto.event;
+
+import ch.uzh.ifi.hase.soprafs24.constant.ChangeEventType;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Compact notification that a contract or offer changed its status. It carries no
+ * details, clients load the contract or offer if they need them. Drivers with offers
+ * for a contract receive its contract events, e.g. when another offer was accepted and
+ * theirs was rejected with it.
+ */
+@Getter
+@Setter
+public class ChangeEventDTO {
+    private ChangeEventType type;
+    private Long contractId;
+    private Long offerId;
+    private String status;
+    private long timestamp;
+}
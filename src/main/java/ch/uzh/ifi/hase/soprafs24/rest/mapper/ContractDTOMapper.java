@@ -48,6 +48,7 @@ public interface ContractDTOMapper {
     @Mapping(target = "toAddress", ignore = true)
     @Mapping(target = "cancelReason", ignore = true)
     @Mapping(target = "driver", ignore = true)
+    @Mapping(target = "version", ignore = true)
     Contract convertContractPostDTOtoEntity(ContractPostDTO contractPostDTO);
 
     @Mapping(source = "contractId", target = "contractId")
@@ -100,6 +101,7 @@ public interface ContractDTOMapper {
     @Mapping(target = "toAddress", ignore = true)
     @Mapping(target = "cancelReason", ignore = true)
     @Mapping(target = "driver", ignore = true)
+    @Mapping(target = "version", ignore = true)
     Contract convertContractPutDTOtoEntity(ContractPutDTO contractPutDTO);
 
     default Requester map(Long requesterId) {
@@ -36,6 +36,7 @@ public interface OfferDTOMapper {
     @Mapping(target = "driver", ignore = true)
     @Mapping(target = "offerStatus", ignore = true)
     @Mapping(target = "creationDateTime", ignore = true)
+    @Mapping(target = "version", ignore = true)
     Offer convertOfferPostDTOtoEntity(OfferPostDTO offerPostDTO);
 
     @Mapping(target = "offerId", ignore = true)
@@ -43,6 +44,7 @@ public interface OfferDTOMapper {
     @Mapping(target = "driver", ignore = true)
     @Mapping(target = "creationDateTime", ignore = true)
     @Mapping(source = "status", target = "offerStatus")
+    @Mapping(target = "version", ignore = true)
     Offer convertOfferPutDTOtoEntity(OfferPutDTO offerPutDTO);
 
     /**
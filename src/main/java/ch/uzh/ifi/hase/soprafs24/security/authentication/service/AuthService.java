@@ -61,13 +61,15 @@ public class AuthService {
                 "Password is incorrect");
         }
         
-        // Generate new token for this session
-        String token = tokenService.generateToken();
+        // Generate new token for this session, revoking the tokens of earlier sessions
+        user.incrementTokenVersion();
+        String token = tokenService.generateToken(user);
         user.setToken(token);
         
         // Save updated user with new token
         user = userRepository.save(user);
         userRepository.flush();
+        authorizationService.invalidate(user.getUserId());
 
 
         
@@ -84,8 +86,10 @@ public class AuthService {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid token");
         }
         user.setToken(null);
+        user.incrementTokenVersion();
         userRepository.save(user);
         userRepository.flush();
+        authorizationService.invalidate(userId);
 
         
         log.debug("User logged out: {}", user.getUsername());
@@ -123,8 +127,10 @@ public class AuthService {
 
         // Set trimmed new password
         user.setPassword(newPasswordInput); // Save trimmed password
+        user.incrementTokenVersion();
         userRepository.save(user);
         userRepository.flush();
+        authorizationService.invalidate(userId);
 
         log.debug("Password changed successfully for user: {}", user.getUsername());
     }
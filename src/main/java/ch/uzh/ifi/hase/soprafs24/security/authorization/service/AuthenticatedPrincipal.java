@@ -0,0 +1,33 @@
+package ch.uzh.ifi.hase.soprafs24.security.authorization.service;
+
+import ch.uzh.ifi.hase.soprafs24.constant.UserAccountType;
+import ch.uzh.ifi.hase.soprafs24.entity.User;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * AuthenticatedPrincipal
+ * Identity of an authenticated request: the id and account type of the user, without
+ * the user entity itself, so it can be cached between requests.
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+public final class AuthenticatedPrincipal {
+
+    private final Long userId;
+    private final UserAccountType userAccountType;
+
+    public AuthenticatedPrincipal(Long userId, UserAccountType userAccountType) {
+        this.userId = userId;
+        this.userAccountType = userAccountType;
+    }
+
+    /**
+     * @return Principal of the user, null if the user is null
+     */
+    public static AuthenticatedPrincipal of(User user) {
+        return user != null ? new AuthenticatedPrincipal(user.getUserId(), user.getUserAccountType()) : null;
+    }
+}
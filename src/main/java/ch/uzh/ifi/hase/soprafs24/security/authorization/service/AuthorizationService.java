@@ -5,18 +5,62 @@ import org.springframework.stereotype.Service;
 import ch.uzh.ifi.hase.soprafs24.constant.UserAccountType;
 import ch.uzh.ifi.hase.soprafs24.entity.User;
 import ch.uzh.ifi.hase.soprafs24.repository.UserRepository;
+import ch.uzh.ifi.hase.soprafs24.security.registration.service.TokenService;
+import ch.uzh.ifi.hase.soprafs24.security.registration.service.TokenService.SignedToken;
+import ch.uzh.ifi.hase.soprafs24.service.TransactionCallbacks;
 
 @Service
 public class AuthorizationService {
     private final UserRepository userRepository;
+    private final PrincipalCache principalCache;
+    private final TokenService tokenService;
+    private final TokenVersionCache tokenVersionCache;
 
 
-    public AuthorizationService(UserRepository userRepository) {
+    public AuthorizationService(UserRepository userRepository, PrincipalCache principalCache,
+            TokenService tokenService, TokenVersionCache tokenVersionCache) {
         this.userRepository = userRepository;
+        this.principalCache = principalCache;
+        this.tokenService = tokenService;
+        this.tokenVersionCache = tokenVersionCache;
     }
-    
+
+    /**
+     * Authenticates a request by validating the token, served from the principal cache
+     * if possible. Signed tokens are checked by their signature and the token version of
+     * the user instead. Use this if only the id and account type of the user are needed.
+     * @return The authenticated principal if successful, null if authentication fails
+     */
+    public AuthenticatedPrincipal authenticate(Long userId, String token) {
+        if (token == null || token.isEmpty() || userId == null) {
+            return null;
+        }
+        if (tokenService.isSigningEnabled() && tokenService.isSignedToken(token)) {
+            return authenticateSignedToken(userId, token);
+        }
+
+        AuthenticatedPrincipal principal = principalCache.get(userId, token);
+        if (principal != null) {
+            return principal;
+        }
+        return AuthenticatedPrincipal.of(authenticateUser(userId, token));
+    }
+
+    private AuthenticatedPrincipal authenticateSignedToken(Long userId, String token) {
+        SignedToken signedToken = tokenService.verifySignedToken(token);
+        if (signedToken == null || !userId.equals(signedToken.getUserId())) {
+            return null;
+        }
+        Integer currentVersion = tokenVersionCache.getTokenVersion(userId).orElse(null);
+        if (currentVersion == null || currentVersion != signedToken.getTokenVersion()) {
+            return null;
+        }
+        return new AuthenticatedPrincipal(userId, signedToken.getUserAccountType());
+    }
+
     /**
-     * Authenticates a user by validating their token
+     * Authenticates a user by validating their token against the database. Use this if
+     * the user entity itself is needed, e.g. to modify it.
      * @return The authenticated User object if successful, null if authentication fails
      */
     public User authenticateUser(Long userId, String token) {
@@ -25,21 +69,37 @@ public class AuthorizationService {
         if (token == null || token.isEmpty() || userId == null) {
             return null;
         }
-        
+
+        long cacheVersion = principalCache.version();
         User user = userRepository.findById(userId).orElse(null);
         if (user == null || !token.equals(user.getToken())) {
             return null;
         }
-        
+
+        principalCache.put(userId, token, AuthenticatedPrincipal.of(user), cacheVersion);
         return user;
     }
-    
+
     /**
      * Authorizes a user for a specific account type
      * @return true if user is authorized for the specified account type
      */
     public boolean authorizeUser(Long userId, String token, UserAccountType requiredAccountType) {
-        User user = authenticateUser(userId, token);
-        return user != null && user.getUserAccountType() == requiredAccountType;
+        AuthenticatedPrincipal principal = authenticate(userId, token);
+        return principal != null && principal.getUserAccountType() == requiredAccountType;
+    }
+
+    /**
+     * Removes the cached principal and token version of a user whose token or account
+     * changes. Within a transaction the entries are removed again after the transaction
+     * completed, so a concurrent request cannot cache the old state in the meantime.
+     */
+    public void invalidate(Long userId) {
+        principalCache.invalidate(userId);
+        tokenVersionCache.invalidate(userId);
+        TransactionCallbacks.afterCompletion(() -> {
+            principalCache.invalidate(userId);
+            tokenVersionCache.invalidate(userId);
+        });
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,163 @@
+package ch.uzh.ifi.hase.soprafs24.security.authorization.service;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * PrincipalCache
+ * Bounded LRU cache with a time to live from (userId, token) to the authenticated
+ * principal. A user has a single valid token, so there is one entry per user; a
+ * request with a different token is a miss and is checked against the database.
+ * Entries are removed when the token or account changes. The time to live bounds how
+ * long a change made outside of this instance can go unnoticed.
+ */
+@Component
+public class PrincipalCache {
+
+    private static final Logger log = LoggerFactory.getLogger(PrincipalCache.class);
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+    private final Map<Long, CachedPrincipal> entries;
+
+    // Incremented on every invalidation, see version()
+    private long version;
+
+    private long hits;
+    private long misses;
+    private long invalidations;
+
+    @Autowired
+    public PrincipalCache(@Value("${auth.principal-cache.max-entries:10000}") int maxEntries,
+            @Value("${auth.principal-cache.ttl:PT5M}") Duration ttl) {
+        this(maxEntries, ttl, System::nanoTime);
+    }
+
+    PrincipalCache(int maxEntries, Duration ttl, LongSupplier nanoClock) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.nanoClock = nanoClock;
+        this.entries = new LinkedHashMap<Long, CachedPrincipal>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedPrincipal> eldest) {
+                return size() > PrincipalCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @return Cached principal of the user if the token matches, null otherwise
+     */
+    public synchronized AuthenticatedPrincipal get(Long userId, String token) {
+        CachedPrincipal cached = entries.get(userId);
+        if (cached != null && nanoClock.getAsLong() - cached.storedAt > ttlNanos) {
+            entries.remove(userId);
+            cached = null;
+        }
+        if (cached == null || !cached.token.equals(token)) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return cached.principal;
+    }
+
+    /**
+     * Version of the cache contents, to be read before loading a user from the database
+     * and passed to {@link #put}
+     */
+    public synchronized long version() {
+        return version;
+    }
+
+    /**
+     * Stores the principal of a user loaded from the database. The entry is dropped if
+     * an invalidation happened since {@code loadedAtVersion}, because the loaded token
+     * may already have been replaced.
+     */
+    public synchronized void put(Long userId, String token, AuthenticatedPrincipal principal, long loadedAtVersion) {
+        if (maxEntries <= 0 || loadedAtVersion != version) {
+            return;
+        }
+        entries.put(userId, new CachedPrincipal(token, principal, nanoClock.getAsLong()));
+    }
+
+    /**
+     * Removes the entry of the user
+     */
+    public synchronized void invalidate(Long userId) {
+        version++;
+        invalidations++;
+        entries.remove(userId);
+    }
+
+    /**
+     * Removes all expired entries. Expired entries are also dropped on access, so this
+     * only frees memory earlier.
+     */
+    @Scheduled(fixedDelay = 600000) // Run every 10 minutes
+    public synchronized void removeExpired() {
+        long now = nanoClock.getAsLong();
+        Iterator<CachedPrincipal> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (now - iterator.next().storedAt > ttlNanos) {
+                iterator.remove();
+            }
+        }
+        log.debug("Principal cache: {}", getStats());
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(hits, misses, invalidations, entries.size());
+    }
+
+    private static final class CachedPrincipal {
+        private final String token;
+        private final AuthenticatedPrincipal principal;
+        private final long storedAt;
+
+        CachedPrincipal(String token, AuthenticatedPrincipal principal, long storedAt) {
+            this.token = token;
+            this.principal = principal;
+            this.storedAt = storedAt;
+        }
+    }
+
+    /**
+     * Snapshot of the cache counters
+     */
+    @Getter
+    @ToString
+    public static final class Stats {
+        private final long hits;
+        private final long misses;
+        private final long invalidations;
+        private final int size;
+
+        Stats(long hits, long misses, long invalidations, int size) {
+            this.hits = hits;
+            this.misses = misses;
+            this.invalidations = invalidations;
+            this.size = size;
+        }
+
+        public double getHitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0.0 : (double) hits / lookups;
+        }
+    }
+}
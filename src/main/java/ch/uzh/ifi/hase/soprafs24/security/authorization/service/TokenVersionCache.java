@@ -0,0 +1,135 @@
+package ch.uzh.ifi.hase.soprafs24.security.authorization.service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import ch.uzh.ifi.hase.soprafs24.repository.UserRepository;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * TokenVersionCache
+ * Current token version per user, for checking signed tokens. Versions are loaded
+ * with a single-column query and kept in a bounded LRU map. A version incremented on
+ * this instance is dropped right away; one incremented on another instance is seen
+ * after at most the time to live.
+ */
+@Component
+public class TokenVersionCache {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenVersionCache.class);
+
+    private final UserRepository userRepository;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+    private final Map<Long, CachedVersion> entries;
+
+    // Incremented on every invalidation, so versions loaded before are not cached
+    private long generation;
+
+    private long hits;
+    private long misses;
+
+    @Autowired
+    public TokenVersionCache(@Qualifier("userRepository") UserRepository userRepository,
+            @Value("${auth.token.version-cache.max-entries:10000}") int maxEntries,
+            @Value("${auth.token.version-cache.ttl:PT30S}") Duration ttl) {
+        this(userRepository, maxEntries, ttl, System::nanoTime);
+    }
+
+    TokenVersionCache(UserRepository userRepository, int maxEntries, Duration ttl, LongSupplier nanoClock) {
+        this.userRepository = userRepository;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.nanoClock = nanoClock;
+        this.entries = new LinkedHashMap<Long, CachedVersion>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedVersion> eldest) {
+                return size() > TokenVersionCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @return Current token version of the user, empty if the user does not exist
+     */
+    public Optional<Integer> getTokenVersion(Long userId) {
+        long loadedAtGeneration;
+        synchronized (this) {
+            CachedVersion cached = entries.get(userId);
+            if (cached != null && nanoClock.getAsLong() - cached.storedAt <= ttlNanos) {
+                hits++;
+                return Optional.of(cached.version);
+            }
+            misses++;
+            loadedAtGeneration = generation;
+        }
+
+        // Loaded outside of the lock, so lookups of other users are not blocked
+        Optional<Integer> version = userRepository.findTokenVersionByUserId(userId);
+        synchronized (this) {
+            if (version.isPresent() && maxEntries > 0 && loadedAtGeneration == generation) {
+                entries.put(userId, new CachedVersion(version.get(), nanoClock.getAsLong()));
+            }
+        }
+        return version;
+    }
+
+    /**
+     * Removes the cached version of the user, e.g. after it was incremented
+     */
+    public synchronized void invalidate(Long userId) {
+        generation++;
+        entries.remove(userId);
+    }
+
+    @Scheduled(fixedDelay = 600000) // Run every 10 minutes
+    public synchronized void removeExpired() {
+        long now = nanoClock.getAsLong();
+        entries.values().removeIf(cached -> now - cached.storedAt > ttlNanos);
+        log.debug("Token version cache: {}", getStats());
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(hits, misses, entries.size());
+    }
+
+    private static final class CachedVersion {
+        private final int version;
+        private final long storedAt;
+
+        CachedVersion(int version, long storedAt) {
+            this.version = version;
+            this.storedAt = storedAt;
+        }
+    }
+
+    /**
+     * Snapshot of the cache counters
+     */
+    @Getter
+    @ToString
+    public static final class Stats {
+        private final long hits;
+        private final long misses;
+        private final int size;
+
+        Stats(long hits, long misses, int size) {
+            this.hits = hits;
+            this.misses = misses;
+            this.size = size;
+        }
+    }
+}
@@ -1,19 +1,160 @@
 package ch.uzh.ifi.hase.soprafs24.security.registration.service;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
 import java.util.UUID;
 
-import org.springframework.stereotype.Service;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
 
+import ch.uzh.ifi.hase.soprafs24.constant.UserAccountType;
+import ch.uzh.ifi.hase.soprafs24.entity.User;
+import lombok.Getter;
+import lombok.ToString;
 
+/**
+ * TokenService
+ * Issues the session tokens of users. In the default mode ("random") tokens are
+ * random UUIDs that are only valid while stored in User.token. In the "signed" mode
+ * tokens are additionally signed with HMAC-SHA256 and carry the user id, account type,
+ * issue time and token version of the user:
+ * <pre>
+ * s1.&lt;userId&gt;.&lt;accountType&gt;.&lt;issuedAt&gt;.&lt;tokenVersion&gt;.&lt;signature&gt;
+ * </pre>
+ * so a request can be authenticated without loading the user. Incrementing the token
+ * version of the user revokes all tokens issued before.
+ */
 @Service
 public class TokenService {
 
+    static final String SIGNED_TOKEN_PREFIX = "s1.";
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private final SecretKeySpec signingKey;
+    private final Duration maxAge;
+    private final Clock clock;
+
+    @Autowired
+    public TokenService(@Value("${auth.token.mode:random}") String mode,
+            @Value("${auth.token.secret:}") String secret,
+            @Value("${auth.token.max-age:PT24H}") Duration maxAge) {
+        this(mode, secret, maxAge, Clock.systemUTC());
+    }
 
+    TokenService(String mode, String secret, Duration maxAge, Clock clock) {
+        if ("signed".equalsIgnoreCase(mode)) {
+            if (secret == null || secret.length() < 32) {
+                throw new IllegalStateException("auth.token.secret must have at least 32 characters for signed tokens");
+            }
+            this.signingKey = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM);
+        }
+        else if ("random".equalsIgnoreCase(mode)) {
+            this.signingKey = null;
+        }
+        else {
+            throw new IllegalStateException("Unknown auth.token.mode: " + mode);
+        }
+        this.maxAge = maxAge;
+        this.clock = clock;
+    }
 
     //generate token
     public String generateToken() {
         return UUID.randomUUID().toString();
     }
 
+    /**
+     * Generates a token for the user, signed if signed tokens are enabled. Signed tokens
+     * contain the user id, so the user has to be saved before.
+     */
+    public String generateToken(User user) {
+        if (!isSigningEnabled()) {
+            return generateToken();
+        }
+        if (user.getUserId() == null) {
+            throw new IllegalStateException("Signed tokens can only be issued to saved users");
+        }
+        String payload = SIGNED_TOKEN_PREFIX + user.getUserId() + "." + user.getUserAccountType().name() + "."
+                + clock.instant().getEpochSecond() + "." + user.getTokenVersion();
+        return payload + "." + sign(payload);
+    }
+
+    public boolean isSigningEnabled() {
+        return signingKey != null;
+    }
 
+    /**
+     * @return true if the token has the format of a signed token, regardless of its
+     * signature
+     */
+    public boolean isSignedToken(String token) {
+        return token != null && token.startsWith(SIGNED_TOKEN_PREFIX);
+    }
+
+    /**
+     * Verifies the signature and age of a signed token. The token version still has to
+     * be compared with the current version of the user.
+     * @return The claims of the token, null if the token is invalid or expired
+     */
+    public SignedToken verifySignedToken(String token) {
+        if (!isSigningEnabled() || !isSignedToken(token)) {
+            return null;
+        }
+        int signatureStart = token.lastIndexOf('.');
+        String payload = token.substring(0, signatureStart);
+        byte[] expected = sign(payload).getBytes(StandardCharsets.US_ASCII);
+        byte[] actual = token.substring(signatureStart + 1).getBytes(StandardCharsets.US_ASCII);
+        if (!MessageDigest.isEqual(expected, actual)) {
+            return null;
+        }
+
+        // The signature is valid, so the payload was created by generateToken(User)
+        String[] claims = payload.substring(SIGNED_TOKEN_PREFIX.length()).split("\\.");
+        SignedToken signedToken = new SignedToken(Long.valueOf(claims[0]), UserAccountType.valueOf(claims[1]),
+                Instant.ofEpochSecond(Long.parseLong(claims[2])), Integer.parseInt(claims[3]));
+        if (signedToken.getIssuedAt().plus(maxAge).isBefore(clock.instant())) {
+            return null;
+        }
+        return signedToken;
+    }
+
+    private String sign(String payload) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(signingKey);
+            byte[] signature = mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+        }
+        catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not sign token", e);
+        }
+    }
+
+    /**
+     * Claims of a signed token with a valid signature
+     */
+    @Getter
+    @ToString
+    public static final class SignedToken {
+        private final Long userId;
+        private final UserAccountType userAccountType;
+        private final Instant issuedAt;
+        private final int tokenVersion;
+
+        SignedToken(Long userId, UserAccountType userAccountType, Instant issuedAt, int tokenVersion) {
+            this.userId = userId;
+            this.userAccountType = userAccountType;
+            this.issuedAt = issuedAt;
+            this.tokenVersion = tokenVersion;
+        }
+    }
 }
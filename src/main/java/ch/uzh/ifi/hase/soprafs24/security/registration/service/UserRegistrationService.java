@@ -10,6 +10,7 @@ import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
+import ch.uzh.ifi.hase.soprafs24.entity.Driver;
 import ch.uzh.ifi.hase.soprafs24.entity.User;
 import ch.uzh.ifi.hase.soprafs24.repository.UserRepository;
 import ch.uzh.ifi.hase.soprafs24.rest.dto.CarDTO;
@@ -17,6 +18,7 @@ import ch.uzh.ifi.hase.soprafs24.rest.dto.LocationDTO;
 import ch.uzh.ifi.hase.soprafs24.security.registration.dto.BaseUserRegisterDTO;
 import ch.uzh.ifi.hase.soprafs24.security.registration.dto.DriverRegisterDTO;
 import ch.uzh.ifi.hase.soprafs24.security.registration.dto.RequesterRegisterDTO;
+import ch.uzh.ifi.hase.soprafs24.service.DriverFeed;
 @Service
 public class UserRegistrationService {
     
@@ -26,17 +28,20 @@ public class UserRegistrationService {
     private final DriverRegistrationService driverRegistrationService;
     private final RequesterRegistrationService requesterRegistrationService;
     private final TokenService tokenService;
+    private final DriverFeed driverFeed;
 
     //initialize
     public UserRegistrationService(
     UserRepository userRepository,
     DriverRegistrationService driverRegistrationService,
     RequesterRegistrationService requesterRegistrationService,
-    TokenService tokenService){
+    TokenService tokenService,
+    DriverFeed driverFeed){
         this.userRepository = userRepository;
         this.driverRegistrationService = driverRegistrationService;
         this.requesterRegistrationService = requesterRegistrationService;
         this.tokenService = tokenService;
+        this.driverFeed = driverFeed;
     }
 
     public boolean checkUsernameAvailability(String username) {
@@ -118,13 +123,24 @@ public class UserRegistrationService {
 
         
         // Generate authentication token
-        String token = tokenService.generateToken();
-        newUser.setToken(token);
+        if (!tokenService.isSigningEnabled()) {
+            newUser.setToken(tokenService.generateToken(newUser));
+        }
         
         // Save the user to repository
         newUser = userRepository.save(newUser);
+
+        // Signed tokens contain the user id, so they are generated after the insert
+        if (tokenService.isSigningEnabled()) {
+            newUser.setToken(tokenService.generateToken(newUser));
+            newUser = userRepository.save(newUser);
+        }
         userRepository.flush();
 
+        // Match the open contracts against the new driver's car and location
+        if (newUser instanceof Driver driver) {
+            driverFeed.driverChanged(driver);
+        }
         
         log.debug("Created new user: {}", newUser.getUsername());
         
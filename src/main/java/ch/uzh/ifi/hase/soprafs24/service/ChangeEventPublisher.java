@@ -0,0 +1,123 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import ch.uzh.ifi.hase.soprafs24.constant.ChangeEventType;
+import ch.uzh.ifi.hase.soprafs24.constant.ContractStatus;
+import ch.uzh.ifi.hase.soprafs24.constant.OfferStatus;
+import ch.uzh.ifi.hase.soprafs24.entity.Contract;
+import ch.uzh.ifi.hase.soprafs24.entity.Offer;
+import ch.uzh.ifi.hase.soprafs24.repository.ContractParticipants;
+import ch.uzh.ifi.hase.soprafs24.repository.ContractRepository;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.event.ChangeEventDTO;
+
+/**
+ * ChangeEventPublisher
+ * Turns the state transitions of contracts and offers into change events for the users
+ * taking part in them, which {@link UserEventStreams} pushes to their clients. Like the
+ * {@link OpenContractIndex} the events are only published once the transaction has
+ * committed, so clients never see rolled back transitions.
+ */
+@Component
+public class ChangeEventPublisher {
+
+    private final ContractRepository contractRepository;
+    private final UserEventStreams userEventStreams;
+
+    public ChangeEventPublisher(@Qualifier("contractRepository") ContractRepository contractRepository,
+            UserEventStreams userEventStreams) {
+        this.contractRepository = contractRepository;
+        this.userEventStreams = userEventStreams;
+    }
+
+    /**
+     * Notifies the requester, the assigned driver and the drivers with offers about the
+     * current status of a contract
+     *
+     * @param contract The created or changed contract
+     */
+    public void contractChanged(Contract contract) {
+        if (contract.getContractId() != null) {
+            contractsChanged(List.of(contract.getContractId()), contract.getContractStatus());
+        }
+    }
+
+    /**
+     * Notifies the participants of contracts that were transitioned by a bulk update.
+     * Contracts that are not in the given status (any more) are skipped.
+     *
+     * @param contractIds Ids of the transitioned contracts
+     * @param status      The status the contracts were transitioned to
+     */
+    public void contractsChanged(Collection<Long> contractIds, ContractStatus status) {
+        if (contractIds.isEmpty() || status == null) {
+            return;
+        }
+        Map<Long, Set<Long>> recipients = new LinkedHashMap<>();
+        for (ContractParticipants participants : contractRepository
+                .findParticipantsByContractIdInAndContractStatus(contractIds, status)) {
+            Set<Long> userIds = recipients.computeIfAbsent(participants.getContractId(), id -> new LinkedHashSet<>());
+            userIds.add(participants.getRequesterId());
+            if (participants.getDriverId() != null) {
+                userIds.add(participants.getDriverId());
+            }
+            if (participants.getOfferDriverId() != null) {
+                userIds.add(participants.getOfferDriverId());
+            }
+        }
+        long timestamp = System.currentTimeMillis();
+        TransactionCallbacks.afterCommit(() -> recipients.forEach((contractId, userIds) ->
+            userEventStreams.publish(userIds, event(ChangeEventType.CONTRACT, contractId, null, status.name(),
+                    timestamp))));
+    }
+
+    /**
+     * Notifies the driver of an offer and the requester of its contract about the
+     * current status of the offer
+     *
+     * @param offer The created or changed offer
+     */
+    public void offerChanged(Offer offer) {
+        publishOffer(offer, offer.getOfferStatus());
+    }
+
+    /**
+     * Like {@link #offerChanged(Offer)} for an offer that was deleted
+     */
+    public void offerDeleted(Offer offer) {
+        publishOffer(offer, OfferStatus.DELETED);
+    }
+
+    private void publishOffer(Offer offer, OfferStatus status) {
+        Contract contract = offer.getContract();
+        Set<Long> recipients = new LinkedHashSet<>();
+        if (offer.getDriver() != null) {
+            recipients.add(offer.getDriver().getUserId());
+        }
+        if (contract != null && contract.getRequester() != null) {
+            recipients.add(contract.getRequester().getUserId());
+        }
+        ChangeEventDTO event = event(ChangeEventType.OFFER, contract != null ? contract.getContractId() : null,
+                offer.getOfferId(), status.name(), System.currentTimeMillis());
+        TransactionCallbacks.afterCommit(() -> userEventStreams.publish(recipients, event));
+    }
+
+    private static ChangeEventDTO event(ChangeEventType type, Long contractId, Long offerId, String status,
+            long timestamp) {
+        ChangeEventDTO event = new ChangeEventDTO();
+        event.setType(type);
+        event.setContractId(contractId);
+        event.setOfferId(offerId);
+        event.setStatus(status);
+        event.setTimestamp(timestamp);
+        return event;
+    }
+}
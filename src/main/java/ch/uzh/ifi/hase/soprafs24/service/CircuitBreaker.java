@@ -0,0 +1,141 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * CircuitBreaker
+ * Tracks the outcome of the last windowSize calls to a remote service. Once at least
+ * minimumCalls were recorded and the share of failures reaches the threshold, the
+ * breaker opens and rejects calls for openDuration. Afterwards a single trial call is
+ * let through (half open): if it succeeds the breaker closes again, otherwise it
+ * stays open for another openDuration.
+ */
+public class CircuitBreaker {
+
+    private static final Logger log = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final double failureRateThreshold;
+    private final int minimumCalls;
+    private final long openDurationNanos;
+    private final LongSupplier nanoClock;
+
+    // Ring buffer of the last outcomes, true = failure
+    private final boolean[] window;
+    private int recordedCalls;
+    private int nextSlot;
+    private int failures;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private boolean trialCallInFlight;
+
+    public CircuitBreaker(String name, double failureRateThreshold, int windowSize, int minimumCalls,
+            Duration openDuration) {
+        this(name, failureRateThreshold, windowSize, minimumCalls, openDuration, System::nanoTime);
+    }
+
+    CircuitBreaker(String name, double failureRateThreshold, int windowSize, int minimumCalls,
+            Duration openDuration, LongSupplier nanoClock) {
+        if (windowSize <= 0 || minimumCalls <= 0 || minimumCalls > windowSize) {
+            throw new IllegalArgumentException("minimumCalls must be between 1 and windowSize");
+        }
+        this.name = name;
+        this.failureRateThreshold = failureRateThreshold;
+        this.minimumCalls = minimumCalls;
+        this.openDurationNanos = openDuration.toNanos();
+        this.nanoClock = nanoClock;
+        this.window = new boolean[windowSize];
+    }
+
+    /**
+     * Asks whether a call may be made. Every permitted call must be followed by
+     * {@link #onSuccess()} or {@link #onFailure()}.
+     *
+     * @return false if the breaker is open and the call should fail fast
+     */
+    public synchronized boolean tryAcquirePermission() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (nanoClock.getAsLong() - openedAt < openDurationNanos) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                trialCallInFlight = true;
+                log.info("Circuit breaker {} is half open, letting a trial call through", name);
+                return true;
+            default:
+                // Only one trial call at a time while half open
+                if (trialCallInFlight) {
+                    return false;
+                }
+                trialCallInFlight = true;
+                return true;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            log.info("Circuit breaker {} closed after a successful trial call", name);
+            state = State.CLOSED;
+            trialCallInFlight = false;
+            resetWindow();
+            return;
+        }
+        record(false);
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        record(true);
+        if (state == State.CLOSED && recordedCalls >= minimumCalls
+                && (double) failures / recordedCalls >= failureRateThreshold) {
+            open();
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void open() {
+        log.warn("Circuit breaker {} opened ({} of the last {} calls failed)", name, failures, recordedCalls);
+        state = State.OPEN;
+        openedAt = nanoClock.getAsLong();
+        trialCallInFlight = false;
+    }
+
+    private void record(boolean failure) {
+        if (recordedCalls == window.length) {
+            if (window[nextSlot]) {
+                failures--;
+            }
+        } else {
+            recordedCalls++;
+        }
+        window[nextSlot] = failure;
+        if (failure) {
+            failures++;
+        }
+        nextSlot = (nextSlot + 1) % window.length;
+    }
+
+    private void resetWindow() {
+        recordedCalls = 0;
+        nextSlot = 0;
+        failures = 0;
+    }
+}
@@ -0,0 +1,93 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import ch.uzh.ifi.hase.soprafs24.constant.ContractSortField;
+
+/**
+ * ContractCursor
+ * Position of the last contract on a page of a keyset paginated contract listing.
+ * Clients receive it as an opaque string and pass it back to fetch the next page.
+ */
+public final class ContractCursor {
+
+    private static final String SEPARATOR = "|";
+
+    private final ContractSortField sortField;
+    private final boolean descending;
+    private final Comparable<?> value;
+    private final Long contractId;
+
+    public ContractCursor(ContractSortField sortField, boolean descending, Comparable<?> value, Long contractId) {
+        this.sortField = sortField;
+        this.descending = descending;
+        this.value = value;
+        this.contractId = contractId;
+    }
+
+    public ContractSortField getSortField() {
+        return sortField;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    /**
+     * Sort value of the contract, a LocalDateTime for date fields and a Double otherwise
+     */
+    public Comparable<?> getValue() {
+        return value;
+    }
+
+    public Long getContractId() {
+        return contractId;
+    }
+
+    public String encode() {
+        String raw = sortField.getProperty() + SEPARATOR + descending + SEPARATOR + value + SEPARATOR + contractId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor that was issued for the given sort order
+     *
+     * @throws ResponseStatusException with status 400 if the cursor is malformed or
+     *                                 was issued for a different sort order
+     */
+    public static ContractCursor decode(String cursor, ContractSortField sortField, boolean descending) {
+        ContractCursor decoded;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", -1);
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("Unexpected number of cursor parts");
+            }
+            ContractSortField field = ContractSortField.fromProperty(parts[0]);
+            Comparable<?> value = parseValue(field, parts[2]);
+            decoded = new ContractCursor(field, Boolean.parseBoolean(parts[1]), value, Long.valueOf(parts[3]));
+        } catch (RuntimeException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+        if (decoded.sortField != sortField || decoded.descending != descending) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Cursor does not match the requested sort order");
+        }
+        return decoded;
+    }
+
+    private static Comparable<?> parseValue(ContractSortField field, String value) {
+        switch (field) {
+            case MOVE_DATE_TIME:
+            case CREATION_DATE_TIME:
+                return LocalDateTime.parse(value);
+            default:
+                return Double.valueOf(value);
+        }
+    }
+}
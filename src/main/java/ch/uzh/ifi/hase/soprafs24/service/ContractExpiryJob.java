@@ -0,0 +1,338 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToIntFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import ch.uzh.ifi.hase.soprafs24.config.SchedulerLeases;
+import ch.uzh.ifi.hase.soprafs24.constant.ContractStatus;
+import ch.uzh.ifi.hase.soprafs24.constant.OfferStatus;
+import ch.uzh.ifi.hase.soprafs24.repository.ContractRepository;
+import ch.uzh.ifi.hase.soprafs24.repository.OfferRepository;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * ContractExpiryJob
+ * Transitions the contracts whose move date has passed: ACCEPTED contracts are completed,
+ * REQUESTED and OFFERED contracts are canceled and their offers rejected. Contracts are
+ * processed in chunks of ids with bulk updates and every chunk is committed on its own,
+ * so a large backlog neither loads the contracts nor holds one long transaction.
+ * Contracts are expired at their move date by the {@link ContractExpiryScheduler}, the
+ * sweep of this job only catches the contracts it missed, e.g. after a restart. The
+ * sweep is split into partitions of contract ids, each of which is swept by only one
+ * instance per interval, see {@link SchedulerLeases}.
+ */
+@Component
+public class ContractExpiryJob {
+
+    static final String SWEEP_LEASE = "contract-expiry-sweep";
+    static final String EXPIRED_CANCEL_REASON = "Contract automatically canceled due to expired move date";
+
+    private static final Set<ContractStatus> TO_COMPLETE = EnumSet.of(ContractStatus.ACCEPTED);
+    private static final Set<ContractStatus> TO_CANCEL = EnumSet.of(ContractStatus.REQUESTED,
+            ContractStatus.OFFERED);
+
+    private final Logger log = LoggerFactory.getLogger(ContractExpiryJob.class);
+
+    private final ContractRepository contractRepository;
+    private final OfferRepository offerRepository;
+    private final OpenContractIndex openContractIndex;
+    private final ChangeEventPublisher changeEventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final SchedulerLeases schedulerLeases;
+    private final int chunkSize;
+    private final int partitions;
+    private final Duration sweepLeaseTime;
+
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong contractsCompleted = new AtomicLong();
+    private final AtomicLong contractsCanceled = new AtomicLong();
+    private final AtomicLong offersRejected = new AtomicLong();
+    private final AtomicLong totalDurationMillis = new AtomicLong();
+    private volatile RunResult lastRun;
+
+    public ContractExpiryJob(@Qualifier("contractRepository") ContractRepository contractRepository,
+            @Qualifier("offerRepository") OfferRepository offerRepository,
+            OpenContractIndex openContractIndex,
+            ChangeEventPublisher changeEventPublisher,
+            PlatformTransactionManager transactionManager,
+            SchedulerLeases schedulerLeases,
+            @Value("${contracts.expiry.chunk-size:500}") int chunkSize,
+            @Value("${contracts.expiry.sweep-partitions:4}") int partitions,
+            @Value("${contracts.expiry.sweep-lease:PT55M}") Duration sweepLeaseTime) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("contracts.expiry.chunk-size must be positive");
+        }
+        if (partitions <= 0) {
+            throw new IllegalArgumentException("contracts.expiry.sweep-partitions must be positive");
+        }
+        this.contractRepository = contractRepository;
+        this.offerRepository = offerRepository;
+        this.openContractIndex = openContractIndex;
+        this.changeEventPublisher = changeEventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.schedulerLeases = schedulerLeases;
+        this.chunkSize = chunkSize;
+        this.partitions = partitions;
+        this.sweepLeaseTime = sweepLeaseTime;
+    }
+
+    /**
+     * Reconciliation sweep over the contracts whose move date has passed, limited to the
+     * partitions that no other instance sweeps in this interval
+     */
+    @Scheduled(fixedRate = 3600000) // Run every hour
+    public void updateContractStatuses() {
+        List<Integer> acquired = schedulerLeases.tryAcquirePartitions(SWEEP_LEASE, partitions, sweepLeaseTime);
+        if (acquired.isEmpty()) {
+            log.debug("All partitions of the expiry sweep are leased by other instances");
+            return;
+        }
+        RunResult result = run(LocalDateTime.now(), acquired);
+        if (result.getContractsTransitioned() > 0) {
+            log.info("Reconciliation sweep transitioned expired contracts: {}", result);
+        } else {
+            log.debug("No expired contracts: {}", result);
+        }
+    }
+
+    /**
+     * Transitions all contracts whose move date is before the given time
+     *
+     * @param now Reference time for the move dates
+     * @return Number of transitioned rows and duration of the run
+     */
+    public RunResult run(LocalDateTime now) {
+        List<Integer> all = new ArrayList<>();
+        for (int partition = 0; partition < partitions; partition++) {
+            all.add(partition);
+        }
+        return run(now, all);
+    }
+
+    /**
+     * Transitions the contracts of the given partitions whose move date is before the
+     * given time
+     *
+     * @param now             Reference time for the move dates
+     * @param sweptPartitions Partitions of the contract ids, between 0 and the number of partitions
+     * @return Number of transitioned rows and duration of the run
+     */
+    public RunResult run(LocalDateTime now, Collection<Integer> sweptPartitions) {
+        long start = System.nanoTime();
+        Progress progress = new Progress();
+
+        for (int partition : sweptPartitions) {
+            progress.completed += processInChunks(TO_COMPLETE, now, partition, progress,
+                contractIds -> complete(contractIds, now));
+            progress.canceled += processInChunks(TO_CANCEL, now, partition, progress,
+                contractIds -> cancel(contractIds, now, progress));
+        }
+
+        RunResult result = progress.toResult(start);
+        runs.incrementAndGet();
+        lastRun = result;
+        record(result);
+        return result;
+    }
+
+    /**
+     * Transitions the given contracts if they are still active and their move date is
+     * before the given time. The contracts are processed in chunks, each in its own
+     * transaction.
+     *
+     * @param contractIds Ids of the contracts whose move date has passed
+     * @param now         Reference time for the move dates
+     * @return Number of transitioned rows and duration
+     */
+    public RunResult expire(Collection<Long> contractIds, LocalDateTime now) {
+        long start = System.nanoTime();
+        Progress progress = new Progress();
+        List<Long> ids = new ArrayList<>(contractIds);
+
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + chunkSize));
+            transactionTemplate.executeWithoutResult(status -> {
+                // Events are only published for the contracts that were transitioned, so
+                // select the contracts to complete and to cancel first
+                List<Long> toComplete = contractRepository
+                        .findIdsByContractIdInAndContractStatusInAndMoveDateTimeBefore(chunk, TO_COMPLETE, now);
+                List<Long> toCancel = contractRepository.findIdsByContractIdInAndContractStatusInAndMoveDateTimeBefore(
+                        chunk, TO_CANCEL, now);
+                if (!toComplete.isEmpty()) {
+                    progress.completed += complete(toComplete, now);
+                }
+                if (!toCancel.isEmpty()) {
+                    progress.canceled += cancel(toCancel, now, progress);
+                }
+            });
+            progress.chunks++;
+        }
+
+        RunResult result = progress.toResult(start);
+        record(result);
+        return result;
+    }
+
+    private int complete(List<Long> contractIds, LocalDateTime now) {
+        int completed = contractRepository.updateStatusOfExpiredContracts(contractIds, TO_COMPLETE, now,
+                ContractStatus.COMPLETED);
+        if (completed == 0) {
+            return 0;
+        }
+        // Contracts changed since their ids were selected were skipped by the update
+        List<Long> completedIds = completed == contractIds.size() ? contractIds
+                : contractRepository.findIdsByContractIdInAndContractStatusInAndMoveDateTimeBefore(contractIds,
+                        EnumSet.of(ContractStatus.COMPLETED), now);
+        changeEventPublisher.contractsChanged(completedIds, ContractStatus.COMPLETED);
+        return completed;
+    }
+
+    private int cancel(List<Long> contractIds, LocalDateTime now, Progress progress) {
+        int canceled = contractRepository.cancelExpiredContracts(contractIds, TO_CANCEL, now,
+                ContractStatus.CANCELED, EXPIRED_CANCEL_REASON);
+        if (canceled == 0) {
+            return 0;
+        }
+        // Contracts accepted since their ids were selected keep their accepted offer
+        List<Long> canceledIds = canceled == contractIds.size() ? contractIds
+                : contractRepository.findIdsByContractIdInAndContractStatusAndCancelReason(contractIds,
+                        ContractStatus.CANCELED, EXPIRED_CANCEL_REASON);
+        progress.offersRejected += offerRepository.updateOfferStatusByContractIds(canceledIds, OfferStatus.REJECTED);
+        openContractIndex.contractsClosed(canceledIds);
+        changeEventPublisher.contractsChanged(canceledIds, ContractStatus.CANCELED);
+        return canceled;
+    }
+
+    private void record(RunResult result) {
+        contractsCompleted.addAndGet(result.getContractsCompleted());
+        contractsCanceled.addAndGet(result.getContractsCanceled());
+        offersRejected.addAndGet(result.getOffersRejected());
+        totalDurationMillis.addAndGet(result.getDurationMillis());
+    }
+
+    /**
+     * Selects the ids of the next chunk of expired contracts and transitions them in one
+     * transaction, until no expired contracts are left
+     *
+     * @return Number of transitioned contracts
+     */
+    private int processInChunks(Set<ContractStatus> statuses, LocalDateTime now, int partition, Progress progress,
+            ToIntFunction<List<Long>> transition) {
+        int transitioned = 0;
+        while (true) {
+            List<Long> contractIds = transactionTemplate.execute(status -> {
+                List<Long> ids = contractRepository.findIdsByContractStatusInAndMoveDateTimeBefore(statuses, now,
+                        partitions, partition, PageRequest.of(0, chunkSize));
+                if (!ids.isEmpty()) {
+                    progress.lastChunkTransitioned = transition.applyAsInt(ids);
+                }
+                return ids;
+            });
+            if (contractIds == null || contractIds.isEmpty()) {
+                return transitioned;
+            }
+            progress.chunks++;
+            transitioned += progress.lastChunkTransitioned;
+            // A chunk without updates was changed concurrently, selecting it again would not end
+            if (contractIds.size() < chunkSize || progress.lastChunkTransitioned == 0) {
+                return transitioned;
+            }
+        }
+    }
+
+    /**
+     * Counters of the current run
+     */
+    private static final class Progress {
+        private int chunks;
+        private int completed;
+        private int canceled;
+        private int offersRejected;
+        private int lastChunkTransitioned;
+
+        RunResult toResult(long startNanos) {
+            return new RunResult(completed, canceled, offersRejected, chunks,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        }
+    }
+
+    @Scheduled(fixedDelay = 600000) // Run every 10 minutes
+    public void logStats() {
+        log.debug("Contract expiry: {}", getStats());
+    }
+
+    public Stats getStats() {
+        return new Stats(runs.get(), contractsCompleted.get(), contractsCanceled.get(), offersRejected.get(),
+                totalDurationMillis.get(), lastRun);
+    }
+
+    /**
+     * Rows transitioned by one run of the job
+     */
+    @Getter
+    @ToString
+    public static final class RunResult {
+        private final int contractsCompleted;
+        private final int contractsCanceled;
+        private final int offersRejected;
+        private final int chunks;
+        private final long durationMillis;
+
+        RunResult(int contractsCompleted, int contractsCanceled, int offersRejected, int chunks,
+                long durationMillis) {
+            this.contractsCompleted = contractsCompleted;
+            this.contractsCanceled = contractsCanceled;
+            this.offersRejected = offersRejected;
+            this.chunks = chunks;
+            this.durationMillis = durationMillis;
+        }
+
+        public int getContractsTransitioned() {
+            return contractsCompleted + contractsCanceled;
+        }
+    }
+
+    /**
+     * Totals since startup. Runs and the last run only include the sweeps, the rows
+     * include the contracts expired by the scheduler as well.
+     */
+    @Getter
+    @ToString
+    public static final class Stats {
+        private final long runs;
+        private final long contractsCompleted;
+        private final long contractsCanceled;
+        private final long offersRejected;
+        private final long totalDurationMillis;
+        private final RunResult lastRun;
+
+        Stats(long runs, long contractsCompleted, long contractsCanceled, long offersRejected,
+                long totalDurationMillis, RunResult lastRun) {
+            this.runs = runs;
+            this.contractsCompleted = contractsCompleted;
+            this.contractsCanceled = contractsCanceled;
+            this.offersRejected = offersRejected;
+            this.totalDurationMillis = totalDurationMillis;
+            this.lastRun = lastRun;
+        }
+    }
+}
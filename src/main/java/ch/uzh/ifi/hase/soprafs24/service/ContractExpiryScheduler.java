@@ -0,0 +1,276 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import ch.uzh.ifi.hase.soprafs24.config.SchedulerLeases;
+import ch.uzh.ifi.hase.soprafs24.constant.ContractStatus;
+import ch.uzh.ifi.hase.soprafs24.entity.Contract;
+import ch.uzh.ifi.hase.soprafs24.repository.ContractDeadline;
+import ch.uzh.ifi.hase.soprafs24.repository.ContractRepository;
+
+/**
+ * ContractExpiryScheduler
+ * Expires contracts at their move date instead of at the next sweep of the
+ * {@link ContractExpiryJob}. The move dates of all active contracts are kept in memory,
+ * ordered by time, and kept up to date by the services that create, update, accept and
+ * close contracts. Every second the contracts whose move date has passed are transitioned.
+ * Only the instance holding a short lease (see {@link SchedulerLeases}) expires contracts.
+ * The holder renews the lease every renewal interval, a fraction of the lease time, the
+ * other instances only try to take it over once a lease time has passed since their last
+ * attempt. The holder loads the move dates from the database when it takes over the lease
+ * and again every reload interval, which picks up the contracts changed by other
+ * instances. The other instances drop their due deadlines.
+ */
+@Component
+public class ContractExpiryScheduler {
+
+    static final String EXPIRY_LEASE = "contract-expiry-scheduler";
+    static final Set<ContractStatus> ACTIVE_STATUSES = EnumSet.of(ContractStatus.REQUESTED,
+            ContractStatus.OFFERED, ContractStatus.ACCEPTED);
+
+    private final Logger log = LoggerFactory.getLogger(ContractExpiryScheduler.class);
+
+    private final ContractRepository contractRepository;
+    private final ContractExpiryJob contractExpiryJob;
+    private final SchedulerLeases schedulerLeases;
+    private final Duration leaseTime;
+    private final Duration reloadInterval;
+    private final Clock clock;
+
+    // Expiry of the lease held by this instance, null while another instance holds it
+    private volatile Instant leaseHeldUntil;
+    private volatile Instant nextLeaseAttempt = Instant.MIN;
+    // Time of the last load of the move dates, null while another instance holds the lease
+    private volatile Instant loadedAt;
+
+    // Deadline of every scheduled contract and the scheduled contracts ordered by deadline
+    private final Map<Long, LocalDateTime> deadlines = new HashMap<>();
+    private final NavigableSet<Deadline> queue = new TreeSet<>();
+
+    @Autowired
+    public ContractExpiryScheduler(@Qualifier("contractRepository") ContractRepository contractRepository,
+            ContractExpiryJob contractExpiryJob,
+            SchedulerLeases schedulerLeases,
+            @Value("${contracts.expiry.scheduler-lease:PT10S}") Duration leaseTime,
+            @Value("${contracts.expiry.scheduler-lease-renewal:PT3S}") Duration leaseRenewal,
+            @Value("${contracts.expiry.scheduler-reload-interval:PT5M}") Duration reloadInterval) {
+        this(contractRepository, contractExpiryJob, schedulerLeases, leaseTime, reloadInterval,
+                Clock.systemDefaultZone());
+        if (leaseRenewal.compareTo(leaseTime.dividedBy(2)) > 0) {
+            throw new IllegalArgumentException(
+                    "contracts.expiry.scheduler-lease-renewal must be at most half of the lease time");
+        }
+    }
+
+    ContractExpiryScheduler(ContractRepository contractRepository, ContractExpiryJob contractExpiryJob,
+            SchedulerLeases schedulerLeases, Duration leaseTime, Duration reloadInterval, Clock clock) {
+        this.contractRepository = contractRepository;
+        this.contractExpiryJob = contractExpiryJob;
+        this.schedulerLeases = schedulerLeases;
+        this.leaseTime = leaseTime;
+        this.reloadInterval = reloadInterval;
+        this.clock = clock;
+    }
+
+    public static boolean isActive(ContractStatus status) {
+        return status != null && ACTIVE_STATUSES.contains(status);
+    }
+
+    /**
+     * Schedules the move dates of all active contracts stored in the database
+     *
+     * @return Number of active contracts
+     */
+    public int loadActiveContracts() {
+        List<ContractDeadline> active = contractRepository.findByContractStatusIn(ACTIVE_STATUSES);
+        synchronized (this) {
+            for (ContractDeadline contract : active) {
+                schedule(contract.getContractId(), contract.getMoveDateTime());
+            }
+        }
+        return active.size();
+    }
+
+    /**
+     * Records the current status and move date of a contract. Inside a transaction the
+     * schedule is only updated once the transaction has committed.
+     *
+     * @param contract The created or changed contract
+     */
+    public void contractChanged(Contract contract) {
+        TransactionCallbacks.afterCommit(() -> apply(contract));
+    }
+
+    private synchronized void apply(Contract contract) {
+        if (contract.getContractId() == null) {
+            return;
+        }
+        if (isActive(contract.getContractStatus())) {
+            schedule(contract.getContractId(), contract.getMoveDateTime());
+        } else {
+            unschedule(contract.getContractId());
+        }
+    }
+
+    /**
+     * Renews the lease if this instance holds it. Otherwise tries to acquire it, but at
+     * most once per lease time, since the holder keeps renewing it.
+     */
+    @Scheduled(fixedDelayString = "${contracts.expiry.scheduler-lease-renewal:PT3S}")
+    public void renewLease() {
+        Instant now = clock.instant();
+        if (leaseHeldUntil == null && now.isBefore(nextLeaseAttempt)) {
+            return;
+        }
+        try {
+            if (schedulerLeases.tryAcquire(EXPIRY_LEASE, leaseTime)) {
+                leaseHeldUntil = now.plus(leaseTime);
+                return;
+            }
+            leaseHeldUntil = null;
+        } catch (RuntimeException e) {
+            // A held lease stays valid until it expires, the renewal is retried on the next run
+            log.warn("Could not renew the lease of the contract expiry scheduler: {}", e.getMessage());
+        }
+        nextLeaseAttempt = now.plus(leaseTime);
+    }
+
+    private boolean holdsLease() {
+        Instant heldUntil = leaseHeldUntil;
+        return heldUntil != null && clock.instant().isBefore(heldUntil);
+    }
+
+    /**
+     * Transitions the contracts whose move date has passed if this instance holds the
+     * lease. Contracts that could not be transitioned are retried on the next run.
+     */
+    @Scheduled(fixedDelay = 1000) // Run every second
+    public void expireDueContracts() {
+        LocalDateTime now = LocalDateTime.now(clock);
+        if (!holdsLease()) {
+            // Expired by the instance holding the lease, which loads them on its own
+            loadedAt = null;
+            pollDue(now);
+            return;
+        }
+        if (loadedAt == null || !clock.instant().isBefore(loadedAt.plus(reloadInterval))) {
+            boolean tookOver = loadedAt == null;
+            loadedAt = clock.instant();
+            int loaded = loadActiveContracts();
+            if (tookOver) {
+                log.info("Contract expiry scheduler took over the lease with {} active contracts", loaded);
+            }
+        }
+
+        Map<Long, LocalDateTime> due = pollDue(now);
+        if (due.isEmpty()) {
+            return;
+        }
+        try {
+            ContractExpiryJob.RunResult result = contractExpiryJob.expire(due.keySet(), now);
+            log.debug("Expired contracts at their move date: {}", result);
+        } catch (RuntimeException e) {
+            log.warn("Could not expire {} contracts, retrying: {}", due.size(), e.getMessage());
+            synchronized (this) {
+                // Keep deadlines that were changed in the meantime
+                due.forEach((contractId, deadline) -> {
+                    if (!deadlines.containsKey(contractId)) {
+                        schedule(contractId, deadline);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Removes and returns the contracts whose move date is before the given time
+     */
+    synchronized Map<Long, LocalDateTime> pollDue(LocalDateTime now) {
+        Map<Long, LocalDateTime> due = new LinkedHashMap<>();
+        while (!queue.isEmpty() && queue.first().time.isBefore(now)) {
+            Deadline deadline = queue.pollFirst();
+            deadlines.remove(deadline.contractId);
+            due.put(deadline.contractId, deadline.time);
+        }
+        return due;
+    }
+
+    private void schedule(Long contractId, LocalDateTime moveDateTime) {
+        unschedule(contractId);
+        if (moveDateTime != null) {
+            deadlines.put(contractId, moveDateTime);
+            queue.add(new Deadline(moveDateTime, contractId));
+        }
+    }
+
+    private void unschedule(Long contractId) {
+        LocalDateTime previous = deadlines.remove(contractId);
+        if (previous != null) {
+            queue.remove(new Deadline(previous, contractId));
+        }
+    }
+
+    /**
+     * @return The scheduled move date of the contract, null if it is not scheduled
+     */
+    public synchronized LocalDateTime getDeadline(Long contractId) {
+        return deadlines.get(contractId);
+    }
+
+    public synchronized int size() {
+        return deadlines.size();
+    }
+
+    /**
+     * Entry of the queue, ordered by time and contract id
+     */
+    private static final class Deadline implements Comparable<Deadline> {
+        private final LocalDateTime time;
+        private final Long contractId;
+
+        Deadline(LocalDateTime time, Long contractId) {
+            this.time = time;
+            this.contractId = contractId;
+        }
+
+        @Override
+        public int compareTo(Deadline other) {
+            int byTime = time.compareTo(other.time);
+            return byTime != 0 ? byTime : contractId.compareTo(other.contractId);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Deadline)) {
+                return false;
+            }
+            Deadline other = (Deadline) o;
+            return time.equals(other.time) && contractId.equals(other.contractId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(time, contractId);
+        }
+    }
+}
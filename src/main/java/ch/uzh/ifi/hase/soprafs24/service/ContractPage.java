@@ -0,0 +1,31 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import java.util.List;
+
+import ch.uzh.ifi.hase.soprafs24.entity.Contract;
+
+/**
+ * ContractPage
+ * One page of a keyset paginated contract listing
+ */
+public class ContractPage {
+
+    private final List<Contract> contracts;
+    private final String nextCursor;
+
+    public ContractPage(List<Contract> contracts, String nextCursor) {
+        this.contracts = contracts;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Contract> getContracts() {
+        return contracts;
+    }
+
+    /**
+     * Cursor of the following page, null if this is the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -1,32 +1,46 @@
 package ch.uzh.ifi.hase.soprafs24.service;
 
-import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.HttpStatus;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.server.ResponseStatusException;
 
+import ch.uzh.ifi.hase.soprafs24.constant.ContractSortField;
 import ch.uzh.ifi.hase.soprafs24.constant.ContractStatus;
 import ch.uzh.ifi.hase.soprafs24.constant.OfferStatus;
 import ch.uzh.ifi.hase.soprafs24.entity.Contract;
 import ch.uzh.ifi.hase.soprafs24.entity.Offer;
 import ch.uzh.ifi.hase.soprafs24.entity.Requester;
+import ch.uzh.ifi.hase.soprafs24.exceptions.GoogleMapsException;
 import ch.uzh.ifi.hase.soprafs24.repository.ContractRepository;
+import ch.uzh.ifi.hase.soprafs24.repository.ContractSpecifications;
 import ch.uzh.ifi.hase.soprafs24.repository.OfferRepository;
 import ch.uzh.ifi.hase.soprafs24.repository.UserRepository;
+import ch.uzh.ifi.hase.soprafs24.repository.VersionSummary;
 import ch.uzh.ifi.hase.soprafs24.rest.dto.contract.ContractFilterDTO;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.contract.ContractGetDTO;
 
 @Service
 @Transactional
@@ -38,17 +52,36 @@ public class ContractService {
     private final UserRepository userRepository;
     private final GoogleMapsService googleMapsService;
     private final OfferRepository offerRepository;
+    private final OpenContractIndex openContractIndex;
+    private final ContractExpiryScheduler contractExpiryScheduler;
+    private final ChangeEventPublisher changeEventPublisher;
+    private final TransactionTemplate readOnlyTransaction;
     private static final String NOT_FOUND_SUFFIX = " not found";
+    // Contracts read per transaction when streaming contracts
+    private static final int STREAM_BATCH_SIZE = 100;
+
+    // Number of closest radius search candidates whose road distance is checked via Google Maps
+    @Value("${contracts.search.road-distance-candidates:25}")
+    private int roadDistanceCandidates = 25;
 
     @Autowired
     public ContractService(@Qualifier("contractRepository") ContractRepository contractRepository,
             @Qualifier("userRepository") UserRepository userRepository,
             GoogleMapsService googleMapsService,
-            @Qualifier("offerRepository") OfferRepository offerRepository) {
+            @Qualifier("offerRepository") OfferRepository offerRepository,
+            OpenContractIndex openContractIndex,
+            ContractExpiryScheduler contractExpiryScheduler,
+            ChangeEventPublisher changeEventPublisher,
+            PlatformTransactionManager transactionManager) {
         this.contractRepository = contractRepository;
         this.userRepository = userRepository;
         this.googleMapsService = googleMapsService;
         this.offerRepository = offerRepository;
+        this.openContractIndex = openContractIndex;
+        this.contractExpiryScheduler = contractExpiryScheduler;
+        this.changeEventPublisher = changeEventPublisher;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
     }
 
     /**
@@ -74,6 +107,9 @@ public class ContractService {
         // Save contract to database
         contract = contractRepository.save(contract);
         contractRepository.flush();
+        openContractIndex.contractChanged(contract);
+        contractExpiryScheduler.contractChanged(contract);
+        changeEventPublisher.contractChanged(contract);
 
         log.debug("Created Contract: {}", contract);
         return contract;
@@ -125,88 +161,454 @@ public class ContractService {
     }
 
     /**
-     * Gets all contracts with optional filtering
+     * Gets all contracts with optional filtering.
+     * All attribute filters are evaluated by the database. For radius searches the
+     * database additionally narrows the result to a bounding box around the origin,
+     * the exact great-circle distance is checked locally and the road distance from
+     * Google Maps is only requested for the closest candidates.
      * 
-     * @param lat     Latitude for location-based search (placeholder for future
-     *                implementation)
-     * @param lng     Longitude for location-based search (placeholder for future
-     *                implementation)
+     * @param lat     Latitude for location-based search
+     * @param lng     Longitude for location-based search
      * @param filters Filter criteria
-     * @return List of filtered contracts
+     * @return List of filtered contracts, ordered by distance for radius searches
      */
     public List<Contract> getContracts(Double lat, Double lng, ContractFilterDTO filters) {
-        List<Contract> contracts = contractRepository.findAll();
+        Specification<Contract> specification = buildSearchSpecification(lat, lng, filters);
 
-        return contracts.stream()
-                .filter(contract -> {
-                    if (filters == null)
-                        return true;
+        if (!isRadiusSearch(lat, lng, filters)) {
+            return contractRepository.findAll(specification);
+        }
 
-                    // Filter by price
-                    if (filters.getPrice() != null && contract.getPrice() < filters.getPrice()) {
-                        return false;
-                    }
+        double radius = filters.getRadius();
+        List<Contract> candidates = contractRepository.findAll(specification).stream()
+                .filter(contract -> distanceTo(lat, lng, contract) <= radius)
+                .sorted(byDistance(lat, lng))
+                .collect(Collectors.toList());
 
-                    // Filter by weight (weight)
-                    if (filters.getWeight() != null && contract.getWeight() > filters.getWeight()) {
-                        return false;
-                    }
+        return new RoadDistanceFilter(lat, lng, radius).apply(candidates, ContractService::pickupLocation,
+                Integer.MAX_VALUE);
+    }
 
-                    // Filter by dimensions
-                    if (filters.getHeight() != null && contract.getHeight() > filters.getHeight()) {
-                        return false;
-                    }
-                    if (filters.getWidth() != null && contract.getWidth() > filters.getWidth()) {
-                        return false;
-                    }
-                    if (filters.getLength() != null && contract.getLength() > filters.getLength()) {
-                        return false;
-                    }
+    /**
+     * Gets all open (REQUESTED or OFFERED) contracts with optional filtering, as
+     * searched by drivers. The filters are evaluated on the {@link OpenContractIndex},
+     * so only the matching contracts are loaded from the database. Until the index is
+     * ready the search falls back to the database.
+     *
+     * @param lat     Latitude for location-based search
+     * @param lng     Longitude for location-based search
+     * @param filters Filter criteria
+     * @return List of filtered open contracts, ordered by distance for radius searches
+     */
+    @Transactional(readOnly = true)
+    public List<Contract> getOpenContracts(Double lat, Double lng, ContractFilterDTO filters) {
+        if (!openContractIndex.isReady()) {
+            return getContracts(lat, lng, filters).stream()
+                    .filter(contract -> OpenContractIndex.isOpen(contract.getContractStatus()))
+                    .collect(Collectors.toList());
+        }
 
-                    // Filter by required people
-                    if (filters.getRequiredPeople() != null && contract.getManPower() > filters.getRequiredPeople()) {
-                        return false;
-                    }
+        List<Long> contractIds = searchOpenContractIds(lat, lng, filters);
+        Map<Long, Contract> contractsById = contractRepository.findAllById(contractIds).stream()
+                .collect(Collectors.toMap(Contract::getContractId, Function.identity()));
 
-                    // Filter by fragile items
-                    if (filters.getFragile() != null && filters.getFragile() && !contract.isFragile()) {
-                        return false;
-                    }
+        // Keep the order of the index and skip contracts that were closed in the meantime
+        return contractIds.stream()
+                .map(contractsById::get)
+                .filter(contract -> contract != null && OpenContractIndex.isOpen(contract.getContractStatus()))
+                .collect(Collectors.toList());
+    }
 
-                    // Filter by cooling required
-                    if (filters.getCoolingRequired() != null && filters.getCoolingRequired()
-                            && !contract.isCoolingRequired()) {
-                        return false;
-                    }
+    /**
+     * Gets all contracts with optional filtering, like
+     * {@link #getContracts(Double, Double, ContractFilterDTO)}, but reads them directly
+     * into DTOs. Only the listed columns are selected and no entities are loaded, so the
+     * read neither fetches the associations of the contracts nor fills the persistence
+     * context.
+     *
+     * @param lat     Latitude for location-based search
+     * @param lng     Longitude for location-based search
+     * @param filters Filter criteria
+     * @return List of filtered contracts, ordered by distance for radius searches
+     */
+    @Transactional(readOnly = true)
+    public List<ContractGetDTO> getContractDTOs(Double lat, Double lng, ContractFilterDTO filters) {
+        Specification<Contract> specification = buildSearchSpecification(lat, lng, filters);
 
-                    // Filter by ride along
-                    if (filters.getRideAlong() != null && filters.getRideAlong() && !contract.isRideAlong()) {
-                        return false;
-                    }
+        if (!isRadiusSearch(lat, lng, filters)) {
+            return contractRepository.findAllAsDTO(specification, Sort.by("contractId"));
+        }
 
-                    // Filter by move date
-                    if (filters.getMoveDate() != null) {
-                        LocalDate contractDate = contract.getMoveDateTime().toLocalDate();
-                        if (!contractDate.equals(filters.getMoveDate())) {
-                            return false;
-                        }
-                    }
+        double radius = filters.getRadius();
+        Comparator<ContractGetDTO> byDistance = Comparator.comparingDouble(
+                contract -> distanceTo(lat, lng, pickupLocation(contract)));
+        List<ContractGetDTO> candidates = contractRepository.findAllAsDTO(specification, Sort.unsorted()).stream()
+                .filter(contract -> distanceTo(lat, lng, pickupLocation(contract)) <= radius)
+                .sorted(byDistance.thenComparing(ContractGetDTO::getContractId))
+                .collect(Collectors.toList());
 
-                    // Location-based filtering using Google Maps API
-                    if (lat != null && lng != null && filters.getRadius() != null
-                            && contract.getFromAddress() != null) {
-                        double distance = googleMapsService.calculateDistance(
-                                lat, lng,
-                                contract.getFromAddress().getLatitude(),
-                                contract.getFromAddress().getLongitude());
-                        return distance <= filters.getRadius();
-                    }
+        return new RoadDistanceFilter(lat, lng, radius).apply(candidates, ContractService::pickupLocation,
+                Integer.MAX_VALUE);
+    }
 
-                    return true;
-                })
+    /**
+     * Gets all open (REQUESTED or OFFERED) contracts with optional filtering, like
+     * {@link #getOpenContracts(Double, Double, ContractFilterDTO)}, but reads them
+     * directly into DTOs.
+     *
+     * @param lat     Latitude for location-based search
+     * @param lng     Longitude for location-based search
+     * @param filters Filter criteria
+     * @return List of filtered open contracts, ordered by distance for radius searches
+     */
+    @Transactional(readOnly = true)
+    public List<ContractGetDTO> getOpenContractDTOs(Double lat, Double lng, ContractFilterDTO filters) {
+        if (!openContractIndex.isReady()) {
+            return getContractDTOs(lat, lng, filters).stream()
+                    .filter(contract -> OpenContractIndex.isOpen(contract.getContractStatus()))
+                    .collect(Collectors.toList());
+        }
+
+        return getOpenContractDTOsByIds(searchOpenContractIds(lat, lng, filters));
+    }
+
+    /**
+     * Reads the given contracts into DTOs, e.g. the contracts of a {@link DriverFeed}
+     *
+     * @param contractIds Ids of open contracts
+     * @return The contracts that are still open, in the order of the ids
+     */
+    @Transactional(readOnly = true)
+    public List<ContractGetDTO> getOpenContractDTOsByIds(List<Long> contractIds) {
+        if (contractIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, ContractGetDTO> contractsById = contractRepository
+                .findAllAsDTO(ContractSpecifications.hasIdIn(contractIds), Sort.unsorted()).stream()
+                .collect(Collectors.toMap(ContractGetDTO::getContractId, Function.identity()));
+
+        // Keep the order of the index and skip contracts that were closed in the meantime
+        return contractIds.stream()
+                .map(contractsById::get)
+                .filter(contract -> contract != null && OpenContractIndex.isOpen(contract.getContractStatus()))
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Searches the {@link OpenContractIndex} for the ids of the open contracts matching
+     * the filters, ordered by distance for radius searches
+     */
+    private List<Long> searchOpenContractIds(Double lat, Double lng, ContractFilterDTO filters) {
+        List<OpenContractSnapshot> matches = openContractIndex.search(filters);
+        if (isRadiusSearch(lat, lng, filters)) {
+            double radius = filters.getRadius();
+            Comparator<OpenContractSnapshot> byDistance = Comparator.comparingDouble(
+                    snapshot -> GeoDistanceCalculator.haversineKm(lat, lng, snapshot.getLatitude(), snapshot.getLongitude()));
+            List<OpenContractSnapshot> candidates = matches.stream()
+                    .filter(OpenContractSnapshot::hasLocation)
+                    .filter(snapshot -> GeoDistanceCalculator.haversineKm(lat, lng,
+                            snapshot.getLatitude(), snapshot.getLongitude()) <= radius)
+                    .sorted(byDistance.thenComparing(OpenContractSnapshot::getContractId))
+                    .collect(Collectors.toList());
+
+            matches = new RoadDistanceFilter(lat, lng, radius).apply(candidates,
+                    snapshot -> new LatLng(snapshot.getLatitude(), snapshot.getLongitude()), Integer.MAX_VALUE);
+        }
+
+        return matches.stream()
+                .map(OpenContractSnapshot::getContractId)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Passes all contracts matching the filters to the consumer, one at a time, as
+     * needed to stream large listings. Contracts are read into DTOs in batches in
+     * contractId order, each batch in its own short transaction, so neither memory usage
+     * nor the time a database connection is held depends on the number of contracts or
+     * on how fast the client reads. Radius searches need all candidates to order them by
+     * distance, their (bounded) result is loaded as for
+     * {@link #getContractDTOs(Double, Double, ContractFilterDTO)}.
+     *
+     * @param lat      Latitude for location-based search
+     * @param lng      Longitude for location-based search
+     * @param filters  Filter criteria
+     * @param openOnly Whether to only include open (REQUESTED or OFFERED) contracts
+     * @param consumer Receives the contracts
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void streamContracts(Double lat, Double lng, ContractFilterDTO filters, boolean openOnly,
+            Consumer<ContractGetDTO> consumer) {
+        if (isRadiusSearch(lat, lng, filters)) {
+            List<ContractGetDTO> contracts = readOnlyTransaction.execute(status -> openOnly
+                    ? getOpenContractDTOs(lat, lng, filters)
+                    : getContractDTOs(lat, lng, filters));
+            contracts.forEach(consumer);
+            return;
+        }
+
+        Specification<Contract> specification = buildSearchSpecification(lat, lng, filters, openOnly);
+        List<ContractGetDTO> batch = List.of();
+        do {
+            Specification<Contract> remaining = batch.isEmpty() ? specification
+                    : specification.and(ContractSpecifications.hasIdGreaterThan(
+                            batch.get(batch.size() - 1).getContractId()));
+            batch = readOnlyTransaction.execute(status ->
+                    contractRepository.findAllAsDTO(remaining, Sort.by("contractId"), STREAM_BATCH_SIZE));
+            // Written after the transaction, a slow client does not hold a connection
+            batch.forEach(consumer);
+        } while (batch.size() == STREAM_BATCH_SIZE);
+    }
+
+    /**
+     * Gets one page of contracts with optional filtering, using keyset pagination.
+     * Sorting by moveDateTime, price or creationDateTime happens in the database, which
+     * only returns the requested number of rows following the cursor, so deep pages are
+     * as cheap as the first one. Sorting by distance requires a radius search and orders
+     * the candidates inside the search radius locally.
+     * Road distances are checked via Google Maps for at most roadDistanceCandidates
+     * contracts per page.
+     *
+     * @param lat        Latitude for location-based search
+     * @param lng        Longitude for location-based search
+     * @param filters    Filter criteria
+     * @param openOnly   Whether only open contracts are returned, as for drivers
+     * @param sortField  Field to sort by, ties are broken by contractId
+     * @param descending Whether to sort in descending order
+     * @param cursor     Cursor returned with the previous page, null for the first page
+     * @param limit      Maximum number of contracts on the page
+     * @return The page of contracts and the cursor of the following page
+     */
+    @Transactional(readOnly = true)
+    public ContractPage getContractPage(Double lat, Double lng, ContractFilterDTO filters, boolean openOnly,
+            ContractSortField sortField, boolean descending, String cursor, int limit) {
+        if (limit <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Limit must be positive");
+        }
+        ContractCursor after = cursor != null ? ContractCursor.decode(cursor, sortField, descending) : null;
+
+        List<Contract> contracts;
+        if (sortField == ContractSortField.DISTANCE) {
+            if (!isRadiusSearch(lat, lng, filters)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Sorting by distance requires lat, lng and a radius filter");
+            }
+            contracts = getContractsByDistance(lat, lng, filters, openOnly, descending, after, limit + 1);
+        } else {
+            contracts = getContractsBySortField(lat, lng, filters, openOnly, sortField, descending, after, limit + 1);
+        }
+
+        // One contract more than requested is fetched to know whether another page follows
+        String nextCursor = null;
+        if (contracts.size() > limit) {
+            contracts = new ArrayList<>(contracts.subList(0, limit));
+            Contract last = contracts.get(limit - 1);
+            nextCursor = new ContractCursor(sortField, descending, sortValue(sortField, lat, lng, last),
+                    last.getContractId()).encode();
+        }
+        return new ContractPage(contracts, nextCursor);
+    }
+
+    private List<Contract> getContractsBySortField(Double lat, Double lng, ContractFilterDTO filters,
+            boolean openOnly, ContractSortField sortField, boolean descending, ContractCursor after, int count) {
+        Specification<Contract> specification = buildSearchSpecification(lat, lng, filters, openOnly);
+        Sort.Direction direction = descending ? Sort.Direction.DESC : Sort.Direction.ASC;
+        Sort sort = Sort.by(direction, sortField.getProperty()).and(Sort.by(direction, "contractId"));
+        RoadDistanceFilter roadDistanceFilter = isRadiusSearch(lat, lng, filters)
+                ? new RoadDistanceFilter(lat, lng, filters.getRadius())
+                : null;
+
+        List<Contract> result = new ArrayList<>(count);
+        ContractCursor position = after;
+        while (true) {
+            List<Contract> batch = contractRepository.findAll(
+                    specification.and(keysetAfter(sortField, descending, position)), sort, count);
+            int needed = count - result.size();
+            if (roadDistanceFilter == null) {
+                result.addAll(batch.subList(0, Math.min(needed, batch.size())));
+            } else {
+                // The bounding box is only a prefilter, drop the corners outside the radius
+                List<Contract> candidates = batch.stream()
+                        .filter(contract -> distanceTo(lat, lng, contract) <= filters.getRadius())
+                        .collect(Collectors.toList());
+                result.addAll(roadDistanceFilter.apply(candidates, ContractService::pickupLocation, needed));
+            }
+            if (result.size() == count || batch.size() < count) {
+                return result;
+            }
+            // Some rows were filtered out locally, continue after the last fetched row
+            Contract last = batch.get(batch.size() - 1);
+            position = new ContractCursor(sortField, descending, sortValue(sortField, lat, lng, last),
+                    last.getContractId());
+        }
+    }
+
+    private List<Contract> getContractsByDistance(double lat, double lng, ContractFilterDTO filters,
+            boolean openOnly, boolean descending, ContractCursor after, int count) {
+        double radius = filters.getRadius();
+        Comparator<Contract> order = descending ? byDistance(lat, lng).reversed() : byDistance(lat, lng);
+        Double afterDistance = after != null ? (Double) after.getValue() : null;
+
+        List<Contract> candidates = contractRepository.findAll(buildSearchSpecification(lat, lng, filters, openOnly)).stream()
+                .filter(contract -> distanceTo(lat, lng, contract) <= radius)
+                .filter(contract -> afterDistance == null
+                        || isAfter(distanceTo(lat, lng, contract), contract.getContractId(),
+                                afterDistance, after.getContractId(), descending))
+                .sorted(order)
+                .collect(Collectors.toList());
+
+        return new RoadDistanceFilter(lat, lng, radius).apply(candidates, ContractService::pickupLocation, count);
+    }
+
+    private static boolean isAfter(double distance, Long contractId, double afterDistance, Long afterId,
+            boolean descending) {
+        int comparison = Double.compare(distance, afterDistance);
+        if (comparison == 0) {
+            comparison = contractId.compareTo(afterId);
+        }
+        return descending ? comparison < 0 : comparison > 0;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Specification<Contract> keysetAfter(ContractSortField sortField, boolean descending,
+            ContractCursor position) {
+        if (position == null) {
+            return ContractSpecifications.after(sortField.getProperty(), null, null, descending);
+        }
+        return ContractSpecifications.after(sortField.getProperty(), (Comparable) position.getValue(),
+                position.getContractId(), descending);
+    }
+
+    private Comparable<?> sortValue(ContractSortField sortField, Double lat, Double lng, Contract contract) {
+        switch (sortField) {
+            case MOVE_DATE_TIME:
+                return contract.getMoveDateTime();
+            case CREATION_DATE_TIME:
+                return contract.getCreationDateTime();
+            case PRICE:
+                return contract.getPrice();
+            default:
+                return distanceTo(lat, lng, contract);
+        }
+    }
+
+    private static boolean isRadiusSearch(Double lat, Double lng, ContractFilterDTO filters) {
+        return filters != null && lat != null && lng != null && filters.getRadius() != null;
+    }
+
+    /**
+     * Like {@link #buildSearchSpecification(Double, Double, ContractFilterDTO)}, restricted
+     * to open contracts if openOnly is set
+     */
+    private static Specification<Contract> buildSearchSpecification(Double lat, Double lng,
+            ContractFilterDTO filters, boolean openOnly) {
+        Specification<Contract> specification = buildSearchSpecification(lat, lng, filters);
+        return openOnly
+                ? specification.and(ContractSpecifications.hasStatusIn(OpenContractIndex.OPEN_STATUSES))
+                : specification;
+    }
+
+    /**
+     * Builds the database part of a contract search: the attribute filters and, for
+     * radius searches, a bounding box around the origin that encloses the radius.
+     */
+    private static Specification<Contract> buildSearchSpecification(Double lat, Double lng,
+            ContractFilterDTO filters) {
+        Specification<Contract> specification = ContractSpecifications.matchesFilters(filters);
+        if (!isRadiusSearch(lat, lng, filters)) {
+            return specification;
+        }
+
+        double radius = filters.getRadius();
+        double latDelta = GeoDistanceCalculator.latitudeDelta(radius);
+        double lngDelta = GeoDistanceCalculator.longitudeDelta(lat, radius);
+        double minLng = lng - lngDelta;
+        double maxLng = lng + lngDelta;
+        if (minLng < -180.0 || maxLng > 180.0) {
+            // Box wraps around the antimeridian, only bound the latitude
+            minLng = -180.0;
+            maxLng = 180.0;
+        }
+        return specification.and(ContractSpecifications.fromAddressWithin(
+                lat - latDelta, lat + latDelta, minLng, maxLng));
+    }
+
+    private static LatLng pickupLocation(Contract contract) {
+        return new LatLng(contract.getFromAddress().getLatitude(), contract.getFromAddress().getLongitude());
+    }
+
+    private static LatLng pickupLocation(ContractGetDTO contract) {
+        return new LatLng(contract.getFromLocation().getLatitude(), contract.getFromLocation().getLongitude());
+    }
+
+    /**
+     * Checks the road distance of radius search candidates via Google Maps. Road distance
+     * is never shorter than the great-circle distance, so it can only remove candidates.
+     * At most roadDistanceCandidates candidates are checked per search to bound the API
+     * usage, any further candidates are accepted on their great-circle distance.
+     */
+    private final class RoadDistanceFilter {
+
+        private final LatLng origin;
+        private final double radius;
+        private int remainingChecks = roadDistanceCandidates;
+
+        RoadDistanceFilter(double lat, double lng, double radius) {
+            this.origin = new LatLng(lat, lng);
+            this.radius = radius;
+        }
+
+        /**
+         * Keeps the candidates within the radius, in their given order, until
+         * {@code count} candidates have been accepted. Candidates are sent to the
+         * Distance Matrix API in batches of at most as many as are still needed.
+         */
+        <T> List<T> apply(List<T> candidates, Function<T, LatLng> location, int count) {
+            List<T> result = new ArrayList<>(Math.min(count, candidates.size()));
+            int next = 0;
+            while (next < candidates.size() && result.size() < count) {
+                if (remainingChecks <= 0) {
+                    result.add(candidates.get(next++));
+                    continue;
+                }
+                int batchSize = Math.min(Math.min(remainingChecks, count - result.size()), candidates.size() - next);
+                List<T> batch = candidates.subList(next, next + batchSize);
+                List<Double> distances;
+                try {
+                    distances = googleMapsService.calculateDistances(origin,
+                            batch.stream().map(location).collect(Collectors.toList()));
+                } catch (GoogleMapsException | RestClientException e) {
+                    // The candidates are within the great-circle radius, keep them rather than failing the search
+                    log.warn("Road distance check unavailable, using great-circle distance: {}", e.getMessage());
+                    remainingChecks = 0;
+                    continue;
+                }
+                for (int i = 0; i < batch.size(); i++) {
+                    if (distances.get(i) <= radius) {
+                        result.add(batch.get(i));
+                    }
+                }
+                remainingChecks -= batchSize;
+                next += batchSize;
+            }
+            return result;
+        }
+    }
+
+    private Comparator<Contract> byDistance(double lat, double lng) {
+        Comparator<Contract> byDistance = Comparator.comparingDouble(contract -> distanceTo(lat, lng, contract));
+        return byDistance.thenComparing(Contract::getContractId);
+    }
+
+    private double distanceTo(double lat, double lng, Contract contract) {
+        return GeoDistanceCalculator.haversineKm(lat, lng,
+                contract.getFromAddress().getLatitude(),
+                contract.getFromAddress().getLongitude());
+    }
+
+    private static double distanceTo(double lat, double lng, LatLng location) {
+        return GeoDistanceCalculator.haversineKm(lat, lng, location.getLatitude(), location.getLongitude());
+    }
+
     /**
      * Gets all contracts without filtering
      * 
@@ -265,6 +667,60 @@ public class ContractService {
         return contractRepository.findByDriver_UserId(driverId);
     }
 
+    /**
+     * Gets all contracts for a specific Requester, optionally filtered by status, read
+     * directly into DTOs
+     * 
+     * @param requesterId The ID of the Requester
+     * @param status      Optional status to filter by
+     * @return List of contracts for the Requester
+     */
+    @Transactional(readOnly = true)
+    public List<ContractGetDTO> getContractDTOsByRequesterId(Long requesterId, ContractStatus status) {
+        return contractRepository.findAllAsDTO(ContractSpecifications.ofRequester(requesterId, status),
+                Sort.by("contractId"));
+    }
+
+    /**
+     * Gets all contracts for a specific Driver, optionally filtered by status, read
+     * directly into DTOs
+     * 
+     * @param driverId The ID of the Driver
+     * @param status   Optional status to filter by
+     * @return List of contracts for the Driver
+     */
+    @Transactional(readOnly = true)
+    public List<ContractGetDTO> getContractDTOsByDriverId(Long driverId, ContractStatus status) {
+        return contractRepository.findAllAsDTO(ContractSpecifications.ofDriver(driverId, status),
+                Sort.by("contractId"));
+    }
+
+    /**
+     * Summarizes the versions of the contracts returned by
+     * {@link #getContractDTOsByRequesterId(Long, ContractStatus)}, without loading them
+     * 
+     * @param requesterId The ID of the Requester
+     * @param status      Optional status to filter by
+     * @return Summary that changes whenever the contracts of the Requester change
+     */
+    @Transactional(readOnly = true)
+    public VersionSummary getContractVersionsByRequesterId(Long requesterId, ContractStatus status) {
+        return contractRepository.summarizeVersions(ContractSpecifications.ofRequester(requesterId, status));
+    }
+
+    /**
+     * Summarizes the versions of the contracts returned by
+     * {@link #getContractDTOsByDriverId(Long, ContractStatus)}, without loading them
+     * 
+     * @param driverId The ID of the Driver
+     * @param status   Optional status to filter by
+     * @return Summary that changes whenever the contracts of the Driver change
+     */
+    @Transactional(readOnly = true)
+    public VersionSummary getContractVersionsByDriverId(Long driverId, ContractStatus status) {
+        return contractRepository.summarizeVersions(ContractSpecifications.ofDriver(driverId, status));
+    }
+
     /**
      * Gets all contracts with a specific status
      * 
@@ -362,6 +818,9 @@ public class ContractService {
         // Save updated contract
         Contract updatedContract = contractRepository.save(existingContract);
         contractRepository.flush();
+        openContractIndex.contractChanged(updatedContract);
+        contractExpiryScheduler.contractChanged(updatedContract);
+        changeEventPublisher.contractChanged(updatedContract);
 
         log.debug("Updated Contract: {}", updatedContract);
         return updatedContract;
@@ -380,6 +839,9 @@ public class ContractService {
         contract.setContractStatus(newStatus);
         Contract savedContract = contractRepository.save(contract);
         contractRepository.flush();
+        openContractIndex.contractChanged(savedContract);
+        contractExpiryScheduler.contractChanged(savedContract);
+        changeEventPublisher.contractChanged(savedContract);
         log.debug("Updated Contract {} status to {}", contractId, newStatus);
         return savedContract;
     }
@@ -422,7 +884,6 @@ public class ContractService {
      * @return The cancelled contract
      * @throws ResponseStatusException if the contract cannot be cancelled
      */
-    @Transactional(isolation = Isolation.REPEATABLE_READ)
     public Contract cancelContract(Long contractId, String reason) {
         // Get contract with optimistic locking
         Contract contract = contractRepository.findById(contractId)
@@ -452,15 +913,6 @@ public class ContractService {
         }
 
         try {
-            // Reject all offers for this contract in a single operation
-            List<Offer> offers = offerRepository.findByContract_ContractId(contractId);
-            for (Offer offer : offers) {
-                if (offer.getOfferStatus() != OfferStatus.REJECTED) {
-                    offer.setOfferStatus(OfferStatus.REJECTED);
-                }
-            }
-            offerRepository.saveAll(offers);
-
             // Update contract status and reason
             contract.setContractStatus(ContractStatus.CANCELED);
             contract.setCancelReason(reason);
@@ -468,11 +920,19 @@ public class ContractService {
             // Save the updated contract
             Contract savedContract = contractRepository.save(contract);
 
-            // Flush changes to ensure they're persisted
-            contractRepository.flush();
-            offerRepository.flush();
+            // Reject all offers for this contract in a single statement, which flushes the
+            // contract first and clears the persistence context afterwards, so the returned
+            // contract is loaded again
+            offerRepository.updateOfferStatusByContractIds(List.of(contractId), OfferStatus.REJECTED);
+            savedContract = getContractById(contractId);
+            openContractIndex.contractChanged(savedContract);
+            contractExpiryScheduler.contractChanged(savedContract);
+            changeEventPublisher.contractChanged(savedContract);
 
             return savedContract;
+        } catch (ConcurrencyFailureException e) {
+            // Changed concurrently, the caller may retry on the current state
+            throw e;
         } catch (Exception e) {
             // Log the error
             log.error("Error during contract cancellation: {}", e.getMessage());
@@ -512,7 +972,9 @@ public class ContractService {
         contract.setContractStatus(ContractStatus.FINALIZED);
 
         // Save the updated contract
-        return contractRepository.save(contract);
+        Contract savedContract = contractRepository.save(contract);
+        changeEventPublisher.contractChanged(savedContract);
+        return savedContract;
     }
 
     /**
@@ -553,69 +1015,14 @@ public class ContractService {
         contract.setContractStatus(ContractStatus.DELETED);
         contractRepository.save(contract);
 
-        // Then reject all offers for this contract
-        List<Offer> offers = offerRepository.findByContract_ContractId(contractId);
-        for (Offer offer : offers) {
-            if (offer.getOfferStatus() != OfferStatus.REJECTED) {
-                offer.setOfferStatus(OfferStatus.REJECTED);
-                offerRepository.save(offer);
-            }
-        }
-
-        // Flush all changes
-        contractRepository.flush();
-        offerRepository.flush();
+        // Then reject all offers for this contract in a single statement, which flushes the
+        // contract first and clears the persistence context afterwards
+        offerRepository.updateOfferStatusByContractIds(List.of(contractId), OfferStatus.REJECTED);
+        openContractIndex.contractChanged(contract);
+        contractExpiryScheduler.contractChanged(contract);
+        changeEventPublisher.contractChanged(contract);
 
-        log.debug("Deleted Contract: {}", contract);
-    }
-
-    /**
-     * Automatically update contract statuses based on move date
-     * This method should be called periodically to update contracts
-     */
-    @Scheduled(fixedRate = 300000) // Run every 5 minutes
-    public void updateContractStatuses() {
-        LocalDateTime now = LocalDateTime.now();
-
-        // Find all ACCEPTED contracts where move date has passed
-        List<Contract> contractsToComplete = contractRepository.findByContractStatusAndMoveDateTimeBefore(
-                ContractStatus.ACCEPTED, now);
-
-        for (Contract contract : contractsToComplete) {
-            contract.setContractStatus(ContractStatus.COMPLETED);
-            log.debug("Automatically updated contract {} to COMPLETED status", contract.getContractId());
-        }
-
-        // Find all REQUESTED or OFFERED contracts where move date has passed
-        List<Contract> contractsToCancel = new ArrayList<>();
-        contractsToCancel.addAll(contractRepository.findByContractStatusAndMoveDateTimeBefore(
-                ContractStatus.REQUESTED, now));
-        contractsToCancel.addAll(contractRepository.findByContractStatusAndMoveDateTimeBefore(
-                ContractStatus.OFFERED, now));
-
-        for (Contract contract : contractsToCancel) {
-            contract.setContractStatus(ContractStatus.CANCELED);
-            contract.setCancelReason("Contract automatically canceled due to expired move date");
-
-            // Reject all offers for this contract
-            List<Offer> offers = offerRepository.findByContract_ContractId(contract.getContractId());
-            for (Offer offer : offers) {
-                if (offer.getOfferStatus() != OfferStatus.REJECTED) {
-                    offer.setOfferStatus(OfferStatus.REJECTED);
-                    offerRepository.save(offer);
-                }
-            }
-
-            log.debug("Automatically canceled contract {} due to expired move date", contract.getContractId());
-        }
-
-        // Save all changes
-        if (!contractsToComplete.isEmpty() || !contractsToCancel.isEmpty()) {
-            contractRepository.saveAll(contractsToComplete);
-            contractRepository.saveAll(contractsToCancel);
-            contractRepository.flush();
-            offerRepository.flush();
-        }
+        log.debug("Deleted Contract: {}", contractId);
     }
 
     /**
@@ -652,6 +1059,7 @@ public class ContractService {
         // Save the updated contract
         Contract savedContract = contractRepository.save(contract);
         contractRepository.flush();
+        changeEventPublisher.contractChanged(savedContract);
         log.debug("Manually completed Contract: {}", savedContract);
         return savedContract;
     }
@@ -676,7 +1084,9 @@ public class ContractService {
         contract.setContractStatus(ContractStatus.COMPLETED);
 
         // Save the updated contract
-        return contractRepository.save(contract);
+        Contract savedContract = contractRepository.save(contract);
+        changeEventPublisher.contractChanged(savedContract);
+        return savedContract;
     }
 
     public Contract finalizeContract(Long contractId) {
@@ -692,7 +1102,9 @@ public class ContractService {
         contract.setContractStatus(ContractStatus.FINALIZED);
 
         // Save the updated contract
-        return contractRepository.save(contract);
+        Contract savedContract = contractRepository.save(contract);
+        changeEventPublisher.contractChanged(savedContract);
+        return savedContract;
     }
 
     /**
@@ -714,6 +1126,7 @@ public class ContractService {
                 // Update offer status
                 offer.setOfferStatus(OfferStatus.REJECTED);
                 offerRepository.save(offer);
+                changeEventPublisher.offerChanged(offer);
 
                 // If this was the last offer and contract is in OFFERED state, revert to
                 // REQUESTED
@@ -722,6 +1135,8 @@ public class ContractService {
                 if (contract.getContractStatus() == ContractStatus.OFFERED && remainingOffers.isEmpty()) {
                     contract.setContractStatus(ContractStatus.REQUESTED);
                     contractRepository.save(contract);
+                    openContractIndex.contractChanged(contract);
+                    changeEventPublisher.contractChanged(contract);
                 }
             }
         }
@@ -743,30 +1158,28 @@ public class ContractService {
     public void handleRequesterDeletion(Long requesterId) {
         // Get all contracts from the requester
         List<Contract> contracts = contractRepository.findByRequester_UserId(requesterId);
+        List<Long> deletedContractIds = new ArrayList<>();
 
         for (Contract contract : contracts) {
             // Only handle REQUESTED and OFFERED contracts
             if (contract.getContractStatus() == ContractStatus.REQUESTED ||
                     contract.getContractStatus() == ContractStatus.OFFERED) {
 
-                // Reject all offers for this contract
-                List<Offer> offers = offerRepository.findByContract_ContractId(contract.getContractId());
-                for (Offer offer : offers) {
-                    if (offer.getOfferStatus() != OfferStatus.REJECTED) {
-                        offer.setOfferStatus(OfferStatus.REJECTED);
-                        offerRepository.save(offer);
-                    }
-                }
-
                 // Delete the contract
                 contract.setContractStatus(ContractStatus.DELETED);
                 contractRepository.save(contract);
+                deletedContractIds.add(contract.getContractId());
+                openContractIndex.contractChanged(contract);
+                contractExpiryScheduler.contractChanged(contract);
             }
         }
 
-        // Flush changes
-        offerRepository.flush();
-        contractRepository.flush();
+        // Reject all offers for the deleted contracts in a single statement, which flushes
+        // the contracts first and clears the persistence context afterwards
+        if (!deletedContractIds.isEmpty()) {
+            offerRepository.updateOfferStatusByContractIds(deletedContractIds, OfferStatus.REJECTED);
+            changeEventPublisher.contractsChanged(deletedContractIds, ContractStatus.DELETED);
+        }
 
         log.debug("Handled requester deletion for requesterId: {}", requesterId);
     }
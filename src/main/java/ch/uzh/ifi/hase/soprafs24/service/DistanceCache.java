@@ -0,0 +1,184 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * DistanceCache
+ * Bounded LRU cache with a time to live for road distances returned by the Google Maps
+ * Distance Matrix API. Coordinates are snapped to a grid of the configured precision,
+ * so repeated searches from (almost) the same place hit the cache.
+ * The cache holds at most maxEntries entries of roughly 150 bytes each, which bounds
+ * its memory usage.
+ */
+@Component
+public class DistanceCache {
+
+    private static final Logger log = LoggerFactory.getLogger(DistanceCache.class);
+
+    private static final double METERS_PER_DEGREE_LATITUDE = Math.PI * GeoDistanceCalculator.EARTH_RADIUS_KM * 1000 / 180.0;
+
+    private final double gridStepDegrees;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+    private final Map<Key, CachedDistance> entries;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    @Autowired
+    public DistanceCache(@Value("${google.maps.distance-cache.precision-meters:50}") double precisionMeters,
+            @Value("${google.maps.distance-cache.max-entries:10000}") int maxEntries,
+            @Value("${google.maps.distance-cache.ttl:PT1H}") Duration ttl) {
+        this(precisionMeters, maxEntries, ttl, System::nanoTime);
+    }
+
+    DistanceCache(double precisionMeters, int maxEntries, Duration ttl, LongSupplier nanoClock) {
+        // Longitude cells get narrower towards the poles, so the precision is an upper bound
+        this.gridStepDegrees = precisionMeters / METERS_PER_DEGREE_LATITUDE;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.nanoClock = nanoClock;
+        this.entries = new LinkedHashMap<Key, CachedDistance>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CachedDistance> eldest) {
+                if (size() > DistanceCache.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Looks up the road distance between two points
+     *
+     * @return Cached distance in kilometers, empty if there is no valid entry
+     */
+    public synchronized OptionalDouble get(LatLng origin, LatLng destination) {
+        Key key = key(origin, destination);
+        CachedDistance cached = entries.get(key);
+        if (cached != null && nanoClock.getAsLong() - cached.storedAt > ttlNanos) {
+            entries.remove(key);
+            expirations++;
+            cached = null;
+        }
+        if (cached == null) {
+            misses++;
+            return OptionalDouble.empty();
+        }
+        hits++;
+        return OptionalDouble.of(cached.distanceKm);
+    }
+
+    /**
+     * Stores the road distance between two points, evicting the least recently used
+     * entry if the cache is full
+     */
+    public synchronized void put(LatLng origin, LatLng destination, double distanceKm) {
+        if (maxEntries <= 0) {
+            return;
+        }
+        entries.put(key(origin, destination), new CachedDistance(distanceKm, nanoClock.getAsLong()));
+    }
+
+    /**
+     * Removes all expired entries. Expired entries are also dropped on access, so this
+     * only frees memory earlier.
+     */
+    @Scheduled(fixedDelay = 600000) // Run every 10 minutes
+    public synchronized void removeExpired() {
+        long now = nanoClock.getAsLong();
+        Iterator<CachedDistance> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (now - iterator.next().storedAt > ttlNanos) {
+                iterator.remove();
+                expirations++;
+            }
+        }
+        log.debug("Distance cache: {}", getStats());
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(hits, misses, evictions, expirations, entries.size());
+    }
+
+    private Key key(LatLng origin, LatLng destination) {
+        return new Key(quantize(origin.getLatitude()), quantize(origin.getLongitude()),
+                quantize(destination.getLatitude()), quantize(destination.getLongitude()));
+    }
+
+    private long quantize(double degrees) {
+        return Math.round(degrees / gridStepDegrees);
+    }
+
+    @EqualsAndHashCode
+    private static final class Key {
+        private final long originLat;
+        private final long originLng;
+        private final long destLat;
+        private final long destLng;
+
+        Key(long originLat, long originLng, long destLat, long destLng) {
+            this.originLat = originLat;
+            this.originLng = originLng;
+            this.destLat = destLat;
+            this.destLng = destLng;
+        }
+    }
+
+    private static final class CachedDistance {
+        private final double distanceKm;
+        private final long storedAt;
+
+        CachedDistance(double distanceKm, long storedAt) {
+            this.distanceKm = distanceKm;
+            this.storedAt = storedAt;
+        }
+    }
+
+    /**
+     * Snapshot of the cache counters
+     */
+    @Getter
+    @ToString
+    public static final class Stats {
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long expirations;
+        private final int size;
+
+        Stats(long hits, long misses, long evictions, long expirations, int size) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.expirations = expirations;
+            this.size = size;
+        }
+
+        public double getHitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0.0 : (double) hits / lookups;
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import ch.uzh.ifi.hase.soprafs24.entity.Driver;
+import ch.uzh.ifi.hase.soprafs24.repository.UserRepository;
+
+/**
+ * DriverFeed
+ * Precomputed job feed of every driver: the open contracts picked up within the
+ * preferred range of the driver's location whose weight and volume fit into the
+ * driver's car, closest first. The feeds are loaded at startup and afterwards matched
+ * incrementally, against all drivers when the {@link OpenContractIndex} reports a
+ * changed contract and against all open contracts when a driver changes. Reading a
+ * feed is therefore a lookup instead of a search.
+ */
+@Component
+public class DriverFeed implements OpenContractIndex.Listener {
+
+    private final Logger log = LoggerFactory.getLogger(DriverFeed.class);
+
+    private final UserRepository userRepository;
+    private final OpenContractIndex openContractIndex;
+
+    private final Map<Long, DriverProfile> drivers = new ConcurrentHashMap<>();
+    private final Map<Long, NavigableSet<FeedEntry>> feeds = new ConcurrentHashMap<>();
+    // Drivers whose feed contains the contract, so a closed contract does not need a scan of all feeds
+    private final Map<Long, Set<Long>> driversByContract = new HashMap<>();
+
+    public DriverFeed(@Qualifier("userRepository") UserRepository userRepository,
+            OpenContractIndex openContractIndex) {
+        this.userRepository = userRepository;
+        this.openContractIndex = openContractIndex;
+        openContractIndex.addListener(this);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild(userRepository.findAllDriversWithCarAndLocation());
+        log.info("Driver feeds initialized for {} drivers with {} entries", drivers.size(), size());
+    }
+
+    /**
+     * Rebuilds the feeds after the index was reconciled with the database, which also
+     * picks up drivers and contracts changed by other instances
+     */
+    @Override
+    public void indexSynchronized() {
+        rebuild(userRepository.findAllDriversWithCarAndLocation());
+    }
+
+    /**
+     * Matches all open contracts of the index against the given drivers, replacing all
+     * feeds. Contracts the index loads later are added as they are reported.
+     */
+    synchronized void rebuild(List<Driver> allDrivers) {
+        drivers.clear();
+        feeds.clear();
+        driversByContract.clear();
+        for (Driver driver : allDrivers) {
+            DriverProfile profile = DriverProfile.of(driver);
+            if (profile != null) {
+                drivers.put(profile.getDriverId(), profile);
+                feeds.put(profile.getDriverId(), new ConcurrentSkipListSet<>());
+            }
+        }
+        for (OpenContractSnapshot snapshot : openContractIndex.search(null)) {
+            contractOpened(snapshot);
+        }
+    }
+
+    /**
+     * Rematches the feed of a registered or updated driver. Inside a transaction this
+     * waits for the commit, like the {@link OpenContractIndex}.
+     *
+     * @param driver The driver with its current car, location and preferred range
+     */
+    public void driverChanged(Driver driver) {
+        DriverProfile profile = DriverProfile.of(driver);
+        Long driverId = driver.getUserId();
+        TransactionCallbacks.afterCommit(() -> applyDriver(driverId, profile));
+    }
+
+    /**
+     * Drops the feed of a driver whose account was deleted
+     */
+    public void driverRemoved(Long driverId) {
+        TransactionCallbacks.afterCommit(() -> applyDriver(driverId, null));
+    }
+
+    private synchronized void applyDriver(Long driverId, DriverProfile profile) {
+        if (driverId == null) {
+            return;
+        }
+        NavigableSet<FeedEntry> previous = feeds.remove(driverId);
+        if (previous != null) {
+            for (FeedEntry entry : previous) {
+                Set<Long> driverIds = driversByContract.get(entry.getContractId());
+                if (driverIds != null) {
+                    driverIds.remove(driverId);
+                }
+            }
+        }
+        if (profile == null) {
+            drivers.remove(driverId);
+            return;
+        }
+
+        drivers.put(driverId, profile);
+        NavigableSet<FeedEntry> feed = new ConcurrentSkipListSet<>();
+        for (OpenContractSnapshot snapshot : openContractIndex.search(null)) {
+            FeedEntry entry = profile.match(snapshot);
+            if (entry != null) {
+                feed.add(entry);
+                driversByContract.computeIfAbsent(snapshot.getContractId(), id -> new HashSet<>()).add(driverId);
+            }
+        }
+        feeds.put(driverId, feed);
+    }
+
+    @Override
+    public synchronized void contractOpened(OpenContractSnapshot snapshot) {
+        // The pickup, weight or dimensions may have changed, so the contract is matched anew
+        contractClosed(snapshot.getContractId());
+        Set<Long> matchedDrivers = new HashSet<>();
+        for (DriverProfile profile : drivers.values()) {
+            FeedEntry entry = profile.match(snapshot);
+            NavigableSet<FeedEntry> feed = feeds.get(profile.getDriverId());
+            if (entry != null && feed != null) {
+                feed.add(entry);
+                matchedDrivers.add(profile.getDriverId());
+            }
+        }
+        if (!matchedDrivers.isEmpty()) {
+            driversByContract.put(snapshot.getContractId(), matchedDrivers);
+        }
+    }
+
+    @Override
+    public synchronized void contractClosed(Long contractId) {
+        Set<Long> driverIds = driversByContract.remove(contractId);
+        if (driverIds == null) {
+            return;
+        }
+        for (Long driverId : driverIds) {
+            NavigableSet<FeedEntry> feed = feeds.get(driverId);
+            if (feed != null) {
+                feed.removeIf(entry -> entry.getContractId().equals(contractId));
+            }
+        }
+    }
+
+    /**
+     * Reads the feed of a driver without locking, it may lag behind concurrent changes
+     *
+     * @param driverId Id of the driver
+     * @return Ids of the matching open contracts, closest first. Empty for unknown
+     *         drivers and drivers without car or location.
+     */
+    public List<Long> getContractIds(Long driverId) {
+        NavigableSet<FeedEntry> feed = feeds.get(driverId);
+        if (feed == null) {
+            return Collections.emptyList();
+        }
+        List<Long> contractIds = new ArrayList<>(feed.size());
+        for (FeedEntry entry : feed) {
+            contractIds.add(entry.getContractId());
+        }
+        return contractIds;
+    }
+
+    /**
+     * Total number of entries of all feeds
+     */
+    public int size() {
+        return feeds.values().stream().mapToInt(Set::size).sum();
+    }
+
+    /**
+     * The attributes of a driver the feed is matched on
+     */
+    static final class DriverProfile {
+        private final Long driverId;
+        private final double latitude;
+        private final double longitude;
+        private final double range;
+        private final double weightCapacity;
+        private final double volumeCapacity;
+
+        private DriverProfile(Driver driver) {
+            this.driverId = driver.getUserId();
+            this.latitude = driver.getLocation().getLatitude();
+            this.longitude = driver.getLocation().getLongitude();
+            this.range = driver.getPreferredRange();
+            this.weightCapacity = driver.getCar().getWeightCapacity();
+            this.volumeCapacity = driver.getCar().getVolumeCapacity();
+        }
+
+        /**
+         * @return The profile, or null if the driver cannot be matched without a car or location
+         */
+        static DriverProfile of(Driver driver) {
+            if (driver.getUserId() == null || driver.getCar() == null || driver.getLocation() == null
+                    || driver.getLocation().getLatitude() == null || driver.getLocation().getLongitude() == null) {
+                return null;
+            }
+            return new DriverProfile(driver);
+        }
+
+        Long getDriverId() {
+            return driverId;
+        }
+
+        /**
+         * @return The feed entry if the contract fits the car and is picked up within range, otherwise null
+         */
+        FeedEntry match(OpenContractSnapshot snapshot) {
+            if (!snapshot.hasLocation() || snapshot.getWeight() > weightCapacity
+                    || snapshot.getVolume() > volumeCapacity) {
+                return null;
+            }
+            double distance = GeoDistanceCalculator.haversineKm(latitude, longitude,
+                    snapshot.getLatitude(), snapshot.getLongitude());
+            return distance <= range ? new FeedEntry(snapshot.getContractId(), distance) : null;
+        }
+    }
+
+    /**
+     * A contract in a feed, ordered by the distance to the driver
+     */
+    static final class FeedEntry implements Comparable<FeedEntry> {
+        private static final Comparator<FeedEntry> ORDER = Comparator.comparingDouble(FeedEntry::getDistanceKm)
+                .thenComparing(FeedEntry::getContractId);
+
+        private final Long contractId;
+        private final double distanceKm;
+
+        FeedEntry(Long contractId, double distanceKm) {
+            this.contractId = contractId;
+            this.distanceKm = distanceKm;
+        }
+
+        Long getContractId() {
+            return contractId;
+        }
+
+        double getDistanceKm() {
+            return distanceKm;
+        }
+
+        @Override
+        public int compareTo(FeedEntry other) {
+            return ORDER.compare(this, other);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof FeedEntry entry && compareTo(entry) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return contractId.hashCode();
+        }
+    }
+}
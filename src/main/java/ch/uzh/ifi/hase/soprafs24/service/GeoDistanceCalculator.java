@@ -0,0 +1,51 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+/**
+ * GeoDistanceCalculator
+ * Local great-circle distance helpers. They are used to narrow down location
+ * based searches before any (paid) call to the Google Maps API is made.
+ */
+public final class GeoDistanceCalculator {
+
+    /** Mean earth radius in kilometers */
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+
+    private static final double KM_PER_DEGREE_LATITUDE = Math.PI * EARTH_RADIUS_KM / 180.0;
+
+    private GeoDistanceCalculator() {
+    }
+
+    /**
+     * Calculates the great-circle distance between two points using the haversine formula.
+     * The road distance between two points is never shorter than this value.
+     *
+     * @return Distance in kilometers
+     */
+    public static double haversineKm(double originLat, double originLng, double destLat, double destLng) {
+        double dLat = Math.toRadians(destLat - originLat);
+        double dLng = Math.toRadians(destLng - originLng);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(originLat)) * Math.cos(Math.toRadians(destLat))
+                * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    /**
+     * Half height in degrees of a bounding box that contains every point within the radius
+     */
+    public static double latitudeDelta(double radiusKm) {
+        return radiusKm / KM_PER_DEGREE_LATITUDE;
+    }
+
+    /**
+     * Half width in degrees of a bounding box around the given latitude that contains
+     * every point within the radius. Returns 180 if the box would span all longitudes.
+     */
+    public static double longitudeDelta(double latitude, double radiusKm) {
+        double ratio = Math.sin(radiusKm / EARTH_RADIUS_KM) / Math.cos(Math.toRadians(latitude));
+        if (Double.isNaN(ratio) || ratio >= 1.0 || ratio < 0.0) {
+            return 180.0;
+        }
+        return Math.toDegrees(Math.asin(ratio));
+    }
+}
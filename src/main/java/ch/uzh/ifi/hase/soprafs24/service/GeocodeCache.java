@@ -0,0 +1,111 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import ch.uzh.ifi.hase.soprafs24.entity.GeocodedAddress;
+import ch.uzh.ifi.hase.soprafs24.repository.GeocodedAddressRepository;
+
+/**
+ * GeocodeCache
+ * Two-level cache for geocoding results: a bounded in-memory LRU layer in front of the
+ * GEOCODED_ADDRESS table. Addresses are normalized (case and whitespace folded), so
+ * different spellings of popular pickup points share one entry.
+ */
+@Component
+public class GeocodeCache {
+
+    private static final Logger log = LoggerFactory.getLogger(GeocodeCache.class);
+
+    private static final int MAX_ADDRESS_LENGTH = 512;
+
+    private final GeocodedAddressRepository geocodedAddressRepository;
+    private final TransactionTemplate writeTransaction;
+    private final Map<String, LatLng> memory;
+
+    public GeocodeCache(@Qualifier("geocodedAddressRepository") GeocodedAddressRepository geocodedAddressRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${google.maps.geocode-cache.max-entries:5000}") int maxEntries) {
+        this.geocodedAddressRepository = geocodedAddressRepository;
+        // Cache writes must never roll back the caller's transaction, e.g. a new Location
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.memory = new LinkedHashMap<String, LatLng>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, LatLng> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Folds case and whitespace of an address, e.g. " Bahnhofstrasse 1 ,8001  Zürich"
+     * becomes "bahnhofstrasse 1, 8001 zürich"
+     */
+    public static String normalize(String address) {
+        return address.trim()
+                .toLowerCase(Locale.ROOT)
+                .replaceAll("\\s*,\\s*", ", ")
+                .replaceAll("\\s+", " ");
+    }
+
+    /**
+     * Looks up the coordinates of an address, first in memory and then in the database
+     *
+     * @return Coordinates of the address, empty if it has not been geocoded yet
+     */
+    public Optional<LatLng> get(String address) {
+        String key = normalize(address);
+        synchronized (memory) {
+            LatLng cached = memory.get(key);
+            if (cached != null) {
+                return Optional.of(cached);
+            }
+        }
+
+        Optional<LatLng> persisted = geocodedAddressRepository.findById(key)
+                .map(geocoded -> new LatLng(geocoded.getLatitude(), geocoded.getLongitude()));
+        persisted.ifPresent(coordinates -> remember(key, coordinates));
+        return persisted;
+    }
+
+    /**
+     * Stores the coordinates of an address in memory and in the database
+     */
+    public void put(String address, LatLng coordinates) {
+        String key = normalize(address);
+        if (key.isEmpty() || key.length() > MAX_ADDRESS_LENGTH) {
+            return;
+        }
+        remember(key, coordinates);
+
+        GeocodedAddress geocoded = new GeocodedAddress();
+        geocoded.setNormalizedAddress(key);
+        geocoded.setLatitude(coordinates.getLatitude());
+        geocoded.setLongitude(coordinates.getLongitude());
+        try {
+            writeTransaction.executeWithoutResult(status -> geocodedAddressRepository.saveAndFlush(geocoded));
+        } catch (DataAccessException e) {
+            // Another request stored the same address concurrently, the memory layer is enough
+            log.debug("Could not persist geocoded address '{}': {}", key, e.getMessage());
+        }
+    }
+
+    private void remember(String key, LatLng coordinates) {
+        synchronized (memory) {
+            memory.put(key, coordinates);
+        }
+    }
+}
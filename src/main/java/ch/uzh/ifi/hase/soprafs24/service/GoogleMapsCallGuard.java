@@ -0,0 +1,108 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import ch.uzh.ifi.hase.soprafs24.exceptions.GoogleMapsException;
+
+/**
+ * GoogleMapsCallGuard
+ * Protects the application from a slow or failing Google Maps API. Every request
+ * passes a bulkhead, which limits the number of concurrent requests, and a
+ * {@link CircuitBreaker}, which fails fast while most requests fail. Timeouts,
+ * server errors and rate limiting count as failures; error messages of the API
+ * itself (e.g. an invalid address) do not, since the API did respond.
+ */
+@Component
+public class GoogleMapsCallGuard {
+
+    private final Semaphore bulkhead;
+    private final long maxWaitNanos;
+    private final Duration callTimeout;
+    private final CircuitBreaker circuitBreaker;
+
+    public GoogleMapsCallGuard(@Value("${google.maps.bulkhead.max-concurrent-calls:8}") int maxConcurrentCalls,
+            @Value("${google.maps.bulkhead.max-wait:PT0.5S}") Duration maxWait,
+            @Value("${google.maps.call-timeout:PT10S}") Duration callTimeout,
+            @Qualifier("googleMapsCircuitBreaker") CircuitBreaker circuitBreaker) {
+        this.bulkhead = new Semaphore(maxConcurrentCalls);
+        this.maxWaitNanos = maxWait.toNanos();
+        this.callTimeout = callTimeout;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Deadline for an asynchronous Google Maps operation, including waiting for a
+     * free thread
+     */
+    public Duration getCallTimeout() {
+        return callTimeout;
+    }
+
+    public CircuitBreaker.State getCircuitBreakerState() {
+        return circuitBreaker.getState();
+    }
+
+    /**
+     * Performs a single request to the Google Maps API on the calling thread
+     *
+     * @throws GoogleMapsException if the circuit breaker is open or the bulkhead is full
+     */
+    public <T> T call(Supplier<T> request) {
+        acquireBulkhead();
+        try {
+            if (!circuitBreaker.tryAcquirePermission()) {
+                throw new GoogleMapsException("Google Maps API unavailable: too many failed requests");
+            }
+            try {
+                T result = request.get();
+                circuitBreaker.onSuccess();
+                return result;
+            } catch (RuntimeException e) {
+                if (isFailure(e)) {
+                    circuitBreaker.onFailure();
+                } else {
+                    circuitBreaker.onSuccess();
+                }
+                throw e;
+            } catch (Error e) {
+                // Every permitted call must be recorded, otherwise a half open breaker
+                // waits for the outcome of its trial call forever
+                circuitBreaker.onFailure();
+                throw e;
+            }
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    private void acquireBulkhead() {
+        boolean acquired;
+        try {
+            acquired = bulkhead.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GoogleMapsException("Interrupted while waiting for a Google Maps request slot", e);
+        }
+        if (!acquired) {
+            throw new GoogleMapsException("Google Maps API unavailable: too many concurrent requests");
+        }
+    }
+
+    private static boolean isFailure(RuntimeException e) {
+        return e instanceof ResourceAccessException
+                || e instanceof HttpServerErrorException
+                || (e instanceof HttpClientErrorException
+                        && ((HttpClientErrorException) e).getStatusCode() == HttpStatus.TOO_MANY_REQUESTS);
+    }
+}
@@ -1,5 +1,6 @@
 package ch.uzh.ifi.hase.soprafs24.service;
 
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
@@ -12,9 +13,21 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ch.uzh.ifi.hase.soprafs24.exceptions.GoogleMapsException;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.List;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Service
 public class GoogleMapsService {
@@ -22,13 +35,33 @@ public class GoogleMapsService {
     private static final Logger log = LoggerFactory.getLogger(GoogleMapsService.class);
     private final String apiKey;
     private final RestTemplate restTemplate;
-    private static final String DISTANCE_MATRIX_URL = "https://maps.googleapis.com/maps/api/distancematrix/json";
-    private static final String GEOCODING_URL = "https://maps.googleapis.com/maps/api/geocode/json";
+    private final Executor executor;
+    private final DistanceCache distanceCache;
+    private final GeocodeCache geocodeCache;
+    private final GoogleMapsCallGuard callGuard;
+    private static final String DEFAULT_BASE_URL = "https://maps.googleapis.com/maps/api";
+    private static final String DISTANCE_MATRIX_PATH = "/distancematrix/json";
+    private static final String GEOCODING_PATH = "/geocode/json";
     private static final String ERROR_MESSAGE_KEY = "error_message";
 
-    public GoogleMapsService(@Value("${google.maps.api.key}") String apiKey, RestTemplate restTemplate) {
+    // Distance Matrix API limits per request
+    static final int MAX_ORIGINS_PER_REQUEST = 25;
+    static final int MAX_DESTINATIONS_PER_REQUEST = 25;
+    static final int MAX_ELEMENTS_PER_REQUEST = 100;
+
+    // Points to a local stub server in tests
+    @Value("${google.maps.base-url:" + DEFAULT_BASE_URL + "}")
+    private String baseUrl = DEFAULT_BASE_URL;
+
+    public GoogleMapsService(@Value("${google.maps.api.key}") String apiKey, RestTemplate restTemplate,
+            @Qualifier("googleMapsExecutor") Executor executor, DistanceCache distanceCache,
+            GeocodeCache geocodeCache, GoogleMapsCallGuard callGuard) {
         this.apiKey = apiKey;
         this.restTemplate = restTemplate;
+        this.executor = executor;
+        this.distanceCache = distanceCache;
+        this.geocodeCache = geocodeCache;
+        this.callGuard = callGuard;
         log.info("GoogleMapsService initialized with API key: {}", apiKey != null ? "***" : "null");
     }
 
@@ -37,7 +70,8 @@ public class GoogleMapsService {
     }
 
     /**
-     * Calculate the distance between two points using Google Maps Distance Matrix API
+     * Calculate the distance between two points using Google Maps Distance Matrix API.
+     * Results are cached, see {@link DistanceCache}.
      * 
      * @param originLat Origin latitude
      * @param originLng Origin longitude
@@ -45,8 +79,31 @@ public class GoogleMapsService {
      * @param destLng Destination longitude
      * @return Distance in kilometers
      */
-    @SuppressWarnings("unchecked")
     public double calculateDistance(double originLat, double originLng, double destLat, double destLng) {
+        LatLng origin = new LatLng(originLat, originLng);
+        LatLng destination = new LatLng(destLat, destLng);
+        OptionalDouble cached = distanceCache.get(origin, destination);
+        if (cached.isPresent()) {
+            return cached.getAsDouble();
+        }
+        double distance = requestDistance(originLat, originLng, destLat, destLng);
+        distanceCache.put(origin, destination, distance);
+        return distance;
+    }
+
+    /**
+     * Asynchronous variant of {@link #calculateDistance(double, double, double, double)}.
+     * The request runs on the Google Maps executor and the future fails with a
+     * {@link GoogleMapsException} once the call timeout has passed.
+     */
+    public CompletableFuture<Double> calculateDistanceAsync(LatLng origin, LatLng destination) {
+        return withDeadline(supplyAsync(() -> calculateDistance(origin.getLatitude(),
+                origin.getLongitude(), destination.getLatitude(), destination.getLongitude())),
+                "calculate distance");
+    }
+
+    @SuppressWarnings("unchecked")
+    private double requestDistance(double originLat, double originLng, double destLat, double destLng) {
         log.debug("Calculating distance from ({}, {}) to ({}, {})", originLat, originLng, destLat, destLng);
         
         String origins = originLat + "," + originLng;
@@ -60,13 +117,13 @@ public class GoogleMapsService {
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_JSON);
 
-        ResponseEntity<Map<String, Object>> response = restTemplate.exchange(
-            DISTANCE_MATRIX_URL + "?origins={origins}&destinations={destinations}&key={key}",
+        ResponseEntity<Map<String, Object>> response = callGuard.call(() -> restTemplate.exchange(
+            baseUrl + DISTANCE_MATRIX_PATH + "?origins={origins}&destinations={destinations}&key={key}",
             HttpMethod.GET,
             null,
             new ParameterizedTypeReference<Map<String, Object>>() {},
             params
-        );
+        ));
 
         Map<String, Object> responseBody = response.getBody();
         log.debug("Distance Matrix API response: {}", responseBody);
@@ -135,13 +192,246 @@ public class GoogleMapsService {
     }
 
     /**
-     * Get coordinates for an address using Google Maps Geocoding API
+     * Calculate the distances from one origin to many destinations using as few
+     * Distance Matrix API requests as possible. Only destinations missing from the
+     * {@link DistanceCache} are requested.
+     * 
+     * @param origin Origin coordinates
+     * @param destinations Destination coordinates
+     * @return Distances in kilometers in the order of the destinations,
+     *         {@link Double#POSITIVE_INFINITY} for destinations without a route
+     */
+    public List<Double> calculateDistances(LatLng origin, List<LatLng> destinations) {
+        return join(calculateDistancesAsync(origin, destinations));
+    }
+
+    /**
+     * Asynchronous variant of {@link #calculateDistances(LatLng, List)}, fails with a
+     * {@link GoogleMapsException} once the call timeout has passed
+     */
+    public CompletableFuture<List<Double>> calculateDistancesAsync(LatLng origin, List<LatLng> destinations) {
+        Double[] distances = new Double[destinations.size()];
+        List<Integer> missingIndexes = new ArrayList<>();
+        for (int i = 0; i < destinations.size(); i++) {
+            OptionalDouble cached = distanceCache.get(origin, destinations.get(i));
+            if (cached.isPresent()) {
+                distances[i] = cached.getAsDouble();
+            } else {
+                missingIndexes.add(i);
+            }
+        }
+
+        if (missingIndexes.isEmpty()) {
+            return CompletableFuture.completedFuture(Arrays.asList(distances));
+        }
+        List<LatLng> missing = missingIndexes.stream().map(destinations::get).collect(Collectors.toList());
+        return calculateDistanceMatrixAsync(List.of(origin), missing).thenApply(matrix -> {
+            double[] requested = matrix[0];
+            for (int i = 0; i < requested.length; i++) {
+                distances[missingIndexes.get(i)] = requested[i];
+                distanceCache.put(origin, missing.get(i), requested[i]);
+            }
+            return Arrays.asList(distances);
+        });
+    }
+
+    /**
+     * Current counters of the distance cache
+     */
+    public DistanceCache.Stats getDistanceCacheStats() {
+        return distanceCache.getStats();
+    }
+
+    /**
+     * Calculate the distances between all origins and destinations using the Google Maps
+     * Distance Matrix API. The matrix is split into blocks that respect the per request
+     * limits of the API and the blocks are requested concurrently.
+     * 
+     * @param origins Origin coordinates
+     * @param destinations Destination coordinates
+     * @return Distances in kilometers, indexed by [origin][destination],
+     *         {@link Double#POSITIVE_INFINITY} for pairs without a route
+     */
+    public double[][] calculateDistanceMatrix(List<LatLng> origins, List<LatLng> destinations) {
+        return join(calculateDistanceMatrixAsync(origins, destinations));
+    }
+
+    /**
+     * Asynchronous variant of {@link #calculateDistanceMatrix(List, List)}, fails with a
+     * {@link GoogleMapsException} once the call timeout has passed. The blocks are
+     * combined without blocking a thread of the executor.
+     */
+    public CompletableFuture<double[][]> calculateDistanceMatrixAsync(List<LatLng> origins, List<LatLng> destinations) {
+        double[][] matrix = new double[origins.size()][destinations.size()];
+        if (origins.isEmpty() || destinations.isEmpty()) {
+            return CompletableFuture.completedFuture(matrix);
+        }
+
+        int destinationsPerRequest = Math.min(MAX_DESTINATIONS_PER_REQUEST, destinations.size());
+        int originsPerRequest = Math.min(MAX_ORIGINS_PER_REQUEST,
+                Math.max(1, MAX_ELEMENTS_PER_REQUEST / destinationsPerRequest));
+
+        List<CompletableFuture<Void>> requests = new ArrayList<>();
+        for (int originStart = 0; originStart < origins.size(); originStart += originsPerRequest) {
+            for (int destStart = 0; destStart < destinations.size(); destStart += destinationsPerRequest) {
+                int fromOrigin = originStart;
+                int fromDest = destStart;
+                List<LatLng> originBlock = origins.subList(fromOrigin,
+                        Math.min(origins.size(), fromOrigin + originsPerRequest));
+                List<LatLng> destBlock = destinations.subList(fromDest,
+                        Math.min(destinations.size(), fromDest + destinationsPerRequest));
+                requests.add(supplyAsync(() -> {
+                    double[][] block = requestDistanceMatrix(originBlock, destBlock);
+                    for (int i = 0; i < block.length; i++) {
+                        System.arraycopy(block[i], 0, matrix[fromOrigin + i], fromDest, block[i].length);
+                    }
+                    return null;
+                }));
+            }
+        }
+        log.debug("Requesting {}x{} distance matrix in {} requests", origins.size(), destinations.size(),
+                requests.size());
+
+        return withDeadline(CompletableFuture.allOf(requests.toArray(new CompletableFuture<?>[0]))
+                .thenApply(done -> matrix), "calculate distances");
+    }
+
+    /**
+     * Runs the request on the Google Maps executor. If its queue is full the future fails
+     * with a {@link GoogleMapsException}, like a call rejected by the bulkhead, instead of
+     * blocking the calling thread.
+     */
+    private <T> CompletableFuture<T> supplyAsync(Supplier<T> request) {
+        try {
+            return CompletableFuture.supplyAsync(request, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(
+                    new GoogleMapsException("Google Maps API unavailable: too many queued requests", e));
+        }
+    }
+
+    /**
+     * Fails the future with a {@link GoogleMapsException} if it did not complete within
+     * the call timeout. The underlying HTTP request is bounded by the read timeout of
+     * the {@link RestTemplate}.
+     */
+    private <T> CompletableFuture<T> withDeadline(CompletableFuture<T> future, String operation) {
+        long timeoutMillis = callGuard.getCallTimeout().toMillis();
+        return future.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS).handle((result, error) -> {
+            if (error == null) {
+                return result;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+            if (cause instanceof TimeoutException) {
+                log.warn("Google Maps request to {} timed out after {} ms", operation, timeoutMillis);
+                throw new GoogleMapsException("Failed to " + operation + ": timed out after " + timeoutMillis + " ms");
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new GoogleMapsException("Failed to " + operation + ": " + cause.getMessage(), cause);
+        });
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new GoogleMapsException("Failed to calculate distances: " + e.getCause().getMessage());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private double[][] requestDistanceMatrix(List<LatLng> origins, List<LatLng> destinations) {
+        Map<String, String> params = new HashMap<>();
+        params.put("origins", origins.stream().map(LatLng::toString).collect(Collectors.joining("|")));
+        params.put("destinations", destinations.stream().map(LatLng::toString).collect(Collectors.joining("|")));
+        params.put("key", apiKey);
+
+        ResponseEntity<Map<String, Object>> response = callGuard.call(() -> restTemplate.exchange(
+            baseUrl + DISTANCE_MATRIX_PATH + "?origins={origins}&destinations={destinations}&key={key}",
+            HttpMethod.GET,
+            null,
+            new ParameterizedTypeReference<Map<String, Object>>() {},
+            params
+        ));
+
+        Map<String, Object> responseBody = response.getBody();
+        if (responseBody == null) {
+            log.error("Distance Matrix API returned null response body");
+            throw new GoogleMapsException("Failed to calculate distances: null response");
+        }
+
+        if (responseBody.containsKey(ERROR_MESSAGE_KEY)) {
+            String errorMessage = (String) responseBody.get(ERROR_MESSAGE_KEY);
+            log.error("Distance Matrix API error: {}", errorMessage);
+            throw new GoogleMapsException("Failed to calculate distances: " + errorMessage);
+        }
+
+        Object[] rows = toArray(responseBody.get("rows"));
+        if (rows.length != origins.size()) {
+            log.error("Distance Matrix API returned {} rows for {} origins", rows.length, origins.size());
+            throw new GoogleMapsException("Failed to calculate distances: invalid response format");
+        }
+
+        double[][] distances = new double[origins.size()][destinations.size()];
+        for (int i = 0; i < rows.length; i++) {
+            Object[] elements = toArray(((Map<String, Object>) rows[i]).get("elements"));
+            if (elements.length != destinations.size()) {
+                log.error("Distance Matrix API returned {} elements for {} destinations", elements.length,
+                        destinations.size());
+                throw new GoogleMapsException("Failed to calculate distances: invalid row format");
+            }
+            for (int j = 0; j < elements.length; j++) {
+                // Elements without a route (e.g. ZERO_RESULTS) carry no distance
+                Map<String, Object> distance = (Map<String, Object>) ((Map<String, Object>) elements[j]).get("distance");
+                distances[i][j] = distance != null && distance.get("value") instanceof Number
+                        ? ((Number) distance.get("value")).doubleValue() / 1000.0
+                        : Double.POSITIVE_INFINITY;
+            }
+        }
+        return distances;
+    }
+
+    private static Object[] toArray(Object value) {
+        if (value == null) {
+            throw new GoogleMapsException("Failed to calculate distances: invalid response format");
+        }
+        return value instanceof List ? ((List<?>) value).toArray() : (Object[]) value;
+    }
+
+    /**
+     * Get coordinates for an address using Google Maps Geocoding API.
+     * Addresses that were resolved before are served from the {@link GeocodeCache}.
      * 
      * @param address The address to geocode
      * @return Array containing latitude and longitude
      */
-    @SuppressWarnings("unchecked")
     public double[] geocodeAddress(String address) {
+        Optional<LatLng> cached = geocodeCache.get(address);
+        if (cached.isPresent()) {
+            log.debug("Geocoding address from cache: {}", address);
+            return new double[] { cached.get().getLatitude(), cached.get().getLongitude() };
+        }
+        double[] coordinates = requestGeocode(address);
+        geocodeCache.put(address, new LatLng(coordinates[0], coordinates[1]));
+        return coordinates;
+    }
+
+    /**
+     * Asynchronous variant of {@link #geocodeAddress(String)}, fails with a
+     * {@link GoogleMapsException} once the call timeout has passed
+     */
+    public CompletableFuture<double[]> geocodeAddressAsync(String address) {
+        return withDeadline(supplyAsync(() -> geocodeAddress(address)), "geocode address");
+    }
+
+    @SuppressWarnings("unchecked")
+    private double[] requestGeocode(String address) {
         log.debug("Geocoding address: {}", address);
         
         Map<String, String> params = new HashMap<>();
@@ -151,13 +441,13 @@ public class GoogleMapsService {
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_JSON);
 
-        ResponseEntity<Map<String, Object>> response = restTemplate.exchange(
-            GEOCODING_URL + "?address={address}&key={key}",
+        ResponseEntity<Map<String, Object>> response = callGuard.call(() -> restTemplate.exchange(
+            baseUrl + GEOCODING_PATH + "?address={address}&key={key}",
             HttpMethod.GET,
             null,
             new ParameterizedTypeReference<Map<String, Object>>() {},
             params
-        );
+        ));
 
         Map<String, Object> responseBody = response.getBody();
         log.debug("Geocoding API response: {}", responseBody);
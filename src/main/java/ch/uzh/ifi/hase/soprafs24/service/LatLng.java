@@ -0,0 +1,29 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/**
+ * LatLng
+ * Immutable geographic coordinate pair as passed to the Google Maps APIs
+ */
+@Getter
+@EqualsAndHashCode
+public final class LatLng {
+
+    private final double latitude;
+    private final double longitude;
+
+    public LatLng(double latitude, double longitude) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    /**
+     * Formats the coordinates as "lat,lng", the format used by the Google Maps APIs
+     */
+    @Override
+    public String toString() {
+        return latitude + "," + longitude;
+    }
+}
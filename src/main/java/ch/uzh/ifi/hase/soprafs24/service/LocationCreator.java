@@ -18,11 +18,14 @@ public class LocationCreator {
     private final LocationRepository locationRepository;
     private final LocationDTOMapper locationDTOMapper;
     private final LocationValidator locationValidator;
+    private final GeocodeCache geocodeCache;
     
-    public LocationCreator(LocationRepository locationRepository, LocationDTOMapper locationDTOMapper, LocationValidator locationValidator) {
+    public LocationCreator(LocationRepository locationRepository, LocationDTOMapper locationDTOMapper, LocationValidator locationValidator,
+            GeocodeCache geocodeCache) {
         this.locationRepository = locationRepository;
         this.locationDTOMapper = locationDTOMapper;
         this.locationValidator = locationValidator;
+        this.geocodeCache = geocodeCache;
     }
     
     /**
@@ -53,6 +56,11 @@ public class LocationCreator {
         locationRepository.flush();
         
         log.info("Saved Location entity with ID: {}", location.getId());
+
+        // Resolved locations seed the geocode cache, so the address is never geocoded again
+        if (location.getFormattedAddress() != null && location.getLatitude() != null && location.getLongitude() != null) {
+            geocodeCache.put(location.getFormattedAddress(), new LatLng(location.getLatitude(), location.getLongitude()));
+        }
         return location;
     }
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package ch.uzh.ifi.hase.soprafs24.service;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
@@ -10,7 +11,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
 import ch.uzh.ifi.hase.soprafs24.constant.ContractStatus;
@@ -42,18 +46,33 @@ public class OfferService {
     private final ContractRepository contractRepository;
     private final UserRepository userRepository;
     private final OfferDTOMapper offerDTOMapper;
+    private final OpenContractIndex openContractIndex;
+    private final ContractExpiryScheduler contractExpiryScheduler;
+    private final ChangeEventPublisher changeEventPublisher;
+    private final TransactionTemplate readOnlyTransaction;
     private static final String OFFER_NOT_FOUND_MSG = "Offer not found";
+    // Offers read per transaction when streaming offers
+    private static final int STREAM_BATCH_SIZE = 100;
 
     @Autowired
     public OfferService(
             @Qualifier("offerRepository") OfferRepository offerRepository,
             @Qualifier("contractRepository") ContractRepository contractRepository,
             @Qualifier("userRepository") UserRepository userRepository,
-            OfferDTOMapper offerDTOMapper) {
+            OfferDTOMapper offerDTOMapper,
+            OpenContractIndex openContractIndex,
+            ContractExpiryScheduler contractExpiryScheduler,
+            ChangeEventPublisher changeEventPublisher,
+            PlatformTransactionManager transactionManager) {
         this.offerRepository = offerRepository;
         this.contractRepository = contractRepository;
         this.userRepository = userRepository;
         this.offerDTOMapper = offerDTOMapper;
+        this.openContractIndex = openContractIndex;
+        this.contractExpiryScheduler = contractExpiryScheduler;
+        this.changeEventPublisher = changeEventPublisher;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
     }
 
     /**
@@ -90,6 +109,33 @@ public class OfferService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Passes all offers matching the filters to the consumer, one at a time, as needed
+     * to stream large listings. The offers are read in batches in offerId order, each
+     * batch in its own short transaction, so neither memory usage nor the time a database
+     * connection is held depends on the number of offers or on how fast the client reads.
+     *
+     * @param contractId  Optional contract the offers were made for
+     * @param driverId    Optional driver who made the offers
+     * @param requesterId Optional requester who owns the contracts
+     * @param status      Optional status of the offers
+     * @param consumer    Receives the offers
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void streamOffers(Long contractId, Long driverId, Long requesterId, OfferStatus status,
+            Consumer<OfferGetDTO> consumer) {
+        List<OfferGetDTO> batch = List.of();
+        do {
+            Long afterOfferId = batch.isEmpty() ? null : batch.get(batch.size() - 1).getOfferId();
+            batch = readOnlyTransaction.execute(transaction -> offerRepository
+                    .findBatch(contractId, driverId, requesterId, status, afterOfferId, STREAM_BATCH_SIZE).stream()
+                    .map(offerDTOMapper::convertEntityToOfferGetDTO)
+                    .collect(Collectors.toList()));
+            // Written after the transaction, a slow client does not hold a connection
+            batch.forEach(consumer);
+        } while (batch.size() == STREAM_BATCH_SIZE);
+    }
+
     /**
      * Get a specific offer by ID
      * 
@@ -155,12 +201,15 @@ public class OfferService {
         // Save offer
         offer = offerRepository.save(offer);
         offerRepository.flush();
+        changeEventPublisher.offerChanged(offer);
 
         // Update contract status to OFFERED if this is the first offer
         if (contract.getContractStatus() == ContractStatus.REQUESTED) {
             contract.setContractStatus(ContractStatus.OFFERED);
             contractRepository.save(contract);
             contractRepository.flush();
+            openContractIndex.contractChanged(contract);
+            changeEventPublisher.contractChanged(contract);
         }
 
         log.debug("Created offer: {}", offer);
@@ -200,6 +249,7 @@ public class OfferService {
         // Delete the offer
         offerRepository.delete(offer);
         offerRepository.flush();
+        changeEventPublisher.offerDeleted(offer);
 
         // If this was the last offer and contract is in OFFERED state, revert to REQUESTED
         List<Offer> remainingOffers = offerRepository.findByContract_ContractId(contract.getContractId());
@@ -207,6 +257,8 @@ public class OfferService {
             contract.setContractStatus(ContractStatus.REQUESTED);
             contractRepository.save(contract);
             contractRepository.flush();
+            openContractIndex.contractChanged(contract);
+            changeEventPublisher.contractChanged(contract);
         }
 
         log.debug("Deleted offer: {}", offer);
@@ -249,22 +301,21 @@ public class OfferService {
             contract.setAcceptedDateTime(LocalDateTime.now());
             contract.setDriver(offer.getDriver());
             
-            // Reject all other offers for this contract
-            List<Offer> otherOffers = offerRepository.findByContract_ContractIdAndOfferStatus(
-                contract.getContractId(), OfferStatus.CREATED);
-            for (Offer otherOffer : otherOffers) {
-                if (!otherOffer.getOfferId().equals(offerId)) {
-                    otherOffer.setOfferStatus(OfferStatus.REJECTED);
-                    offerRepository.save(otherOffer);
-                }
-            }
-            
             // Save contract changes
             contractRepository.save(contract);
+            openContractIndex.contractChanged(contract);
+            contractExpiryScheduler.contractChanged(contract);
+            changeEventPublisher.contractChanged(contract);
         }
         
         // Save offer changes
         offer = offerRepository.save(offer);
+        changeEventPublisher.offerChanged(offer);
+
+        // Reject all other offers for this contract in one statement
+        if (status == OfferStatus.ACCEPTED) {
+            offer = rejectOtherOffers(offer);
+        }
         log.debug("Updated status of offer {} to {}", offerId, status);
 
         return offerDTOMapper.convertEntityToOfferGetDTO(offer);
@@ -296,23 +347,35 @@ public class OfferService {
         // Update offer status
         offer.setOfferStatus(OfferStatus.ACCEPTED);
         
-        // Reject all other offers for this contract
-        List<Offer> otherOffers = offerRepository.findByContract_ContractIdAndOfferStatus(
-            contract.getContractId(), OfferStatus.CREATED);
-        for (Offer otherOffer : otherOffers) {
-            if (!otherOffer.getOfferId().equals(offerId)) {
-                otherOffer.setOfferStatus(OfferStatus.REJECTED);
-                offerRepository.save(otherOffer);
-            }
-        }
-        
         // Save changes
         contractRepository.save(contract);
         offer = offerRepository.save(offer);
+
+        // Reject all other offers for this contract in one statement
+        offer = rejectOtherOffers(offer);
+        openContractIndex.contractChanged(contract);
+        contractExpiryScheduler.contractChanged(contract);
+        changeEventPublisher.contractChanged(contract);
+        changeEventPublisher.offerChanged(offer);
         
         return offerDTOMapper.convertEntityToOfferGetDTO(offer);
     }
 
+    /**
+     * Rejects the CREATED offers of the contract of an accepted offer. The update flushes
+     * the pending changes before and clears the persistence context after it, so no stale
+     * offers remain managed.
+     *
+     * @return The accepted offer, loaded again since the given one is detached by the update
+     */
+    private Offer rejectOtherOffers(Offer acceptedOffer) {
+        int rejected = offerRepository.updateOfferStatusOfOtherOffers(acceptedOffer.getContract().getContractId(),
+            acceptedOffer.getOfferId(), OfferStatus.CREATED, OfferStatus.REJECTED);
+        log.debug("Rejected {} other offers of contract {}", rejected, acceptedOffer.getContract().getContractId());
+        return offerRepository.findById(acceptedOffer.getOfferId())
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, OFFER_NOT_FOUND_MSG));
+    }
+
     /**
      * Rejects an offer
      * 
@@ -342,10 +405,13 @@ public class OfferService {
             contract.setContractStatus(ContractStatus.REQUESTED);
             contractRepository.save(contract);
             contractRepository.flush();
+            openContractIndex.contractChanged(contract);
+            changeEventPublisher.contractChanged(contract);
         }
         
         // Save changes
         offer = offerRepository.save(offer);
+        changeEventPublisher.offerChanged(offer);
         
         return offerDTOMapper.convertEntityToOfferGetDTO(offer);
     }
@@ -0,0 +1,270 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import ch.uzh.ifi.hase.soprafs24.constant.ContractStatus;
+import ch.uzh.ifi.hase.soprafs24.entity.Contract;
+import ch.uzh.ifi.hase.soprafs24.repository.ContractRepository;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.contract.ContractFilterDTO;
+
+/**
+ * OpenContractIndex
+ * In-memory index of all REQUESTED and OFFERED contracts, which are the ones drivers
+ * search for. The index is loaded at startup and afterwards kept up to date by the
+ * services that change contracts, so driver searches do not need to scan the contract
+ * table. Snapshots carry the version of their contract and changes reported out of
+ * order never replace a newer state. Changes made by other instances are picked up by
+ * reconciling the index with the database every contracts.index.sync-interval.
+ * Listeners are told about every contract that enters, changes in or leaves the index,
+ * e.g. to maintain the {@link DriverFeed}.
+ */
+@Component
+public class OpenContractIndex {
+
+    static final Set<ContractStatus> OPEN_STATUSES = EnumSet.of(ContractStatus.REQUESTED,
+            ContractStatus.OFFERED);
+
+    private final Logger log = LoggerFactory.getLogger(OpenContractIndex.class);
+
+    private final ContractRepository contractRepository;
+    private final Map<Long, OpenContractSnapshot> snapshots = new ConcurrentHashMap<>();
+    // Versions of recently closed contracts, so a delayed older snapshot does not reopen
+    // them. Kept for two synchronizations, which outlasts every pending commit callback.
+    private Map<Long, Long> closedVersions = new HashMap<>();
+    private Map<Long, Long> previousClosedVersions = new HashMap<>();
+    // Contracts changed while the database is read for a synchronization
+    private final Set<Long> changedDuringSynchronization = new HashSet<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private volatile boolean ready = false;
+
+    public OpenContractIndex(@Qualifier("contractRepository") ContractRepository contractRepository) {
+        this.contractRepository = contractRepository;
+    }
+
+    /**
+     * Receives the changes of the index, in the order they are applied
+     */
+    public interface Listener {
+
+        /**
+         * The contract was added to the index or its snapshot changed
+         */
+        void contractOpened(OpenContractSnapshot snapshot);
+
+        /**
+         * The contract was removed from the index
+         */
+        void contractClosed(Long contractId);
+
+        /**
+         * The index was reconciled with the database, which may contain changes made by
+         * other instances
+         */
+        default void indexSynchronized() {
+        }
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public static boolean isOpen(ContractStatus status) {
+        return status != null && OPEN_STATUSES.contains(status);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        int differences = synchronizeWithDatabase();
+        log.info("Open contract index initialized with {} contracts ({} differences to the database)",
+                snapshots.size(), differences);
+    }
+
+    /**
+     * Reconciles the index with the database, which picks up contracts changed by other
+     * instances, and lets the listeners refresh their own state
+     */
+    @Scheduled(initialDelayString = "${contracts.index.sync-interval:PT5M}",
+            fixedDelayString = "${contracts.index.sync-interval:PT5M}")
+    public void resynchronize() {
+        if (!ready) {
+            return;
+        }
+        synchronizeWithDatabase();
+        listeners.forEach(Listener::indexSynchronized);
+    }
+
+    /**
+     * Compares the index with the open contracts stored in the database and repairs
+     * every difference. Afterwards the index is ready to answer searches. The database
+     * is read without holding the index, changes reported meanwhile are kept.
+     *
+     * @return Number of contracts that were missing, stale or superfluous in the index
+     */
+    public int synchronizeWithDatabase() {
+        synchronized (this) {
+            changedDuringSynchronization.clear();
+        }
+        Map<Long, OpenContractSnapshot> fromDatabase = new HashMap<>();
+        for (ContractStatus status : OPEN_STATUSES) {
+            for (Contract contract : contractRepository.findByContractStatus(status)) {
+                fromDatabase.put(contract.getContractId(), OpenContractSnapshot.of(contract));
+            }
+        }
+
+        int differences = 0;
+        synchronized (this) {
+            for (Long contractId : new ArrayList<>(snapshots.keySet())) {
+                if (!fromDatabase.containsKey(contractId) && !changedDuringSynchronization.contains(contractId)) {
+                    remove(contractId, null);
+                    differences++;
+                }
+            }
+            for (OpenContractSnapshot snapshot : fromDatabase.values()) {
+                if (put(snapshot)) {
+                    differences++;
+                }
+            }
+            previousClosedVersions = closedVersions;
+            closedVersions = new HashMap<>();
+        }
+
+        if (ready && differences > 0) {
+            log.warn("Open contract index was out of sync with the database, repaired {} contracts", differences);
+        }
+        ready = true;
+        return differences;
+    }
+
+    /**
+     * Whether the index has been loaded and can answer searches
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Records the current state of a contract. Inside a transaction the index is only
+     * updated once the transaction has committed, so rolled back changes never show up.
+     *
+     * @param contract The created or changed contract
+     */
+    public void contractChanged(Contract contract) {
+        TransactionCallbacks.afterCommit(() -> apply(contract));
+    }
+
+    /**
+     * Removes contracts that were closed by a bulk update, i.e. without loading them.
+     * Like {@link #contractChanged(Contract)} this waits for the transaction to commit.
+     * Bulk updates only close contracts for good (expired), so no older snapshot may
+     * reopen them.
+     *
+     * @param contractIds Ids of the contracts that are no longer open
+     */
+    public void contractsClosed(Collection<Long> contractIds) {
+        List<Long> closed = new ArrayList<>(contractIds);
+        TransactionCallbacks.afterCommit(() -> closed.forEach(contractId -> closed(contractId, Long.MAX_VALUE)));
+    }
+
+    private synchronized void apply(Contract contract) {
+        if (contract.getContractId() == null) {
+            return;
+        }
+        if (isOpen(contract.getContractStatus())) {
+            put(OpenContractSnapshot.of(contract));
+        } else {
+            closed(contract.getContractId(), contract.getVersion());
+        }
+    }
+
+    private synchronized void closed(Long contractId, Long version) {
+        if (remove(contractId, version) && version != null) {
+            closedVersions.merge(contractId, version, Math::max);
+        }
+    }
+
+    /**
+     * Adds or replaces the snapshot unless the index already knows a newer version of
+     * the contract. Snapshots without a version are always applied.
+     *
+     * @return Whether the snapshot was new or differed from the indexed one
+     */
+    private synchronized boolean put(OpenContractSnapshot snapshot) {
+        Long contractId = snapshot.getContractId();
+        OpenContractSnapshot current = snapshots.get(contractId);
+        if (snapshot.equals(current) || isOlder(snapshot.getVersion(), current != null ? current.getVersion() : null)
+                || isClosedAfter(contractId, snapshot.getVersion())) {
+            return false;
+        }
+        snapshots.put(contractId, snapshot);
+        changedDuringSynchronization.add(contractId);
+        listeners.forEach(listener -> listener.contractOpened(snapshot));
+        return true;
+    }
+
+    /**
+     * Removes the contract unless the index holds a newer version of it
+     *
+     * @param version Version of the closed contract, null if it is not known
+     * @return Whether the contract may no longer be indexed
+     */
+    private synchronized boolean remove(Long contractId, Long version) {
+        OpenContractSnapshot current = snapshots.get(contractId);
+        if (current != null && isOlder(version, current.getVersion())) {
+            return false;
+        }
+        changedDuringSynchronization.add(contractId);
+        if (snapshots.remove(contractId) != null) {
+            listeners.forEach(listener -> listener.contractClosed(contractId));
+        }
+        return true;
+    }
+
+    private boolean isClosedAfter(Long contractId, Long version) {
+        if (version == null) {
+            return false;
+        }
+        Long closedVersion = closedVersions.getOrDefault(contractId, previousClosedVersions.get(contractId));
+        return closedVersion != null && version <= closedVersion;
+    }
+
+    private static boolean isOlder(Long version, Long knownVersion) {
+        return version != null && knownVersion != null && version < knownVersion;
+    }
+
+    /**
+     * Finds all open contracts matching the attribute filters
+     *
+     * @param filters Filter criteria, may be null. The radius is not evaluated.
+     * @return Snapshots of the matching contracts
+     */
+    public List<OpenContractSnapshot> search(ContractFilterDTO filters) {
+        List<OpenContractSnapshot> matches = new ArrayList<>();
+        for (OpenContractSnapshot snapshot : snapshots.values()) {
+            if (snapshot.matches(filters)) {
+                matches.add(snapshot);
+            }
+        }
+        return matches;
+    }
+
+    public int size() {
+        return snapshots.size();
+    }
+}
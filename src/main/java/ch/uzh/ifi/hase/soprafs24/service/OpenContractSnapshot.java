@@ -0,0 +1,105 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import java.time.LocalDateTime;
+
+import ch.uzh.ifi.hase.soprafs24.entity.Contract;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.contract.ContractFilterDTO;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * OpenContractSnapshot
+ * Immutable copy of the searchable fields of an open contract, as held by the
+ * {@link OpenContractIndex}.
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+public final class OpenContractSnapshot {
+
+    private final Long contractId;
+    // Version of the contract the snapshot was taken from, orders concurrent updates
+    private final Long version;
+    private final Double latitude;
+    private final Double longitude;
+    private final double price;
+    private final double weight;
+    private final double height;
+    private final double width;
+    private final double length;
+    private final int manPower;
+    private final boolean fragile;
+    private final boolean coolingRequired;
+    private final boolean rideAlong;
+    private final LocalDateTime moveDateTime;
+
+    private OpenContractSnapshot(Contract contract) {
+        this.contractId = contract.getContractId();
+        this.version = contract.getVersion();
+        this.latitude = contract.getFromAddress() != null ? contract.getFromAddress().getLatitude() : null;
+        this.longitude = contract.getFromAddress() != null ? contract.getFromAddress().getLongitude() : null;
+        this.price = contract.getPrice();
+        this.weight = contract.getWeight();
+        this.height = contract.getHeight();
+        this.width = contract.getWidth();
+        this.length = contract.getLength();
+        this.manPower = contract.getManPower();
+        this.fragile = contract.isFragile();
+        this.coolingRequired = contract.isCoolingRequired();
+        this.rideAlong = contract.isRideAlong();
+        this.moveDateTime = contract.getMoveDateTime();
+    }
+
+    public static OpenContractSnapshot of(Contract contract) {
+        return new OpenContractSnapshot(contract);
+    }
+
+    public boolean hasLocation() {
+        return latitude != null && longitude != null;
+    }
+
+    public double getVolume() {
+        return height * width * length;
+    }
+
+    /**
+     * Evaluates the attribute filters with the same semantics as
+     * {@link ch.uzh.ifi.hase.soprafs24.repository.ContractSpecifications#matchesFilters}.
+     * The radius filter is not evaluated because it depends on the search origin.
+     */
+    public boolean matches(ContractFilterDTO filters) {
+        if (filters == null) {
+            return true;
+        }
+        if (filters.getPrice() != null && price < filters.getPrice()) {
+            return false;
+        }
+        if (filters.getWeight() != null && weight > filters.getWeight()) {
+            return false;
+        }
+        if (filters.getHeight() != null && height > filters.getHeight()) {
+            return false;
+        }
+        if (filters.getWidth() != null && width > filters.getWidth()) {
+            return false;
+        }
+        if (filters.getLength() != null && length > filters.getLength()) {
+            return false;
+        }
+        if (filters.getRequiredPeople() != null && manPower > filters.getRequiredPeople()) {
+            return false;
+        }
+        if (Boolean.TRUE.equals(filters.getFragile()) && !fragile) {
+            return false;
+        }
+        if (Boolean.TRUE.equals(filters.getCoolingRequired()) && !coolingRequired) {
+            return false;
+        }
+        if (Boolean.TRUE.equals(filters.getRideAlong()) && !rideAlong) {
+            return false;
+        }
+        return filters.getMoveDate() == null
+                || (moveDateTime != null && moveDateTime.toLocalDate().equals(filters.getMoveDate()));
+    }
+}
@@ -12,6 +12,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 import ch.uzh.ifi.hase.soprafs24.repository.UserRepository;
 import java.util.List;
+import java.util.stream.Collectors;
 import ch.uzh.ifi.hase.soprafs24.rest.dto.RatingPutDTO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -182,11 +183,9 @@ public class RatingService {
         }
         List<Rating> ratings = ratingRepository.findByToUser_UserId(userId);
         log.info("Found {} ratings for user ID: {}", ratings.size(), userId);
-        try {
-            log.debug("Ratings found for user ID {}: {}", userId, objectMapper.writeValueAsString(ratings));
-        } catch (JsonProcessingException e) {
-            log.warn("Could not serialize ratings list for logging");
-        }
+        // Only the ids are logged, serializing the ratings would load all their associations
+        log.debug("Ratings found for user ID {}: {}", userId,
+                ratings.stream().map(Rating::getRatingId).collect(Collectors.toList()));
         return ratings;
     }
 
@@ -208,11 +207,9 @@ public class RatingService {
         }
         List<Rating> ratings = ratingRepository.findByContract_ContractId(contractId);
         log.info("Found {} ratings for contract ID: {}", ratings.size(), contractId);
-        try {
-            log.debug("Ratings found for contract ID {}: {}", contractId, objectMapper.writeValueAsString(ratings));
-        } catch (JsonProcessingException e) {
-            log.warn("Could not serialize ratings list for logging");
-        }
+        // Only the ids are logged, serializing the ratings would load all their associations
+        log.debug("Ratings found for contract ID {}: {}", contractId,
+                ratings.stream().map(Rating::getRatingId).collect(Collectors.toList()));
         return ratings;
     }
 
@@ -0,0 +1,150 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import ch.uzh.ifi.hase.soprafs24.exceptions.StateConflictException;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * TransitionRetry
+ * Retries state transitions of contracts and offers that failed because a concurrent
+ * transaction updated the same rows, which the version columns of the entities detect.
+ * The transition has to call a transactional service, so every attempt runs in a new
+ * transaction on the current state. Once retrying is pointless, i.e. the attempts are
+ * used up or the current state no longer allows the transition, a StateConflictException
+ * answers with a 409 and the current state.
+ */
+@Component
+public class TransitionRetry {
+
+    private static final Logger log = LoggerFactory.getLogger(TransitionRetry.class);
+
+    private final int maxAttempts;
+    private final Duration backoff;
+
+    private final AtomicLong transitions = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong conflicts = new AtomicLong();
+
+    @Autowired
+    public TransitionRetry(@Value("${transitions.retry.max-attempts:3}") int maxAttempts,
+            @Value("${transitions.retry.backoff:PT0.02S}") Duration backoff) {
+        this.maxAttempts = maxAttempts;
+        this.backoff = backoff;
+    }
+
+    /**
+     * Runs the transition, retrying it after concurrent updates
+     *
+     * @param transition   Call of the transactional service performing the transition
+     * @param stateKey     Key of the current state in a conflict response, e.g. "contract"
+     * @param currentState Loads the current state for a conflict response
+     * @return The result of the transition
+     */
+    public <T> T execute(Supplier<T> transition, String stateKey, Supplier<?> currentState) {
+        transitions.incrementAndGet();
+        // Within an outer transaction the retry would run on the same, stale persistence context
+        int attempts = TransactionSynchronizationManager.isActualTransactionActive() ? 1 : maxAttempts;
+        ConcurrencyFailureException conflict = null;
+        for (int attempt = 1;; attempt++) {
+            try {
+                return transition.get();
+            } catch (ConcurrencyFailureException e) {
+                if (attempt >= attempts) {
+                    throw conflict("The " + stateKey + " was changed concurrently, please try again",
+                            stateKey, currentState, e);
+                }
+                conflict = e;
+                retries.incrementAndGet();
+                log.debug("Retrying transition of {} after concurrent update, attempt {}", stateKey, attempt);
+                sleep(attempt, stateKey, currentState, e);
+            } catch (ResponseStatusException e) {
+                // The transition was valid before the concurrent update, but not on the current state
+                if (conflict == null || !isRejectedTransition(e)) {
+                    throw e;
+                }
+                throw conflict(e.getReason(), stateKey, currentState, conflict);
+            }
+        }
+    }
+
+    /**
+     * Runs a transition without result, retrying it after concurrent updates
+     */
+    public void execute(Runnable transition, String stateKey, Supplier<?> currentState) {
+        execute(() -> {
+            transition.run();
+            return null;
+        }, stateKey, currentState);
+    }
+
+    private static boolean isRejectedTransition(ResponseStatusException e) {
+        return e.getStatus() == HttpStatus.BAD_REQUEST || e.getStatus() == HttpStatus.CONFLICT;
+    }
+
+    private StateConflictException conflict(String reason, String stateKey, Supplier<?> currentState,
+            Throwable cause) {
+        conflicts.incrementAndGet();
+        Object state;
+        try {
+            state = currentState.get();
+        } catch (RuntimeException e) {
+            // e.g. deleted concurrently, the conflict is reported without the state
+            log.debug("Could not load current state of {}: {}", stateKey, e.getMessage());
+            state = null;
+        }
+        return new StateConflictException(reason, stateKey, state, cause);
+    }
+
+    /**
+     * Waits a growing, randomized time, so the transactions that conflicted do not collide again
+     */
+    private void sleep(int attempt, String stateKey, Supplier<?> currentState, Throwable cause) {
+        long millis = backoff.toMillis() * attempt;
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis / 2 + ThreadLocalRandom.current().nextLong(millis / 2 + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw conflict("The " + stateKey + " was changed concurrently, please try again",
+                    stateKey, currentState, cause);
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(transitions.get(), retries.get(), conflicts.get());
+    }
+
+    /**
+     * Counts since startup, conflicts are the transitions answered with a 409
+     */
+    @Getter
+    @ToString
+    public static final class Stats {
+        private final long transitions;
+        private final long retries;
+        private final long conflicts;
+
+        Stats(long transitions, long retries, long conflicts) {
+            this.transitions = transitions;
+            this.retries = retries;
+            this.conflicts = conflicts;
+        }
+    }
+}
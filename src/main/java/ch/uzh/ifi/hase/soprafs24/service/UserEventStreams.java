@@ -0,0 +1,344 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import ch.uzh.ifi.hase.soprafs24.constant.ChangeEventType;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.event.ChangeEventDTO;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * UserEventStreams
+ * Server-sent event connections of the users. The most recent events of every user are
+ * buffered, so a client that reconnects with the id of the last event it received
+ * (Last-Event-ID) gets the events it missed. If they are no longer buffered it gets a
+ * RESYNC event and reloads its lists instead.
+ * Events are queued per connection and written by a small pool of sender threads, so
+ * publishing never waits for a client. A connection whose queue is full is closed; the
+ * client reconnects and resumes from the buffer once it keeps up again. Heartbeats keep
+ * idle connections open and detect closed ones.
+ * Events only reach the connections of this instance.
+ */
+@Component
+public class UserEventStreams {
+
+    private static final Logger log = LoggerFactory.getLogger(UserEventStreams.class);
+
+    private final Executor senderExecutor;
+    private final Supplier<SseEmitter> emitterFactory;
+    private final int bufferSize;
+    private final Duration retention;
+    private final int queueSize;
+    private final int maxConnectionsPerUser;
+    // Event ids are "<epoch>-<sequence>", so ids from before a restart are not mistaken for current ones
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    private final Map<Long, UserEvents> users = new ConcurrentHashMap<>();
+    // Shared by all users, so a user whose buffer was dropped never reuses an event id
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final AtomicLong eventsPublished = new AtomicLong();
+    private final AtomicLong eventsResumed = new AtomicLong();
+    private final AtomicLong resyncs = new AtomicLong();
+    private final AtomicLong slowConnectionsClosed = new AtomicLong();
+
+    @Autowired
+    public UserEventStreams(@Qualifier("eventStreamExecutor") Executor senderExecutor,
+            @Value("${events.stream.timeout:PT30M}") Duration timeout,
+            @Value("${events.stream.buffer-size:100}") int bufferSize,
+            @Value("${events.stream.retention:PT1H}") Duration retention,
+            @Value("${events.stream.queue-size:64}") int queueSize,
+            @Value("${events.stream.max-connections-per-user:5}") int maxConnectionsPerUser) {
+        this(senderExecutor, () -> new SseEmitter(timeout.toMillis()), bufferSize, retention, queueSize,
+                maxConnectionsPerUser);
+    }
+
+    UserEventStreams(Executor senderExecutor, Supplier<SseEmitter> emitterFactory, int bufferSize,
+            Duration retention, int queueSize, int maxConnectionsPerUser) {
+        this.senderExecutor = senderExecutor;
+        this.emitterFactory = emitterFactory;
+        this.bufferSize = bufferSize;
+        this.retention = retention;
+        this.queueSize = queueSize;
+        this.maxConnectionsPerUser = maxConnectionsPerUser;
+    }
+
+    /**
+     * Opens an event stream for a user
+     *
+     * @param userId      The user receiving the events
+     * @param lastEventId Id of the last event the client received before reconnecting, may be null
+     * @return The emitter to return from the controller
+     */
+    public SseEmitter connect(Long userId, String lastEventId) {
+        Connection connection = new Connection(userId, emitterFactory.get());
+        users.compute(userId, (id, events) -> {
+            UserEvents current = events != null ? events : new UserEvents(sequence.get());
+            if (lastEventId != null && !lastEventId.isBlank()) {
+                resume(current, connection, lastEventId.trim());
+            }
+            if (current.connections.size() >= maxConnectionsPerUser) {
+                // e.g. tabs that were closed without the connection being noticed yet
+                current.connections.iterator().next().close();
+            }
+            current.connections.add(connection);
+            current.touch();
+            return current;
+        });
+        return connection.emitter;
+    }
+
+    /**
+     * Queues the missed events of a reconnecting client, or a RESYNC event if some are no
+     * longer buffered
+     */
+    private void resume(UserEvents events, Connection connection, String lastEventId) {
+        long lastSequence = parseSequence(lastEventId);
+        if (lastSequence < events.completeAfter || lastSequence > sequence.get()) {
+            resyncs.incrementAndGet();
+            ChangeEventDTO resync = new ChangeEventDTO();
+            resync.setType(ChangeEventType.RESYNC);
+            resync.setTimestamp(System.currentTimeMillis());
+            connection.enqueue(SseEmitter.event().data(resync, MediaType.APPLICATION_JSON));
+            return;
+        }
+        for (BufferedEvent event : events.buffer) {
+            if (event.sequence > lastSequence) {
+                eventsResumed.incrementAndGet();
+                connection.enqueue(event.toSse(epoch));
+            }
+        }
+    }
+
+    /**
+     * @return The sequence number of an event id of this epoch, -1 for other ids
+     */
+    private long parseSequence(String eventId) {
+        int separator = eventId.lastIndexOf('-');
+        if (separator < 0 || !eventId.substring(0, separator).equals(epoch)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(eventId.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Appends an event to the sequences of the given users and sends it to their connections
+     *
+     * @param userIds Recipients of the event, null ids are ignored
+     * @param event   The event, which is not changed afterwards
+     */
+    public void publish(Collection<Long> userIds, ChangeEventDTO event) {
+        for (Long userId : userIds) {
+            if (userId == null) {
+                continue;
+            }
+            users.compute(userId, (id, events) -> {
+                UserEvents current = events != null ? events : new UserEvents(sequence.get());
+                BufferedEvent buffered = new BufferedEvent(sequence.incrementAndGet(), event);
+                current.buffer.addLast(buffered);
+                if (current.buffer.size() > bufferSize) {
+                    current.completeAfter = current.buffer.removeFirst().sequence;
+                }
+                current.touch();
+                for (Connection connection : current.connections) {
+                    connection.enqueue(buffered.toSse(epoch));
+                }
+                return current;
+            });
+            eventsPublished.incrementAndGet();
+        }
+    }
+
+    /**
+     * Sends a comment to every connection and forgets the buffers of users that have not
+     * been connected or received events within the retention
+     */
+    @Scheduled(fixedDelayString = "${events.stream.heartbeat:PT15S}")
+    public void sendHeartbeats() {
+        long expiredBefore = System.currentTimeMillis() - retention.toMillis();
+        for (Long userId : users.keySet()) {
+            users.computeIfPresent(userId, (id, events) -> {
+                for (Connection connection : events.connections) {
+                    connection.enqueue(SseEmitter.event().comment("heartbeat"));
+                }
+                return events.connections.isEmpty() && events.lastActivity < expiredBefore ? null : events;
+            });
+        }
+    }
+
+    public int getConnectionCount() {
+        return users.values().stream().mapToInt(events -> events.connections.size()).sum();
+    }
+
+    public Stats getStats() {
+        return new Stats(getConnectionCount(), users.size(), eventsPublished.get(), eventsResumed.get(),
+                resyncs.get(), slowConnectionsClosed.get());
+    }
+
+    /**
+     * Sequence, recent events and open connections of one user. They are only changed
+     * while the map computes the user's entry, so an entry is never dropped while events
+     * are added to it.
+     */
+    private static final class UserEvents {
+        // The buffer holds all events of the user after this sequence number
+        private long completeAfter;
+        private long lastActivity = System.currentTimeMillis();
+        private final Deque<BufferedEvent> buffer = new ArrayDeque<>();
+        private final Set<Connection> connections = new CopyOnWriteArraySet<>();
+
+        UserEvents(long completeAfter) {
+            this.completeAfter = completeAfter;
+        }
+
+        void touch() {
+            lastActivity = System.currentTimeMillis();
+        }
+    }
+
+    private static final class BufferedEvent {
+        private final long sequence;
+        private final ChangeEventDTO event;
+
+        BufferedEvent(long sequence, ChangeEventDTO event) {
+            this.sequence = sequence;
+            this.event = event;
+        }
+
+        SseEmitter.SseEventBuilder toSse(String epoch) {
+            return SseEmitter.event().id(epoch + "-" + sequence).data(event, MediaType.APPLICATION_JSON);
+        }
+    }
+
+    /**
+     * One open event stream with its bounded queue. At most one sender thread drains the
+     * queue at a time, which keeps the events in order.
+     */
+    private final class Connection {
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> queue;
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        Connection(Long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(queueSize);
+            emitter.onCompletion(this::remove);
+            emitter.onTimeout(this::close);
+            emitter.onError(e -> close());
+        }
+
+        void enqueue(SseEmitter.SseEventBuilder event) {
+            if (closed.get()) {
+                return;
+            }
+            if (!queue.offer(event)) {
+                slowConnectionsClosed.incrementAndGet();
+                log.debug("Closing event stream of user {}, the client does not keep up", userId);
+                close();
+                return;
+            }
+            scheduleSend();
+        }
+
+        private void scheduleSend() {
+            if (!sending.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                senderExecutor.execute(this::send);
+            } catch (RejectedExecutionException e) {
+                sending.set(false);
+                close();
+            }
+        }
+
+        private void send() {
+            try {
+                SseEmitter.SseEventBuilder event;
+                while (!closed.get() && (event = queue.poll()) != null) {
+                    emitter.send(event);
+                }
+            } catch (IOException | IllegalStateException e) {
+                // The client disconnected or the emitter completed
+                close();
+            } finally {
+                sending.set(false);
+            }
+            if (!closed.get() && !queue.isEmpty()) {
+                scheduleSend();
+            }
+        }
+
+        void close() {
+            if (closed.compareAndSet(false, true)) {
+                queue.clear();
+                remove();
+                emitter.complete();
+            }
+        }
+
+        private void remove() {
+            closed.set(true);
+            UserEvents events = users.get(userId);
+            if (events != null) {
+                events.connections.remove(this);
+            }
+        }
+    }
+
+    /**
+     * Counts since startup, slow connections were closed because their queue was full
+     */
+    @Getter
+    @ToString
+    public static final class Stats {
+        private final int connections;
+        private final int users;
+        private final long eventsPublished;
+        private final long eventsResumed;
+        private final long resyncs;
+        private final long slowConnectionsClosed;
+
+        Stats(int connections, int users, long eventsPublished, long eventsResumed, long resyncs,
+                long slowConnectionsClosed) {
+            this.connections = connections;
+            this.users = users;
+            this.eventsPublished = eventsPublished;
+            this.eventsResumed = eventsResumed;
+            this.resyncs = resyncs;
+            this.slowConnectionsClosed = slowConnectionsClosed;
+        }
+    }
+}
@@ -14,6 +14,7 @@ import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
 
 import ch.uzh.ifi.hase.soprafs24.Application;
+import ch.uzh.ifi.hase.soprafs24.controller.ETags;
 import ch.uzh.ifi.hase.soprafs24.entity.User;
 import ch.uzh.ifi.hase.soprafs24.security.authentication.dto.response.AuthenticatedUserDTO;
 import ch.uzh.ifi.hase.soprafs24.user.dto.request.update.BaseUserUpdateDTO;
@@ -55,12 +56,13 @@ public class UserController {
             try {
                 User targetUser = userService.getUserById(userId, token, paramUserId);
 
+                // Tagged with the hash of the user, whose car and location have no version
                 if (userId.equals(paramUserId)) {
                     AuthenticatedUserDTO fullUserDTO = UserDTOMapper.INSTANCE.convertToDTO(targetUser);
-                    return ResponseEntity.ok(fullUserDTO);
+                    return ETags.withETag(ResponseEntity.ok(fullUserDTO), ETags.ofContent(objectMapper, fullUserDTO));
                 } else {
                     PublicUserDTO publicUserDTO = publicUserDTOMapper.convertToPublicUserDTO(targetUser);
-                    return ResponseEntity.ok(publicUserDTO);
+                    return ETags.withETag(ResponseEntity.ok(publicUserDTO), ETags.ofContent(objectMapper, publicUserDTO));
                 }
             } catch (ResponseStatusException e) {
                 return ResponseEntity.status(e.getRawStatusCode())
@@ -45,6 +45,7 @@ public interface UserUpdateDTOMapper {
     @Mapping(target = "ratingsGiven", ignore = true)
     @Mapping(target = "ratingsReceived", ignore = true)
     @Mapping(target = "userBio", ignore = true)
+    @Mapping(target = "tokenVersion", ignore = true)
     User convertToBaseUserEntity(BaseUserUpdateDTO updateDTO);
     
     // Driver mapping
@@ -69,6 +70,7 @@ public interface UserUpdateDTOMapper {
     @Mapping(target = "ratingsGiven", ignore = true)
     @Mapping(target = "ratingsReceived", ignore = true)
     @Mapping(target = "userBio", ignore = true)
+    @Mapping(target = "tokenVersion", ignore = true)
     Driver convertToDriverEntity(DriverUpdateDTO updateDTO);
     
     // Requester mapping
@@ -89,6 +91,7 @@ public interface UserUpdateDTOMapper {
     @Mapping(target = "ratingsReceived", ignore = true)
     @Mapping(target = "userBio", ignore = true)
     @Mapping(target = "contracts", ignore = true)
+    @Mapping(target = "tokenVersion", ignore = true)
     // Add any requester-specific mappings here if needed
     Requester convertToRequesterEntity(RequesterUpdateDTO updateDTO);
 }
\ No newline at end of file
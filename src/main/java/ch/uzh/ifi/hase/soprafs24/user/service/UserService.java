@@ -9,6 +9,7 @@ import ch.uzh.ifi.hase.soprafs24.entity.Requester;
 import ch.uzh.ifi.hase.soprafs24.entity.User;
 import ch.uzh.ifi.hase.soprafs24.repository.UserRepository;
 import ch.uzh.ifi.hase.soprafs24.security.authorization.service.AuthorizationService;
+import ch.uzh.ifi.hase.soprafs24.service.DriverFeed;
 import ch.uzh.ifi.hase.soprafs24.user.dto.request.update.BaseUserUpdateDTO;
 import ch.uzh.ifi.hase.soprafs24.user.dto.request.update.DriverUpdateDTO;
 import ch.uzh.ifi.hase.soprafs24.user.dto.request.update.RequesterUpdateDTO;
@@ -23,17 +24,20 @@ public class UserService extends AbstractUserService {
     private final UserValidationService validationService;
     private final DriverService driverService;
     private final RequesterService requesterService;
+    private final DriverFeed driverFeed;
 
     public UserService(
             UserRepository userRepository, 
             AuthorizationService authorizationService,
             UserValidationService validationService,
             DriverService driverService,
-            RequesterService requesterService) {
+            RequesterService requesterService,
+            DriverFeed driverFeed) {
         super(userRepository, authorizationService);
         this.validationService = validationService;
         this.driverService = driverService;
         this.requesterService = requesterService;
+        this.driverFeed = driverFeed;
     }
     
     /**
@@ -73,7 +77,13 @@ public class UserService extends AbstractUserService {
         User updatedUser = updateUserByType(existingUser, userUpdateDTO);
         
         // Save and return the updated user
-        return saveUser(updatedUser);
+        User savedUser = saveUser(updatedUser);
+
+        // Car, location or range may have changed, so the job feed is matched again
+        if (savedUser instanceof Driver driver) {
+            driverFeed.driverChanged(driver);
+        }
+        return savedUser;
 
     }
     
@@ -116,6 +126,7 @@ public class UserService extends AbstractUserService {
         user.setEmail(user.getUserId() + "@deleted.user"); // Unique placeholder
         user.setPassword(""); // Clear password, non-null
         user.setToken(null); // Invalidate token
+        user.incrementTokenVersion(); // Revoke signed tokens
         user.setFirstName("Deleted"); // Placeholder for non-null field
         user.setLastName("User"); // Placeholder for non-null field
         user.setPhoneNumber("deleted_" + user.getUserId()); // Unique placeholder for non-null, unique field
@@ -127,6 +138,10 @@ public class UserService extends AbstractUserService {
         // Save the anonymized user
         userRepository.save(user);
         userRepository.flush();
+        authorizationService.invalidate(userId);
+        if (user instanceof Driver) {
+            driverFeed.driverRemoved(userId);
+        }
     }
 
         /**
@@ -0,0 +1,27 @@
+-- Indexes for the derived queries of the repositories. Foreign key and unique columns
+-- are already indexed by their constraints, so only the remaining lookups and the
+-- combinations with a status column are added here.
+
+-- UserRepository: findByToken, existsByToken
+CREATE INDEX IF NOT EXISTS IDX_USERS_TOKEN ON USERS (TOKEN);
+
+-- CarRepository: findByLicensePlate
+CREATE INDEX IF NOT EXISTS IDX_CARS_LICENSE_PLATE ON CARS (LICENSE_PLATE);
+
+-- ContractRepository: findByContractStatus, findByContractStatusAndMoveDateTimeBefore
+CREATE INDEX IF NOT EXISTS IDX_CONTRACTS_STATUS_MOVE_DATE ON CONTRACTS (CONTRACT_STATUS, MOVE_DATE_TIME);
+-- ContractRepository: findByRequester_UserIdAndContractStatus, findByDriver_UserIdAndContractStatus
+CREATE INDEX IF NOT EXISTS IDX_CONTRACTS_REQUESTER_STATUS ON CONTRACTS (REQUESTER_ID, CONTRACT_STATUS);
+CREATE INDEX IF NOT EXISTS IDX_CONTRACTS_DRIVER_STATUS ON CONTRACTS (DRIVER_ID, CONTRACT_STATUS);
+
+-- OfferRepository: findByContract_ContractIdAndOfferStatus
+CREATE INDEX IF NOT EXISTS IDX_OFFERS_CONTRACT_STATUS ON OFFERS (CONTRACT_ID, OFFER_STATUS);
+-- OfferRepository: findByContract_ContractIdAndDriver_UserId(AndOfferStatus)
+CREATE INDEX IF NOT EXISTS IDX_OFFERS_CONTRACT_DRIVER_STATUS ON OFFERS (CONTRACT_ID, DRIVER_ID, OFFER_STATUS);
+-- OfferRepository: findByDriver_UserIdAndOfferStatus
+CREATE INDEX IF NOT EXISTS IDX_OFFERS_DRIVER_STATUS ON OFFERS (DRIVER_ID, OFFER_STATUS);
+-- OfferRepository: findByOfferStatus
+CREATE INDEX IF NOT EXISTS IDX_OFFERS_STATUS ON OFFERS (OFFER_STATUS);
+
+-- RatingRepository: findByContract_ContractIdAndFromUser_UserId
+CREATE INDEX IF NOT EXISTS IDX_RATING_CONTRACT_FROM_USER ON RATING (CONTRACT_ID, FROM_USER_ID);
@@ -0,0 +1,8 @@
+-- Leases of the scheduled jobs. A node may only run a job (or one partition of it)
+-- while it holds the lease, i.e. while it is the OWNER and LOCKED_UNTIL has not passed.
+CREATE TABLE IF NOT EXISTS SCHEDULER_LEASE (
+    NAME VARCHAR(100) NOT NULL PRIMARY KEY,
+    OWNER VARCHAR(200) NOT NULL,
+    LOCKED_UNTIL TIMESTAMP NOT NULL,
+    ACQUIRED_AT TIMESTAMP NOT NULL
+);
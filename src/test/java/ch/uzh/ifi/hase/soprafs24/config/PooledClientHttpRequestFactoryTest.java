@@ -0,0 +1,148 @@
+package ch.uzh.ifi.hase.soprafs24.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+class PooledClientHttpRequestFactoryTest {
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private HttpClientMetrics metrics;
+    private String baseUrl;
+
+    private final CountDownLatch slowRequestReceived = new CountDownLatch(1);
+
+    @BeforeEach
+    void setup() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/json", this::handleJson);
+        server.createContext("/echo", this::handleEcho);
+        server.createContext("/slow", this::handleSlow);
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+        metrics = new HttpClientMetrics();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    private void handleJson(HttpExchange exchange) throws IOException {
+        byte[] body = "{\"status\":\"OK\"}".getBytes(StandardCharsets.UTF_8);
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(body);
+            }
+            body = compressed.toByteArray();
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        respond(exchange, body);
+    }
+
+    private void handleEcho(HttpExchange exchange) throws IOException {
+        respond(exchange, exchange.getRequestBody().readAllBytes());
+    }
+
+    private void handleSlow(HttpExchange exchange) throws IOException {
+        slowRequestReceived.countDown();
+        try {
+            Thread.sleep(500);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        respond(exchange, "{}".getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void respond(HttpExchange exchange, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private RestTemplate createRestTemplate(int maxConnectionsPerRoute, Duration maxWait) {
+        HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        return new RestTemplate(new PooledClientHttpRequestFactory(httpClient, Duration.ofSeconds(2),
+            maxConnectionsPerRoute, maxWait, metrics));
+    }
+
+    @Test
+    void execute_gzipResponse_isDecoded() {
+        RestTemplate restTemplate = createRestTemplate(4, Duration.ofSeconds(1));
+
+        Map<?, ?> response = restTemplate.getForObject(baseUrl + "/json", Map.class);
+
+        assertEquals("OK", response.get("status"));
+        assertEquals(1, metrics.getStats().getRequests());
+        assertEquals(1, metrics.getStats().getCompressedResponses());
+    }
+
+    @Test
+    void execute_sequentialRequests_releaseTheirConnection() {
+        // given -> a single connection per route
+        RestTemplate restTemplate = createRestTemplate(1, Duration.ZERO);
+
+        // when
+        for (int i = 0; i < 3; i++) {
+            String echoed = restTemplate.postForObject(baseUrl + "/echo", Map.of("request", i), String.class);
+            assertEquals("{\"request\":" + i + "}", echoed);
+        }
+
+        // then
+        assertEquals(3, metrics.getStats().getRequests());
+        assertEquals(0, metrics.getStats().getRouteRejections());
+        assertEquals(Set.of("localhost"), metrics.getStatsByHost().keySet());
+        assertEquals(3, metrics.getStatsByHost().get("localhost").getRequests());
+    }
+
+    @Test
+    void execute_routeExhausted_failsAfterMaxWait() throws Exception {
+        // given -> the only connection is busy with a slow request
+        RestTemplate restTemplate = createRestTemplate(1, Duration.ofMillis(50));
+        CompletableFuture<String> slow = CompletableFuture.supplyAsync(
+            () -> restTemplate.getForObject(baseUrl + "/slow", String.class));
+        assertTrue(slowRequestReceived.await(2, TimeUnit.SECONDS));
+
+        // when
+        assertThrows(ResourceAccessException.class, () -> restTemplate.getForObject(baseUrl + "/json", Map.class));
+
+        // then
+        assertEquals("{}", slow.get(5, TimeUnit.SECONDS));
+        assertEquals(1, metrics.getStats().getRouteWaits());
+        assertEquals(1, metrics.getStats().getRouteRejections());
+        assertEquals(1, metrics.getStatsByHost().get("localhost").getRouteRejections());
+    }
+}
@@ -0,0 +1,186 @@
+package ch.uzh.ifi.hase.soprafs24.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+/**
+ * Runs two application contexts, i.e. two instances of the server, against one
+ * database and asserts that every lease is held by exactly one of them.
+ */
+class SchedulerLeasesIntegrationTest {
+
+    private static final String URL = "jdbc:h2:mem:scheduler-leases;DB_CLOSE_DELAY=-1";
+
+    private AnnotationConfigApplicationContext first;
+    private AnnotationConfigApplicationContext second;
+    private ExecutorService executor;
+
+    @Configuration
+    static class InstanceConfig {
+        @Bean
+        DataSource dataSource() {
+            DataSource dataSource = new DriverManagerDataSource(URL, "sa", "");
+            new ResourceDatabasePopulator(new ClassPathResource("db/migration/V2__scheduler_leases.sql"))
+                .execute(dataSource);
+            return dataSource;
+        }
+    }
+
+    private static AnnotationConfigApplicationContext startInstance(String owner) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources()
+            .addFirst(new MapPropertySource("instance", Map.of("scheduler.lease.owner", owner)));
+        context.register(InstanceConfig.class, SchedulerLeases.class);
+        context.refresh();
+        return context;
+    }
+
+    @BeforeEach
+    void setup() {
+        first = startInstance("first");
+        second = startInstance("second");
+        new JdbcTemplate(first.getBean(DataSource.class)).update("DELETE FROM SCHEDULER_LEASE");
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    void teardown() {
+        executor.shutdownNow();
+        first.close();
+        second.close();
+    }
+
+    /**
+     * Runs the task on both instances at the same time
+     */
+    private <T> List<T> onBothInstances(CheckedFunction<SchedulerLeases, T> task) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<T>> futures = new ArrayList<>();
+        for (AnnotationConfigApplicationContext context : List.of(first, second)) {
+            SchedulerLeases leases = context.getBean(SchedulerLeases.class);
+            Callable<T> call = () -> {
+                start.await();
+                return task.apply(leases);
+            };
+            futures.add(executor.submit(call));
+        }
+        start.countDown();
+        List<T> results = new ArrayList<>();
+        for (Future<T> future : futures) {
+            results.add(future.get());
+        }
+        return results;
+    }
+
+    @Test
+    void tryAcquire_concurrentInstances_exactlyOneHoldsTheLease() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            String name = "job-" + i;
+            List<Boolean> acquired = onBothInstances(leases -> leases.tryAcquire(name, Duration.ofMinutes(5)));
+            assertTrue(acquired.get(0) ^ acquired.get(1), name + " acquired by " + acquired);
+        }
+    }
+
+    @Test
+    void tryAcquire_heldLease_isRenewedByOwnerOnly() {
+        SchedulerLeases firstLeases = first.getBean(SchedulerLeases.class);
+        SchedulerLeases secondLeases = second.getBean(SchedulerLeases.class);
+
+        assertTrue(firstLeases.tryAcquire("job", Duration.ofMinutes(5)));
+        assertTrue(firstLeases.tryAcquire("job", Duration.ofMinutes(5)));
+        assertFalse(secondLeases.tryAcquire("job", Duration.ofMinutes(5)));
+
+        // once released, the other instance can take over
+        firstLeases.release("job");
+        assertTrue(secondLeases.tryAcquire("job", Duration.ofMinutes(5)));
+        assertFalse(firstLeases.tryAcquire("job", Duration.ofMinutes(5)));
+    }
+
+    @Test
+    void tryAcquire_expiredLease_canBeTakenOver() throws InterruptedException {
+        SchedulerLeases firstLeases = first.getBean(SchedulerLeases.class);
+        SchedulerLeases secondLeases = second.getBean(SchedulerLeases.class);
+
+        assertTrue(firstLeases.tryAcquire("job", Duration.ofMillis(50)));
+        assertFalse(secondLeases.tryAcquire("job", Duration.ofMinutes(5)));
+        Thread.sleep(100);
+
+        assertTrue(secondLeases.tryAcquire("job", Duration.ofMinutes(5)));
+        String owner = new JdbcTemplate(first.getBean(DataSource.class))
+            .queryForObject("SELECT OWNER FROM SCHEDULER_LEASE WHERE NAME = 'job'", String.class);
+        assertEquals("second", owner);
+    }
+
+    @Test
+    void tryAcquirePartitions_concurrentInstances_splitPartitions() throws Exception {
+        List<List<Integer>> acquired = onBothInstances(
+            leases -> leases.tryAcquirePartitions("sweep", 8, Duration.ofMinutes(5)));
+
+        Set<Integer> all = new HashSet<>(acquired.get(0));
+        all.addAll(acquired.get(1));
+        assertEquals(8, all.size(), "partitions " + acquired);
+        assertEquals(8, acquired.get(0).size() + acquired.get(1).size(), "partitions " + acquired);
+    }
+
+    @Test
+    void tryAcquirePartitions_staggeredRuns_bothInstancesSweep() throws InterruptedException {
+        // given -> the first instance runs alone once and takes all partitions
+        SchedulerLeases firstLeases = first.getBean(SchedulerLeases.class);
+        SchedulerLeases secondLeases = second.getBean(SchedulerLeases.class);
+        Duration leaseTime = Duration.ofMillis(500);
+        assertEquals(4, firstLeases.tryAcquirePartitions("sweep", 4, leaseTime).size());
+        assertTrue(secondLeases.tryAcquirePartitions("sweep", 4, leaseTime).isEmpty());
+        Thread.sleep(600);
+
+        // when -> both run again after the leases expired, the first one earlier
+        List<Integer> sweptByFirst = firstLeases.tryAcquirePartitions("sweep", 4, leaseTime);
+        List<Integer> sweptBySecond = secondLeases.tryAcquirePartitions("sweep", 4, leaseTime);
+
+        // then
+        assertEquals(2, sweptByFirst.size(), "partitions " + sweptByFirst);
+        assertEquals(2, sweptBySecond.size(), "partitions " + sweptBySecond);
+        Set<Integer> all = new HashSet<>(sweptByFirst);
+        all.addAll(sweptBySecond);
+        assertEquals(Set.of(0, 1, 2, 3), all);
+    }
+
+    @Test
+    void tryAcquirePartitions_heldPartitions_notRenewed() {
+        SchedulerLeases firstLeases = first.getBean(SchedulerLeases.class);
+
+        assertEquals(4, firstLeases.tryAcquirePartitions("sweep", 4, Duration.ofMinutes(5)).size());
+        assertTrue(firstLeases.tryAcquirePartitions("sweep", 4, Duration.ofMinutes(5)).isEmpty());
+    }
+
+    @FunctionalInterface
+    private interface CheckedFunction<T, R> {
+        R apply(T value) throws Exception;
+    }
+}
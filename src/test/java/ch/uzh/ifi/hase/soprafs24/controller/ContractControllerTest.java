@@ -3,10 +3,12 @@ package ch.uzh.ifi.hase.soprafs24.controller;
 import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.hamcrest.Matchers.hasSize; // Import ObjectMapper
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import org.junit.jupiter.api.Test;
 import static org.mockito.BDDMockito.given;
 import org.mockito.Mockito;
@@ -14,19 +16,27 @@ import static org.mockito.Mockito.when;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import org.springframework.web.server.ResponseStatusException;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import ch.uzh.ifi.hase.soprafs24.constant.ContractSortField;
 import ch.uzh.ifi.hase.soprafs24.constant.ContractStatus;
 import ch.uzh.ifi.hase.soprafs24.constant.UserAccountType;
 import ch.uzh.ifi.hase.soprafs24.entity.Contract;
@@ -34,13 +44,19 @@ import ch.uzh.ifi.hase.soprafs24.entity.Driver;
 import ch.uzh.ifi.hase.soprafs24.entity.Requester;
 import ch.uzh.ifi.hase.soprafs24.entity.User;
 import ch.uzh.ifi.hase.soprafs24.repository.UserRepository;
+import ch.uzh.ifi.hase.soprafs24.repository.VersionSummary;
 import ch.uzh.ifi.hase.soprafs24.rest.dto.auth.response.AuthenticatedUserDTO;
 import ch.uzh.ifi.hase.soprafs24.rest.dto.contract.ContractCancelDTO;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.contract.ContractGetDTO;
 import ch.uzh.ifi.hase.soprafs24.rest.dto.contract.ContractPostDTO;
+import ch.uzh.ifi.hase.soprafs24.rest.mapper.ContractDTOMapper;
 import ch.uzh.ifi.hase.soprafs24.rest.mapper.UserDTOMapper;
+import ch.uzh.ifi.hase.soprafs24.security.authorization.service.AuthenticatedPrincipal;
 import ch.uzh.ifi.hase.soprafs24.security.authorization.service.AuthorizationService;
+import ch.uzh.ifi.hase.soprafs24.service.ContractPage;
 import ch.uzh.ifi.hase.soprafs24.service.ContractService;
 import ch.uzh.ifi.hase.soprafs24.service.LocationService;
+import ch.uzh.ifi.hase.soprafs24.service.TransitionRetry;
 import ch.uzh.ifi.hase.soprafs24.user.service.UserService;
 
 /**
@@ -50,6 +66,7 @@ import ch.uzh.ifi.hase.soprafs24.user.service.UserService;
  * This tests if the ContractController works.
  */
 @WebMvcTest(ContractController.class)
+@Import(TransitionRetry.class)
 class ContractControllerTest {
 
     @Autowired
@@ -84,9 +101,9 @@ class ContractControllerTest {
         contract.setTitle("Test Contract");
         contract.setContractStatus(ContractStatus.REQUESTED);
 
-        List<Contract> allContracts = Collections.singletonList(contract);
-        given(contractService.getContracts(null, null, null)).willReturn(allContracts);
-        given(authorizationService.authenticateUser(TEST_USER_ID, TEST_TOKEN)).willReturn(new User());
+        List<ContractGetDTO> allContracts = Collections.singletonList(ContractDTOMapper.INSTANCE.convertContractEntityToContractGetDTO(contract));
+        given(contractService.getContractDTOs(null, null, null)).willReturn(allContracts);
+        given(authorizationService.authenticate(TEST_USER_ID, TEST_TOKEN)).willReturn(AuthenticatedPrincipal.of(new User()));
 
         // when/then
         mockMvc.perform(get("/api/v1/contracts")
@@ -101,10 +118,135 @@ class ContractControllerTest {
                 .andExpect(jsonPath("$.timestamp", notNullValue()));
     }
 
+    @Test
+    void getAllContracts_withLimitAndSort_returnsPageWithNextCursor() throws Exception {
+        // given
+        Contract contract = new Contract();
+        contract.setContractId(1L);
+        contract.setTitle("Test Contract");
+        contract.setContractStatus(ContractStatus.REQUESTED);
+
+        ContractPage page = new ContractPage(Collections.singletonList(contract), "next-page");
+        given(contractService.getContractPage(null, null, null, false, ContractSortField.PRICE, true, "this-page", 1))
+            .willReturn(page);
+        given(authorizationService.authenticate(TEST_USER_ID, TEST_TOKEN)).willReturn(AuthenticatedPrincipal.of(new User()));
+
+        // when/then
+        mockMvc.perform(get("/api/v1/contracts")
+                .param("sort", "price")
+                .param("order", "desc")
+                .param("limit", "1")
+                .param("cursor", "this-page")
+                .header("UserId", TEST_USER_ID)
+                .header("Authorization", TEST_TOKEN)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.contracts", hasSize(1)))
+                .andExpect(jsonPath("$.contracts[0].contractId", is(1)))
+                .andExpect(jsonPath("$.nextCursor", is("next-page")));
+    }
+
+    @Test
+    void getAllContracts_driverWithLimit_pagesOpenContractsOnly() throws Exception {
+        // given
+        Contract contract = new Contract();
+        contract.setContractId(1L);
+        contract.setContractStatus(ContractStatus.REQUESTED);
+        User driver = new User();
+        driver.setUserId(TEST_USER_ID);
+        driver.setUserAccountType(UserAccountType.DRIVER);
+
+        given(contractService.getContractPage(null, null, null, true, ContractSortField.MOVE_DATE_TIME, false, null, 5))
+            .willReturn(new ContractPage(Collections.singletonList(contract), null));
+        given(authorizationService.authenticate(TEST_USER_ID, TEST_TOKEN)).willReturn(AuthenticatedPrincipal.of(driver));
+
+        // when/then
+        mockMvc.perform(get("/api/v1/contracts")
+                .param("limit", "5")
+                .header("UserId", TEST_USER_ID)
+                .header("Authorization", TEST_TOKEN)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.contracts", hasSize(1)));
+        Mockito.verify(contractService, Mockito.never()).getContractPage(Mockito.any(), Mockito.any(), Mockito.any(),
+                Mockito.eq(false), Mockito.any(), Mockito.anyBoolean(), Mockito.any(), Mockito.anyInt());
+    }
+
+    @Test
+    void getAllContracts_invalidSortField_returnsBadRequest() throws Exception {
+        // given
+        given(authorizationService.authenticate(TEST_USER_ID, TEST_TOKEN)).willReturn(AuthenticatedPrincipal.of(new User()));
+
+        // when/then
+        mockMvc.perform(get("/api/v1/contracts")
+                .param("sort", "title")
+                .header("UserId", TEST_USER_ID)
+                .header("Authorization", TEST_TOKEN)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getAllContracts_limitTooLarge_returnsBadRequest() throws Exception {
+        // given
+        given(authorizationService.authenticate(TEST_USER_ID, TEST_TOKEN)).willReturn(AuthenticatedPrincipal.of(new User()));
+
+        // when/then
+        mockMvc.perform(get("/api/v1/contracts")
+                .param("limit", "1000")
+                .header("UserId", TEST_USER_ID)
+                .header("Authorization", TEST_TOKEN)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getAllContracts_invalidCursor_returnsBadRequest() throws Exception {
+        // given
+        given(authorizationService.authenticate(TEST_USER_ID, TEST_TOKEN)).willReturn(AuthenticatedPrincipal.of(new User()));
+        given(contractService.getContractPage(null, null, null, false, ContractSortField.MOVE_DATE_TIME, false, "garbage", 20))
+            .willThrow(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor"));
+
+        // when/then
+        mockMvc.perform(get("/api/v1/contracts")
+                .param("cursor", "garbage")
+                .header("UserId", TEST_USER_ID)
+                .header("Authorization", TEST_TOKEN)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", is("Invalid cursor")));
+    }
+
+    @Test
+    void getAllContracts_driver_searchesOpenContracts() throws Exception {
+        // given
+        Contract contract = new Contract();
+        contract.setContractId(1L);
+        contract.setTitle("Test Contract");
+        contract.setContractStatus(ContractStatus.OFFERED);
+
+        User driver = new Driver();
+        driver.setUserId(TEST_USER_ID);
+        driver.setUserAccountType(UserAccountType.DRIVER);
+
+        given(contractService.getOpenContractDTOs(null, null, null)).willReturn(Collections.singletonList(ContractDTOMapper.INSTANCE.convertContractEntityToContractGetDTO(contract)));
+        given(authorizationService.authenticate(TEST_USER_ID, TEST_TOKEN)).willReturn(AuthenticatedPrincipal.of(driver));
+
+        // when/then
+        mockMvc.perform(get("/api/v1/contracts")
+                .header("UserId", TEST_USER_ID)
+                .header("Authorization", TEST_TOKEN)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.contracts", hasSize(1)))
+                .andExpect(jsonPath("$.contracts[0].contractStatus", is("OFFERED")));
+        Mockito.verify(contractService, Mockito.never()).getContractDTOs(null, null, null);
+    }
+
     @Test
     void getAllContracts_unauthorized() throws Exception {
         // given
-        given(authorizationService.authenticateUser(TEST_USER_ID, TEST_TOKEN)).willReturn(null);
+        given(authorizationService.authenticate(TEST_USER_ID, TEST_TOKEN)).willReturn(null);
 
         // when/then
         mockMvc.perform(get("/api/v1/contracts")
@@ -116,6 +258,68 @@ class ContractControllerTest {
                 .andExpect(jsonPath("$.timestamp", notNullValue()));
     }
 
+    @Test
+    void streamAllContracts_ndjson_writesOneContractPerLine() throws Exception {
+        // given
+        ContractGetDTO first = new ContractGetDTO();
+        first.setContractId(1L);
+        first.setContractStatus(ContractStatus.REQUESTED);
+        ContractGetDTO second = new ContractGetDTO();
+        second.setContractId(2L);
+        second.setContractStatus(ContractStatus.OFFERED);
+
+        User driver = new Driver();
+        driver.setUserId(TEST_USER_ID);
+        driver.setUserAccountType(UserAccountType.DRIVER);
+        given(authorizationService.authenticate(TEST_USER_ID, TEST_TOKEN)).willReturn(AuthenticatedPrincipal.of(driver));
+        Mockito.doAnswer(invocation -> {
+            Consumer<ContractGetDTO> consumer = invocation.getArgument(4);
+            consumer.accept(first);
+            consumer.accept(second);
+            return null;
+        }).when(contractService).streamContracts(Mockito.isNull(), Mockito.isNull(), Mockito.isNull(),
+            Mockito.eq(true), Mockito.any());
+
+        // when
+        MvcResult result = mockMvc.perform(get("/api/v1/contracts")
+                .header("UserId", TEST_USER_ID)
+                .header("Authorization", TEST_TOKEN)
+                .accept("application/x-ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // then -> drivers only get open contracts
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        ObjectMapper objectMapper = new ObjectMapper();
+        assertEquals(1, objectMapper.readTree(lines[0]).get("contractId").asInt());
+        assertEquals("OFFERED", objectMapper.readTree(lines[1]).get("contractStatus").asText());
+    }
+
+    @Test
+    void streamAllContracts_unauthorized_writesErrorLine() throws Exception {
+        // given
+        given(authorizationService.authenticate(TEST_USER_ID, TEST_TOKEN)).willReturn(null);
+
+        // when
+        MvcResult result = mockMvc.perform(get("/api/v1/contracts")
+                .header("UserId", TEST_USER_ID)
+                .header("Authorization", TEST_TOKEN)
+                .accept("application/x-ndjson"))
+                .andReturn();
+
+        // then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isUnauthorized())
+                .andExpect(jsonPath("$.message", is("Invalid credentials")));
+        Mockito.verify(contractService, Mockito.never())
+                .streamContracts(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyBoolean(), Mockito.any());
+    }
+
     @Test
     void getContractById_success() throws Exception {
         // given
@@ -135,7 +339,7 @@ class ContractControllerTest {
         authenticatedUser.setUserAccountType(UserAccountType.REQUESTER);
 
         given(contractService.getContractById(1L)).willReturn(contract);
-        given(authorizationService.authenticateUser(TEST_USER_ID, TEST_TOKEN)).willReturn(authenticatedUser);
+        given(authorizationService.authenticate(TEST_USER_ID, TEST_TOKEN)).willReturn(AuthenticatedPrincipal.of(authenticatedUser));
 
         // when/then
         mockMvc.perform(get("/api/v1/contracts/1")
@@ -149,6 +353,49 @@ class ContractControllerTest {
                 .andExpect(jsonPath("$.timestamp", notNullValue()));
     }
 
+    @Test
+    void getContractById_unchangedVersion_notModified() throws Exception {
+        // given
+        Requester requester = new Requester();
+        requester.setUserId(TEST_USER_ID);
+        Contract contract = new Contract();
+        contract.setContractId(1L);
+        contract.setVersion(3L);
+        contract.setCreationDateTime(LocalDateTime.of(2025, 4, 1, 12, 0));
+        contract.setContractStatus(ContractStatus.REQUESTED);
+        contract.setRequester(requester);
+
+        User authenticatedUser = new User();
+        authenticatedUser.setUserId(TEST_USER_ID);
+        authenticatedUser.setUserAccountType(UserAccountType.REQUESTER);
+
+        given(contractService.getContractById(1L)).willReturn(contract);
+        given(authorizationService.authenticate(TEST_USER_ID, TEST_TOKEN)).willReturn(AuthenticatedPrincipal.of(authenticatedUser));
+
+        String eTag = mockMvc.perform(get("/api/v1/contracts/1")
+                .header("UserId", TEST_USER_ID)
+                .header("Authorization", TEST_TOKEN))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        // when/then - the same version is not sent again
+        mockMvc.perform(get("/api/v1/contracts/1")
+                .header("UserId", TEST_USER_ID)
+                .header("Authorization", TEST_TOKEN)
+                .header("If-None-Match", eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        // when/then - a new version is
+        contract.setVersion(4L);
+        mockMvc.perform(get("/api/v1/contracts/1")
+                .header("UserId", TEST_USER_ID)
+                .header("Authorization", TEST_TOKEN)
+                .header("If-None-Match", eTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.contract.contractId", is(1)));
+    }
+
     @Test
     void getContractById_requesterAccessOwnContract_success() throws Exception {
         // given
@@ -183,7 +430,7 @@ class ContractControllerTest {
         authenticatedUser.setUsername("testrequester");
 
         given(contractService.getContractById(1L)).willReturn(contract);
-        given(authorizationService.authenticateUser(TEST_USER_ID, TEST_TOKEN)).willReturn(authenticatedUser);
+        given(authorizationService.authenticate(TEST_USER_ID, TEST_TOKEN)).willReturn(AuthenticatedPrincipal.of(authenticatedUser));
 
         // when/then
         mockMvc.perform(get("/api/v1/contracts/1")
@@ -229,7 +476,7 @@ class ContractControllerTest {
         authenticatedUser.setUserAccountType(UserAccountType.REQUESTER);
 
         given(contractService.getContractById(1L)).willReturn(contract);
-        given(authorizationService.authenticateUser(TEST_USER_ID, TEST_TOKEN)).willReturn(authenticatedUser);
+        given(authorizationService.authenticate(TEST_USER_ID, TEST_TOKEN)).willReturn(AuthenticatedPrincipal.of(authenticatedUser));
 
         // when/then
         mockMvc.perform(get("/api/v1/contracts/1")
@@ -258,7 +505,7 @@ class ContractControllerTest {
         authenticatedUser.setUserAccountType(UserAccountType.DRIVER);
 
         given(contractService.getContractById(1L)).willReturn(contract);
-        given(authorizationService.authenticateUser(TEST_USER_ID, TEST_TOKEN)).willReturn(authenticatedUser);
+        given(authorizationService.authenticate(TEST_USER_ID, TEST_TOKEN)).willReturn(AuthenticatedPrincipal.of(authenticatedUser));
 
         // when/then
         mockMvc.perform(get("/api/v1/contracts/1")
@@ -291,7 +538,7 @@ class ContractControllerTest {
         authenticatedUser.setUserAccountType(UserAccountType.DRIVER);
 
         given(contractService.getContractById(1L)).willReturn(contract);
-        given(authorizationService.authenticateUser(TEST_USER_ID, TEST_TOKEN)).willReturn(authenticatedUser);
+        given(authorizationService.authenticate(TEST_USER_ID, TEST_TOKEN)).willReturn(AuthenticatedPrincipal.of(authenticatedUser));
 
         // when/then
         mockMvc.perform(get("/api/v1/contracts/1")
@@ -325,7 +572,7 @@ class ContractControllerTest {
         authenticatedUser.setUserAccountType(UserAccountType.DRIVER);
 
         given(contractService.getContractById(1L)).willReturn(contract);
-        given(authorizationService.authenticateUser(TEST_USER_ID, TEST_TOKEN)).willReturn(authenticatedUser);
+        given(authorizationService.authenticate(TEST_USER_ID, TEST_TOKEN)).willReturn(AuthenticatedPrincipal.of(authenticatedUser));
 
         // when/then
         mockMvc.perform(get("/api/v1/contracts/1")
@@ -354,7 +601,7 @@ class ContractControllerTest {
         authenticatedUser.setUserAccountType(UserAccountType.DRIVER);
 
         given(contractService.getContractById(1L)).willReturn(contract);
-        given(authorizationService.authenticateUser(TEST_USER_ID, TEST_TOKEN)).willReturn(authenticatedUser);
+        given(authorizationService.authenticate(TEST_USER_ID, TEST_TOKEN)).willReturn(AuthenticatedPrincipal.of(authenticatedUser));
 
         // when/then
         mockMvc.perform(get("/api/v1/contracts/1")
@@ -399,7 +646,7 @@ class ContractControllerTest {
         cancelledContract.setRequester(requester);
 
         // Mock service responses
-        given(authorizationService.authenticateUser(TEST_USER_ID, TEST_TOKEN)).willReturn(authenticatedUser);
+        given(authorizationService.authenticate(TEST_USER_ID, TEST_TOKEN)).willReturn(AuthenticatedPrincipal.of(authenticatedUser));
         given(contractService.getContractById(1L)).willReturn(contract);
         given(contractService.cancelContract(Mockito.any(), Mockito.any())).willReturn(cancelledContract);
 
@@ -415,6 +662,42 @@ class ContractControllerTest {
                 .andExpect(jsonPath("$.timestamp", notNullValue()));
     }
 
+    @Test
+    void cancelContract_concurrentUpdates_conflictWithCurrentState() throws Exception {
+        // given
+        ContractCancelDTO contractCancelDTO = new ContractCancelDTO();
+        contractCancelDTO.setReason("Test cancellation reason");
+
+        Requester requester = new Requester();
+        requester.setUserId(TEST_USER_ID);
+        Contract contract = new Contract();
+        contract.setContractId(1L);
+        contract.setContractStatus(ContractStatus.ACCEPTED);
+        contract.setMoveDateTime(LocalDateTime.now().plusDays(5));
+        contract.setRequester(requester);
+
+        User authenticatedUser = new User();
+        authenticatedUser.setUserId(TEST_USER_ID);
+        authenticatedUser.setUserAccountType(UserAccountType.REQUESTER);
+
+        given(authorizationService.authenticate(TEST_USER_ID, TEST_TOKEN)).willReturn(AuthenticatedPrincipal.of(authenticatedUser));
+        given(contractService.getContractById(1L)).willReturn(contract);
+        given(contractService.cancelContract(Mockito.any(), Mockito.any()))
+                .willThrow(new ObjectOptimisticLockingFailureException(Contract.class, 1L));
+
+        // when/then -> every attempt conflicts, the response contains the current contract
+        mockMvc.perform(put("/api/v1/contracts/1/cancel")
+                .header("UserId", TEST_USER_ID)
+                .header("Authorization", TEST_TOKEN)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(contractCancelDTO)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.contract.contractId", is(1)))
+                .andExpect(jsonPath("$.contract.contractStatus", is("ACCEPTED")))
+                .andExpect(jsonPath("$.message", notNullValue()));
+        Mockito.verify(contractService, Mockito.times(3)).cancelContract(Mockito.any(), Mockito.any());
+    }
+
     @Test
     void cancelContract_badRequest_notAccepted() throws Exception {
         // given
@@ -437,7 +720,7 @@ class ContractControllerTest {
         authenticatedUser.setUserAccountType(UserAccountType.REQUESTER);
 
         // Mock service responses
-        given(authorizationService.authenticateUser(TEST_USER_ID, TEST_TOKEN)).willReturn(authenticatedUser);
+        given(authorizationService.authenticate(TEST_USER_ID, TEST_TOKEN)).willReturn(AuthenticatedPrincipal.of(authenticatedUser));
         given(contractService.getContractById(1L)).willReturn(contract);
 
         // when/then
@@ -458,7 +741,7 @@ class ContractControllerTest {
         contractCancelDTO.setReason("Test cancellation reason");
 
         // Mock authentication failure
-        given(authorizationService.authenticateUser(TEST_USER_ID, TEST_TOKEN)).willReturn(null);
+        given(authorizationService.authenticate(TEST_USER_ID, TEST_TOKEN)).willReturn(null);
 
         // when/then
         mockMvc.perform(put("/api/v1/contracts/1/cancel")
@@ -483,7 +766,7 @@ class ContractControllerTest {
         authenticatedUser.setUserAccountType(UserAccountType.DRIVER);
 
         // Mock service responses
-        given(authorizationService.authenticateUser(TEST_USER_ID, TEST_TOKEN)).willReturn(authenticatedUser);
+        given(authorizationService.authenticate(TEST_USER_ID, TEST_TOKEN)).willReturn(AuthenticatedPrincipal.of(authenticatedUser));
 
         // when/then
         mockMvc.perform(put("/api/v1/contracts/1/cancel")
@@ -517,7 +800,7 @@ class ContractControllerTest {
         authenticatedUser.setUserAccountType(UserAccountType.REQUESTER);
 
         // Mock service responses
-        given(authorizationService.authenticateUser(TEST_USER_ID, TEST_TOKEN)).willReturn(authenticatedUser);
+        given(authorizationService.authenticate(TEST_USER_ID, TEST_TOKEN)).willReturn(AuthenticatedPrincipal.of(authenticatedUser));
         given(contractService.getContractById(1L)).willReturn(contract);
 
         // when/then
@@ -554,7 +837,7 @@ class ContractControllerTest {
         authenticatedUser.setUserAccountType(UserAccountType.REQUESTER);
 
         // Mock service responses
-        given(authorizationService.authenticateUser(TEST_USER_ID, TEST_TOKEN)).willReturn(authenticatedUser);
+        given(authorizationService.authenticate(TEST_USER_ID, TEST_TOKEN)).willReturn(AuthenticatedPrincipal.of(authenticatedUser));
         given(contractService.getContractById(1L)).willReturn(contract);
 
         // when/then
@@ -592,7 +875,7 @@ class ContractControllerTest {
         fulfilledContract.setRequester(requester);
 
         // Mock service responses
-        given(authorizationService.authenticateUser(TEST_USER_ID, TEST_TOKEN)).willReturn(authenticatedUser);
+        given(authorizationService.authenticate(TEST_USER_ID, TEST_TOKEN)).willReturn(AuthenticatedPrincipal.of(authenticatedUser));
         given(contractService.getContractById(1L)).willReturn(contract);
         given(contractService.fulfillContract(1L)).willReturn(fulfilledContract);
 
@@ -631,7 +914,7 @@ class ContractControllerTest {
         fulfilledContract.setDriver(driver);
 
         // Mock service responses
-        given(authorizationService.authenticateUser(TEST_USER_ID, TEST_TOKEN)).willReturn(authenticatedUser);
+        given(authorizationService.authenticate(TEST_USER_ID, TEST_TOKEN)).willReturn(AuthenticatedPrincipal.of(authenticatedUser));
         given(contractService.getContractById(1L)).willReturn(contract);
         given(contractService.fulfillContract(1L)).willReturn(fulfilledContract);
 
@@ -649,7 +932,7 @@ class ContractControllerTest {
     @Test
     void fulfillContract_unauthorized() throws Exception {
         // given
-        given(authorizationService.authenticateUser(TEST_USER_ID, TEST_TOKEN)).willReturn(null);
+        given(authorizationService.authenticate(TEST_USER_ID, TEST_TOKEN)).willReturn(null);
 
         // when/then
         mockMvc.perform(put("/api/v1/contracts/1/fulfill")
@@ -678,7 +961,7 @@ class ContractControllerTest {
         authenticatedUser.setUserAccountType(UserAccountType.REQUESTER);
 
         // Mock service responses
-        given(authorizationService.authenticateUser(TEST_USER_ID, TEST_TOKEN)).willReturn(authenticatedUser);
+        given(authorizationService.authenticate(TEST_USER_ID, TEST_TOKEN)).willReturn(AuthenticatedPrincipal.of(authenticatedUser));
         given(contractService.getContractById(1L)).willReturn(contract);
 
         // when/then
@@ -708,7 +991,7 @@ class ContractControllerTest {
         authenticatedUser.setUserAccountType(UserAccountType.DRIVER);
 
         // Mock service responses
-        given(authorizationService.authenticateUser(TEST_USER_ID, TEST_TOKEN)).willReturn(authenticatedUser);
+        given(authorizationService.authenticate(TEST_USER_ID, TEST_TOKEN)).willReturn(AuthenticatedPrincipal.of(authenticatedUser));
         given(contractService.getContractById(1L)).willReturn(contract);
 
         // when/then
@@ -729,14 +1012,16 @@ class ContractControllerTest {
         contract.setTitle("Test Contract");
         contract.setContractStatus(ContractStatus.REQUESTED);
 
-        List<Contract> contracts = Collections.singletonList(contract);
-        given(contractService.getContractsByRequesterId(TEST_USER_ID, ContractStatus.REQUESTED)).willReturn(contracts);
+        List<ContractGetDTO> contracts = Collections.singletonList(ContractDTOMapper.INSTANCE.convertContractEntityToContractGetDTO(contract));
+        given(contractService.getContractDTOsByRequesterId(TEST_USER_ID, ContractStatus.REQUESTED)).willReturn(contracts);
+        given(contractService.getContractVersionsByRequesterId(TEST_USER_ID, ContractStatus.REQUESTED))
+            .willReturn(new VersionSummary(1, 1, 0, null));
         
         // Set up authenticated user as requester
         User authenticatedUser = new User();
         authenticatedUser.setUserId(TEST_USER_ID);
         authenticatedUser.setUserAccountType(UserAccountType.REQUESTER);
-        given(authorizationService.authenticateUser(TEST_USER_ID, TEST_TOKEN)).willReturn(authenticatedUser);
+        given(authorizationService.authenticate(TEST_USER_ID, TEST_TOKEN)).willReturn(AuthenticatedPrincipal.of(authenticatedUser));
         
         // Set up user repository response
         given(userRepository.findByUserId(TEST_USER_ID)).willReturn(java.util.Optional.of(new Requester()));
@@ -768,14 +1053,16 @@ class ContractControllerTest {
         driver.setUserId(TEST_USER_ID);
         contract.setDriver(driver);
 
-        List<Contract> contracts = Collections.singletonList(contract);
-        given(contractService.getContractsByDriverId(TEST_USER_ID, ContractStatus.ACCEPTED)).willReturn(contracts);
+        List<ContractGetDTO> contracts = Collections.singletonList(ContractDTOMapper.INSTANCE.convertContractEntityToContractGetDTO(contract));
+        given(contractService.getContractDTOsByDriverId(TEST_USER_ID, ContractStatus.ACCEPTED)).willReturn(contracts);
+        given(contractService.getContractVersionsByDriverId(TEST_USER_ID, ContractStatus.ACCEPTED))
+            .willReturn(new VersionSummary(1, 1, 2, null));
         
         // Set up authenticated user as driver
         User authenticatedUser = new User();
         authenticatedUser.setUserId(TEST_USER_ID);
         authenticatedUser.setUserAccountType(UserAccountType.DRIVER);
-        given(authorizationService.authenticateUser(TEST_USER_ID, TEST_TOKEN)).willReturn(authenticatedUser);
+        given(authorizationService.authenticate(TEST_USER_ID, TEST_TOKEN)).willReturn(AuthenticatedPrincipal.of(authenticatedUser));
         
         // Set up user repository response
         given(userRepository.findByUserId(TEST_USER_ID)).willReturn(java.util.Optional.of(new Driver()));
@@ -798,7 +1085,7 @@ class ContractControllerTest {
     @Test
     void getUserContracts_unauthorized() throws Exception {
         // given
-        given(authorizationService.authenticateUser(TEST_USER_ID, TEST_TOKEN)).willReturn(null);
+        given(authorizationService.authenticate(TEST_USER_ID, TEST_TOKEN)).willReturn(null);
 
         // when/then
         mockMvc.perform(get("/api/v1/users/" + TEST_USER_ID + "/contracts")
@@ -816,7 +1103,7 @@ class ContractControllerTest {
         User authenticatedUser = new User();
         authenticatedUser.setUserId(TEST_USER_ID);
         authenticatedUser.setUserAccountType(UserAccountType.REQUESTER);
-        given(authorizationService.authenticateUser(TEST_USER_ID, TEST_TOKEN)).willReturn(authenticatedUser);
+        given(authorizationService.authenticate(TEST_USER_ID, TEST_TOKEN)).willReturn(AuthenticatedPrincipal.of(authenticatedUser));
 
         // when/then
         mockMvc.perform(get("/api/v1/users/999/contracts") // Different user ID
@@ -834,7 +1121,7 @@ class ContractControllerTest {
         User authenticatedUser = new User();
         authenticatedUser.setUserId(TEST_USER_ID);
         authenticatedUser.setUserAccountType(UserAccountType.REQUESTER);
-        given(authorizationService.authenticateUser(TEST_USER_ID, TEST_TOKEN)).willReturn(authenticatedUser);
+        given(authorizationService.authenticate(TEST_USER_ID, TEST_TOKEN)).willReturn(AuthenticatedPrincipal.of(authenticatedUser));
         given(userRepository.findByUserId(TEST_USER_ID)).willReturn(java.util.Optional.empty());
 
         // when/then
@@ -845,6 +1132,57 @@ class ContractControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void getUserContracts_unchangedVersions_notModifiedWithoutLoadingContracts() throws Exception {
+        // given
+        User authenticatedUser = new User();
+        authenticatedUser.setUserId(TEST_USER_ID);
+        authenticatedUser.setUserAccountType(UserAccountType.REQUESTER);
+        given(authorizationService.authenticate(TEST_USER_ID, TEST_TOKEN)).willReturn(AuthenticatedPrincipal.of(authenticatedUser));
+        given(userRepository.findByUserId(TEST_USER_ID)).willReturn(java.util.Optional.of(new Requester()));
+        given(contractService.getContractVersionsByRequesterId(TEST_USER_ID, null))
+            .willReturn(new VersionSummary(2, 3, 5, LocalDateTime.of(2025, 4, 1, 12, 0)));
+        given(contractService.getContractDTOsByRequesterId(TEST_USER_ID, null)).willReturn(Collections.emptyList());
+
+        String eTag = mockMvc.perform(get("/api/v1/users/" + TEST_USER_ID + "/contracts")
+                .header("UserId", TEST_USER_ID)
+                .header("Authorization", TEST_TOKEN))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        Mockito.clearInvocations(contractService);
+
+        // when/then
+        mockMvc.perform(get("/api/v1/users/" + TEST_USER_ID + "/contracts")
+                .header("UserId", TEST_USER_ID)
+                .header("Authorization", TEST_TOKEN)
+                .header("If-None-Match", "W/" + eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        Mockito.verify(contractService, Mockito.never()).getContractDTOsByRequesterId(Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    void getUserContracts_changedVersions_contractsReturned() throws Exception {
+        // given
+        User authenticatedUser = new User();
+        authenticatedUser.setUserId(TEST_USER_ID);
+        authenticatedUser.setUserAccountType(UserAccountType.DRIVER);
+        given(authorizationService.authenticate(TEST_USER_ID, TEST_TOKEN)).willReturn(AuthenticatedPrincipal.of(authenticatedUser));
+        given(userRepository.findByUserId(TEST_USER_ID)).willReturn(java.util.Optional.of(new Driver()));
+        given(contractService.getContractVersionsByDriverId(TEST_USER_ID, null))
+            .willReturn(new VersionSummary(1, 1, 4, null));
+        given(contractService.getContractDTOsByDriverId(TEST_USER_ID, null)).willReturn(Collections.emptyList());
+
+        // when/then
+        mockMvc.perform(get("/api/v1/users/" + TEST_USER_ID + "/contracts")
+                .header("UserId", TEST_USER_ID)
+                .header("Authorization", TEST_TOKEN)
+                .header("If-None-Match", "\"contracts-1-1-3-0\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"contracts-1-1-4-0\""))
+                .andExpect(jsonPath("$.timestamp", notNullValue()));
+    }
+
     @Test
     void getAllContracts_missingUserIdHeader_throwsException() throws Exception {
         // when/then
@@ -866,7 +1204,7 @@ class ContractControllerTest {
     @Test
     void getAllContracts_invalidUserId_throwsException() throws Exception {
         // given
-        given(authorizationService.authenticateUser(999L, TEST_TOKEN)).willReturn(null);
+        given(authorizationService.authenticate(999L, TEST_TOKEN)).willReturn(null);
 
         // when/then
         mockMvc.perform(get("/api/v1/contracts")
@@ -881,7 +1219,7 @@ class ContractControllerTest {
     @Test
     void getAllContracts_invalidToken_throwsException() throws Exception {
         // given
-        given(authorizationService.authenticateUser(TEST_USER_ID, "invalid-token")).willReturn(null);
+        given(authorizationService.authenticate(TEST_USER_ID, "invalid-token")).willReturn(null);
 
         // when/then
         mockMvc.perform(get("/api/v1/contracts")
@@ -899,7 +1237,7 @@ class ContractControllerTest {
         User user = new User();
         user.setUserId(TEST_USER_ID);
         user.setToken("different-token");
-        given(authorizationService.authenticateUser(TEST_USER_ID, TEST_TOKEN)).willReturn(null);
+        given(authorizationService.authenticate(TEST_USER_ID, TEST_TOKEN)).willReturn(null);
 
         // when/then
         mockMvc.perform(get("/api/v1/contracts")
@@ -923,9 +1261,9 @@ class ContractControllerTest {
         authenticatedUser.setUserId(TEST_USER_ID);
         authenticatedUser.setToken(TEST_TOKEN);
 
-        List<Contract> allContracts = Collections.singletonList(contract);
-        given(contractService.getContracts(null, null, null)).willReturn(allContracts);
-        given(authorizationService.authenticateUser(TEST_USER_ID, TEST_TOKEN)).willReturn(authenticatedUser);
+        List<ContractGetDTO> allContracts = Collections.singletonList(ContractDTOMapper.INSTANCE.convertContractEntityToContractGetDTO(contract));
+        given(contractService.getContractDTOs(null, null, null)).willReturn(allContracts);
+        given(authorizationService.authenticate(TEST_USER_ID, TEST_TOKEN)).willReturn(AuthenticatedPrincipal.of(authenticatedUser));
 
         // when/then
         mockMvc.perform(get("/api/v1/contracts")
@@ -947,7 +1285,7 @@ class ContractControllerTest {
         contractPostDTO.setTitle("Test Contract");
 
         // Mock authentication failure
-        given(authorizationService.authenticateUser(TEST_USER_ID, TEST_TOKEN)).willReturn(null);
+        given(authorizationService.authenticate(TEST_USER_ID, TEST_TOKEN)).willReturn(null);
 
         // Perform request
         mockMvc.perform(post("/api/v1/contracts")
@@ -970,7 +1308,7 @@ class ContractControllerTest {
         User authenticatedUser = new User();
         authenticatedUser.setUserId(TEST_USER_ID);
         authenticatedUser.setUserAccountType(UserAccountType.DRIVER);
-        given(authorizationService.authenticateUser(TEST_USER_ID, TEST_TOKEN)).willReturn(authenticatedUser);
+        given(authorizationService.authenticate(TEST_USER_ID, TEST_TOKEN)).willReturn(AuthenticatedPrincipal.of(authenticatedUser));
 
         // Perform request
         mockMvc.perform(post("/api/v1/contracts")
@@ -1011,7 +1349,7 @@ class ContractControllerTest {
         User authenticatedUser = new User();
         authenticatedUser.setUserId(TEST_USER_ID);
         authenticatedUser.setUserAccountType(UserAccountType.REQUESTER);
-        given(authorizationService.authenticateUser(TEST_USER_ID, TEST_TOKEN)).willReturn(authenticatedUser);
+        given(authorizationService.authenticate(TEST_USER_ID, TEST_TOKEN)).willReturn(AuthenticatedPrincipal.of(authenticatedUser));
 
         // Perform request
         mockMvc.perform(post("/api/v1/contracts")
@@ -1047,7 +1385,7 @@ class ContractControllerTest {
 
         // Mock service responses
         when(contractService.getContractById(1L)).thenReturn(contract);
-        when(authorizationService.authenticateUser(1L, "requester-token")).thenReturn(requester);
+        when(authorizationService.authenticate(1L, "requester-token")).thenReturn(AuthenticatedPrincipal.of(requester));
         when(userDTOMapper.convertToDTO(driver)).thenReturn(driverDTO);
 
         // Perform request
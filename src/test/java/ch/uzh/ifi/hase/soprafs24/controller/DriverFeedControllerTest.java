@@ -0,0 +1,102 @@
+package ch.uzh.ifi.hase.soprafs24.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import ch.uzh.ifi.hase.soprafs24.constant.UserAccountType;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.contract.ContractGetDTO;
+import ch.uzh.ifi.hase.soprafs24.security.authorization.service.AuthenticatedPrincipal;
+import ch.uzh.ifi.hase.soprafs24.security.authorization.service.AuthorizationService;
+import ch.uzh.ifi.hase.soprafs24.service.ContractService;
+import ch.uzh.ifi.hase.soprafs24.service.DriverFeed;
+
+class DriverFeedControllerTest {
+
+    @Mock
+    private DriverFeed driverFeed;
+
+    @Mock
+    private ContractService contractService;
+
+    @Mock
+    private AuthorizationService authorizationService;
+
+    @InjectMocks
+    private DriverFeedController driverFeedController;
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void getDriverFeed_ownFeed_contractsInFeedOrder() {
+        // given
+        ContractGetDTO closest = new ContractGetDTO();
+        closest.setContractId(7L);
+        ContractGetDTO further = new ContractGetDTO();
+        further.setContractId(3L);
+        when(authorizationService.authenticate(2L, "token"))
+            .thenReturn(new AuthenticatedPrincipal(2L, UserAccountType.DRIVER));
+        when(driverFeed.getContractIds(2L)).thenReturn(List.of(7L, 3L));
+        when(contractService.getOpenContractDTOsByIds(List.of(7L, 3L))).thenReturn(List.of(closest, further));
+
+        // when
+        ResponseEntity<Object> response = driverFeedController.getDriverFeed(2L, 2L, "token");
+
+        // then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        Map<?, ?> body = (Map<?, ?>) response.getBody();
+        assertEquals(List.of(closest, further), body.get("contracts"));
+    }
+
+    @Test
+    void getDriverFeed_invalidCredentials_unauthorized() {
+        // when
+        ResponseEntity<Object> response = driverFeedController.getDriverFeed(2L, 2L, "invalid");
+
+        // then
+        assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
+        verifyNoInteractions(driverFeed);
+    }
+
+    @Test
+    void getDriverFeed_otherDriver_forbidden() {
+        // given
+        when(authorizationService.authenticate(2L, "token"))
+            .thenReturn(new AuthenticatedPrincipal(2L, UserAccountType.DRIVER));
+
+        // when
+        ResponseEntity<Object> response = driverFeedController.getDriverFeed(5L, 2L, "token");
+
+        // then
+        assertEquals(HttpStatus.FORBIDDEN, response.getStatusCode());
+        verifyNoInteractions(driverFeed);
+    }
+
+    @Test
+    void getDriverFeed_requester_forbidden() {
+        // given
+        when(authorizationService.authenticate(2L, "token"))
+            .thenReturn(new AuthenticatedPrincipal(2L, UserAccountType.REQUESTER));
+
+        // when
+        ResponseEntity<Object> response = driverFeedController.getDriverFeed(2L, 2L, "token");
+
+        // then
+        assertEquals(HttpStatus.FORBIDDEN, response.getStatusCode());
+        verifyNoInteractions(driverFeed);
+    }
+}
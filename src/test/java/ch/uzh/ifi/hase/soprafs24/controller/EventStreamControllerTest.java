@@ -0,0 +1,79 @@
+package ch.uzh.ifi.hase.soprafs24.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import ch.uzh.ifi.hase.soprafs24.constant.UserAccountType;
+import ch.uzh.ifi.hase.soprafs24.security.authorization.service.AuthenticatedPrincipal;
+import ch.uzh.ifi.hase.soprafs24.security.authorization.service.AuthorizationService;
+import ch.uzh.ifi.hase.soprafs24.service.UserEventStreams;
+
+class EventStreamControllerTest {
+
+    @Mock
+    private UserEventStreams userEventStreams;
+
+    @Mock
+    private AuthorizationService authorizationService;
+
+    @InjectMocks
+    private EventStreamController eventStreamController;
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void streamEvents_ownEvents_connected() {
+        // given
+        SseEmitter emitter = new SseEmitter();
+        when(authorizationService.authenticate(2L, "token"))
+            .thenReturn(new AuthenticatedPrincipal(2L, UserAccountType.REQUESTER));
+        when(userEventStreams.connect(2L, "abc-4")).thenReturn(emitter);
+
+        // when
+        SseEmitter result = eventStreamController.streamEvents(2L, 2L, "token", "abc-4");
+
+        // then
+        assertSame(emitter, result);
+    }
+
+    @Test
+    void streamEvents_invalidCredentials_unauthorized() {
+        // when
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+            () -> eventStreamController.streamEvents(2L, 2L, "invalid", null));
+
+        // then
+        assertEquals(HttpStatus.UNAUTHORIZED, exception.getStatus());
+        verifyNoInteractions(userEventStreams);
+    }
+
+    @Test
+    void streamEvents_otherUser_forbidden() {
+        // given
+        when(authorizationService.authenticate(2L, "token"))
+            .thenReturn(new AuthenticatedPrincipal(2L, UserAccountType.DRIVER));
+
+        // when
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+            () -> eventStreamController.streamEvents(5L, 2L, "token", null));
+
+        // then
+        assertEquals(HttpStatus.FORBIDDEN, exception.getStatus());
+        verifyNoInteractions(userEventStreams);
+    }
+}
@@ -13,25 +13,39 @@ import ch.uzh.ifi.hase.soprafs24.rest.dto.offer.OfferPostDTO;
 import ch.uzh.ifi.hase.soprafs24.rest.dto.offer.OfferPutDTO;
 import ch.uzh.ifi.hase.soprafs24.service.OfferService;
 import ch.uzh.ifi.hase.soprafs24.service.ContractService;
+import ch.uzh.ifi.hase.soprafs24.service.TransitionRetry;
+import ch.uzh.ifi.hase.soprafs24.security.authorization.service.AuthenticatedPrincipal;
 import ch.uzh.ifi.hase.soprafs24.security.authorization.service.AuthorizationService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 class OfferControllerTest {
@@ -45,6 +59,12 @@ class OfferControllerTest {
     @Mock
     private AuthorizationService authorizationService;
 
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @Spy
+    private TransitionRetry transitionRetry = new TransitionRetry(3, Duration.ZERO);
+
     @InjectMocks
     private OfferController offerController;
 
@@ -120,7 +140,7 @@ class OfferControllerTest {
         // given
         List<OfferGetDTO> offers = new ArrayList<>();
         when(offerService.getOffers(null, null, null)).thenReturn(offers);
-        when(authorizationService.authenticateUser(anyLong(), anyString())).thenReturn(new User());
+        when(authorizationService.authenticate(anyLong(), anyString())).thenReturn(AuthenticatedPrincipal.of(new User()));
 
         // when
         ResponseEntity<Object> response = offerController.getOffers(1L, "token", null, null, null);
@@ -135,7 +155,7 @@ class OfferControllerTest {
         // given
         List<OfferGetDTO> offers = new ArrayList<>();
         when(offerService.getOffers(1L, 1L, OfferStatus.CREATED)).thenReturn(offers);
-        when(authorizationService.authenticateUser(anyLong(), anyString())).thenReturn(new User());
+        when(authorizationService.authenticate(anyLong(), anyString())).thenReturn(AuthenticatedPrincipal.of(new User()));
 
         // when
         ResponseEntity<Object> response = offerController.getOffers(1L, "token", 1L, 1L, OfferStatus.CREATED);
@@ -145,10 +165,51 @@ class OfferControllerTest {
         verify(offerService).getOffers(1L, 1L, OfferStatus.CREATED);
     }
 
+    @Test
+    void streamOffers_requesterWithoutContract_streamsOffersOfOwnContracts() throws Exception {
+        // given
+        when(authorizationService.authenticate(1L, "test-token")).thenReturn(AuthenticatedPrincipal.of(testRequester));
+        doAnswer(invocation -> {
+            Consumer<OfferGetDTO> consumer = invocation.getArgument(4);
+            consumer.accept(testOfferGetDTO);
+            return null;
+        }).when(offerService).streamOffers(isNull(), isNull(), eq(1L), isNull(), any());
+
+        // when
+        ResponseEntity<StreamingResponseBody> response = offerController.streamOffers(1L, "test-token", null, null, null);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        response.getBody().writeTo(output);
+
+        // then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(1, lines.length);
+        assertEquals(testOfferGetDTO.getOfferId().intValue(), objectMapper.readTree(lines[0]).get("offerId").asInt());
+    }
+
+    @Test
+    void streamOffers_requesterForeignContract_returns403() {
+        // given
+        Requester otherRequester = new Requester();
+        otherRequester.setUserId(99L);
+        Contract foreignContract = new Contract();
+        foreignContract.setContractId(5L);
+        foreignContract.setRequester(otherRequester);
+        when(authorizationService.authenticate(1L, "test-token")).thenReturn(AuthenticatedPrincipal.of(testRequester));
+        when(contractService.getContractById(5L)).thenReturn(foreignContract);
+
+        // when
+        ResponseEntity<StreamingResponseBody> response = offerController.streamOffers(1L, "test-token", 5L, null, null);
+
+        // then
+        assertEquals(HttpStatus.FORBIDDEN, response.getStatusCode());
+        verify(offerService, never()).streamOffers(any(), any(), any(), any(), any());
+    }
+
     @Test
     void getOffer_asDriver_success() {
         // given
-        when(authorizationService.authenticateUser(2L, "test-token")).thenReturn(testDriver);
+        when(authorizationService.authenticate(2L, "test-token")).thenReturn(AuthenticatedPrincipal.of(testDriver));
         when(offerService.getOffer(1L)).thenReturn(testOfferGetDTO);
 
         // when
@@ -167,7 +228,7 @@ class OfferControllerTest {
     @Test
     void getOffer_asRequester_success() {
         // given
-        when(authorizationService.authenticateUser(1L, "test-token")).thenReturn(testRequester);
+        when(authorizationService.authenticate(1L, "test-token")).thenReturn(AuthenticatedPrincipal.of(testRequester));
         when(offerService.getOffer(1L)).thenReturn(testOfferGetDTO);
 
         // when
@@ -183,10 +244,28 @@ class OfferControllerTest {
         assertNotNull(responseBody.get("timestamp"));
     }
 
+    @Test
+    void getOffer_taggedWithHashOfOffer() {
+        // given
+        when(authorizationService.authenticate(2L, "test-token")).thenReturn(AuthenticatedPrincipal.of(testDriver));
+        when(offerService.getOffer(1L)).thenReturn(testOfferGetDTO);
+
+        // when
+        String eTag = offerController.getOffer(1L, 2L, "test-token").getHeaders().getETag();
+        String sameETag = offerController.getOffer(1L, 2L, "test-token").getHeaders().getETag();
+        testOfferGetDTO.setOfferStatus(OfferStatus.ACCEPTED);
+        String changedETag = offerController.getOffer(1L, 2L, "test-token").getHeaders().getETag();
+
+        // then
+        assertNotNull(eTag);
+        assertEquals(eTag, sameETag);
+        assertNotEquals(eTag, changedETag);
+    }
+
     @Test
     void getOffer_unauthorized() {
         // given
-        when(authorizationService.authenticateUser(any(), any())).thenReturn(null);
+        when(authorizationService.authenticate(any(), any())).thenReturn(null);
 
         // when
         ResponseEntity<Object> response = offerController.getOffer(1L, 1L, "invalid-token");
@@ -205,7 +284,7 @@ class OfferControllerTest {
     void getOffer_forbidden_wrongDriver() {
         // given
         testDriver.setUserId(3L); // Different driver ID than the offer's driver
-        when(authorizationService.authenticateUser(3L, "test-token")).thenReturn(testDriver);
+        when(authorizationService.authenticate(3L, "test-token")).thenReturn(AuthenticatedPrincipal.of(testDriver));
         when(offerService.getOffer(1L)).thenReturn(testOfferGetDTO);
 
         // when
@@ -225,7 +304,7 @@ class OfferControllerTest {
     void getOffer_forbidden_wrongRequester() {
         // given
         testRequester.setUserId(3L); // Different requester ID than the contract's requester
-        when(authorizationService.authenticateUser(3L, "test-token")).thenReturn(testRequester);
+        when(authorizationService.authenticate(3L, "test-token")).thenReturn(AuthenticatedPrincipal.of(testRequester));
         when(offerService.getOffer(1L)).thenReturn(testOfferGetDTO);
 
         // when
@@ -244,7 +323,7 @@ class OfferControllerTest {
     @Test
     void getOffer_notFound() {
         // given
-        when(authorizationService.authenticateUser(2L, "test-token")).thenReturn(testDriver);
+        when(authorizationService.authenticate(2L, "test-token")).thenReturn(AuthenticatedPrincipal.of(testDriver));
         when(offerService.getOffer(1L)).thenThrow(new ResponseStatusException(HttpStatus.NOT_FOUND, "Offer not found"));
 
         // when/then
@@ -254,7 +333,7 @@ class OfferControllerTest {
     @Test
     void createOffer_success() {
         // given
-        when(authorizationService.authenticateUser(2L, "test-token")).thenReturn(testDriver);
+        when(authorizationService.authenticate(2L, "test-token")).thenReturn(AuthenticatedPrincipal.of(testDriver));
         when(contractService.getContractById(anyLong())).thenReturn(testContract);
         when(offerService.createOffer(any(OfferPostDTO.class))).thenReturn(testOfferGetDTO);
         testOfferPostDTO.setDriverId(2L); // Set driver ID to match authenticated user
@@ -276,7 +355,7 @@ class OfferControllerTest {
     @Test
     void createOffer_unauthorized_returns401() {
         // given
-        when(authorizationService.authenticateUser(2L, "test-token")).thenReturn(null);
+        when(authorizationService.authenticate(2L, "test-token")).thenReturn(null);
 
         // when
         ResponseEntity<Object> response = offerController.createOffer(2L, "test-token", testOfferPostDTO);
@@ -294,7 +373,7 @@ class OfferControllerTest {
     @Test
     void deleteOffer_success() {
         // given
-        when(authorizationService.authenticateUser(2L, "test-token")).thenReturn(testDriver);
+        when(authorizationService.authenticate(2L, "test-token")).thenReturn(AuthenticatedPrincipal.of(testDriver));
         when(offerService.getOffer(1L)).thenReturn(testOfferGetDTO);
         doNothing().when(offerService).deleteOffer(1L);
 
@@ -314,7 +393,7 @@ class OfferControllerTest {
     @Test
     void deleteOffer_unauthorized_returns401() {
         // given
-        when(authorizationService.authenticateUser(2L, "test-token")).thenReturn(null);
+        when(authorizationService.authenticate(2L, "test-token")).thenReturn(null);
 
         // when
         ResponseEntity<Object> response = offerController.deleteOffer(1L, 2L, "test-token");
@@ -332,7 +411,7 @@ class OfferControllerTest {
     @Test
     void updateOfferStatus_success() {
         // given
-        when(authorizationService.authenticateUser(2L, "test-token")).thenReturn(testDriver);
+        when(authorizationService.authenticate(2L, "test-token")).thenReturn(AuthenticatedPrincipal.of(testDriver));
         when(offerService.getOffer(1L)).thenReturn(testOfferGetDTO);
         when(offerService.updateOfferStatus(1L, OfferStatus.DELETED)).thenReturn(testOfferGetDTO);
 
@@ -353,7 +432,7 @@ class OfferControllerTest {
     @Test
     void updateOfferStatus_unauthorized_returns401() {
         // given
-        when(authorizationService.authenticateUser(2L, "test-token")).thenReturn(null);
+        when(authorizationService.authenticate(2L, "test-token")).thenReturn(null);
 
         // when
         ResponseEntity<Object> response = offerController.updateOfferStatus(1L, OfferStatus.DELETED, 2L, "test-token");
@@ -371,7 +450,7 @@ class OfferControllerTest {
     @Test
     void getOffersByContract_success() {
         // given
-        when(authorizationService.authenticateUser(1L, "test-token")).thenReturn(testRequester);
+        when(authorizationService.authenticate(1L, "test-token")).thenReturn(AuthenticatedPrincipal.of(testRequester));
         when(offerService.getOffers(1L, null, null)).thenReturn(Collections.singletonList(testOfferGetDTO));
         
         // Create a contract owned by the requester
@@ -398,7 +477,7 @@ class OfferControllerTest {
     @Test
     void getOffersByContract_unauthorized_returns401() {
         // given
-        when(authorizationService.authenticateUser(1L, "test-token")).thenReturn(null);
+        when(authorizationService.authenticate(1L, "test-token")).thenReturn(null);
 
         // when
         ResponseEntity<Object> response = offerController.getOffersByContract(1L, 1L, "test-token");
@@ -416,7 +495,7 @@ class OfferControllerTest {
     @Test
     void createOffer_requesterCannotCreateOffer_forbidden() {
         // given
-        when(authorizationService.authenticateUser(1L, "test-token")).thenReturn(testRequester);
+        when(authorizationService.authenticate(1L, "test-token")).thenReturn(AuthenticatedPrincipal.of(testRequester));
 
         // when
         ResponseEntity<Object> response = offerController.createOffer(1L, "test-token", testOfferPostDTO);
@@ -436,7 +515,7 @@ class OfferControllerTest {
         // given
         List<OfferGetDTO> offers = Collections.singletonList(testOfferGetDTO);
         when(offerService.getOffers(any(), any(), any())).thenReturn(offers);
-        when(authorizationService.authenticateUser(2L, "test-token")).thenReturn(testDriver);
+        when(authorizationService.authenticate(2L, "test-token")).thenReturn(AuthenticatedPrincipal.of(testDriver));
 
         // when
         ResponseEntity<Object> response = offerController.getOffersByDriver(2L, 2L, "test-token", null);
@@ -457,7 +536,7 @@ class OfferControllerTest {
         // given
         List<OfferGetDTO> offers = Collections.singletonList(testOfferGetDTO);
         when(offerService.getOffers(any(), any(), any())).thenReturn(offers);
-        when(authorizationService.authenticateUser(2L, "test-token")).thenReturn(testDriver);
+        when(authorizationService.authenticate(2L, "test-token")).thenReturn(AuthenticatedPrincipal.of(testDriver));
 
         // when
         ResponseEntity<Object> response = offerController.getOffersByDriver(2L, 2L, "test-token", OfferStatus.CREATED);
@@ -476,7 +555,7 @@ class OfferControllerTest {
     @Test
     void getOffersByDriver_unauthorized_returns401() {
         // given
-        when(authorizationService.authenticateUser(2L, "test-token")).thenReturn(null);
+        when(authorizationService.authenticate(2L, "test-token")).thenReturn(null);
 
         // when
         ResponseEntity<Object> response = offerController.getOffersByDriver(2L, 2L, "test-token", null);
@@ -494,7 +573,7 @@ class OfferControllerTest {
     @Test
     void getOffersByDriver_forbidden_wrongDriver_returns403() {
         // given
-        when(authorizationService.authenticateUser(3L, "test-token")).thenReturn(testDriver);
+        when(authorizationService.authenticate(3L, "test-token")).thenReturn(AuthenticatedPrincipal.of(testDriver));
 
         // when
         ResponseEntity<Object> response = offerController.getOffersByDriver(2L, 3L, "test-token", null);
@@ -512,7 +591,7 @@ class OfferControllerTest {
     @Test
     void getOffersByDriver_forbidden_requester_returns403() {
         // given
-        when(authorizationService.authenticateUser(1L, "test-token")).thenReturn(testRequester);
+        when(authorizationService.authenticate(1L, "test-token")).thenReturn(AuthenticatedPrincipal.of(testRequester));
 
         // when
         ResponseEntity<Object> response = offerController.getOffersByDriver(2L, 1L, "test-token", null);
@@ -530,7 +609,7 @@ class OfferControllerTest {
     @Test
     void getOffersByDriver_notFound_throwsException() {
         // given
-        when(authorizationService.authenticateUser(2L, "test-token")).thenReturn(testDriver);
+        when(authorizationService.authenticate(2L, "test-token")).thenReturn(AuthenticatedPrincipal.of(testDriver));
         when(offerService.getOffers(any(), any(), any()))
             .thenThrow(new ResponseStatusException(HttpStatus.NOT_FOUND, "Driver not found"));
 
@@ -544,7 +623,7 @@ class OfferControllerTest {
     @Test
     void getOffers_unauthorized_returns401() {
         // given
-        when(authorizationService.authenticateUser(anyLong(), anyString())).thenReturn(null);
+        when(authorizationService.authenticate(anyLong(), anyString())).thenReturn(null);
 
         // when
         ResponseEntity<Object> response = offerController.getOffers(1L, "invalid-token", null, null, null);
@@ -565,7 +644,7 @@ class OfferControllerTest {
         User driver = new User();
         driver.setUserId(1L);
         driver.setUserAccountType(UserAccountType.DRIVER);
-        when(authorizationService.authenticateUser(1L, "token")).thenReturn(driver);
+        when(authorizationService.authenticate(1L, "token")).thenReturn(AuthenticatedPrincipal.of(driver));
         List<OfferGetDTO> offers = new ArrayList<>();
         when(offerService.getOffers(null, 1L, null)).thenReturn(offers);
 
@@ -583,7 +662,7 @@ class OfferControllerTest {
         User requester = new User();
         requester.setUserId(1L);
         requester.setUserAccountType(UserAccountType.REQUESTER);
-        when(authorizationService.authenticateUser(1L, "token")).thenReturn(requester);
+        when(authorizationService.authenticate(1L, "token")).thenReturn(AuthenticatedPrincipal.of(requester));
         
         Contract contract = new Contract();
         Requester otherRequester = new Requester();
@@ -610,7 +689,7 @@ class OfferControllerTest {
         User requester = new User();
         requester.setUserId(1L);
         requester.setUserAccountType(UserAccountType.REQUESTER);
-        when(authorizationService.authenticateUser(1L, "token")).thenReturn(requester);
+        when(authorizationService.authenticate(1L, "token")).thenReturn(AuthenticatedPrincipal.of(requester));
         
         List<Contract> contracts = new ArrayList<>();
         Contract contract = new Contract();
@@ -649,7 +728,7 @@ class OfferControllerTest {
         User driver = new User();
         driver.setUserId(1L);
         driver.setUserAccountType(UserAccountType.DRIVER);
-        when(authorizationService.authenticateUser(1L, "token")).thenReturn(driver);
+        when(authorizationService.authenticate(1L, "token")).thenReturn(AuthenticatedPrincipal.of(driver));
         List<OfferGetDTO> offers = new ArrayList<>();
         when(offerService.getOffers(null, 1L, OfferStatus.CREATED)).thenReturn(offers);
 
@@ -667,7 +746,7 @@ class OfferControllerTest {
         User requester = new User();
         requester.setUserId(1L);
         requester.setUserAccountType(UserAccountType.REQUESTER);
-        when(authorizationService.authenticateUser(1L, "token")).thenReturn(requester);
+        when(authorizationService.authenticate(1L, "token")).thenReturn(AuthenticatedPrincipal.of(requester));
         
         List<Contract> contracts = new ArrayList<>();
         Contract contract = new Contract();
@@ -703,7 +782,7 @@ class OfferControllerTest {
     @Test
     void updateOfferStatus_driverCanDeleteOwnOffer_success() {
         // given
-        when(authorizationService.authenticateUser(2L, "test-token")).thenReturn(testDriver);
+        when(authorizationService.authenticate(2L, "test-token")).thenReturn(AuthenticatedPrincipal.of(testDriver));
         when(offerService.getOffer(1L)).thenReturn(testOfferGetDTO);
         when(offerService.updateOfferStatus(1L, OfferStatus.DELETED)).thenReturn(testOfferGetDTO);
 
@@ -724,7 +803,7 @@ class OfferControllerTest {
     @Test
     void updateOfferStatus_driverCannotAcceptOwnOffer_forbidden() {
         // given
-        when(authorizationService.authenticateUser(2L, "test-token")).thenReturn(testDriver);
+        when(authorizationService.authenticate(2L, "test-token")).thenReturn(AuthenticatedPrincipal.of(testDriver));
         when(offerService.getOffer(1L)).thenReturn(testOfferGetDTO);
 
         // when
@@ -743,7 +822,7 @@ class OfferControllerTest {
     @Test
     void updateOfferStatus_requesterCanAcceptOwnContractOffer_success() {
         // given
-        when(authorizationService.authenticateUser(1L, "test-token")).thenReturn(testRequester);
+        when(authorizationService.authenticate(1L, "test-token")).thenReturn(AuthenticatedPrincipal.of(testRequester));
         when(offerService.getOffer(1L)).thenReturn(testOfferGetDTO);
         when(offerService.updateOfferStatus(1L, OfferStatus.ACCEPTED)).thenReturn(testOfferGetDTO);
 
@@ -764,7 +843,7 @@ class OfferControllerTest {
     @Test
     void updateOfferStatus_requesterCannotDeleteOffer_forbidden() {
         // given
-        when(authorizationService.authenticateUser(1L, "test-token")).thenReturn(testRequester);
+        when(authorizationService.authenticate(1L, "test-token")).thenReturn(AuthenticatedPrincipal.of(testRequester));
         when(offerService.getOffer(1L)).thenReturn(testOfferGetDTO);
 
         // when
@@ -783,7 +862,7 @@ class OfferControllerTest {
     @Test
     void deleteOffer_driverCanDeleteOwnOffer_success() {
         // given
-        when(authorizationService.authenticateUser(2L, "test-token")).thenReturn(testDriver);
+        when(authorizationService.authenticate(2L, "test-token")).thenReturn(AuthenticatedPrincipal.of(testDriver));
         when(offerService.getOffer(1L)).thenReturn(testOfferGetDTO);
         doNothing().when(offerService).deleteOffer(1L);
 
@@ -803,7 +882,7 @@ class OfferControllerTest {
     @Test
     void deleteOffer_requesterCannotDeleteOffer_forbidden() {
         // given
-        when(authorizationService.authenticateUser(1L, "test-token")).thenReturn(testRequester);
+        when(authorizationService.authenticate(1L, "test-token")).thenReturn(AuthenticatedPrincipal.of(testRequester));
         when(offerService.getOffer(1L)).thenReturn(testOfferGetDTO);
 
         // when
@@ -825,7 +904,7 @@ class OfferControllerTest {
         User otherDriver = new User();
         otherDriver.setUserId(3L);
         otherDriver.setUserAccountType(UserAccountType.DRIVER);
-        when(authorizationService.authenticateUser(2L, "test-token")).thenReturn(testDriver);
+        when(authorizationService.authenticate(2L, "test-token")).thenReturn(AuthenticatedPrincipal.of(testDriver));
         
         // Create an offer owned by a different driver
         OfferGetDTO otherDriverOffer = new OfferGetDTO();
@@ -852,7 +931,7 @@ class OfferControllerTest {
     @Test
     void getOffersByContract_forbidden_wrongRequester() {
         // given
-        when(authorizationService.authenticateUser(2L, "test-token")).thenReturn(testRequester);
+        when(authorizationService.authenticate(2L, "test-token")).thenReturn(AuthenticatedPrincipal.of(testRequester));
         
         Contract contract = new Contract();
         Requester otherRequester = new Requester();
@@ -876,7 +955,7 @@ class OfferControllerTest {
     @Test
     void getOffersByContract_forbidden_invalidContractState() {
         // given
-        when(authorizationService.authenticateUser(2L, "test-token")).thenReturn(testDriver);
+        when(authorizationService.authenticate(2L, "test-token")).thenReturn(AuthenticatedPrincipal.of(testDriver));
         
         Contract contract = new Contract();
         contract.setContractStatus(ContractStatus.ACCEPTED);
@@ -898,7 +977,7 @@ class OfferControllerTest {
     @Test
     void createOffer_badRequest_invalidContractState() {
         // given
-        when(authorizationService.authenticateUser(2L, "test-token")).thenReturn(testDriver);
+        when(authorizationService.authenticate(2L, "test-token")).thenReturn(AuthenticatedPrincipal.of(testDriver));
         when(contractService.getContractById(anyLong())).thenReturn(testAcceptedContract);
         when(offerService.createOffer(any(OfferPostDTO.class)))
             .thenThrow(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cannot create offer for a contract that is accepted"));
@@ -915,7 +994,7 @@ class OfferControllerTest {
     @Test
     void createOffer_conflict_duplicateOffer() {
         // given
-        when(authorizationService.authenticateUser(2L, "test-token")).thenReturn(testDriver);
+        when(authorizationService.authenticate(2L, "test-token")).thenReturn(AuthenticatedPrincipal.of(testDriver));
         when(contractService.getContractById(anyLong())).thenReturn(testContract);
         when(offerService.createOffer(any(OfferPostDTO.class)))
             .thenThrow(new ResponseStatusException(HttpStatus.CONFLICT, "An offer already exists for this contract and driver"));
@@ -932,7 +1011,7 @@ class OfferControllerTest {
     @Test
     void deleteOffer_forbidden_acceptedOffer() {
         // given
-        when(authorizationService.authenticateUser(2L, "test-token")).thenReturn(testDriver);
+        when(authorizationService.authenticate(2L, "test-token")).thenReturn(AuthenticatedPrincipal.of(testDriver));
         when(offerService.getOffer(1L)).thenReturn(testOfferGetDTO);
         doThrow(new ResponseStatusException(HttpStatus.FORBIDDEN, "Cannot delete an accepted offer"))
             .when(offerService).deleteOffer(1L);
@@ -949,7 +1028,7 @@ class OfferControllerTest {
     @Test
     void deleteOffer_notFound() {
         // given
-        when(authorizationService.authenticateUser(2L, "test-token")).thenReturn(testDriver);
+        when(authorizationService.authenticate(2L, "test-token")).thenReturn(AuthenticatedPrincipal.of(testDriver));
         when(offerService.getOffer(1L)).thenThrow(new ResponseStatusException(HttpStatus.NOT_FOUND, "Offer not found"));
 
         // when/then
@@ -964,7 +1043,7 @@ class OfferControllerTest {
     @Test
     void updateOfferStatus_badRequest_invalidContractState() {
         // given
-        when(authorizationService.authenticateUser(1L, "test-token")).thenReturn(testRequester);
+        when(authorizationService.authenticate(1L, "test-token")).thenReturn(AuthenticatedPrincipal.of(testRequester));
         when(offerService.getOffer(1L)).thenReturn(testOfferGetDTO);
         when(offerService.updateOfferStatus(1L, OfferStatus.ACCEPTED))
             .thenThrow(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Offers can only be accepted for OFFERED contracts"));
@@ -981,7 +1060,7 @@ class OfferControllerTest {
     @Test
     void getOfferDriver_asRequester_success() {
         // given
-        when(authorizationService.authenticateUser(1L, "test-token")).thenReturn(testRequester);
+        when(authorizationService.authenticate(1L, "test-token")).thenReturn(AuthenticatedPrincipal.of(testRequester));
         when(offerService.getOffer(1L)).thenReturn(testOfferGetDTO);
         testContractGetDTO.setRequesterId(1L); // requester is owner
         testOfferGetDTO.setContract(testContractGetDTO);
@@ -1003,7 +1082,7 @@ class OfferControllerTest {
     @Test
     void getOfferDriver_asDriver_success() {
         // given
-        when(authorizationService.authenticateUser(2L, "test-token")).thenReturn(testDriver);
+        when(authorizationService.authenticate(2L, "test-token")).thenReturn(AuthenticatedPrincipal.of(testDriver));
         when(offerService.getOffer(1L)).thenReturn(testOfferGetDTO);
         testDriverDTO.setUserId(2L);
         testOfferGetDTO.setDriver(testDriverDTO);
@@ -1026,7 +1105,7 @@ class OfferControllerTest {
     @Test
     void getOfferDriver_unauthorized_returns401() {
         // given
-        when(authorizationService.authenticateUser(1L, "test-token")).thenReturn(null);
+        when(authorizationService.authenticate(1L, "test-token")).thenReturn(null);
 
         // when
         ResponseEntity<Object> response = offerController.getOfferDriver(1L, 1L, "test-token");
@@ -1047,7 +1126,7 @@ class OfferControllerTest {
         User otherUser = new User();
         otherUser.setUserId(99L);
         otherUser.setUserAccountType(UserAccountType.REQUESTER);
-        when(authorizationService.authenticateUser(99L, "test-token")).thenReturn(otherUser);
+        when(authorizationService.authenticate(99L, "test-token")).thenReturn(AuthenticatedPrincipal.of(otherUser));
         when(offerService.getOffer(1L)).thenReturn(testOfferGetDTO);
         testContractGetDTO.setRequesterId(1L);
         testOfferGetDTO.setContract(testContractGetDTO);
@@ -1070,7 +1149,7 @@ class OfferControllerTest {
     @Test
     void getOfferDriver_notFound_returns404() {
         // given
-        when(authorizationService.authenticateUser(1L, "test-token")).thenReturn(testRequester);
+        when(authorizationService.authenticate(1L, "test-token")).thenReturn(AuthenticatedPrincipal.of(testRequester));
         OfferGetDTO offerNoDriver = new OfferGetDTO();
         offerNoDriver.setOfferId(1L);
         offerNoDriver.setContract(testContractGetDTO);
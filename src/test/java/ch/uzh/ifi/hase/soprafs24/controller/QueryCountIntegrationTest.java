@@ -0,0 +1,163 @@
+package ch.uzh.ifi.hase.soprafs24.controller;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import ch.uzh.ifi.hase.soprafs24.constant.ContractStatus;
+import ch.uzh.ifi.hase.soprafs24.constant.OfferStatus;
+import ch.uzh.ifi.hase.soprafs24.constant.UserAccountType;
+import ch.uzh.ifi.hase.soprafs24.entity.Car;
+import ch.uzh.ifi.hase.soprafs24.entity.Contract;
+import ch.uzh.ifi.hase.soprafs24.entity.Driver;
+import ch.uzh.ifi.hase.soprafs24.entity.Location;
+import ch.uzh.ifi.hase.soprafs24.entity.Offer;
+import ch.uzh.ifi.hase.soprafs24.entity.Rating;
+import ch.uzh.ifi.hase.soprafs24.entity.Requester;
+import ch.uzh.ifi.hase.soprafs24.entity.User;
+import ch.uzh.ifi.hase.soprafs24.util.SqlStatementCounter;
+
+/**
+ * Asserts the number of SQL statements of the listing endpoints. The fixture has
+ * several drivers, contracts and ratings, so loading the associations of every row
+ * separately (N+1 selects) shows up as additional statements.
+ */
+@SpringBootTest(properties = SqlStatementCounter.PROPERTY)
+@AutoConfigureMockMvc
+@Transactional
+class QueryCountIntegrationTest {
+
+    private static final int ROWS = 3;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Requester requester;
+    private final List<Driver> drivers = new ArrayList<>();
+    private final List<Contract> contracts = new ArrayList<>();
+
+    @BeforeEach
+    void setup() {
+        requester = new Requester();
+        initUser(requester, "requester", UserAccountType.REQUESTER);
+        entityManager.persist(requester);
+
+        for (int i = 0; i < ROWS; i++) {
+            Car car = new Car();
+            car.setCarModel("Model " + i);
+            car.setLicensePlate("ZH " + i);
+            entityManager.persist(car);
+            Driver driver = new Driver();
+            initUser(driver, "driver" + i, UserAccountType.DRIVER);
+            driver.setCar(car);
+            driver.setLocation(location("Driver " + i));
+            entityManager.persist(driver);
+            drivers.add(driver);
+        }
+
+        for (int i = 0; i < ROWS; i++) {
+            Contract contract = new Contract();
+            contract.setRequester(requester);
+            contract.setContractStatus(ContractStatus.OFFERED);
+            contract.setTitle("Contract " + i);
+            contract.setMoveDateTime(LocalDateTime.now().plusDays(7));
+            contract.setFromAddress(location("From " + i));
+            contract.setToAddress(location("To " + i));
+            contract.setContractPhotos(new ArrayList<>(List.of("/photos/" + i + ".jpg")));
+            entityManager.persist(contract);
+            contracts.add(contract);
+
+            for (Driver driver : drivers) {
+                Offer offer = new Offer();
+                offer.setContract(contract);
+                offer.setDriver(driver);
+                offer.setOfferStatus(OfferStatus.CREATED);
+                entityManager.persist(offer);
+            }
+
+            Rating rating = new Rating();
+            rating.setFromUser(requester);
+            rating.setToUser(drivers.get(0));
+            rating.setContract(contract);
+            rating.setRatingValue(5);
+            entityManager.persist(rating);
+        }
+
+        // Requests have to load everything from the database
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private void initUser(User user, String username, UserAccountType accountType) {
+        user.setUsername(username);
+        user.setPassword("password");
+        user.setEmail(username + "@test.com");
+        user.setUserAccountType(accountType);
+        user.setFirstName("First");
+        user.setLastName("Last");
+        user.setPhoneNumber("+4100000" + username.hashCode());
+        user.setToken(username + "-token");
+    }
+
+    private Location location(String address) {
+        Location location = new Location();
+        location.setFormattedAddress(address);
+        location.setLatitude(47.0);
+        location.setLongitude(8.0);
+        entityManager.persist(location);
+        return location;
+    }
+
+    @Test
+    void getOffersByContract_loadsOffersWithoutPerRowSelects() throws Throwable {
+        // user, contract, offers with contracts and drivers, photos
+        SqlStatementCounter.assertStatementCount(4, () ->
+            mockMvc.perform(get("/api/v1/contracts/" + contracts.get(0).getContractId() + "/offers")
+                    .header("UserId", requester.getUserId())
+                    .header("Authorization", requester.getToken()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.offers", hasSize(ROWS))));
+    }
+
+    @Test
+    void getOffersByDriver_loadsOffersWithoutPerRowSelects() throws Throwable {
+        Driver driver = drivers.get(0);
+        // user, offers with contracts and drivers, photos of all contracts
+        SqlStatementCounter.assertStatementCount(3, () ->
+            mockMvc.perform(get("/api/v1/users/" + driver.getUserId() + "/offers")
+                    .header("UserId", driver.getUserId())
+                    .header("Authorization", driver.getToken()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.offers", hasSize(ROWS))));
+    }
+
+    @Test
+    void getUserRatings_loadsRatingsWithoutPerRowSelects() throws Throwable {
+        Driver driver = drivers.get(0);
+        // user, ratings with users and contracts
+        SqlStatementCounter.assertStatementCount(2, () ->
+            mockMvc.perform(get("/api/v1/ratings/users/" + driver.getUserId() + "/ratings")
+                    .header("UserId", requester.getUserId())
+                    .header("Authorization", requester.getToken()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ratings", hasSize(ROWS))));
+    }
+}
@@ -8,6 +8,7 @@ import ch.uzh.ifi.hase.soprafs24.service.RatingService;
 import ch.uzh.ifi.hase.soprafs24.rest.dto.RatingPostDTO;
 import ch.uzh.ifi.hase.soprafs24.rest.dto.RatingPutDTO;
 import ch.uzh.ifi.hase.soprafs24.rest.dto.RatingDTO;
+import ch.uzh.ifi.hase.soprafs24.security.authorization.service.AuthenticatedPrincipal;
 import ch.uzh.ifi.hase.soprafs24.security.authorization.service.AuthorizationService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
@@ -115,7 +116,7 @@ class RatingControllerTest {
         when(ratingService.getAverageRating(any())).thenReturn(5.0);
 
         // Mock authorization
-        when(authorizationService.authenticateUser(any(), any())).thenReturn(testRequester);
+        when(authorizationService.authenticate(any(), any())).thenReturn(AuthenticatedPrincipal.of(testRequester));
     }
 
     @Test
@@ -133,7 +134,7 @@ class RatingControllerTest {
     @Test
     @SuppressWarnings("unchecked")
     void getRatingById_unauthorizedUser_throwsException() {
-        when(authorizationService.authenticateUser(any(), any())).thenReturn(null);
+        when(authorizationService.authenticate(any(), any())).thenReturn(null);
         ResponseEntity<Object> response = ratingController.getRatingById(1L, 1L, "token");
         assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
         Map<String, Object> body = (Map<String, Object>) response.getBody();
@@ -167,7 +168,7 @@ class RatingControllerTest {
     @Test
     @SuppressWarnings("unchecked")
     void createRating_unauthorizedUser_throwsException() {
-        when(authorizationService.authenticateUser(any(), any())).thenReturn(null);
+        when(authorizationService.authenticate(any(), any())).thenReturn(null);
         ResponseEntity<Object> response = ratingController.createRating(testRatingPostDTO, 1L, "token");
         assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
         Map<String, Object> body = (Map<String, Object>) response.getBody();
@@ -211,7 +212,7 @@ class RatingControllerTest {
     @Test
     @SuppressWarnings("unchecked")
     void updateRating_unauthorizedUser_throwsException() {
-        when(authorizationService.authenticateUser(any(), any())).thenReturn(null);
+        when(authorizationService.authenticate(any(), any())).thenReturn(null);
         ResponseEntity<Object> response = ratingController.updateRating(1L, testRatingPutDTO, 1L, "token");
         assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
         Map<String, Object> body = (Map<String, Object>) response.getBody();
@@ -232,7 +233,7 @@ class RatingControllerTest {
     @Test
     @SuppressWarnings("unchecked")
     void deleteRating_unauthorizedUser_throwsException() {
-        when(authorizationService.authenticateUser(any(), any())).thenReturn(null);
+        when(authorizationService.authenticate(any(), any())).thenReturn(null);
         ResponseEntity<Object> response = ratingController.deleteRating(1L, 1L, "token");
         assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
         Map<String, Object> body = (Map<String, Object>) response.getBody();
@@ -259,7 +260,7 @@ class RatingControllerTest {
     @Test
     @SuppressWarnings("unchecked")
     void getUserRatings_unauthorizedUser_throwsException() {
-        when(authorizationService.authenticateUser(any(), any())).thenReturn(null);
+        when(authorizationService.authenticate(any(), any())).thenReturn(null);
         ResponseEntity<Object> response = ratingController.getUserRatings(2L, 1L, "token");
         assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
         Map<String, Object> body = (Map<String, Object>) response.getBody();
@@ -286,7 +287,7 @@ class RatingControllerTest {
     @Test
     @SuppressWarnings("unchecked")
     void getContractRatings_unauthorizedUser_throwsException() {
-        when(authorizationService.authenticateUser(any(), any())).thenReturn(null);
+        when(authorizationService.authenticate(any(), any())).thenReturn(null);
         ResponseEntity<Object> response = ratingController.getContractRatings(1L, 1L, "token");
         assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
         Map<String, Object> body = (Map<String, Object>) response.getBody();
@@ -307,7 +308,7 @@ class RatingControllerTest {
     @Test
     @SuppressWarnings("unchecked")
     void getUserAverageRating_unauthorizedUser_throwsException() {
-        when(authorizationService.authenticateUser(any(), any())).thenReturn(null);
+        when(authorizationService.authenticate(any(), any())).thenReturn(null);
         ResponseEntity<Object> response = ratingController.getUserAverageRating(2L, 1L, "token");
         assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
         Map<String, Object> body = (Map<String, Object>) response.getBody();
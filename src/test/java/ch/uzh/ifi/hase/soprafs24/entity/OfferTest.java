@@ -74,7 +74,7 @@ class OfferTest {
     void testToString() {
         offer.setOfferId(1L);
         offer.setOfferStatus(OfferStatus.CREATED);
-        String expected = "Offer(offerId=1, contract=null, driver=null, offerStatus=created, creationDateTime=null)";
+        String expected = "Offer(offerId=1, contract=null, driver=null, offerStatus=created, creationDateTime=null, version=null)";
         assertEquals(expected, offer.toString());
     }
 } 
\ No newline at end of file
@@ -0,0 +1,173 @@
+package ch.uzh.ifi.hase.soprafs24.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Transactional;
+
+import ch.uzh.ifi.hase.soprafs24.constant.ContractStatus;
+import ch.uzh.ifi.hase.soprafs24.constant.OfferStatus;
+import ch.uzh.ifi.hase.soprafs24.constant.UserAccountType;
+import ch.uzh.ifi.hase.soprafs24.entity.Car;
+import ch.uzh.ifi.hase.soprafs24.entity.Contract;
+import ch.uzh.ifi.hase.soprafs24.entity.Driver;
+import ch.uzh.ifi.hase.soprafs24.entity.Location;
+import ch.uzh.ifi.hase.soprafs24.entity.Offer;
+import ch.uzh.ifi.hase.soprafs24.entity.Requester;
+import ch.uzh.ifi.hase.soprafs24.util.JdbcRoundTripCounter;
+
+/**
+ * Compares the JDBC round trips of bulk writes with and without insert/update batching.
+ * The unbatched runs use a session batch size of 1, which is how every write was sent
+ * before batching was configured. The results are logged, e.g.
+ * {@code saveAll of 200 contracts with 400 locations: 604 round trips unbatched, 16 batched}.
+ */
+@SpringBootTest
+@Import(JdbcRoundTripCounter.class)
+@Transactional
+class BatchWriteBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchWriteBenchmarkTest.class);
+
+    private static final int ROWS = 200;
+    private static final int BATCH_SIZE = 50;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ContractRepository contractRepository;
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    private Requester requester;
+    private Driver driver;
+
+    @BeforeEach
+    void setup() {
+        requester = new Requester();
+        requester.setUsername("requester");
+        requester.setPassword("password");
+        requester.setEmail("requester@test.com");
+        requester.setUserAccountType(UserAccountType.REQUESTER);
+        requester.setFirstName("First");
+        requester.setLastName("Last");
+        requester.setPhoneNumber("+41000000001");
+        entityManager.persist(requester);
+
+        Car car = new Car();
+        entityManager.persist(car);
+        driver = new Driver();
+        driver.setUsername("driver");
+        driver.setPassword("password");
+        driver.setEmail("driver@test.com");
+        driver.setUserAccountType(UserAccountType.DRIVER);
+        driver.setFirstName("First");
+        driver.setLastName("Last");
+        driver.setPhoneNumber("+41000000002");
+        driver.setCar(car);
+        entityManager.persist(driver);
+        entityManager.flush();
+    }
+
+    private List<Contract> newContracts(int count) {
+        List<Contract> contracts = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Contract contract = new Contract();
+            contract.setRequester(requester);
+            contract.setContractStatus(ContractStatus.REQUESTED);
+            contract.setTitle("Contract " + i);
+            contract.setMoveDateTime(LocalDateTime.now().plusDays(1));
+            contract.setFromAddress(location("From " + i));
+            contract.setToAddress(location("To " + i));
+            contracts.add(contract);
+        }
+        return contracts;
+    }
+
+    private Location location(String address) {
+        Location location = new Location();
+        location.setFormattedAddress(address);
+        location.setLatitude(47.0);
+        location.setLongitude(8.0);
+        entityManager.persist(location);
+        return location;
+    }
+
+    /**
+     * Saves contracts and counts the round trips of the flush, which also inserts the
+     * locations persisted with them
+     */
+    private long saveContracts(int jdbcBatchSize) {
+        entityManager.unwrap(Session.class).setJdbcBatchSize(jdbcBatchSize);
+        List<Contract> contracts = newContracts(ROWS);
+        JdbcRoundTripCounter.reset();
+        contractRepository.saveAll(contracts);
+        contractRepository.flush();
+        return JdbcRoundTripCounter.getRoundTrips().size();
+    }
+
+    /**
+     * Changes the status of offers and counts the round trips of the flush
+     */
+    private long updateOffers(int jdbcBatchSize) {
+        entityManager.unwrap(Session.class).setJdbcBatchSize(jdbcBatchSize);
+        List<Contract> contracts = contractRepository.saveAll(newContracts(ROWS / 10));
+        List<Offer> offers = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            Offer offer = new Offer();
+            offer.setContract(contracts.get(i % contracts.size()));
+            offer.setDriver(driver);
+            offer.setOfferStatus(OfferStatus.CREATED);
+            offers.add(offer);
+        }
+        offerRepository.saveAll(offers);
+        offerRepository.flush();
+
+        JdbcRoundTripCounter.reset();
+        offers.forEach(offer -> offer.setOfferStatus(OfferStatus.REJECTED));
+        offerRepository.saveAll(offers);
+        offerRepository.flush();
+        return JdbcRoundTripCounter.getRoundTrips().size();
+    }
+
+    @Test
+    void saveAllContracts_insertsInBatches() {
+        long unbatched = saveContracts(1);
+        long batched = saveContracts(BATCH_SIZE);
+        long sequenceCalls = JdbcRoundTripCounter.count("call next value for");
+
+        log.info("saveAll of {} contracts with {} locations: {} round trips unbatched, {} batched",
+            ROWS, 2 * ROWS, unbatched, batched);
+        // The ids of the locations were assigned on persist, the ids of the contracts take
+        // one sequence call per 50 contracts
+        assertEquals(ROWS / BATCH_SIZE, JdbcRoundTripCounter.count("batch:insert into contracts"));
+        assertEquals(ROWS / BATCH_SIZE, sequenceCalls);
+        assertTrue(batched * 10 < unbatched, () -> JdbcRoundTripCounter.getRoundTrips().toString());
+    }
+
+    @Test
+    void saveAllOffers_updatesInBatches() {
+        long unbatched = updateOffers(1);
+        long batched = updateOffers(BATCH_SIZE);
+
+        log.info("Status update of {} offers: {} round trips unbatched, {} batched", ROWS, unbatched, batched);
+        assertEquals(ROWS / BATCH_SIZE, batched, () -> JdbcRoundTripCounter.getRoundTrips().toString());
+        assertEquals(ROWS, unbatched);
+    }
+}
@@ -5,6 +5,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.web.WebAppConfiguration;
 
 import ch.uzh.ifi.hase.soprafs24.constant.ContractStatus;
@@ -13,6 +14,10 @@ import ch.uzh.ifi.hase.soprafs24.entity.Contract;
 import ch.uzh.ifi.hase.soprafs24.entity.Driver;
 import ch.uzh.ifi.hase.soprafs24.entity.Requester;
 import ch.uzh.ifi.hase.soprafs24.entity.Car;
+import ch.uzh.ifi.hase.soprafs24.entity.Location;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.contract.ContractGetDTO;
+
+import org.hibernate.Session;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -222,4 +227,133 @@ class ContractRepositoryIntegrationTest {
         assertNotNull(found);
         assertTrue(found.isEmpty());
     }
-} 
\ No newline at end of file
+
+    @Test
+    void findAllAsDTO_readsColumnsLocationsAndPhotosWithoutManagedEntities() {
+        // given
+        Requester requester = createRequester();
+        entityManager.persist(requester);
+        Driver driver = createDriver();
+        entityManager.persist(driver);
+        Location zurich = new Location();
+        zurich.setFormattedAddress("Zurich");
+        zurich.setLatitude(47.3769);
+        zurich.setLongitude(8.5417);
+        entityManager.persist(zurich);
+
+        Contract withDriver = new Contract();
+        withDriver.setRequester(requester);
+        withDriver.setDriver(driver);
+        withDriver.setContractStatus(ContractStatus.ACCEPTED);
+        withDriver.setTitle("with driver");
+        withDriver.setPrice(150.0);
+        withDriver.setFromAddress(zurich);
+        withDriver.setContractPhotos(List.of("/photos/1.jpg", "/photos/2.jpg"));
+        entityManager.persist(withDriver);
+        Contract withoutDriver = new Contract();
+        withoutDriver.setRequester(requester);
+        withoutDriver.setContractStatus(ContractStatus.REQUESTED);
+        withoutDriver.setTitle("without driver");
+        entityManager.persist(withoutDriver);
+        entityManager.flush();
+        entityManager.clear();
+
+        // when
+        List<ContractGetDTO> found = contractRepository.findAllAsDTO(null, Sort.by("contractId"));
+
+        // then
+        assertEquals(2, found.size());
+        ContractGetDTO first = found.get(0);
+        assertEquals(withDriver.getContractId(), first.getContractId());
+        assertEquals("with driver", first.getTitle());
+        assertEquals(150.0, first.getPrice());
+        assertEquals(ContractStatus.ACCEPTED, first.getContractStatus());
+        assertEquals(requester.getUserId(), first.getRequesterId());
+        assertEquals(driver.getUserId(), first.getDriverId());
+        assertEquals(zurich.getId(), first.getFromLocation().getId());
+        assertEquals("Zurich", first.getFromLocation().getFormattedAddress());
+        assertEquals(47.3769, first.getFromLocation().getLatitude());
+        assertNull(first.getToLocation());
+        assertEquals(List.of("/photos/1.jpg", "/photos/2.jpg"), first.getContractPhotos());
+
+        ContractGetDTO second = found.get(1);
+        assertEquals(withoutDriver.getContractId(), second.getContractId());
+        assertNull(second.getDriverId());
+        assertNull(second.getFromLocation());
+        assertTrue(second.getContractPhotos().isEmpty());
+
+        // no entities were loaded into the persistence context
+        assertEquals(0, entityManager.getEntityManager().unwrap(Session.class).getStatistics().getEntityCount());
+    }
+
+    @Test
+    void findAllAsDTO_ofRequesterWithStatus_returnsOnlyMatchingContracts() {
+        // given
+        Requester requester = createRequester();
+        entityManager.persist(requester);
+
+        Contract requested = new Contract();
+        requested.setRequester(requester);
+        requested.setContractStatus(ContractStatus.REQUESTED);
+        entityManager.persist(requested);
+        Contract canceled = new Contract();
+        canceled.setRequester(requester);
+        canceled.setContractStatus(ContractStatus.CANCELED);
+        entityManager.persist(canceled);
+        entityManager.flush();
+
+        // when
+        List<ContractGetDTO> found = contractRepository.findAllAsDTO(
+            ContractSpecifications.ofRequester(requester.getUserId(), ContractStatus.REQUESTED), Sort.unsorted());
+
+        // then
+        assertEquals(1, found.size());
+        assertEquals(requested.getContractId(), found.get(0).getContractId());
+    }
+
+    @Test
+    void summarizeVersions_changesWithEveryInsertAndUpdate() {
+        // given
+        Requester requester = createRequester();
+        entityManager.persist(requester);
+        Contract requested = new Contract();
+        requested.setRequester(requester);
+        requested.setContractStatus(ContractStatus.REQUESTED);
+        entityManager.persist(requested);
+        entityManager.flush();
+        VersionSummary initial = contractRepository.summarizeVersions(
+            ContractSpecifications.ofRequester(requester.getUserId(), null));
+
+        // when
+        requested.setTitle("changed");
+        entityManager.flush();
+        VersionSummary afterUpdate = contractRepository.summarizeVersions(
+            ContractSpecifications.ofRequester(requester.getUserId(), null));
+        Contract added = new Contract();
+        added.setRequester(requester);
+        added.setContractStatus(ContractStatus.REQUESTED);
+        entityManager.persist(added);
+        entityManager.flush();
+        VersionSummary afterInsert = contractRepository.summarizeVersions(
+            ContractSpecifications.ofRequester(requester.getUserId(), null));
+
+        // then
+        assertEquals(1, initial.getCount());
+        assertEquals(requested.getContractId().longValue(), initial.getIdSum());
+        assertNotNull(initial.getLastCreated());
+        assertNotEquals(initial, afterUpdate);
+        assertEquals(initial.getVersionSum() + 1, afterUpdate.getVersionSum());
+        assertEquals(2, afterInsert.getCount());
+        assertNotEquals(afterUpdate, afterInsert);
+    }
+
+    @Test
+    void summarizeVersions_noContracts_empty() {
+        // when
+        VersionSummary summary = contractRepository.summarizeVersions(
+            ContractSpecifications.ofRequester(-1L, ContractStatus.REQUESTED));
+
+        // then
+        assertEquals(new VersionSummary(0, 0, 0, null), summary);
+    }
+}
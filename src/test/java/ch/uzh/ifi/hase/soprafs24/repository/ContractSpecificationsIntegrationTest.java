@@ -0,0 +1,249 @@
+package ch.uzh.ifi.hase.soprafs24.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.context.web.WebAppConfiguration;
+
+import ch.uzh.ifi.hase.soprafs24.constant.ContractStatus;
+import ch.uzh.ifi.hase.soprafs24.constant.UserAccountType;
+import ch.uzh.ifi.hase.soprafs24.entity.Contract;
+import ch.uzh.ifi.hase.soprafs24.entity.Location;
+import ch.uzh.ifi.hase.soprafs24.entity.Requester;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.contract.ContractFilterDTO;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.contract.ContractGetDTO;
+
+@WebAppConfiguration
+@DataJpaTest
+class ContractSpecificationsIntegrationTest {
+
+    private static final LocalDate MOVE_DATE = LocalDate.of(2030, 6, 15);
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ContractRepository contractRepository;
+
+    private Requester requester;
+
+    @BeforeEach
+    void setup() {
+        requester = new Requester();
+        requester.setUsername("requester");
+        requester.setPassword("password");
+        requester.setEmail("requester@test.com");
+        requester.setUserAccountType(UserAccountType.REQUESTER);
+        requester.setFirstName("John");
+        requester.setLastName("Doe");
+        requester.setPhoneNumber("+41123456789");
+        entityManager.persist(requester);
+    }
+
+    private Contract persistContract(String title, double price, double weight, boolean fragile,
+                                     LocalDateTime moveDateTime) {
+        Contract contract = new Contract();
+        contract.setRequester(requester);
+        contract.setContractStatus(ContractStatus.REQUESTED);
+        contract.setTitle(title);
+        contract.setPrice(price);
+        contract.setWeight(weight);
+        contract.setHeight(1.0);
+        contract.setWidth(1.0);
+        contract.setLength(1.0);
+        contract.setManPower(1);
+        contract.setFragile(fragile);
+        contract.setMoveDateTime(moveDateTime);
+        entityManager.persist(contract);
+        return contract;
+    }
+
+    @Test
+    void matchesFilters_nullFilters_returnsAllContracts() {
+        // given
+        persistContract("a", 100.0, 10.0, false, MOVE_DATE.atTime(10, 0));
+        persistContract("b", 200.0, 20.0, true, MOVE_DATE.atTime(12, 0));
+        entityManager.flush();
+
+        // when
+        List<Contract> found = contractRepository.findAll(ContractSpecifications.matchesFilters(null));
+
+        // then
+        assertEquals(2, found.size());
+    }
+
+    @Test
+    void matchesFilters_priceAndWeight_filteredInDatabase() {
+        // given
+        persistContract("cheap", 50.0, 10.0, false, MOVE_DATE.atTime(10, 0));
+        persistContract("heavy", 200.0, 500.0, false, MOVE_DATE.atTime(10, 0));
+        Contract match = persistContract("match", 200.0, 10.0, false, MOVE_DATE.atTime(10, 0));
+        entityManager.flush();
+
+        ContractFilterDTO filters = new ContractFilterDTO();
+        filters.setPrice(100.0);
+        filters.setWeight(100.0);
+
+        // when
+        List<Contract> found = contractRepository.findAll(ContractSpecifications.matchesFilters(filters));
+
+        // then
+        assertEquals(1, found.size());
+        assertEquals(match.getContractId(), found.get(0).getContractId());
+    }
+
+    @Test
+    void matchesFilters_fragileFalse_doesNotRestrict() {
+        // given
+        persistContract("robust", 100.0, 10.0, false, MOVE_DATE.atTime(10, 0));
+        Contract fragile = persistContract("fragile", 100.0, 10.0, true, MOVE_DATE.atTime(10, 0));
+        entityManager.flush();
+
+        ContractFilterDTO notFragile = new ContractFilterDTO();
+        notFragile.setFragile(false);
+        ContractFilterDTO onlyFragile = new ContractFilterDTO();
+        onlyFragile.setFragile(true);
+
+        // when
+        List<Contract> all = contractRepository.findAll(ContractSpecifications.matchesFilters(notFragile));
+        List<Contract> fragileOnly = contractRepository.findAll(ContractSpecifications.matchesFilters(onlyFragile));
+
+        // then
+        assertEquals(2, all.size());
+        assertEquals(1, fragileOnly.size());
+        assertEquals(fragile.getContractId(), fragileOnly.get(0).getContractId());
+    }
+
+    @Test
+    void matchesFilters_moveDate_matchesWholeDay() {
+        // given
+        Contract morning = persistContract("morning", 100.0, 10.0, false, MOVE_DATE.atStartOfDay());
+        Contract evening = persistContract("evening", 100.0, 10.0, false, MOVE_DATE.atTime(23, 59));
+        persistContract("nextDay", 100.0, 10.0, false, MOVE_DATE.plusDays(1).atStartOfDay());
+        persistContract("dayBefore", 100.0, 10.0, false, MOVE_DATE.minusDays(1).atTime(23, 59));
+        entityManager.flush();
+
+        ContractFilterDTO filters = new ContractFilterDTO();
+        filters.setMoveDate(MOVE_DATE);
+
+        // when
+        List<Contract> found = contractRepository.findAll(ContractSpecifications.matchesFilters(filters));
+
+        // then
+        assertEquals(2, found.size());
+        assertTrue(found.stream().anyMatch(c -> c.getContractId().equals(morning.getContractId())));
+        assertTrue(found.stream().anyMatch(c -> c.getContractId().equals(evening.getContractId())));
+    }
+
+    @Test
+    void fromAddressWithin_onlyReturnsContractsInsideBounds() {
+        // given
+        Location zurich = new Location();
+        zurich.setFormattedAddress("Zurich");
+        zurich.setLatitude(47.3769);
+        zurich.setLongitude(8.5417);
+        entityManager.persist(zurich);
+        Location bern = new Location();
+        bern.setFormattedAddress("Bern");
+        bern.setLatitude(46.9490);
+        bern.setLongitude(7.4390);
+        entityManager.persist(bern);
+
+        Contract inZurich = persistContract("zurich", 100.0, 10.0, false, MOVE_DATE.atTime(10, 0));
+        inZurich.setFromAddress(zurich);
+        Contract inBern = persistContract("bern", 100.0, 10.0, false, MOVE_DATE.atTime(10, 0));
+        inBern.setFromAddress(bern);
+        persistContract("noAddress", 100.0, 10.0, false, MOVE_DATE.atTime(10, 0));
+        entityManager.flush();
+
+        // when
+        List<Contract> found = contractRepository.findAll(
+            ContractSpecifications.fromAddressWithin(47.2, 47.5, 8.3, 8.8));
+
+        // then
+        assertEquals(1, found.size());
+        assertEquals(inZurich.getContractId(), found.get(0).getContractId());
+    }
+
+    @Test
+    void after_keysetPagination_visitsEveryContractOnceInOrder() {
+        // given -> equal prices force the contractId tie breaker
+        Contract first = persistContract("first", 100.0, 10.0, false, MOVE_DATE.atTime(10, 0));
+        Contract second = persistContract("second", 200.0, 10.0, false, MOVE_DATE.atTime(10, 0));
+        Contract third = persistContract("third", 200.0, 10.0, false, MOVE_DATE.atTime(10, 0));
+        Contract fourth = persistContract("fourth", 300.0, 10.0, false, MOVE_DATE.atTime(10, 0));
+        entityManager.flush();
+        Sort sort = Sort.by("price").and(Sort.by("contractId"));
+
+        // when
+        List<Contract> pageOne = contractRepository.findAll(
+            ContractSpecifications.after("price", null, null, false), sort, 2);
+        Contract lastOfPageOne = pageOne.get(1);
+        List<Contract> pageTwo = contractRepository.findAll(
+            ContractSpecifications.after("price", lastOfPageOne.getPrice(), lastOfPageOne.getContractId(), false),
+            sort, 2);
+
+        // then
+        assertEquals(List.of(first.getContractId(), second.getContractId()),
+            pageOne.stream().map(Contract::getContractId).toList());
+        assertEquals(List.of(third.getContractId(), fourth.getContractId()),
+            pageTwo.stream().map(Contract::getContractId).toList());
+    }
+
+    @Test
+    void after_descending_returnsContractsBeforeCursor() {
+        // given
+        Contract early = persistContract("early", 100.0, 10.0, false, MOVE_DATE.atTime(8, 0));
+        Contract late = persistContract("late", 100.0, 10.0, false, MOVE_DATE.atTime(18, 0));
+        persistContract("noDate", 100.0, 10.0, false, null);
+        entityManager.flush();
+        Sort sort = Sort.by(Sort.Direction.DESC, "moveDateTime").and(Sort.by(Sort.Direction.DESC, "contractId"));
+
+        // when
+        List<Contract> all = contractRepository.findAll(
+            ContractSpecifications.after("moveDateTime", null, null, true), sort, 10);
+        List<Contract> afterLate = contractRepository.findAll(
+            ContractSpecifications.after("moveDateTime", late.getMoveDateTime(), late.getContractId(), true), sort, 10);
+
+        // then -> contracts without a move date are not part of the sorted listing
+        assertEquals(List.of(late.getContractId(), early.getContractId()),
+            all.stream().map(Contract::getContractId).toList());
+        assertEquals(List.of(early.getContractId()),
+            afterLate.stream().map(Contract::getContractId).toList());
+    }
+
+    @Test
+    void findAllAsDTO_keysetBatches_readAllMatchingContracts() {
+        // given
+        Contract first = persistContract("first", 100.0, 10.0, false, MOVE_DATE.atTime(10, 0));
+        Contract second = persistContract("second", 100.0, 10.0, false, MOVE_DATE.atTime(10, 0));
+        Contract accepted = persistContract("accepted", 100.0, 10.0, false, MOVE_DATE.atTime(10, 0));
+        accepted.setContractStatus(ContractStatus.ACCEPTED);
+        Contract third = persistContract("third", 100.0, 10.0, false, MOVE_DATE.atTime(10, 0));
+        entityManager.flush();
+        entityManager.clear();
+
+        // when -> batches of 2, the second continues after the last contract of the first
+        Specification<Contract> requested = ContractSpecifications.hasStatusIn(List.of(ContractStatus.REQUESTED));
+        List<ContractGetDTO> firstBatch = contractRepository.findAllAsDTO(requested, Sort.by("contractId"), 2);
+        List<ContractGetDTO> secondBatch = contractRepository.findAllAsDTO(
+            requested.and(ContractSpecifications.hasIdGreaterThan(firstBatch.get(1).getContractId())),
+            Sort.by("contractId"), 2);
+
+        // then
+        assertEquals(List.of(first.getContractId(), second.getContractId()),
+            firstBatch.stream().map(ContractGetDTO::getContractId).toList());
+        assertEquals(List.of(third.getContractId()),
+            secondBatch.stream().map(ContractGetDTO::getContractId).toList());
+    }
+}
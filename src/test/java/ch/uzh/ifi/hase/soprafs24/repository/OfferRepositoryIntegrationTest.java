@@ -0,0 +1,135 @@
+package ch.uzh.ifi.hase.soprafs24.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.web.WebAppConfiguration;
+
+import ch.uzh.ifi.hase.soprafs24.constant.ContractStatus;
+import ch.uzh.ifi.hase.soprafs24.constant.OfferStatus;
+import ch.uzh.ifi.hase.soprafs24.constant.UserAccountType;
+import ch.uzh.ifi.hase.soprafs24.entity.Car;
+import ch.uzh.ifi.hase.soprafs24.entity.Contract;
+import ch.uzh.ifi.hase.soprafs24.entity.Driver;
+import ch.uzh.ifi.hase.soprafs24.entity.Offer;
+import ch.uzh.ifi.hase.soprafs24.entity.Requester;
+
+@WebAppConfiguration
+@DataJpaTest
+class OfferRepositoryIntegrationTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    private Driver driver;
+
+    @BeforeEach
+    void setup() {
+        driver = new Driver();
+        driver.setUsername("driver");
+        driver.setPassword("password");
+        driver.setEmail("driver@test.com");
+        driver.setUserAccountType(UserAccountType.DRIVER);
+        driver.setFirstName("Jane");
+        driver.setLastName("Smith");
+        driver.setPhoneNumber("+41987654321");
+        driver.setDriverLicensePath("/images/driver-license.jpg");
+        Car car = new Car();
+        entityManager.persist(car);
+        driver.setCar(car);
+        entityManager.persist(driver);
+    }
+
+    private Requester persistRequester(String username, String phoneNumber) {
+        Requester requester = new Requester();
+        requester.setUsername(username);
+        requester.setPassword("password");
+        requester.setEmail(username + "@test.com");
+        requester.setUserAccountType(UserAccountType.REQUESTER);
+        requester.setFirstName("John");
+        requester.setLastName("Doe");
+        requester.setPhoneNumber(phoneNumber);
+        entityManager.persist(requester);
+        return requester;
+    }
+
+    private Offer persistOffer(Requester requester, OfferStatus status) {
+        Contract contract = new Contract();
+        contract.setRequester(requester);
+        contract.setContractStatus(ContractStatus.OFFERED);
+        entityManager.persist(contract);
+        return persistOffer(contract, status);
+    }
+
+    private Offer persistOffer(Contract contract, OfferStatus status) {
+        Offer offer = new Offer();
+        offer.setContract(contract);
+        offer.setDriver(driver);
+        offer.setOfferStatus(status);
+        entityManager.persist(offer);
+        return offer;
+    }
+
+    @Test
+    void findBatch_byRequesterAndStatus_returnsMatchingOffersInOrder() {
+        // given
+        Requester requester = persistRequester("requester", "+41123456789");
+        Requester otherRequester = persistRequester("other", "+41123456780");
+        Offer first = persistOffer(requester, OfferStatus.CREATED);
+        persistOffer(requester, OfferStatus.REJECTED);
+        persistOffer(otherRequester, OfferStatus.CREATED);
+        Offer second = persistOffer(requester, OfferStatus.CREATED);
+        entityManager.flush();
+        entityManager.clear();
+
+        // when -> batches of one offer, the second continues after the first
+        List<Offer> firstBatch = offerRepository.findBatch(null, driver.getUserId(), requester.getUserId(),
+            OfferStatus.CREATED, null, 1);
+        List<Offer> secondBatch = offerRepository.findBatch(null, driver.getUserId(), requester.getUserId(),
+            OfferStatus.CREATED, firstBatch.get(0).getOfferId(), 1);
+        List<Offer> thirdBatch = offerRepository.findBatch(null, driver.getUserId(), requester.getUserId(),
+            OfferStatus.CREATED, second.getOfferId(), 1);
+
+        // then
+        assertEquals(List.of(first.getOfferId()), firstBatch.stream().map(Offer::getOfferId).toList());
+        assertEquals(List.of(second.getOfferId()), secondBatch.stream().map(Offer::getOfferId).toList());
+        assertTrue(thirdBatch.isEmpty());
+    }
+
+    @Test
+    void updateOfferStatusOfOtherOffers_rejectsCreatedSiblingsOnly() {
+        // given
+        Requester requester = persistRequester("requester", "+41123456789");
+        Offer accepted = persistOffer(requester, OfferStatus.CREATED);
+        Contract contract = accepted.getContract();
+        Offer sibling = persistOffer(contract, OfferStatus.CREATED);
+        Offer withdrawn = persistOffer(contract, OfferStatus.DELETED);
+        Offer otherContract = persistOffer(requester, OfferStatus.CREATED);
+        entityManager.flush();
+        accepted.setOfferStatus(OfferStatus.ACCEPTED);
+
+        // when
+        int updated = offerRepository.updateOfferStatusOfOtherOffers(contract.getContractId(),
+            accepted.getOfferId(), OfferStatus.CREATED, OfferStatus.REJECTED);
+
+        // then -> the pending change was flushed before and no stale offer is managed after the update
+        assertEquals(1, updated);
+        assertFalse(entityManager.getEntityManager().contains(sibling));
+        assertEquals(OfferStatus.ACCEPTED, entityManager.find(Offer.class, accepted.getOfferId()).getOfferStatus());
+        assertEquals(OfferStatus.REJECTED, entityManager.find(Offer.class, sibling.getOfferId()).getOfferStatus());
+        assertEquals(OfferStatus.DELETED, entityManager.find(Offer.class, withdrawn.getOfferId()).getOfferStatus());
+        assertEquals(OfferStatus.CREATED,
+            entityManager.find(Offer.class, otherContract.getOfferId()).getOfferStatus());
+    }
+}
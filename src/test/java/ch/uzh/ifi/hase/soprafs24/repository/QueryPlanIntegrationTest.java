@@ -0,0 +1,151 @@
+package ch.uzh.ifi.hase.soprafs24.repository;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import ch.uzh.ifi.hase.soprafs24.constant.ContractStatus;
+import ch.uzh.ifi.hase.soprafs24.constant.OfferStatus;
+import ch.uzh.ifi.hase.soprafs24.util.SqlStatementCounter;
+
+/**
+ * Runs EXPLAIN on the SQL of every derived repository query and fails if the database
+ * would scan a whole table, i.e. if the schema migrations lack an index for a query.
+ */
+@SpringBootTest(properties = SqlStatementCounter.PROPERTY)
+@Transactional
+class QueryPlanIntegrationTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @Autowired
+    private ContractRepository contractRepository;
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    @Autowired
+    private RatingRepository ratingRepository;
+
+    /**
+     * Runs the query and asserts that none of its statements scans a table
+     */
+    private void assertUsesIndexes(String name, Runnable query) {
+        SqlStatementCounter.reset();
+        query.run();
+        List<String> statements = SqlStatementCounter.getStatements();
+        assertFalse(statements.isEmpty(), name + " did not query the database");
+        for (String sql : statements) {
+            String plan = explain(sql);
+            assertFalse(plan.contains(".tableScan"), () -> name + " scans a table:\n" + plan);
+        }
+    }
+
+    private String explain(String sql) {
+        return jdbcTemplate.execute((Connection connection) -> {
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+                int parameters = statement.getParameterMetaData().getParameterCount();
+                for (int i = 1; i <= parameters; i++) {
+                    statement.setObject(i, null);
+                }
+                try (ResultSet result = statement.executeQuery()) {
+                    assertTrue(result.next());
+                    return result.getString(1);
+                }
+            }
+        });
+    }
+
+    @Test
+    void userRepository_queriesUseIndexes() {
+        assertUsesIndexes("findByEmail", () -> userRepository.findByEmail("user@uzh.ch"));
+        assertUsesIndexes("findByUsername", () -> userRepository.findByUsername("user"));
+        assertUsesIndexes("findByToken", () -> userRepository.findByToken("token"));
+        assertUsesIndexes("existsByUsername", () -> userRepository.existsByUsername("user"));
+        assertUsesIndexes("existsByEmail", () -> userRepository.existsByEmail("user@uzh.ch"));
+        assertUsesIndexes("existsByPhoneNumber", () -> userRepository.existsByPhoneNumber("+41790000000"));
+        assertUsesIndexes("existsByToken", () -> userRepository.existsByToken("token"));
+        assertUsesIndexes("findByPhoneNumber", () -> userRepository.findByPhoneNumber("+41790000000"));
+        assertUsesIndexes("findByUserId", () -> userRepository.findByUserId(1L));
+        assertUsesIndexes("existsByUsernameAndUserIdNot", () -> userRepository.existsByUsernameAndUserIdNot("user", 1L));
+        assertUsesIndexes("existsByEmailAndUserIdNot", () -> userRepository.existsByEmailAndUserIdNot("user@uzh.ch", 1L));
+        assertUsesIndexes("existsByPhoneNumberAndUserIdNot",
+            () -> userRepository.existsByPhoneNumberAndUserIdNot("+41790000000", 1L));
+        assertUsesIndexes("findTokenVersionByUserId", () -> userRepository.findTokenVersionByUserId(1L));
+    }
+
+    @Test
+    void carRepository_queriesUseIndexes() {
+        assertUsesIndexes("findByLicensePlate", () -> carRepository.findByLicensePlate("ZH 12345"));
+    }
+
+    @Test
+    void contractRepository_queriesUseIndexes() {
+        assertUsesIndexes("findById", () -> contractRepository.findById(1L));
+        assertUsesIndexes("findByRequester_UserId", () -> contractRepository.findByRequester_UserId(1L));
+        assertUsesIndexes("findByDriver_UserId", () -> contractRepository.findByDriver_UserId(1L));
+        assertUsesIndexes("findByContractStatus", () -> contractRepository.findByContractStatus(ContractStatus.REQUESTED));
+        assertUsesIndexes("findByRequester_UserIdAndContractStatus",
+            () -> contractRepository.findByRequester_UserIdAndContractStatus(1L, ContractStatus.ACCEPTED));
+        assertUsesIndexes("findByDriver_UserIdAndContractStatus",
+            () -> contractRepository.findByDriver_UserIdAndContractStatus(1L, ContractStatus.ACCEPTED));
+        assertUsesIndexes("findByContractStatusAndMoveDateTimeBefore",
+            () -> contractRepository.findByContractStatusAndMoveDateTimeBefore(ContractStatus.ACCEPTED, LocalDateTime.now()));
+        assertUsesIndexes("findIdsByContractStatusInAndMoveDateTimeBefore",
+            () -> contractRepository.findIdsByContractStatusInAndMoveDateTimeBefore(List.of(ContractStatus.REQUESTED),
+                LocalDateTime.now(), 4, 1, PageRequest.of(0, 10)));
+        assertUsesIndexes("findByContractStatusIn",
+            () -> contractRepository.findByContractStatusIn(List.of(ContractStatus.REQUESTED, ContractStatus.ACCEPTED)));
+        assertUsesIndexes("findIdsByContractIdInAndContractStatusInAndMoveDateTimeBefore",
+            () -> contractRepository.findIdsByContractIdInAndContractStatusInAndMoveDateTimeBefore(List.of(1L, 2L),
+                List.of(ContractStatus.REQUESTED), LocalDateTime.now()));
+        assertUsesIndexes("cancelExpiredContracts",
+            () -> contractRepository.cancelExpiredContracts(List.of(1L), List.of(ContractStatus.REQUESTED),
+                LocalDateTime.now(), ContractStatus.CANCELED, "expired"));
+    }
+
+    @Test
+    void offerRepository_queriesUseIndexes() {
+        assertUsesIndexes("findByContract_ContractIdAndDriver_UserIdAndOfferStatus",
+            () -> offerRepository.findByContract_ContractIdAndDriver_UserIdAndOfferStatus(1L, 2L, OfferStatus.CREATED));
+        assertUsesIndexes("findByContract_ContractIdAndDriver_UserId",
+            () -> offerRepository.findByContract_ContractIdAndDriver_UserId(1L, 2L));
+        assertUsesIndexes("findByContract_ContractIdAndOfferStatus",
+            () -> offerRepository.findByContract_ContractIdAndOfferStatus(1L, OfferStatus.CREATED));
+        assertUsesIndexes("findByDriver_UserIdAndOfferStatus",
+            () -> offerRepository.findByDriver_UserIdAndOfferStatus(2L, OfferStatus.CREATED));
+        assertUsesIndexes("findByContract_ContractId", () -> offerRepository.findByContract_ContractId(1L));
+        assertUsesIndexes("findByDriver_UserId", () -> offerRepository.findByDriver_UserId(2L));
+        assertUsesIndexes("findByOfferStatus", () -> offerRepository.findByOfferStatus(OfferStatus.CREATED));
+        assertUsesIndexes("updateOfferStatusByContractIds",
+            () -> offerRepository.updateOfferStatusByContractIds(List.of(1L, 2L), OfferStatus.REJECTED));
+    }
+
+    @Test
+    void ratingRepository_queriesUseIndexes() {
+        assertUsesIndexes("findByRatingId", () -> ratingRepository.findByRatingId(1L));
+        assertUsesIndexes("findByToUser_UserId", () -> ratingRepository.findByToUser_UserId(1L));
+        assertUsesIndexes("findByContract_ContractId", () -> ratingRepository.findByContract_ContractId(1L));
+        assertUsesIndexes("findByContract_ContractIdAndFromUser_UserId",
+            () -> ratingRepository.findByContract_ContractIdAndFromUser_UserId(1L, 2L));
+    }
+}
@@ -0,0 +1,187 @@
+package ch.uzh.ifi.hase.soprafs24.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import ch.uzh.ifi.hase.soprafs24.config.SecondLevelCacheMetrics;
+import ch.uzh.ifi.hase.soprafs24.entity.Car;
+import ch.uzh.ifi.hase.soprafs24.entity.Location;
+import ch.uzh.ifi.hase.soprafs24.entity.User;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.CarDTO;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.LocationDTO;
+import ch.uzh.ifi.hase.soprafs24.service.CarUpdater;
+import ch.uzh.ifi.hase.soprafs24.service.LocationUpdater;
+import ch.uzh.ifi.hase.soprafs24.util.UserBuilder;
+
+/**
+ * Second-level cache of locations, cars and users. Every step runs in its own
+ * transaction, so reads can only be served from the shared cache and not from the
+ * persistence context of a previous step.
+ */
+@SpringBootTest
+class SecondLevelCacheIntegrationTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private LocationUpdater locationUpdater;
+
+    @Autowired
+    private CarUpdater carUpdater;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @Autowired
+    private SecondLevelCacheMetrics cacheMetrics;
+
+    private TransactionTemplate transactionTemplate;
+    private Statistics statistics;
+    private final List<Object> created = new ArrayList<>();
+
+    @BeforeEach
+    void setup() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    void tearDown() {
+        inTransaction(() -> {
+            created.forEach(entity -> entityManager.remove(entityManager.merge(entity)));
+            return null;
+        });
+    }
+
+    private <T> T inTransaction(Supplier<T> action) {
+        return transactionTemplate.execute(status -> action.get());
+    }
+
+    private <T> T persist(T entity) {
+        inTransaction(() -> {
+            entityManager.persist(entity);
+            return null;
+        });
+        created.add(entity);
+        return entity;
+    }
+
+    private Location location(String address) {
+        Location location = new Location();
+        location.setFormattedAddress(address);
+        location.setLatitude(47.37);
+        location.setLongitude(8.54);
+        return persist(location);
+    }
+
+    @Test
+    void findLocation_repeatedReads_areServedFromCache() {
+        Long locationId = location("Bahnhofstrasse 1, Zurich").getId();
+        statistics.clear();
+
+        for (int i = 0; i < 2; i++) {
+            Location found = inTransaction(() -> entityManager.find(Location.class, locationId));
+            assertEquals("Bahnhofstrasse 1, Zurich", found.getFormattedAddress());
+        }
+
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(2, statistics.getDomainDataRegionStatistics("location").getHitCount());
+        assertEquals(1.0, cacheMetrics.getStats().get("location").getHitRate());
+    }
+
+    @Test
+    void updateAndSaveLocation_cachedLocationIsUpdated() {
+        Long locationId = location("Bahnhofstrasse 1, Zurich").getId();
+        inTransaction(() -> entityManager.find(Location.class, locationId));
+
+        LocationDTO update = new LocationDTO();
+        update.setFormattedAddress("Paradeplatz 8, Zurich");
+        inTransaction(() -> locationUpdater.updateAndSaveLocation(entityManager.find(Location.class, locationId), update));
+        statistics.clear();
+
+        Location found = inTransaction(() -> entityManager.find(Location.class, locationId));
+
+        assertEquals("Paradeplatz 8, Zurich", found.getFormattedAddress());
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void updateAndSaveCar_cachedCarAndQueryResultsAreUpdated() {
+        Car car = new Car();
+        car.setCarModel("Tesla Model 3");
+        car.setLicensePlate("ZH 11111");
+        Long carId = persist(car).getCarId();
+        assertEquals(carId, inTransaction(() -> carRepository.findByLicensePlate("ZH 11111")).getCarId());
+
+        CarDTO update = new CarDTO();
+        update.setLicensePlate("ZH 22222");
+        inTransaction(() -> carUpdater.updateAndSave(entityManager.find(Car.class, carId), update));
+        statistics.clear();
+
+        Car found = inTransaction(() -> entityManager.find(Car.class, carId));
+
+        // The car comes from the cache, only its inverse driver association is queried
+        assertEquals("ZH 22222", found.getLicensePlate());
+        assertEquals(1, statistics.getDomainDataRegionStatistics("car").getHitCount());
+        assertEquals(0, statistics.getDomainDataRegionStatistics("car").getMissCount());
+        // The cached query result for the old license plate must not be reused
+        assertEquals(null, inTransaction(() -> carRepository.findByLicensePlate("ZH 11111")));
+        assertEquals(carId, inTransaction(() -> carRepository.findByLicensePlate("ZH 22222")).getCarId());
+    }
+
+    @Test
+    void findByUserId_savedUser_returnsCurrentToken() {
+        User user = persist(new UserBuilder()
+            .withUsername("cacheUser")
+            .withEmail("cacheuser@uzh.ch")
+            .withPhoneNumber("+41790000013")
+            .build());
+        Long userId = user.getUserId();
+        inTransaction(() -> userRepository.findByUserId(userId));
+        statistics.clear();
+
+        // when -> read again, the query result and the user come from the cache
+        assertEquals(user.getToken(), inTransaction(() -> userRepository.findByUserId(userId)).get().getToken());
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getQueryCacheHitCount());
+
+        // when -> the user logs in again and gets a new token
+        inTransaction(() -> {
+            User managed = userRepository.findById(userId).get();
+            managed.setToken("new-token");
+            return userRepository.save(managed);
+        });
+
+        // then
+        assertEquals("new-token", inTransaction(() -> userRepository.findByUserId(userId)).get().getToken());
+        assertEquals("new-token", inTransaction(() -> entityManager.find(User.class, userId)).getToken());
+        assertTrue(statistics.getDomainDataRegionStatistics("user").getHitCount() > 0);
+    }
+}
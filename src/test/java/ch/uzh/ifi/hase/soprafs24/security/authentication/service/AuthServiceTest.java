@@ -57,7 +57,7 @@ class AuthServiceTest {
     void loginUser_success() {
         // given
         when(userRepository.findByUsername(any())).thenReturn(Optional.of(testUser));
-        when(tokenService.generateToken()).thenReturn("new-token");
+        when(tokenService.generateToken(any(User.class))).thenReturn("new-token");
         when(userRepository.save(any())).thenReturn(testUser);
 
         // when
@@ -67,6 +67,7 @@ class AuthServiceTest {
         assertNotNull(result);
         assertEquals("testuser", result.getUsername());
         verify(userRepository).save(any());
+        verify(authorizationService).invalidate(result.getUserId());
     }
 
     @Test
@@ -103,6 +104,7 @@ class AuthServiceTest {
 
         // then
         verify(userRepository).save(any());
+        verify(authorizationService).invalidate(1L);
         assertNull(testUser.getToken());
     }
 
@@ -2,26 +2,29 @@ package ch.uzh.ifi.hase.soprafs24.security.authorization.service;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.time.Duration;
+
 import java.util.Optional;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import ch.uzh.ifi.hase.soprafs24.constant.UserAccountType;
 import ch.uzh.ifi.hase.soprafs24.entity.User;
 import ch.uzh.ifi.hase.soprafs24.repository.UserRepository;
+import ch.uzh.ifi.hase.soprafs24.security.registration.service.TokenService;
 
 class AuthorizationServiceTest {
 
     @Mock
     private UserRepository userRepository;
 
-    @InjectMocks
     private AuthorizationService authorizationService;
 
     private User testUser;
@@ -29,9 +32,12 @@ class AuthorizationServiceTest {
     @BeforeEach
     void setup() {
         MockitoAnnotations.openMocks(this);
+        authorizationService = new AuthorizationService(userRepository, new PrincipalCache(100, Duration.ofMinutes(5)),
+            new TokenService("random", null, Duration.ofHours(24)), new TokenVersionCache(userRepository, 100, Duration.ofSeconds(30)));
         
         // Create test user
         testUser = new User();
+        testUser.setUserId(1L);
         testUser.setUsername("testuser");
         testUser.setToken("valid-token");
         testUser.setUserAccountType(UserAccountType.DRIVER);
@@ -127,4 +133,103 @@ class AuthorizationServiceTest {
         // then
         assertFalse(result);
     }
-} 
\ No newline at end of file
+
+    @Test
+    void authenticate_repeatedRequests_loadUserOnce() {
+        // given
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+
+        // when
+        AuthenticatedPrincipal first = authorizationService.authenticate(1L, "valid-token");
+        AuthenticatedPrincipal second = authorizationService.authenticate(1L, "valid-token");
+
+        // then
+        assertEquals(new AuthenticatedPrincipal(1L, UserAccountType.DRIVER), first);
+        assertEquals(first, second);
+        verify(userRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void authenticate_invalidToken_returnsNull() {
+        // given
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        authorizationService.authenticate(1L, "valid-token");
+
+        // when -> a different token is checked against the database
+        AuthenticatedPrincipal result = authorizationService.authenticate(1L, "invalid-token");
+
+        // then
+        assertNull(result);
+        verify(userRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    void authenticate_afterInvalidate_rejectsOldToken() {
+        // given
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        assertNotNull(authorizationService.authenticate(1L, "valid-token"));
+
+        // when -> the user logs in again
+        testUser.setToken("new-token");
+        authorizationService.invalidate(1L);
+
+        // then
+        assertNull(authorizationService.authenticate(1L, "valid-token"));
+        assertNotNull(authorizationService.authenticate(1L, "new-token"));
+    }
+
+    @Test
+    void authenticate_invalidatedWhileLoading_isNotCached() {
+        // given -> the token changes while the user is loaded
+        when(userRepository.findById(1L)).thenAnswer(invocation -> {
+            authorizationService.invalidate(1L);
+            return Optional.of(testUser);
+        });
+
+        // when
+        authorizationService.authenticate(1L, "valid-token");
+        authorizationService.authenticate(1L, "valid-token");
+
+        // then
+        verify(userRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    void authenticate_signedToken_checksVersionWithoutLoadingUser() {
+        // given
+        TokenService tokenService = new TokenService("signed", "0123456789abcdef0123456789abcdef", Duration.ofHours(24));
+        authorizationService = new AuthorizationService(userRepository, new PrincipalCache(100, Duration.ofMinutes(5)),
+            tokenService, new TokenVersionCache(userRepository, 100, Duration.ofSeconds(30)));
+        String token = tokenService.generateToken(testUser);
+        when(userRepository.findTokenVersionByUserId(1L)).thenReturn(Optional.of(0));
+
+        // when
+        AuthenticatedPrincipal first = authorizationService.authenticate(1L, token);
+        AuthenticatedPrincipal second = authorizationService.authenticate(1L, token);
+
+        // then
+        assertEquals(new AuthenticatedPrincipal(1L, UserAccountType.DRIVER), first);
+        assertEquals(first, second);
+        assertNull(authorizationService.authenticate(2L, token));
+        verify(userRepository, times(1)).findTokenVersionByUserId(1L);
+        verify(userRepository, times(0)).findById(any());
+    }
+
+    @Test
+    void authenticate_signedTokenOfOldVersion_returnsNull() {
+        // given
+        TokenService tokenService = new TokenService("signed", "0123456789abcdef0123456789abcdef", Duration.ofHours(24));
+        authorizationService = new AuthorizationService(userRepository, new PrincipalCache(100, Duration.ofMinutes(5)),
+            tokenService, new TokenVersionCache(userRepository, 100, Duration.ofSeconds(30)));
+        String token = tokenService.generateToken(testUser);
+        when(userRepository.findTokenVersionByUserId(1L)).thenReturn(Optional.of(0));
+        assertNotNull(authorizationService.authenticate(1L, token));
+
+        // when -> the user logs out
+        when(userRepository.findTokenVersionByUserId(1L)).thenReturn(Optional.of(1));
+        authorizationService.invalidate(1L);
+
+        // then
+        assertNull(authorizationService.authenticate(1L, token));
+    }
+}
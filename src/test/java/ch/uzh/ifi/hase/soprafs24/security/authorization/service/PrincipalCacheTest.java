@@ -0,0 +1,59 @@
+package ch.uzh.ifi.hase.soprafs24.security.authorization.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import ch.uzh.ifi.hase.soprafs24.constant.UserAccountType;
+
+class PrincipalCacheTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private static AuthenticatedPrincipal principal(long userId) {
+        return new AuthenticatedPrincipal(userId, UserAccountType.REQUESTER);
+    }
+
+    @Test
+    void get_expiredEntry_isMiss() {
+        PrincipalCache cache = new PrincipalCache(10, Duration.ofMinutes(5), clock::get);
+        cache.put(1L, "token", principal(1L), cache.version());
+
+        assertEquals(principal(1L), cache.get(1L, "token"));
+        clock.addAndGet(Duration.ofMinutes(6).toNanos());
+
+        assertNull(cache.get(1L, "token"));
+        assertEquals(1, cache.getStats().getHits());
+        assertEquals(1, cache.getStats().getMisses());
+        assertEquals(0, cache.getStats().getSize());
+    }
+
+    @Test
+    void put_full_evictsLeastRecentlyUsed() {
+        PrincipalCache cache = new PrincipalCache(2, Duration.ofMinutes(5), clock::get);
+        cache.put(1L, "a", principal(1L), cache.version());
+        cache.put(2L, "b", principal(2L), cache.version());
+        cache.get(1L, "a");
+
+        cache.put(3L, "c", principal(3L), cache.version());
+
+        assertEquals(principal(1L), cache.get(1L, "a"));
+        assertNull(cache.get(2L, "b"));
+        assertEquals(principal(3L), cache.get(3L, "c"));
+    }
+
+    @Test
+    void put_afterInvalidation_isIgnored() {
+        PrincipalCache cache = new PrincipalCache(10, Duration.ofMinutes(5), clock::get);
+        long version = cache.version();
+        cache.invalidate(1L);
+
+        cache.put(1L, "old-token", principal(1L), version);
+
+        assertNull(cache.get(1L, "old-token"));
+    }
+}
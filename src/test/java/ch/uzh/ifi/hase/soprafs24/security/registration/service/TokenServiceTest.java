@@ -0,0 +1,97 @@
+package ch.uzh.ifi.hase.soprafs24.security.registration.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ch.uzh.ifi.hase.soprafs24.constant.UserAccountType;
+import ch.uzh.ifi.hase.soprafs24.entity.User;
+import ch.uzh.ifi.hase.soprafs24.security.registration.service.TokenService.SignedToken;
+
+class TokenServiceTest {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+    private static final Instant NOW = Instant.parse("2025-05-01T10:00:00Z");
+
+    private User user;
+
+    @BeforeEach
+    void setup() {
+        user = new User();
+        user.setUserId(42L);
+        user.setUserAccountType(UserAccountType.REQUESTER);
+        user.setTokenVersion(3);
+    }
+
+    private TokenService signedTokenService(Instant now) {
+        return new TokenService("signed", SECRET, Duration.ofHours(24), Clock.fixed(now, ZoneOffset.UTC));
+    }
+
+    @Test
+    void generateToken_randomMode_returnsUuid() {
+        TokenService tokenService = new TokenService("random", null, Duration.ofHours(24));
+
+        String token = tokenService.generateToken(user);
+
+        assertFalse(tokenService.isSignedToken(token));
+        assertEquals(36, token.length());
+    }
+
+    @Test
+    void verifySignedToken_validToken_returnsClaims() {
+        TokenService tokenService = signedTokenService(NOW);
+
+        SignedToken signedToken = tokenService.verifySignedToken(tokenService.generateToken(user));
+
+        assertNotNull(signedToken);
+        assertEquals(42L, signedToken.getUserId());
+        assertEquals(UserAccountType.REQUESTER, signedToken.getUserAccountType());
+        assertEquals(NOW, signedToken.getIssuedAt());
+        assertEquals(3, signedToken.getTokenVersion());
+    }
+
+    @Test
+    void verifySignedToken_modifiedClaims_returnsNull() {
+        TokenService tokenService = signedTokenService(NOW);
+        String token = tokenService.generateToken(user);
+
+        // e.g. an attempt to raise the token version of a revoked token
+        String modified = token.replace(".REQUESTER.", ".DRIVER.");
+
+        assertTrue(tokenService.isSignedToken(modified));
+        assertNull(tokenService.verifySignedToken(modified));
+    }
+
+    @Test
+    void verifySignedToken_otherSecret_returnsNull() {
+        String token = signedTokenService(NOW).generateToken(user);
+        TokenService otherService = new TokenService("signed", SECRET.toUpperCase(), Duration.ofHours(24),
+            Clock.fixed(NOW, ZoneOffset.UTC));
+
+        assertNull(otherService.verifySignedToken(token));
+    }
+
+    @Test
+    void verifySignedToken_expiredToken_returnsNull() {
+        String token = signedTokenService(NOW).generateToken(user);
+
+        assertNotNull(signedTokenService(NOW.plus(Duration.ofHours(23))).verifySignedToken(token));
+        assertNull(signedTokenService(NOW.plus(Duration.ofHours(25))).verifySignedToken(token));
+    }
+
+    @Test
+    void constructor_signedModeWithoutSecret_throwsException() {
+        assertThrows(IllegalStateException.class, () -> new TokenService("signed", "", Duration.ofHours(24)));
+    }
+}
@@ -21,6 +21,7 @@ import ch.uzh.ifi.hase.soprafs24.rest.dto.CarDTO;
 import ch.uzh.ifi.hase.soprafs24.rest.dto.LocationDTO;
 import ch.uzh.ifi.hase.soprafs24.security.registration.dto.DriverRegisterDTO;
 import ch.uzh.ifi.hase.soprafs24.security.registration.dto.RequesterRegisterDTO;
+import ch.uzh.ifi.hase.soprafs24.service.DriverFeed;
 
 class UserRegistrationServiceTest {
 
@@ -36,6 +37,9 @@ class UserRegistrationServiceTest {
     @Mock
     private TokenService tokenService;
 
+    @Mock
+    private DriverFeed driverFeed;
+
     @InjectMocks
     private UserRegistrationService userRegistrationService;
 
@@ -86,7 +90,7 @@ class UserRegistrationServiceTest {
         when(userRepository.existsByEmail(any())).thenReturn(false);
         when(userRepository.existsByPhoneNumber(any())).thenReturn(false);
         when(driverRegistrationService.registerDriver(any(), any(), any())).thenReturn(testDriver);
-        when(tokenService.generateToken()).thenReturn("test-token");
+        when(tokenService.generateToken(any(User.class))).thenReturn("test-token");
         when(userRepository.save(any())).thenReturn(testDriver);
 
         // when
@@ -97,6 +101,7 @@ class UserRegistrationServiceTest {
         assertEquals("testuser", result.getUsername());
         assertEquals("test-token", result.getToken());
         verify(userRepository).save(any());
+        verify(driverFeed).driverChanged(testDriver);
     }
 
     @Test
@@ -106,7 +111,7 @@ class UserRegistrationServiceTest {
         when(userRepository.existsByEmail(any())).thenReturn(false);
         when(userRepository.existsByPhoneNumber(any())).thenReturn(false);
         when(requesterRegistrationService.registerRequester()).thenReturn(testRequester);
-        when(tokenService.generateToken()).thenReturn("test-token");
+        when(tokenService.generateToken(any(User.class))).thenReturn("test-token");
         when(userRepository.save(any())).thenReturn(testRequester);
 
         // when
@@ -0,0 +1,150 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import ch.uzh.ifi.hase.soprafs24.constant.ChangeEventType;
+import ch.uzh.ifi.hase.soprafs24.constant.ContractStatus;
+import ch.uzh.ifi.hase.soprafs24.constant.OfferStatus;
+import ch.uzh.ifi.hase.soprafs24.entity.Contract;
+import ch.uzh.ifi.hase.soprafs24.entity.Driver;
+import ch.uzh.ifi.hase.soprafs24.entity.Offer;
+import ch.uzh.ifi.hase.soprafs24.entity.Requester;
+import ch.uzh.ifi.hase.soprafs24.repository.ContractParticipants;
+import ch.uzh.ifi.hase.soprafs24.repository.ContractRepository;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.event.ChangeEventDTO;
+
+class ChangeEventPublisherTest {
+
+    @Mock
+    private ContractRepository contractRepository;
+
+    @Mock
+    private UserEventStreams userEventStreams;
+
+    @InjectMocks
+    private ChangeEventPublisher changeEventPublisher;
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    private ContractParticipants participants(Long contractId, Long requesterId, Long driverId, Long offerDriverId) {
+        return new ContractParticipants() {
+            @Override
+            public Long getContractId() {
+                return contractId;
+            }
+
+            @Override
+            public Long getRequesterId() {
+                return requesterId;
+            }
+
+            @Override
+            public Long getDriverId() {
+                return driverId;
+            }
+
+            @Override
+            public Long getOfferDriverId() {
+                return offerDriverId;
+            }
+        };
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void contractsChanged_publishesToParticipantsOfEachContract() {
+        // given - contract 1 has offers of drivers 3 and 4, contract 2 has none
+        when(contractRepository.findParticipantsByContractIdInAndContractStatus(List.of(1L, 2L),
+                ContractStatus.CANCELED))
+            .thenReturn(List.of(
+                participants(1L, 2L, null, 3L),
+                participants(1L, 2L, null, 4L),
+                participants(2L, 5L, null, null)));
+
+        // when
+        changeEventPublisher.contractsChanged(List.of(1L, 2L), ContractStatus.CANCELED);
+
+        // then
+        ArgumentCaptor<Set<Long>> recipients = ArgumentCaptor.forClass(Set.class);
+        ArgumentCaptor<ChangeEventDTO> events = ArgumentCaptor.forClass(ChangeEventDTO.class);
+        verify(userEventStreams, times(2)).publish(recipients.capture(), events.capture());
+        assertEquals(Set.of(2L, 3L, 4L), recipients.getAllValues().get(0));
+        assertEquals(Set.of(5L), recipients.getAllValues().get(1));
+        assertEquals(1L, events.getAllValues().get(0).getContractId());
+        assertEquals(ChangeEventType.CONTRACT, events.getAllValues().get(0).getType());
+        assertEquals("CANCELED", events.getAllValues().get(0).getStatus());
+        assertEquals(2L, events.getAllValues().get(1).getContractId());
+    }
+
+    @Test
+    void contractsChanged_noContracts_nothingPublished() {
+        // when
+        changeEventPublisher.contractsChanged(List.of(), ContractStatus.COMPLETED);
+
+        // then
+        verifyNoInteractions(contractRepository, userEventStreams);
+    }
+
+    @Test
+    void offerChanged_publishesToDriverAndRequester() {
+        // given
+        Requester requester = new Requester();
+        requester.setUserId(2L);
+        Contract contract = new Contract();
+        contract.setContractId(1L);
+        contract.setRequester(requester);
+        Driver driver = new Driver();
+        driver.setUserId(3L);
+        Offer offer = new Offer();
+        offer.setOfferId(7L);
+        offer.setContract(contract);
+        offer.setDriver(driver);
+        offer.setOfferStatus(OfferStatus.ACCEPTED);
+
+        // when
+        changeEventPublisher.offerChanged(offer);
+
+        // then
+        verify(userEventStreams).publish(eq(Set.of(3L, 2L)), argThat(event ->
+            event.getType() == ChangeEventType.OFFER
+                && event.getOfferId().equals(7L)
+                && event.getContractId().equals(1L)
+                && "ACCEPTED".equals(event.getStatus())));
+    }
+
+    @Test
+    void offerDeleted_publishesDeletedStatus() {
+        // given
+        Driver driver = new Driver();
+        driver.setUserId(3L);
+        Offer offer = new Offer();
+        offer.setOfferId(7L);
+        offer.setDriver(driver);
+        offer.setOfferStatus(OfferStatus.CREATED);
+
+        // when
+        changeEventPublisher.offerDeleted(offer);
+
+        // then
+        verify(userEventStreams).publish(eq(Set.of(3L)), argThat(event -> "DELETED".equals(event.getStatus())));
+    }
+}
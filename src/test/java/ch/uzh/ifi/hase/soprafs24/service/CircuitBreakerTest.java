@@ -0,0 +1,103 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CircuitBreakerTest {
+
+    private long now;
+    private CircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    void setup() {
+        now = 0;
+        circuitBreaker = new CircuitBreaker("test", 0.5, 10, 4, Duration.ofSeconds(30), () -> now);
+    }
+
+    private void recordCalls(int successes, int failures) {
+        for (int i = 0; i < successes; i++) {
+            assertTrue(circuitBreaker.tryAcquirePermission());
+            circuitBreaker.onSuccess();
+        }
+        for (int i = 0; i < failures; i++) {
+            assertTrue(circuitBreaker.tryAcquirePermission());
+            circuitBreaker.onFailure();
+        }
+    }
+
+    @Test
+    void onFailure_belowMinimumCalls_staysClosed() {
+        recordCalls(0, 3);
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void onFailure_failureRateReachesThreshold_opensAndRejectsCalls() {
+        recordCalls(3, 3);
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+    }
+
+    @Test
+    void onFailure_oldOutcomesLeaveTheWindow() {
+        // given -> a burst of failures followed by enough successes to push it out of the window
+        recordCalls(0, 1);
+        recordCalls(10, 0);
+
+        // when
+        recordCalls(0, 4);
+
+        // then -> 4 of the last 10 calls failed
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void tryAcquirePermission_afterOpenDuration_allowsSingleTrialCall() {
+        // given
+        recordCalls(0, 4);
+        now += Duration.ofSeconds(30).toNanos();
+
+        // when
+        boolean trial = circuitBreaker.tryAcquirePermission();
+        boolean concurrent = circuitBreaker.tryAcquirePermission();
+
+        // then
+        assertTrue(trial);
+        assertFalse(concurrent);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    void halfOpen_trialSucceeds_closes() {
+        recordCalls(0, 4);
+        now += Duration.ofSeconds(30).toNanos();
+        circuitBreaker.tryAcquirePermission();
+
+        circuitBreaker.onSuccess();
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        // the window was reset, a single failure does not reopen the breaker
+        recordCalls(0, 1);
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void halfOpen_trialFails_opensAgain() {
+        recordCalls(0, 4);
+        now += Duration.ofSeconds(30).toNanos();
+        circuitBreaker.tryAcquirePermission();
+
+        circuitBreaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+    }
+}
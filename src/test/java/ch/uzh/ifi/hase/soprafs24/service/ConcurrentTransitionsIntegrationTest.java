@@ -0,0 +1,204 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import ch.uzh.ifi.hase.soprafs24.constant.ContractStatus;
+import ch.uzh.ifi.hase.soprafs24.constant.OfferStatus;
+import ch.uzh.ifi.hase.soprafs24.constant.UserAccountType;
+import ch.uzh.ifi.hase.soprafs24.entity.Car;
+import ch.uzh.ifi.hase.soprafs24.entity.Contract;
+import ch.uzh.ifi.hase.soprafs24.entity.Driver;
+import ch.uzh.ifi.hase.soprafs24.entity.Offer;
+import ch.uzh.ifi.hase.soprafs24.entity.Requester;
+import ch.uzh.ifi.hase.soprafs24.entity.User;
+import ch.uzh.ifi.hase.soprafs24.exceptions.StateConflictException;
+
+/**
+ * Accepts all offers of contracts while cancelling and deleting the same contracts from
+ * several threads, the way the controllers run these transitions. Every transition has to
+ * succeed, be rejected or end in a conflict, and no contract may end up with more than one
+ * accepted offer.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:concurrent-transitions")
+@DirtiesContext
+class ConcurrentTransitionsIntegrationTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ConcurrentTransitionsIntegrationTest.class);
+
+    private static final int CONTRACTS = 10;
+    private static final int OFFERS_PER_CONTRACT = 8;
+    private static final int THREADS = 8;
+
+    @Autowired
+    private OfferService offerService;
+
+    @Autowired
+    private ContractService contractService;
+
+    @Autowired
+    private TransitionRetry transitionRetry;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private ExecutorService executor;
+    private final Map<Long, List<Long>> offerIdsByContract = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setup() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        executor = Executors.newFixedThreadPool(THREADS);
+        transactionTemplate.executeWithoutResult(status -> {
+            Requester requester = new Requester();
+            initUser(requester, "requester", UserAccountType.REQUESTER);
+            entityManager.persist(requester);
+            Car car = new Car();
+            entityManager.persist(car);
+            Driver driver = new Driver();
+            initUser(driver, "driver", UserAccountType.DRIVER);
+            driver.setCar(car);
+            entityManager.persist(driver);
+
+            for (int i = 0; i < CONTRACTS; i++) {
+                Contract contract = new Contract();
+                contract.setRequester(requester);
+                contract.setContractStatus(ContractStatus.OFFERED);
+                contract.setMoveDateTime(LocalDateTime.now().plusDays(10));
+                entityManager.persist(contract);
+                List<Long> offerIds = new ArrayList<>();
+                for (int j = 0; j < OFFERS_PER_CONTRACT; j++) {
+                    Offer offer = new Offer();
+                    offer.setContract(contract);
+                    offer.setDriver(driver);
+                    offer.setOfferStatus(OfferStatus.CREATED);
+                    entityManager.persist(offer);
+                    offerIds.add(offer.getOfferId());
+                }
+                entityManager.flush();
+                offerIdsByContract.put(contract.getContractId(), offerIds);
+            }
+        });
+    }
+
+    @AfterEach
+    void teardown() {
+        executor.shutdownNow();
+    }
+
+    private void initUser(User user, String username, UserAccountType accountType) {
+        user.setUsername(username);
+        user.setPassword("password");
+        user.setEmail(username + "@test.com");
+        user.setUserAccountType(accountType);
+        user.setFirstName("First");
+        user.setLastName("Last");
+        user.setPhoneNumber("+4100000" + username.hashCode());
+    }
+
+    @Test
+    void concurrentAcceptCancelDelete_atMostOneAcceptedOfferPerContract() throws Exception {
+        // given -> every offer is accepted, and every contract is cancelled twice and deleted once
+        List<Runnable> transitions = new ArrayList<>();
+        offerIdsByContract.forEach((contractId, offerIds) -> {
+            for (Long offerId : offerIds) {
+                transitions.add(() -> transitionRetry.execute(
+                    () -> offerService.updateOfferStatus(offerId, OfferStatus.ACCEPTED),
+                    "offer", () -> offerService.getOffer(offerId)));
+            }
+            for (int i = 0; i < 2; i++) {
+                transitions.add(() -> transitionRetry.execute(
+                    () -> contractService.cancelContract(contractId, "Changed plans"),
+                    "contract", () -> contractService.getContractById(contractId)));
+            }
+            transitions.add(() -> transitionRetry.execute(() -> contractService.deleteContract(contractId),
+                "contract", () -> contractService.getContractById(contractId)));
+        });
+        Collections.shuffle(transitions, new Random(42));
+
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch start = new CountDownLatch(1);
+        for (Runnable transition : transitions) {
+            executor.submit(() -> {
+                try {
+                    start.await();
+                    transition.run();
+                    succeeded.incrementAndGet();
+                } catch (StateConflictException e) {
+                    conflicts.incrementAndGet();
+                } catch (ResponseStatusException e) {
+                    // e.g. cancelling a contract that was not accepted yet
+                    rejected.incrementAndGet();
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+                return null;
+            });
+        }
+
+        // when
+        long startNanos = System.nanoTime();
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS), "transitions did not finish");
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+
+        // then
+        double throughput = transitions.size() / seconds;
+        log.info("{} transitions in {} s ({} per second): {} succeeded, {} rejected, {} conflicts, {}",
+            transitions.size(), String.format("%.2f", seconds), String.format("%.0f", throughput), succeeded,
+            rejected, conflicts, transitionRetry.getStats());
+        assertEquals(Collections.emptyList(), failures);
+        assertEquals(transitions.size(), succeeded.get() + rejected.get() + conflicts.get());
+        assertTrue(throughput > 10, "throughput of " + throughput + " transitions per second");
+
+        transactionTemplate.executeWithoutResult(status -> offerIdsByContract.forEach((contractId, offerIds) -> {
+            Contract contract = entityManager.find(Contract.class, contractId);
+            List<Long> acceptedOfferIds = offerIds.stream()
+                .filter(offerId -> entityManager.find(Offer.class, offerId).getOfferStatus() == OfferStatus.ACCEPTED)
+                .collect(Collectors.toList());
+            if (contract.getContractStatus() == ContractStatus.ACCEPTED) {
+                assertEquals(List.of(contract.getAcceptedOffer().getOfferId()), acceptedOfferIds,
+                    "accepted offers of contract " + contractId);
+            } else {
+                assertEquals(Collections.emptyList(), acceptedOfferIds,
+                    "accepted offers of " + contract.getContractStatus() + " contract " + contractId);
+            }
+        }));
+    }
+}
@@ -0,0 +1,168 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import ch.uzh.ifi.hase.soprafs24.constant.ContractStatus;
+import ch.uzh.ifi.hase.soprafs24.constant.OfferStatus;
+import ch.uzh.ifi.hase.soprafs24.constant.UserAccountType;
+import ch.uzh.ifi.hase.soprafs24.entity.Car;
+import ch.uzh.ifi.hase.soprafs24.entity.Contract;
+import ch.uzh.ifi.hase.soprafs24.entity.Driver;
+import ch.uzh.ifi.hase.soprafs24.entity.Offer;
+import ch.uzh.ifi.hase.soprafs24.entity.Requester;
+import ch.uzh.ifi.hase.soprafs24.entity.User;
+import ch.uzh.ifi.hase.soprafs24.util.SqlStatementCounter;
+
+/**
+ * Runs the expiry job against the database with a chunk size of two. The number of
+ * statements depends on the number of chunks, not on the number of contracts or offers.
+ */
+@SpringBootTest(properties = { SqlStatementCounter.PROPERTY, "contracts.expiry.chunk-size=2",
+    "contracts.expiry.sweep-partitions=1" })
+@Transactional
+class ContractExpiryJobIntegrationTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2030, 6, 15, 10, 0);
+
+    @Autowired
+    private ContractExpiryJob contractExpiryJob;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Requester requester;
+    private Driver driver;
+    private final List<Contract> accepted = new ArrayList<>();
+    private final List<Contract> requested = new ArrayList<>();
+    private final List<Offer> offers = new ArrayList<>();
+    private Contract future;
+
+    @BeforeEach
+    void setup() {
+        requester = new Requester();
+        initUser(requester, "requester", UserAccountType.REQUESTER);
+        entityManager.persist(requester);
+        Car car = new Car();
+        entityManager.persist(car);
+        driver = new Driver();
+        initUser(driver, "driver", UserAccountType.DRIVER);
+        driver.setCar(car);
+        entityManager.persist(driver);
+
+        for (int i = 0; i < 3; i++) {
+            accepted.add(persistContract(ContractStatus.ACCEPTED, NOW.minusDays(1)));
+        }
+        for (int i = 0; i < 2; i++) {
+            Contract contract = persistContract(ContractStatus.OFFERED, NOW.minusHours(1));
+            requested.add(contract);
+            for (int j = 0; j < 3; j++) {
+                Offer offer = new Offer();
+                offer.setContract(contract);
+                offer.setDriver(driver);
+                offer.setOfferStatus(OfferStatus.CREATED);
+                entityManager.persist(offer);
+                offers.add(offer);
+            }
+        }
+        future = persistContract(ContractStatus.REQUESTED, NOW.plusDays(1));
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private void initUser(User user, String username, UserAccountType accountType) {
+        user.setUsername(username);
+        user.setPassword("password");
+        user.setEmail(username + "@test.com");
+        user.setUserAccountType(accountType);
+        user.setFirstName("First");
+        user.setLastName("Last");
+        user.setPhoneNumber("+4100000" + username.hashCode());
+    }
+
+    private Contract persistContract(ContractStatus status, LocalDateTime moveDateTime) {
+        Contract contract = new Contract();
+        contract.setRequester(requester);
+        contract.setContractStatus(status);
+        contract.setMoveDateTime(moveDateTime);
+        entityManager.persist(contract);
+        return contract;
+    }
+
+    @Test
+    void run_transitionsExpiredContractsWithBulkStatements() {
+        // completed: select, update and participants select for chunks of 2 and 1 contracts
+        // canceled: select, update, offer update and participants select for 2 contracts,
+        // select of the empty next chunk
+        SqlStatementCounter.reset();
+        ContractExpiryJob.RunResult result = contractExpiryJob.run(NOW);
+        assertEquals(11, SqlStatementCounter.getStatements().size(), SqlStatementCounter.getStatements()::toString);
+
+        assertEquals(3, result.getContractsCompleted());
+        assertEquals(2, result.getContractsCanceled());
+        assertEquals(6, result.getOffersRejected());
+        assertEquals(3, result.getChunks());
+
+        for (Contract contract : accepted) {
+            assertEquals(ContractStatus.COMPLETED,
+                entityManager.find(Contract.class, contract.getContractId()).getContractStatus());
+        }
+        for (Contract contract : requested) {
+            Contract canceled = entityManager.find(Contract.class, contract.getContractId());
+            assertEquals(ContractStatus.CANCELED, canceled.getContractStatus());
+            assertEquals(ContractExpiryJob.EXPIRED_CANCEL_REASON, canceled.getCancelReason());
+        }
+        for (Offer offer : offers) {
+            assertEquals(OfferStatus.REJECTED, entityManager.find(Offer.class, offer.getOfferId()).getOfferStatus());
+        }
+        assertEquals(ContractStatus.REQUESTED,
+            entityManager.find(Contract.class, future.getContractId()).getContractStatus());
+    }
+
+    @Test
+    void run_nothingExpired_onlySelects() {
+        SqlStatementCounter.reset();
+        ContractExpiryJob.RunResult result = contractExpiryJob.run(NOW.minusYears(1));
+        assertEquals(2, SqlStatementCounter.getStatements().size(), SqlStatementCounter.getStatements()::toString);
+
+        assertEquals(0, result.getContractsTransitioned());
+        assertEquals(0, result.getChunks());
+    }
+
+    @Test
+    void expire_transitionsOnlyDueContracts() {
+        List<Long> contractIds = List.of(accepted.get(0).getContractId(), requested.get(0).getContractId(),
+            future.getContractId());
+
+        // first chunk: selects of the contracts to complete and to cancel, update of completed, update of
+        // canceled, offer update and the participants selects of the completed and canceled contracts
+        // second chunk: selects of the contracts to complete and to cancel, the future contract is not due
+        SqlStatementCounter.reset();
+        ContractExpiryJob.RunResult result = contractExpiryJob.expire(contractIds, NOW);
+        assertEquals(9, SqlStatementCounter.getStatements().size(), SqlStatementCounter.getStatements()::toString);
+
+        assertEquals(1, result.getContractsCompleted());
+        assertEquals(1, result.getContractsCanceled());
+        assertEquals(3, result.getOffersRejected());
+        assertEquals(ContractStatus.COMPLETED,
+            entityManager.find(Contract.class, accepted.get(0).getContractId()).getContractStatus());
+        assertEquals(ContractStatus.ACCEPTED,
+            entityManager.find(Contract.class, accepted.get(1).getContractId()).getContractStatus());
+        assertEquals(ContractStatus.CANCELED,
+            entityManager.find(Contract.class, requested.get(0).getContractId()).getContractStatus());
+        assertEquals(ContractStatus.REQUESTED,
+            entityManager.find(Contract.class, future.getContractId()).getContractStatus());
+    }
+}
@@ -0,0 +1,251 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import ch.uzh.ifi.hase.soprafs24.config.SchedulerLeases;
+import ch.uzh.ifi.hase.soprafs24.constant.ContractStatus;
+import ch.uzh.ifi.hase.soprafs24.constant.OfferStatus;
+import ch.uzh.ifi.hase.soprafs24.repository.ContractRepository;
+import ch.uzh.ifi.hase.soprafs24.repository.OfferRepository;
+
+class ContractExpiryJobTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2030, 6, 15, 10, 0);
+
+    @Mock
+    private ContractRepository contractRepository;
+
+    @Mock
+    private OfferRepository offerRepository;
+
+    @Mock
+    private OpenContractIndex openContractIndex;
+
+    @Mock
+    private ChangeEventPublisher changeEventPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private SchedulerLeases schedulerLeases;
+
+    private ContractExpiryJob contractExpiryJob;
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.openMocks(this);
+        contractExpiryJob = new ContractExpiryJob(contractRepository, offerRepository, openContractIndex,
+                changeEventPublisher, transactionManager, schedulerLeases, 2, 1, Duration.ofMinutes(55));
+        Mockito.when(contractRepository.findIdsByContractStatusInAndMoveDateTimeBefore(anyCollection(), any(),
+                anyInt(), anyInt(), any(Pageable.class))).thenReturn(Collections.emptyList());
+    }
+
+    private void givenExpiredIds(ContractStatus status, List<Long> firstChunk, List<Long> secondChunk) {
+        Mockito.when(contractRepository.findIdsByContractStatusInAndMoveDateTimeBefore(
+                Mockito.argThat(statuses -> statuses != null && statuses.contains(status)), eq(NOW),
+                eq(1), eq(0), any(Pageable.class)))
+            .thenReturn(firstChunk).thenReturn(secondChunk);
+    }
+
+    @Test
+    void run_completesAcceptedContractsInChunks() {
+        // given -> three expired accepted contracts with a chunk size of two
+        givenExpiredIds(ContractStatus.ACCEPTED, List.of(1L, 2L), List.of(3L));
+        Mockito.when(contractRepository.updateStatusOfExpiredContracts(anyCollection(), anyCollection(), eq(NOW),
+                eq(ContractStatus.COMPLETED))).thenReturn(2, 1);
+
+        // when
+        ContractExpiryJob.RunResult result = contractExpiryJob.run(NOW);
+
+        // then
+        assertEquals(3, result.getContractsCompleted());
+        assertEquals(0, result.getContractsCanceled());
+        assertEquals(2, result.getChunks());
+        Mockito.verify(contractRepository).updateStatusOfExpiredContracts(eq(List.of(1L, 2L)), anyCollection(),
+                eq(NOW), eq(ContractStatus.COMPLETED));
+        Mockito.verify(contractRepository).updateStatusOfExpiredContracts(eq(List.of(3L)), anyCollection(),
+                eq(NOW), eq(ContractStatus.COMPLETED));
+        Mockito.verify(changeEventPublisher).contractsChanged(List.of(1L, 2L), ContractStatus.COMPLETED);
+        Mockito.verify(changeEventPublisher).contractsChanged(List.of(3L), ContractStatus.COMPLETED);
+        // every chunk is committed on its own, plus the empty selection of contracts to cancel
+        Mockito.verify(transactionManager, Mockito.times(3)).commit(any());
+        Mockito.verify(contractRepository, Mockito.never()).findByContractStatusAndMoveDateTimeBefore(any(), any());
+    }
+
+    @Test
+    void run_cancelsOpenContractsAndRejectsTheirOffers() {
+        // given
+        givenExpiredIds(ContractStatus.REQUESTED, List.of(4L), Collections.emptyList());
+        Mockito.when(contractRepository.cancelExpiredContracts(anyCollection(), anyCollection(), eq(NOW),
+                eq(ContractStatus.CANCELED), eq(ContractExpiryJob.EXPIRED_CANCEL_REASON))).thenReturn(1);
+        Mockito.when(offerRepository.updateOfferStatusByContractIds(List.of(4L), OfferStatus.REJECTED))
+            .thenReturn(3);
+
+        // when
+        ContractExpiryJob.RunResult result = contractExpiryJob.run(NOW);
+
+        // then
+        assertEquals(0, result.getContractsCompleted());
+        assertEquals(1, result.getContractsCanceled());
+        assertEquals(3, result.getOffersRejected());
+        assertEquals(1, result.getChunks());
+        Mockito.verify(openContractIndex).contractsClosed(List.of(4L));
+        Mockito.verify(offerRepository, Mockito.never()).save(any());
+        Mockito.verify(changeEventPublisher).contractsChanged(List.of(4L), ContractStatus.CANCELED);
+        assertEquals(1, contractExpiryJob.getStats().getRuns());
+        assertEquals(3, contractExpiryJob.getStats().getOffersRejected());
+    }
+
+    @Test
+    void run_chunkChangedConcurrently_stops() {
+        // given -> the selected contracts are no longer expired when they are updated
+        givenExpiredIds(ContractStatus.ACCEPTED, List.of(1L, 2L), List.of(1L, 2L));
+        Mockito.when(contractRepository.updateStatusOfExpiredContracts(anyCollection(), anyCollection(), eq(NOW),
+                eq(ContractStatus.COMPLETED))).thenReturn(0);
+
+        // when
+        ContractExpiryJob.RunResult result = contractExpiryJob.run(NOW);
+
+        // then
+        assertEquals(0, result.getContractsTransitioned());
+        assertEquals(1, result.getChunks());
+        Mockito.verifyNoInteractions(changeEventPublisher);
+    }
+
+    @Test
+    void run_contractChangedConcurrently_onlyCompletedContractsPublished() {
+        // given -> contract 2 was canceled after the ids were selected, only contract 1 is completed
+        givenExpiredIds(ContractStatus.ACCEPTED, List.of(1L, 2L), Collections.emptyList());
+        Mockito.when(contractRepository.updateStatusOfExpiredContracts(anyCollection(), anyCollection(), eq(NOW),
+                eq(ContractStatus.COMPLETED))).thenReturn(1);
+        Mockito.when(contractRepository.findIdsByContractIdInAndContractStatusInAndMoveDateTimeBefore(
+                List.of(1L, 2L), Set.of(ContractStatus.COMPLETED), NOW)).thenReturn(List.of(1L));
+
+        // when
+        ContractExpiryJob.RunResult result = contractExpiryJob.run(NOW);
+
+        // then
+        assertEquals(1, result.getContractsCompleted());
+        Mockito.verify(changeEventPublisher).contractsChanged(List.of(1L), ContractStatus.COMPLETED);
+        Mockito.verifyNoMoreInteractions(changeEventPublisher);
+    }
+
+    @Test
+    void run_contractAcceptedConcurrently_offersOfCanceledContractsOnlyRejected() {
+        // given -> contract 5 was accepted after the ids were selected, only contract 4 is canceled
+        givenExpiredIds(ContractStatus.REQUESTED, List.of(4L, 5L), Collections.emptyList());
+        Mockito.when(contractRepository.cancelExpiredContracts(anyCollection(), anyCollection(), eq(NOW),
+                eq(ContractStatus.CANCELED), eq(ContractExpiryJob.EXPIRED_CANCEL_REASON))).thenReturn(1);
+        Mockito.when(contractRepository.findIdsByContractIdInAndContractStatusAndCancelReason(List.of(4L, 5L),
+                ContractStatus.CANCELED, ContractExpiryJob.EXPIRED_CANCEL_REASON)).thenReturn(List.of(4L));
+
+        // when
+        ContractExpiryJob.RunResult result = contractExpiryJob.run(NOW);
+
+        // then
+        assertEquals(1, result.getContractsCanceled());
+        Mockito.verify(offerRepository).updateOfferStatusByContractIds(List.of(4L), OfferStatus.REJECTED);
+        Mockito.verify(openContractIndex).contractsClosed(List.of(4L));
+        Mockito.verify(changeEventPublisher).contractsChanged(List.of(4L), ContractStatus.CANCELED);
+    }
+
+    @Test
+    void run_noContractCanceled_offersUntouched() {
+        // given -> all selected contracts were accepted concurrently
+        givenExpiredIds(ContractStatus.OFFERED, List.of(4L), Collections.emptyList());
+
+        // when
+        contractExpiryJob.run(NOW);
+
+        // then
+        Mockito.verifyNoInteractions(offerRepository, openContractIndex, changeEventPublisher);
+    }
+
+    @Test
+    void expire_transitionsGivenContractsAndRejectsOffersOfCanceledOnes() {
+        // given -> contract 1 is accepted, contracts 2 and 3 are still open
+        Mockito.when(contractRepository.findIdsByContractIdInAndContractStatusInAndMoveDateTimeBefore(
+                List.of(1L, 2L), Set.of(ContractStatus.ACCEPTED), NOW))
+            .thenReturn(List.of(1L));
+        Mockito.when(contractRepository.findIdsByContractIdInAndContractStatusInAndMoveDateTimeBefore(
+                List.of(1L, 2L), Set.of(ContractStatus.REQUESTED, ContractStatus.OFFERED), NOW))
+            .thenReturn(List.of(2L));
+        Mockito.when(contractRepository.findIdsByContractIdInAndContractStatusInAndMoveDateTimeBefore(
+                List.of(3L), Set.of(ContractStatus.REQUESTED, ContractStatus.OFFERED), NOW))
+            .thenReturn(List.of(3L));
+        Mockito.when(contractRepository.updateStatusOfExpiredContracts(eq(List.of(1L)), anyCollection(), eq(NOW),
+                eq(ContractStatus.COMPLETED))).thenReturn(1);
+        Mockito.when(contractRepository.cancelExpiredContracts(anyCollection(), anyCollection(), eq(NOW),
+                eq(ContractStatus.CANCELED), anyString())).thenReturn(1);
+
+        // when
+        ContractExpiryJob.RunResult result = contractExpiryJob.expire(List.of(1L, 2L, 3L), NOW);
+
+        // then
+        assertEquals(1, result.getContractsCompleted());
+        assertEquals(2, result.getContractsCanceled());
+        assertEquals(2, result.getChunks());
+        Mockito.verify(offerRepository).updateOfferStatusByContractIds(List.of(2L), OfferStatus.REJECTED);
+        Mockito.verify(offerRepository).updateOfferStatusByContractIds(List.of(3L), OfferStatus.REJECTED);
+        Mockito.verify(offerRepository, Mockito.times(2)).updateOfferStatusByContractIds(anyCollection(), any());
+        Mockito.verify(changeEventPublisher).contractsChanged(List.of(1L), ContractStatus.COMPLETED);
+        Mockito.verify(changeEventPublisher, Mockito.times(1)).contractsChanged(anyCollection(),
+            eq(ContractStatus.COMPLETED));
+        // expiring single contracts does not count as a sweep
+        assertEquals(0, contractExpiryJob.getStats().getRuns());
+        assertEquals(3, contractExpiryJob.getStats().getContractsCompleted()
+            + contractExpiryJob.getStats().getContractsCanceled());
+    }
+
+    @Test
+    void updateContractStatuses_sweepsOnlyLeasedPartitions() {
+        // given -> four partitions, of which this instance leases partition 2
+        contractExpiryJob = new ContractExpiryJob(contractRepository, offerRepository, openContractIndex,
+                changeEventPublisher, transactionManager, schedulerLeases, 2, 4, Duration.ofMinutes(55));
+        Mockito.when(schedulerLeases.tryAcquirePartitions(ContractExpiryJob.SWEEP_LEASE, 4, Duration.ofMinutes(55)))
+            .thenReturn(List.of(2));
+
+        // when
+        contractExpiryJob.updateContractStatuses();
+
+        // then
+        Mockito.verify(contractRepository, Mockito.times(2)).findIdsByContractStatusInAndMoveDateTimeBefore(
+                anyCollection(), any(), eq(4), eq(2), any(Pageable.class));
+        Mockito.verify(contractRepository, Mockito.never()).findIdsByContractStatusInAndMoveDateTimeBefore(
+                anyCollection(), any(), anyInt(), Mockito.intThat(partition -> partition != 2), any(Pageable.class));
+        assertEquals(1, contractExpiryJob.getStats().getRuns());
+    }
+
+    @Test
+    void updateContractStatuses_allPartitionsLeasedElsewhere_doesNothing() {
+        // given
+        Mockito.when(schedulerLeases.tryAcquirePartitions(any(), anyInt(), any())).thenReturn(List.of());
+
+        // when
+        contractExpiryJob.updateContractStatuses();
+
+        // then
+        Mockito.verifyNoInteractions(contractRepository, transactionManager);
+        assertEquals(0, contractExpiryJob.getStats().getRuns());
+    }
+}
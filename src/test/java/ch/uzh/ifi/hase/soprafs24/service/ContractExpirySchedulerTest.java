@@ -0,0 +1,270 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import ch.uzh.ifi.hase.soprafs24.config.SchedulerLeases;
+import ch.uzh.ifi.hase.soprafs24.constant.ContractStatus;
+import ch.uzh.ifi.hase.soprafs24.entity.Contract;
+import ch.uzh.ifi.hase.soprafs24.repository.ContractDeadline;
+import ch.uzh.ifi.hase.soprafs24.repository.ContractRepository;
+
+class ContractExpirySchedulerTest {
+
+    private static final ZoneId ZONE = ZoneOffset.UTC;
+    private static final LocalDateTime START = LocalDateTime.of(2030, 6, 15, 10, 0);
+
+    @Mock
+    private ContractRepository contractRepository;
+
+    @Mock
+    private ContractExpiryJob contractExpiryJob;
+
+    @Mock
+    private SchedulerLeases schedulerLeases;
+
+    private MutableClock clock;
+    private ContractExpiryScheduler scheduler;
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.openMocks(this);
+        clock = new MutableClock(START.atZone(ZONE).toInstant());
+        scheduler = new ContractExpiryScheduler(contractRepository, contractExpiryJob, schedulerLeases,
+                Duration.ofSeconds(10), Duration.ofMinutes(5), clock);
+        Mockito.when(schedulerLeases.tryAcquire(ContractExpiryScheduler.EXPIRY_LEASE, Duration.ofSeconds(10)))
+            .thenReturn(true);
+    }
+
+    private void runScheduledJobs() {
+        scheduler.renewLease();
+        scheduler.expireDueContracts();
+    }
+
+    private ContractDeadline createDeadline(Long id, LocalDateTime moveDateTime) {
+        ContractDeadline deadline = Mockito.mock(ContractDeadline.class);
+        Mockito.when(deadline.getContractId()).thenReturn(id);
+        Mockito.when(deadline.getMoveDateTime()).thenReturn(moveDateTime);
+        return deadline;
+    }
+
+    private Contract createContract(Long id, ContractStatus status, LocalDateTime moveDateTime) {
+        Contract contract = new Contract();
+        contract.setContractId(id);
+        contract.setContractStatus(status);
+        contract.setMoveDateTime(moveDateTime);
+        return contract;
+    }
+
+    @Test
+    void loadActiveContracts_schedulesMoveDates() {
+        // given
+        ContractDeadline deadline = createDeadline(1L, START.plusHours(1));
+        Mockito.when(contractRepository.findByContractStatusIn(ContractExpiryScheduler.ACTIVE_STATUSES))
+            .thenReturn(List.of(deadline));
+
+        // when
+        int loaded = scheduler.loadActiveContracts();
+
+        // then
+        assertEquals(1, loaded);
+        assertEquals(START.plusHours(1), scheduler.getDeadline(1L));
+    }
+
+    @Test
+    void expireDueContracts_expiresContractsOnceTheirMoveDateHasPassed() {
+        // given
+        scheduler.contractChanged(createContract(1L, ContractStatus.ACCEPTED, START.plusSeconds(10)));
+        scheduler.contractChanged(createContract(2L, ContractStatus.REQUESTED, START.plusSeconds(20)));
+
+        // when -> before the first move date nothing is expired
+        clock.advance(Duration.ofSeconds(10));
+        runScheduledJobs();
+
+        // then
+        Mockito.verifyNoInteractions(contractExpiryJob);
+
+        // when -> one second later the first contract is due
+        clock.advance(Duration.ofSeconds(1));
+        runScheduledJobs();
+
+        // then
+        Mockito.verify(contractExpiryJob).expire(Set.of(1L), START.plusSeconds(11));
+        assertNull(scheduler.getDeadline(1L));
+        assertEquals(1, scheduler.size());
+    }
+
+    @Test
+    void contractChanged_updatesOrRemovesDeadline() {
+        // given
+        Contract contract = createContract(1L, ContractStatus.REQUESTED, START.plusSeconds(10));
+        scheduler.contractChanged(contract);
+
+        // when -> the move date is postponed
+        contract.setMoveDateTime(START.plusDays(1));
+        scheduler.contractChanged(contract);
+        clock.advance(Duration.ofMinutes(1));
+        runScheduledJobs();
+
+        // then
+        Mockito.verifyNoInteractions(contractExpiryJob);
+        assertEquals(START.plusDays(1), scheduler.getDeadline(1L));
+
+        // when -> the contract is canceled
+        contract.setContractStatus(ContractStatus.CANCELED);
+        scheduler.contractChanged(contract);
+
+        // then
+        assertEquals(0, scheduler.size());
+    }
+
+    @Test
+    void expireDueContracts_failure_retriesOnNextRun() {
+        // given
+        scheduler.contractChanged(createContract(1L, ContractStatus.OFFERED, START.plusSeconds(1)));
+        Mockito.when(contractExpiryJob.expire(any(), any()))
+            .thenThrow(new IllegalStateException("database unavailable"))
+            .thenReturn(null);
+        clock.advance(Duration.ofSeconds(2));
+
+        // when
+        runScheduledJobs();
+
+        // then
+        assertEquals(START.plusSeconds(1), scheduler.getDeadline(1L));
+
+        // when
+        runScheduledJobs();
+
+        // then
+        Mockito.verify(contractExpiryJob, Mockito.times(2)).expire(eq(Set.of(1L)), any());
+        assertEquals(0, scheduler.size());
+    }
+
+    @Test
+    void expireDueContracts_leaseHeldElsewhere_dropsDueContracts() {
+        // given
+        Mockito.when(schedulerLeases.tryAcquire(any(), any())).thenReturn(false);
+        scheduler.contractChanged(createContract(1L, ContractStatus.ACCEPTED, START.plusSeconds(1)));
+        scheduler.contractChanged(createContract(2L, ContractStatus.ACCEPTED, START.plusHours(1)));
+        clock.advance(Duration.ofSeconds(2));
+
+        // when
+        runScheduledJobs();
+
+        // then
+        Mockito.verifyNoInteractions(contractExpiryJob, contractRepository);
+        assertNull(scheduler.getDeadline(1L));
+        assertEquals(START.plusHours(1), scheduler.getDeadline(2L));
+    }
+
+    @Test
+    void expireDueContracts_leaseTakenOver_loadsAndReloadsActiveContracts() {
+        // given -> contract 1 was created on another instance
+        ContractDeadline deadline = createDeadline(1L, START.plusSeconds(1));
+        Mockito.when(contractRepository.findByContractStatusIn(ContractExpiryScheduler.ACTIVE_STATUSES))
+            .thenReturn(List.of(deadline));
+        clock.advance(Duration.ofSeconds(2));
+
+        // when
+        runScheduledJobs();
+        clock.advance(Duration.ofSeconds(1));
+        runScheduledJobs();
+
+        // then -> loaded on the first run only
+        Mockito.verify(contractExpiryJob).expire(Set.of(1L), START.plusSeconds(2));
+        Mockito.verify(contractRepository).findByContractStatusIn(any());
+
+        // when -> the reload interval passed
+        clock.advance(Duration.ofMinutes(5));
+        runScheduledJobs();
+
+        // then
+        Mockito.verify(contractRepository, Mockito.times(2)).findByContractStatusIn(any());
+    }
+
+    @Test
+    void renewLease_leaseHeldElsewhere_retriedAfterLeaseTime() {
+        // given
+        Mockito.when(schedulerLeases.tryAcquire(any(), any())).thenReturn(false);
+        scheduler.renewLease();
+
+        // when -> renewal runs within the lease time of the holder
+        clock.advance(Duration.ofSeconds(3));
+        scheduler.renewLease();
+        clock.advance(Duration.ofSeconds(3));
+        scheduler.renewLease();
+
+        // then
+        Mockito.verify(schedulerLeases, Mockito.times(1)).tryAcquire(any(), any());
+
+        // when -> the lease time passed since the last attempt
+        clock.advance(Duration.ofSeconds(4));
+        scheduler.renewLease();
+
+        // then
+        Mockito.verify(schedulerLeases, Mockito.times(2)).tryAcquire(any(), any());
+    }
+
+    @Test
+    void expireDueContracts_leaseNotRenewed_stopsExpiring() {
+        // given -> the lease was acquired at the start and the database is unavailable since
+        scheduler.renewLease();
+        Mockito.when(schedulerLeases.tryAcquire(any(), any())).thenThrow(new IllegalStateException("unavailable"));
+        scheduler.contractChanged(createContract(1L, ContractStatus.ACCEPTED, START.plusSeconds(10)));
+
+        // when -> the renewal fails and the lease expires
+        clock.advance(Duration.ofSeconds(5));
+        runScheduledJobs();
+        clock.advance(Duration.ofSeconds(6));
+        runScheduledJobs();
+
+        // then -> the expiry tick itself does not touch the lease
+        Mockito.verifyNoInteractions(contractExpiryJob);
+        Mockito.verify(schedulerLeases, Mockito.times(3)).tryAcquire(any(), any());
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZONE;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -6,6 +6,8 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -15,7 +17,6 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import static org.mockito.ArgumentMatchers.anyDouble;
 import static org.mockito.ArgumentMatchers.eq;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
@@ -23,9 +24,14 @@ import org.mockito.Mockito;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.web.server.ResponseStatusException;
 
+import ch.uzh.ifi.hase.soprafs24.constant.ContractSortField;
 import ch.uzh.ifi.hase.soprafs24.constant.ContractStatus;
 import ch.uzh.ifi.hase.soprafs24.constant.OfferStatus;
 import ch.uzh.ifi.hase.soprafs24.entity.Contract;
@@ -33,10 +39,13 @@ import ch.uzh.ifi.hase.soprafs24.entity.Driver;
 import ch.uzh.ifi.hase.soprafs24.entity.Location;
 import ch.uzh.ifi.hase.soprafs24.entity.Offer;
 import ch.uzh.ifi.hase.soprafs24.entity.Requester;
+import ch.uzh.ifi.hase.soprafs24.exceptions.GoogleMapsException;
 import ch.uzh.ifi.hase.soprafs24.repository.ContractRepository;
 import ch.uzh.ifi.hase.soprafs24.repository.OfferRepository;
 import ch.uzh.ifi.hase.soprafs24.repository.UserRepository;
 import ch.uzh.ifi.hase.soprafs24.rest.dto.contract.ContractFilterDTO;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.contract.ContractGetDTO;
+import ch.uzh.ifi.hase.soprafs24.rest.mapper.ContractDTOMapper;
 
 class ContractServiceTest {
 
@@ -52,9 +61,23 @@ class ContractServiceTest {
     @Mock
     private GoogleMapsService googleMapsService;
 
+    @Mock
+    private OpenContractIndex openContractIndex;
+
+    @Mock
+    private ContractExpiryScheduler contractExpiryScheduler;
+
+    @Mock
+    private ChangeEventPublisher changeEventPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @InjectMocks
     private ContractService contractService;
 
+    private static final LatLng ORIGIN = new LatLng(47.3769, 8.5417);
+
     private Contract testContract;
     private Requester testRequester;
     private Location testFromLocation;
@@ -139,6 +162,9 @@ class ContractServiceTest {
         assertEquals(testRequester, createdContract.getRequester());
         assertEquals(testFromLocation, createdContract.getFromAddress());
         assertEquals(testToLocation, createdContract.getToAddress());
+        Mockito.verify(openContractIndex, Mockito.times(1)).contractChanged(createdContract);
+        Mockito.verify(contractExpiryScheduler, Mockito.times(1)).contractChanged(createdContract);
+        Mockito.verify(changeEventPublisher, Mockito.times(1)).contractChanged(createdContract);
     }
 
     @Test
@@ -495,6 +521,7 @@ class ContractServiceTest {
         // then
         assertEquals(ContractStatus.CANCELED, cancelledContract.getContractStatus());
         assertEquals("Cancellation reason", cancelledContract.getCancelReason());
+        Mockito.verify(offerRepository).updateOfferStatusByContractIds(List.of(1L), OfferStatus.REJECTED);
     }
 
     @Test
@@ -588,7 +615,6 @@ class ContractServiceTest {
         // Mock repository behavior
         Mockito.when(contractRepository.findById(1L)).thenReturn(Optional.of(existingContract));
         Mockito.when(contractRepository.save(Mockito.any())).thenReturn(existingContract);
-        Mockito.when(offerRepository.findByContract_ContractId(1L)).thenReturn(new ArrayList<>());
 
         // when
         contractService.deleteContract(1L);
@@ -599,11 +625,10 @@ class ContractServiceTest {
             contract.getContractStatus() == ContractStatus.DELETED
         ));
         
-        // Verify repository interactions
+        // Verify all offers were rejected in one statement
+        Mockito.verify(offerRepository).updateOfferStatusByContractIds(List.of(1L), OfferStatus.REJECTED);
+        Mockito.verify(offerRepository, Mockito.never()).save(Mockito.any());
         Mockito.verify(contractRepository).findById(1L);
-        Mockito.verify(offerRepository).findByContract_ContractId(1L);
-        Mockito.verify(contractRepository).flush();
-        Mockito.verify(offerRepository).flush();
     }
 
     @Test
@@ -614,16 +639,8 @@ class ContractServiceTest {
         existingContract.setContractStatus(ContractStatus.OFFERED);
         existingContract.setRequester(testRequester);
 
-        // Mock offers for this contract
-        List<Offer> offers = new ArrayList<>();
-        Offer offer1 = new Offer();
-        offer1.setOfferStatus(OfferStatus.CREATED);
-        offers.add(offer1);
-
         Mockito.when(contractRepository.findById(1L)).thenReturn(java.util.Optional.of(existingContract));
-        Mockito.when(offerRepository.findByContract_ContractId(1L)).thenReturn(offers);
         Mockito.when(contractRepository.save(Mockito.any())).thenReturn(existingContract);
-        Mockito.when(offerRepository.save(Mockito.any())).thenReturn(offer1);
 
         // when
         contractService.deleteContract(1L);
@@ -633,17 +650,12 @@ class ContractServiceTest {
         Mockito.verify(contractRepository).save(Mockito.argThat(contract -> 
             contract.getContractStatus() == ContractStatus.DELETED
         ));
+
         
-        // Verify all offers were rejected
-        Mockito.verify(offerRepository).save(Mockito.argThat(offer -> 
-            offer.getOfferStatus() == OfferStatus.REJECTED
-        ));
-        
-        // Verify repository interactions
+        // Verify all offers were rejected in one statement
+        Mockito.verify(offerRepository).updateOfferStatusByContractIds(List.of(1L), OfferStatus.REJECTED);
+        Mockito.verify(offerRepository, Mockito.never()).save(Mockito.any());
         Mockito.verify(contractRepository).findById(1L);
-        Mockito.verify(offerRepository).findByContract_ContractId(1L);
-        Mockito.verify(contractRepository).flush();
-        Mockito.verify(offerRepository).flush();
     }
 
     @Test
@@ -655,16 +667,8 @@ class ContractServiceTest {
         existingContract.setRequester(testRequester);
         existingContract.setMoveDateTime(LocalDateTime.now().plusDays(4)); // More than 72 hours in future
 
-        // Mock offers for this contract
-        List<Offer> offers = new ArrayList<>();
-        Offer acceptedOffer = new Offer();
-        acceptedOffer.setOfferStatus(OfferStatus.ACCEPTED);
-        offers.add(acceptedOffer);
-
         Mockito.when(contractRepository.findById(1L)).thenReturn(java.util.Optional.of(existingContract));
-        Mockito.when(offerRepository.findByContract_ContractId(1L)).thenReturn(offers);
         Mockito.when(contractRepository.save(Mockito.any())).thenReturn(existingContract);
-        Mockito.when(offerRepository.save(Mockito.any())).thenReturn(acceptedOffer);
 
         // when
         contractService.deleteContract(1L);
@@ -674,17 +678,12 @@ class ContractServiceTest {
         Mockito.verify(contractRepository).save(Mockito.argThat(contract -> 
             contract.getContractStatus() == ContractStatus.DELETED
         ));
+
         
-        // Verify all offers were rejected
-        Mockito.verify(offerRepository).save(Mockito.argThat(offer -> 
-            offer.getOfferStatus() == OfferStatus.REJECTED
-        ));
-        
-        // Verify repository interactions
+        // Verify all offers were rejected in one statement
+        Mockito.verify(offerRepository).updateOfferStatusByContractIds(List.of(1L), OfferStatus.REJECTED);
+        Mockito.verify(offerRepository, Mockito.never()).save(Mockito.any());
         Mockito.verify(contractRepository).findById(1L);
-        Mockito.verify(offerRepository).findByContract_ContractId(1L);
-        Mockito.verify(contractRepository).flush();
-        Mockito.verify(offerRepository).flush();
     }
 
     @Test
@@ -995,6 +994,7 @@ class ContractServiceTest {
         ));
         Mockito.verify(offerRepository).flush();
         Mockito.verify(contractRepository).flush();
+        Mockito.verify(openContractIndex, Mockito.times(1)).contractChanged(contract);
     }
 
     @Test
@@ -1005,31 +1005,27 @@ class ContractServiceTest {
         contract.setContractStatus(ContractStatus.REQUESTED);
         contract.setRequester(testRequester);
         
-        Offer offer = new Offer();
-        offer.setOfferId(1L);
-        offer.setOfferStatus(OfferStatus.CREATED);
-        offer.setContract(contract);
+        Contract acceptedContract = new Contract();
+        acceptedContract.setContractId(2L);
+        acceptedContract.setContractStatus(ContractStatus.ACCEPTED);
+        acceptedContract.setRequester(testRequester);
         
-        List<Contract> contracts = Collections.singletonList(contract);
-        List<Offer> offers = Collections.singletonList(offer);
+        List<Contract> contracts = List.of(contract, acceptedContract);
         
         Mockito.when(contractRepository.findByRequester_UserId(1L)).thenReturn(contracts);
-        Mockito.when(offerRepository.findByContract_ContractId(1L)).thenReturn(offers);
         Mockito.when(contractRepository.save(Mockito.any())).thenReturn(contract);
-        Mockito.when(offerRepository.save(Mockito.any())).thenReturn(offer);
 
         // when
         contractService.handleRequesterDeletion(1L);
 
-        // then
-        Mockito.verify(offerRepository).save(Mockito.argThat(o -> 
-            o.getOfferStatus() == OfferStatus.REJECTED
-        ));
+        // then -> only the offers of the deleted contract are rejected, in one statement
         Mockito.verify(contractRepository).save(Mockito.argThat(c -> 
             c.getContractStatus() == ContractStatus.DELETED
         ));
-        Mockito.verify(offerRepository).flush();
-        Mockito.verify(contractRepository).flush();
+        assertEquals(ContractStatus.ACCEPTED, acceptedContract.getContractStatus());
+        Mockito.verify(offerRepository).updateOfferStatusByContractIds(List.of(1L), OfferStatus.REJECTED);
+        Mockito.verify(offerRepository, Mockito.never()).save(Mockito.any());
+        Mockito.verify(changeEventPublisher).contractsChanged(List.of(1L), ContractStatus.DELETED);
     }
 
     @Test
@@ -1066,8 +1062,9 @@ class ContractServiceTest {
         contract3.setLength(1.0);
         contract3.setManPower(1);
 
-        List<Contract> allContracts = Arrays.asList(contract1, contract2, contract3);
-        Mockito.when(contractRepository.findAll()).thenReturn(allContracts);
+        // the database applies the attribute filters, so only contract1 is returned
+        Mockito.when(contractRepository.findAll(Mockito.<Specification<Contract>>any()))
+            .thenReturn(Collections.singletonList(contract1));
 
         ContractFilterDTO filters = new ContractFilterDTO();
         filters.setPrice(100.0); // min price logic
@@ -1087,66 +1084,9 @@ class ContractServiceTest {
         // then
         assertEquals(1, filteredContracts.size());
         assertEquals(contract1, filteredContracts.get(0));
-    }
-
-    @Test
-    void updateContractStatuses_success() {
-        // given
-        Contract acceptedContract = new Contract();
-        acceptedContract.setContractId(1L);
-        acceptedContract.setContractStatus(ContractStatus.ACCEPTED);
-        acceptedContract.setMoveDateTime(LocalDateTime.now().minusDays(1));
-
-        Contract requestedContract = new Contract();
-        requestedContract.setContractId(2L);
-        requestedContract.setContractStatus(ContractStatus.REQUESTED);
-        requestedContract.setMoveDateTime(LocalDateTime.now().minusDays(1));
-
-        Contract offeredContract = new Contract();
-        offeredContract.setContractId(3L);
-        offeredContract.setContractStatus(ContractStatus.OFFERED);
-        offeredContract.setMoveDateTime(LocalDateTime.now().minusDays(1));
-
-        Offer offer = new Offer();
-        offer.setOfferId(1L);
-        offer.setOfferStatus(OfferStatus.CREATED);
-        offer.setContract(offeredContract);
-
-        Mockito.when(contractRepository.findByContractStatusAndMoveDateTimeBefore(
-            eq(ContractStatus.ACCEPTED), Mockito.any())).thenReturn(Collections.singletonList(acceptedContract));
-        Mockito.when(contractRepository.findByContractStatusAndMoveDateTimeBefore(
-            eq(ContractStatus.REQUESTED), Mockito.any())).thenReturn(Collections.singletonList(requestedContract));
-        Mockito.when(contractRepository.findByContractStatusAndMoveDateTimeBefore(
-            eq(ContractStatus.OFFERED), Mockito.any())).thenReturn(Collections.singletonList(offeredContract));
-        Mockito.when(offerRepository.findByContract_ContractId(Mockito.any())).thenReturn(Collections.singletonList(offer));
-        Mockito.when(contractRepository.saveAll(Mockito.any())).thenReturn(Arrays.asList(acceptedContract, requestedContract, offeredContract));
-        Mockito.when(offerRepository.save(Mockito.any())).thenReturn(offer);
-
-        // when
-        contractService.updateContractStatuses();
-
-        // then
-        Mockito.verify(contractRepository).saveAll(Mockito.argThat(contracts -> {
-            for (Contract c : contracts) {
-                if (c.getContractStatus() == ContractStatus.COMPLETED) {
-                    return true;
-                }
-            }
-            return false;
-        }));
-        Mockito.verify(contractRepository).saveAll(Mockito.argThat(contracts -> {
-            for (Contract c : contracts) {
-                if (c.getContractStatus() != ContractStatus.CANCELED) {
-                    return false;
-                }
-            }
-            return true;
-        }));
-        Mockito.verify(offerRepository).save(Mockito.argThat(o -> 
-            o.getOfferStatus() == OfferStatus.REJECTED
-        ));
-        Mockito.verify(contractRepository).flush();
-        Mockito.verify(offerRepository).flush();
+        verify(contractRepository).findAll(Mockito.<Specification<Contract>>any());
+        verify(contractRepository, Mockito.never()).findAll();
+        Mockito.verifyNoInteractions(googleMapsService);
     }
 
     @Test
@@ -1270,11 +1210,10 @@ class ContractServiceTest {
         ContractFilterDTO filters = new ContractFilterDTO();
         filters.setRadius(1.0); // 1km radius
 
-        Mockito.when(contractRepository.findAll()).thenReturn(allContracts);
-        Mockito.when(googleMapsService.calculateDistance(47.3769, 8.5417, 47.3769, 8.5417))
-            .thenReturn(0.5); // Within radius
-        Mockito.when(googleMapsService.calculateDistance(47.3769, 8.5417, 47.3770, 8.5418))
-            .thenReturn(2.0); // Outside radius
+        Mockito.when(contractRepository.findAll(Mockito.<Specification<Contract>>any())).thenReturn(allContracts);
+        mockRoadDistances(destination -> destination.equals(new LatLng(47.3769, 8.5417))
+            ? 0.5 // Within radius
+            : 2.0); // Outside radius
 
         // when
         List<Contract> result = contractService.getContracts(47.3769, 8.5417, filters);
@@ -1284,8 +1223,10 @@ class ContractServiceTest {
         assertTrue(result.contains(contract1));
         assertFalse(result.contains(contract2));
 
-        verify(contractRepository).findAll();
-        verify(googleMapsService, times(2)).calculateDistance(anyDouble(), anyDouble(), anyDouble(), anyDouble());
+        verify(contractRepository).findAll(Mockito.<Specification<Contract>>any());
+        // both candidates are checked in a single batched request
+        verify(googleMapsService, times(1)).calculateDistances(eq(ORIGIN),
+            Mockito.argThat(destinations -> destinations.size() == 2));
     }
     @Test
     void getContracts_withAllFilters_success() {
@@ -1316,8 +1257,6 @@ class ContractServiceTest {
         contract2.setRideAlong(true);
         contract2.setMoveDateTime(LocalDateTime.now().plusDays(2));
 
-        List<Contract> allContracts = Arrays.asList(contract1, contract2);
-
         ContractFilterDTO filters = new ContractFilterDTO();
         filters.setPrice(150.0); // min price logic, only contract2 passes
         filters.setWeight(150.0);
@@ -1331,12 +1270,13 @@ class ContractServiceTest {
         filters.setMoveDate(null);
         filters.setRadius(1.0);
 
-        Mockito.when(contractRepository.findAll()).thenReturn(allContracts);
+        // the database applies the min price filter, so only contract2 is returned
+        Mockito.when(contractRepository.findAll(Mockito.<Specification<Contract>>any()))
+            .thenReturn(Collections.singletonList(contract2));
         // Mock distance calculation for both contracts
-        Mockito.when(googleMapsService.calculateDistance(eq(47.3769), eq(8.5417), eq(47.3769), eq(8.5417)))
-            .thenReturn(2.0); // contract1 distance (outside radius)
-        Mockito.when(googleMapsService.calculateDistance(eq(47.3769), eq(8.5417), eq(47.3770), eq(8.5418)))
-            .thenReturn(0.5); // contract2 distance (within radius)
+        mockRoadDistances(destination -> destination.equals(new LatLng(47.3770, 8.5418))
+            ? 0.5 // contract2 distance (within radius)
+            : 2.0); // contract1 distance (outside radius)
 
         // when
         List<Contract> result = contractService.getContracts(47.3769, 8.5417, filters);
@@ -1347,7 +1287,387 @@ class ContractServiceTest {
         assertTrue(result.contains(contract2));
         assertFalse(result.contains(contract1));
 
-        verify(contractRepository).findAll();
-        verify(googleMapsService, times(1)).calculateDistance(eq(47.3769), eq(8.5417), eq(47.3770), eq(8.5418));
+        verify(contractRepository).findAll(Mockito.<Specification<Contract>>any());
+        verify(googleMapsService, times(1)).calculateDistances(ORIGIN, List.of(new LatLng(47.3770, 8.5418)));
+    }
+
+    @Test
+    void getContracts_radiusSearch_skipsGoogleForContractsOutsideGreatCircle() {
+        // given
+        Location bern = new Location();
+        bern.setLatitude(46.9490);
+        bern.setLongitude(7.4390);
+
+        Contract nearby = new Contract();
+        nearby.setContractId(1L);
+        nearby.setFromAddress(testToLocation);
+
+        Contract farAway = new Contract(); // inside the bounding box query result, but ~95 km away
+        farAway.setContractId(2L);
+        farAway.setFromAddress(bern);
+
+        ContractFilterDTO filters = new ContractFilterDTO();
+        filters.setRadius(5.0);
+
+        Mockito.when(contractRepository.findAll(Mockito.<Specification<Contract>>any()))
+            .thenReturn(Arrays.asList(farAway, nearby));
+        mockRoadDistances(destination -> 1.0);
+
+        // when
+        List<Contract> result = contractService.getContracts(47.3769, 8.5417, filters);
+
+        // then
+        assertEquals(1, result.size());
+        assertEquals(nearby, result.get(0));
+        verify(googleMapsService, times(1)).calculateDistances(ORIGIN, List.of(new LatLng(47.3770, 8.5418)));
+    }
+
+    @Test
+    void getContracts_radiusSearch_refinesOnlyClosestCandidates() {
+        // given
+        ReflectionTestUtils.setField(contractService, "roadDistanceCandidates", 1);
+
+        Location closest = new Location();
+        closest.setLatitude(47.3770);
+        closest.setLongitude(8.5418);
+        Location further = new Location();
+        further.setLatitude(47.3900);
+        further.setLongitude(8.5500);
+
+        Contract closestContract = new Contract();
+        closestContract.setContractId(1L);
+        closestContract.setFromAddress(closest);
+        Contract furtherContract = new Contract();
+        furtherContract.setContractId(2L);
+        furtherContract.setFromAddress(further);
+
+        ContractFilterDTO filters = new ContractFilterDTO();
+        filters.setRadius(5.0);
+
+        Mockito.when(contractRepository.findAll(Mockito.<Specification<Contract>>any()))
+            .thenReturn(Arrays.asList(furtherContract, closestContract));
+        mockRoadDistances(destination -> 1.0);
+
+        // when
+        List<Contract> result = contractService.getContracts(47.3769, 8.5417, filters);
+
+        // then -> ordered by distance, only the closest one is checked against Google
+        assertEquals(Arrays.asList(closestContract, furtherContract), result);
+        verify(googleMapsService, times(1)).calculateDistances(ORIGIN, List.of(new LatLng(47.3770, 8.5418)));
+        verify(googleMapsService, times(1)).calculateDistances(Mockito.any(), Mockito.anyList());
+    }
+
+    @Test
+    void getContracts_radiusSearch_googleUnavailable_fallsBackToGreatCircle() {
+        // given
+        Location nearbyLocation = new Location();
+        nearbyLocation.setLatitude(47.3770);
+        nearbyLocation.setLongitude(8.5418);
+        Contract nearby = new Contract();
+        nearby.setContractId(1L);
+        nearby.setFromAddress(nearbyLocation);
+
+        ContractFilterDTO filters = new ContractFilterDTO();
+        filters.setRadius(5.0);
+
+        Mockito.when(contractRepository.findAll(Mockito.<Specification<Contract>>any()))
+            .thenReturn(List.of(nearby));
+        Mockito.when(googleMapsService.calculateDistances(Mockito.any(), Mockito.anyList()))
+            .thenThrow(new GoogleMapsException("Google Maps API unavailable: too many failed requests"));
+
+        // when
+        List<Contract> result = contractService.getContracts(47.3769, 8.5417, filters);
+
+        // then
+        assertEquals(List.of(nearby), result);
+    }
+
+    @Test
+    void getContractPage_sortByPrice_returnsPageAndNextCursor() {
+        // given
+        Contract cheap = new Contract();
+        cheap.setContractId(1L);
+        cheap.setPrice(50.0);
+        Contract medium = new Contract();
+        medium.setContractId(2L);
+        medium.setPrice(80.0);
+        Contract expensive = new Contract();
+        expensive.setContractId(3L);
+        expensive.setPrice(120.0);
+
+        Sort expectedSort = Sort.by(Sort.Direction.ASC, "price").and(Sort.by(Sort.Direction.ASC, "contractId"));
+        Mockito.when(contractRepository.findAll(Mockito.<Specification<Contract>>any(), eq(expectedSort), eq(3)))
+            .thenReturn(Arrays.asList(cheap, medium, expensive));
+
+        // when
+        ContractPage page = contractService.getContractPage(null, null, null, false,
+            ContractSortField.PRICE, false, null, 2);
+
+        // then -> the extra row is only used to detect the next page
+        assertEquals(Arrays.asList(cheap, medium), page.getContracts());
+        ContractCursor next = ContractCursor.decode(page.getNextCursor(), ContractSortField.PRICE, false);
+        assertEquals(80.0, next.getValue());
+        assertEquals(2L, next.getContractId());
+        verify(contractRepository, Mockito.never()).findAll(Mockito.<Specification<Contract>>any());
+    }
+
+    @Test
+    void getContractPage_lastPage_hasNoNextCursor() {
+        // given
+        Contract contract = new Contract();
+        contract.setContractId(1L);
+        contract.setMoveDateTime(LocalDateTime.of(2030, 6, 15, 10, 0));
+        String cursor = new ContractCursor(ContractSortField.MOVE_DATE_TIME, true,
+            LocalDateTime.of(2030, 7, 1, 10, 0), 9L).encode();
+
+        Mockito.when(contractRepository.findAll(Mockito.<Specification<Contract>>any(), Mockito.any(Sort.class), eq(3)))
+            .thenReturn(Collections.singletonList(contract));
+
+        // when
+        ContractPage page = contractService.getContractPage(null, null, null, false,
+            ContractSortField.MOVE_DATE_TIME, true, cursor, 2);
+
+        // then
+        assertEquals(Collections.singletonList(contract), page.getContracts());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void getContractPage_cursorForDifferentSort_throwsBadRequest() {
+        // given
+        String cursor = new ContractCursor(ContractSortField.PRICE, false, 80.0, 2L).encode();
+
+        // when/then
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+            () -> contractService.getContractPage(null, null, null, false,
+                ContractSortField.CREATION_DATE_TIME, false, cursor, 2));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatus());
+    }
+
+    @Test
+    void getContractPage_malformedCursor_throwsBadRequest() {
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+            () -> contractService.getContractPage(null, null, null, false,
+                ContractSortField.PRICE, false, "not-a-cursor", 2));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatus());
+    }
+
+    @Test
+    void getContractPage_sortByDistanceWithoutRadius_throwsBadRequest() {
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+            () -> contractService.getContractPage(47.3769, 8.5417, null, false,
+                ContractSortField.DISTANCE, false, null, 2));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatus());
+    }
+
+    @Test
+    void getContractPage_sortByDistance_continuesAfterCursor() {
+        // given
+        Contract closest = new Contract();
+        closest.setContractId(1L);
+        closest.setFromAddress(testToLocation);
+        Location furtherLocation = new Location();
+        furtherLocation.setLatitude(47.3900);
+        furtherLocation.setLongitude(8.5500);
+        Contract further = new Contract();
+        further.setContractId(2L);
+        further.setFromAddress(furtherLocation);
+
+        ContractFilterDTO filters = new ContractFilterDTO();
+        filters.setRadius(5.0);
+
+        Mockito.when(contractRepository.findAll(Mockito.<Specification<Contract>>any()))
+            .thenReturn(Arrays.asList(further, closest));
+        mockRoadDistances(destination -> 1.0);
+
+        // when
+        ContractPage first = contractService.getContractPage(47.3769, 8.5417, filters, false,
+            ContractSortField.DISTANCE, false, null, 1);
+        ContractPage second = contractService.getContractPage(47.3769, 8.5417, filters, false,
+            ContractSortField.DISTANCE, false, first.getNextCursor(), 1);
+
+        // then
+        assertEquals(Collections.singletonList(closest), first.getContracts());
+        assertEquals(Collections.singletonList(further), second.getContracts());
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    void getOpenContracts_indexReady_loadsOnlyMatchingContracts() {
+        // given
+        Contract open = new Contract();
+        open.setContractId(1L);
+        open.setContractStatus(ContractStatus.REQUESTED);
+        open.setFromAddress(testFromLocation);
+
+        Mockito.when(openContractIndex.isReady()).thenReturn(true);
+        Mockito.when(openContractIndex.search(null)).thenReturn(List.of(OpenContractSnapshot.of(open)));
+        Mockito.when(contractRepository.findAllById(List.of(1L))).thenReturn(List.of(open));
+
+        // when
+        List<Contract> result = contractService.getOpenContracts(null, null, null);
+
+        // then
+        assertEquals(List.of(open), result);
+        verify(contractRepository, Mockito.never()).findAll(Mockito.<Specification<Contract>>any());
+    }
+
+    @Test
+    void getOpenContracts_radiusSearch_filtersAndOrdersByDistance() {
+        // given
+        Location bern = new Location();
+        bern.setLatitude(46.9490);
+        bern.setLongitude(7.4390);
+        Location further = new Location();
+        further.setLatitude(47.3900);
+        further.setLongitude(8.5500);
+
+        Contract closestContract = new Contract();
+        closestContract.setContractId(1L);
+        closestContract.setContractStatus(ContractStatus.OFFERED);
+        closestContract.setFromAddress(testToLocation);
+        Contract furtherContract = new Contract();
+        furtherContract.setContractId(2L);
+        furtherContract.setContractStatus(ContractStatus.REQUESTED);
+        furtherContract.setFromAddress(further);
+        Contract bernContract = new Contract();
+        bernContract.setContractId(3L);
+        bernContract.setContractStatus(ContractStatus.REQUESTED);
+        bernContract.setFromAddress(bern);
+
+        ContractFilterDTO filters = new ContractFilterDTO();
+        filters.setRadius(5.0);
+
+        Mockito.when(openContractIndex.isReady()).thenReturn(true);
+        Mockito.when(openContractIndex.search(filters)).thenReturn(List.of(
+            OpenContractSnapshot.of(bernContract), OpenContractSnapshot.of(furtherContract),
+            OpenContractSnapshot.of(closestContract)));
+        mockRoadDistances(destination -> 1.0);
+        Mockito.when(contractRepository.findAllById(List.of(1L, 2L)))
+            .thenReturn(List.of(furtherContract, closestContract));
+
+        // when
+        List<Contract> result = contractService.getOpenContracts(47.3769, 8.5417, filters);
+
+        // then
+        assertEquals(List.of(closestContract, furtherContract), result);
+        verify(googleMapsService, times(1)).calculateDistances(ORIGIN,
+            List.of(new LatLng(47.3770, 8.5418), new LatLng(47.3900, 8.5500)));
+    }
+
+    @Test
+    void getOpenContracts_indexNotReady_fallsBackToDatabase() {
+        // given
+        Contract open = new Contract();
+        open.setContractId(1L);
+        open.setContractStatus(ContractStatus.REQUESTED);
+        Contract accepted = new Contract();
+        accepted.setContractId(2L);
+        accepted.setContractStatus(ContractStatus.ACCEPTED);
+
+        Mockito.when(openContractIndex.isReady()).thenReturn(false);
+        Mockito.when(contractRepository.findAll(Mockito.<Specification<Contract>>any()))
+            .thenReturn(List.of(open, accepted));
+
+        // when
+        List<Contract> result = contractService.getOpenContracts(null, null, null);
+
+        // then
+        assertEquals(List.of(open), result);
+        verify(openContractIndex, Mockito.never()).search(Mockito.any());
+    }
+
+    @Test
+    void getContractDTOs_radiusSearch_filtersAndOrdersByDistance() {
+        // given
+        Location bern = new Location();
+        bern.setLatitude(46.9490);
+        bern.setLongitude(7.4390);
+
+        Contract nearby = new Contract();
+        nearby.setContractId(1L);
+        nearby.setFromAddress(testToLocation);
+        Contract farAway = new Contract();
+        farAway.setContractId(2L);
+        farAway.setFromAddress(bern);
+
+        ContractFilterDTO filters = new ContractFilterDTO();
+        filters.setRadius(5.0);
+
+        Mockito.when(contractRepository.findAllAsDTO(Mockito.<Specification<Contract>>any(), Mockito.any()))
+            .thenReturn(List.of(ContractDTOMapper.INSTANCE.convertContractEntityToContractGetDTO(farAway),
+                ContractDTOMapper.INSTANCE.convertContractEntityToContractGetDTO(nearby)));
+        mockRoadDistances(destination -> 1.0);
+
+        // when
+        List<ContractGetDTO> result = contractService.getContractDTOs(47.3769, 8.5417, filters);
+
+        // then
+        assertEquals(List.of(1L), result.stream().map(ContractGetDTO::getContractId).toList());
+        verify(googleMapsService, times(1)).calculateDistances(ORIGIN, List.of(new LatLng(47.3770, 8.5418)));
+        verify(contractRepository, Mockito.never()).findAll(Mockito.<Specification<Contract>>any());
+    }
+
+    @Test
+    void getOpenContractDTOs_indexReady_keepsIndexOrderAndSkipsClosedContracts() {
+        // given
+        Contract first = new Contract();
+        first.setContractId(1L);
+        first.setContractStatus(ContractStatus.REQUESTED);
+        first.setFromAddress(testFromLocation);
+        Contract second = new Contract();
+        second.setContractId(2L);
+        second.setContractStatus(ContractStatus.OFFERED);
+        second.setFromAddress(testFromLocation);
+        Contract closed = new Contract();
+        closed.setContractId(3L);
+        closed.setContractStatus(ContractStatus.REQUESTED);
+        closed.setFromAddress(testFromLocation);
+
+        Mockito.when(openContractIndex.isReady()).thenReturn(true);
+        Mockito.when(openContractIndex.search(null)).thenReturn(List.of(OpenContractSnapshot.of(second),
+            OpenContractSnapshot.of(closed), OpenContractSnapshot.of(first)));
+        closed.setContractStatus(ContractStatus.ACCEPTED); // accepted after the index was searched
+        Mockito.when(contractRepository.findAllAsDTO(Mockito.<Specification<Contract>>any(), Mockito.any()))
+            .thenReturn(List.of(first, second, closed).stream()
+                .map(ContractDTOMapper.INSTANCE::convertContractEntityToContractGetDTO)
+                .toList());
+
+        // when
+        List<ContractGetDTO> result = contractService.getOpenContractDTOs(null, null, null);
+
+        // then
+        assertEquals(List.of(2L, 1L), result.stream().map(ContractGetDTO::getContractId).toList());
+        verify(contractRepository, Mockito.never()).findAllById(Mockito.any());
+    }
+
+    private void mockRoadDistances(ToDoubleFunction<LatLng> roadDistance) {
+        Mockito.when(googleMapsService.calculateDistances(Mockito.any(), Mockito.anyList()))
+            .thenAnswer(invocation -> {
+                List<LatLng> destinations = invocation.getArgument(1);
+                return destinations.stream()
+                    .map(destination -> roadDistance.applyAsDouble(destination))
+                    .collect(Collectors.toList());
+            });
+    }
+
+    @Test
+    void streamContracts_readsBatchesInSeparateTransactions() {
+        // given
+        ContractGetDTO first = new ContractGetDTO();
+        first.setContractId(1L);
+        ContractGetDTO second = new ContractGetDTO();
+        second.setContractId(2L);
+        Mockito.when(contractRepository.findAllAsDTO(Mockito.any(), eq(Sort.by("contractId")), eq(100)))
+            .thenReturn(List.of(first, second));
+
+        // when
+        List<Long> streamed = new ArrayList<>();
+        contractService.streamContracts(null, null, null, true, contract -> streamed.add(contract.getContractId()));
+
+        // then -> the last batch was not full, so no further batch is read
+        assertEquals(List.of(1L, 2L), streamed);
+        verify(contractRepository, times(1)).findAllAsDTO(Mockito.any(), Mockito.any(), Mockito.anyInt());
+        verify(transactionManager).commit(Mockito.any());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,99 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class DistanceCacheTest {
+
+    private static final LatLng ZURICH = new LatLng(47.3769, 8.5417);
+    private static final LatLng BERN = new LatLng(46.9490, 7.4390);
+    private static final LatLng BASEL = new LatLng(47.5596, 7.5886);
+
+    private final AtomicLong now = new AtomicLong();
+    private DistanceCache distanceCache;
+
+    @BeforeEach
+    void setup() {
+        distanceCache = new DistanceCache(50, 2, Duration.ofMinutes(10), now::get);
+    }
+
+    @Test
+    void get_nearbyCoordinates_hitSameEntry() {
+        // given
+        distanceCache.put(ZURICH, BERN, 120.0);
+
+        // when -> roughly 10 m away from the cached origin
+        LatLng nearZurich = new LatLng(47.37695, 8.54175);
+
+        // then
+        assertEquals(120.0, distanceCache.get(nearZurich, BERN).getAsDouble(), 1e-9);
+        assertEquals(1, distanceCache.getStats().getHits());
+    }
+
+    @Test
+    void get_distantCoordinates_miss() {
+        // given
+        distanceCache.put(ZURICH, BERN, 120.0);
+
+        // when -> roughly 500 m away from the cached origin
+        LatLng otherPlace = new LatLng(47.3814, 8.5417);
+
+        // then
+        assertFalse(distanceCache.get(otherPlace, BERN).isPresent());
+        assertEquals(1, distanceCache.getStats().getMisses());
+    }
+
+    @Test
+    void put_full_evictsLeastRecentlyUsed() {
+        // given
+        distanceCache.put(ZURICH, BERN, 120.0);
+        distanceCache.put(ZURICH, BASEL, 85.0);
+        distanceCache.get(ZURICH, BERN); // Bern is now used more recently than Basel
+
+        // when
+        distanceCache.put(BERN, BASEL, 100.0);
+
+        // then
+        assertTrue(distanceCache.get(ZURICH, BERN).isPresent());
+        assertFalse(distanceCache.get(ZURICH, BASEL).isPresent());
+        assertEquals(1, distanceCache.getStats().getEvictions());
+        assertEquals(2, distanceCache.getStats().getSize());
+    }
+
+    @Test
+    void get_afterTtl_entryExpired() {
+        // given
+        distanceCache.put(ZURICH, BERN, 120.0);
+
+        // when
+        now.addAndGet(Duration.ofMinutes(11).toNanos());
+
+        // then
+        assertFalse(distanceCache.get(ZURICH, BERN).isPresent());
+        assertEquals(1, distanceCache.getStats().getExpirations());
+        assertEquals(0, distanceCache.getStats().getSize());
+    }
+
+    @Test
+    void removeExpired_dropsOnlyExpiredEntries() {
+        // given
+        distanceCache.put(ZURICH, BERN, 120.0);
+        now.addAndGet(Duration.ofMinutes(6).toNanos());
+        distanceCache.put(ZURICH, BASEL, 85.0);
+        now.addAndGet(Duration.ofMinutes(6).toNanos());
+
+        // when
+        distanceCache.removeExpired();
+
+        // then
+        assertEquals(1, distanceCache.getStats().getSize());
+        assertTrue(distanceCache.get(ZURICH, BASEL).isPresent());
+    }
+}
@@ -0,0 +1,221 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import ch.uzh.ifi.hase.soprafs24.constant.ContractStatus;
+import ch.uzh.ifi.hase.soprafs24.entity.Car;
+import ch.uzh.ifi.hase.soprafs24.entity.Contract;
+import ch.uzh.ifi.hase.soprafs24.entity.Driver;
+import ch.uzh.ifi.hase.soprafs24.entity.Location;
+import ch.uzh.ifi.hase.soprafs24.repository.ContractRepository;
+import ch.uzh.ifi.hase.soprafs24.repository.UserRepository;
+
+class DriverFeedTest {
+
+    // Zurich main station, the pickups lie about 1 km (Bellevue), 20 km (Winterthur) and 95 km (Bern) away
+    private static final double ZURICH_LAT = 47.3779;
+    private static final double ZURICH_LNG = 8.5403;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private ContractRepository contractRepository;
+
+    private OpenContractIndex openContractIndex;
+    private DriverFeed driverFeed;
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.openMocks(this);
+        Mockito.when(contractRepository.findByContractStatus(Mockito.any())).thenReturn(Collections.emptyList());
+        openContractIndex = new OpenContractIndex(contractRepository);
+        openContractIndex.synchronizeWithDatabase();
+        driverFeed = new DriverFeed(userRepository, openContractIndex);
+    }
+
+    private Driver createDriver(Long id, float range, float weightCapacity, float volumeCapacity) {
+        Car car = new Car();
+        car.setWeightCapacity(weightCapacity);
+        car.setVolumeCapacity(volumeCapacity);
+        Location location = new Location();
+        location.setLatitude(ZURICH_LAT);
+        location.setLongitude(ZURICH_LNG);
+        Driver driver = new Driver();
+        driver.setUserId(id);
+        driver.setPreferredRange(range);
+        driver.setCar(car);
+        driver.setLocation(location);
+        return driver;
+    }
+
+    private Contract createContract(Long id, double latitude, double longitude, double weight) {
+        Location fromAddress = new Location();
+        fromAddress.setLatitude(latitude);
+        fromAddress.setLongitude(longitude);
+        Contract contract = new Contract();
+        contract.setContractId(id);
+        contract.setContractStatus(ContractStatus.REQUESTED);
+        contract.setFromAddress(fromAddress);
+        contract.setWeight(weight);
+        contract.setHeight(1.0);
+        contract.setWidth(1.0);
+        contract.setLength(2.0);
+        contract.setMoveDateTime(LocalDateTime.of(2030, 6, 15, 10, 0));
+        return contract;
+    }
+
+    private Contract winterthur(Long id) {
+        return createContract(id, 47.4997, 8.7241, 100.0);
+    }
+
+    private Contract bellevue(Long id) {
+        return createContract(id, 47.3667, 8.5450, 100.0);
+    }
+
+    private Contract bern(Long id) {
+        return createContract(id, 46.9480, 7.4474, 100.0);
+    }
+
+    @Test
+    void rebuild_matchesOpenContractsWithinRange_closestFirst() {
+        // given
+        openContractIndex.contractChanged(winterthur(1L));
+        openContractIndex.contractChanged(bellevue(2L));
+        openContractIndex.contractChanged(bern(3L));
+
+        // when
+        driverFeed.rebuild(List.of(createDriver(10L, 30, 500, 10)));
+
+        // then
+        assertEquals(List.of(2L, 1L), driverFeed.getContractIds(10L));
+    }
+
+    @Test
+    void contractOpened_addedToMatchingDriversOnly() {
+        // given -> the second car is too small, the third driver does not drive that far
+        driverFeed.rebuild(List.of(createDriver(10L, 30, 500, 10), createDriver(11L, 30, 50, 10),
+                createDriver(12L, 10, 500, 10)));
+
+        // when
+        openContractIndex.contractChanged(winterthur(1L));
+
+        // then
+        assertEquals(List.of(1L), driverFeed.getContractIds(10L));
+        assertTrue(driverFeed.getContractIds(11L).isEmpty());
+        assertTrue(driverFeed.getContractIds(12L).isEmpty());
+    }
+
+    @Test
+    void contractOpened_volumeExceedsCapacity_notMatched() {
+        // given -> the contract needs 2 cubic meters
+        driverFeed.rebuild(List.of(createDriver(10L, 30, 500, 1.5f)));
+
+        // when
+        openContractIndex.contractChanged(bellevue(1L));
+
+        // then
+        assertTrue(driverFeed.getContractIds(10L).isEmpty());
+    }
+
+    @Test
+    void contractChanged_closedOrMovedOutOfRange_removedFromFeed() {
+        // given
+        driverFeed.rebuild(List.of(createDriver(10L, 30, 500, 10)));
+        Contract accepted = bellevue(1L);
+        openContractIndex.contractChanged(accepted);
+        openContractIndex.contractChanged(winterthur(2L));
+
+        // when
+        accepted.setContractStatus(ContractStatus.ACCEPTED);
+        openContractIndex.contractChanged(accepted);
+        openContractIndex.contractChanged(bern(2L));
+
+        // then
+        assertTrue(driverFeed.getContractIds(10L).isEmpty());
+        assertEquals(0, driverFeed.size());
+    }
+
+    @Test
+    void contractsClosed_bulkUpdate_removedFromFeed() {
+        // given
+        driverFeed.rebuild(List.of(createDriver(10L, 30, 500, 10)));
+        openContractIndex.contractChanged(bellevue(1L));
+        openContractIndex.contractChanged(winterthur(2L));
+
+        // when
+        openContractIndex.contractsClosed(List.of(1L));
+
+        // then
+        assertEquals(List.of(2L), driverFeed.getContractIds(10L));
+    }
+
+    @Test
+    void indexSynchronized_rebuildsFeedsWithCurrentDrivers() {
+        // given -> another instance added the driver and the contract
+        Mockito.when(userRepository.findAllDriversWithCarAndLocation())
+            .thenReturn(List.of(createDriver(10L, 30, 500, 10)));
+        Mockito.when(contractRepository.findByContractStatus(ContractStatus.REQUESTED))
+            .thenReturn(List.of(bellevue(1L)));
+
+        // when
+        openContractIndex.resynchronize();
+
+        // then
+        assertEquals(List.of(1L), driverFeed.getContractIds(10L));
+    }
+
+    @Test
+    void driverChanged_rangeExtended_rematchesOpenContracts() {
+        // given
+        openContractIndex.contractChanged(winterthur(1L));
+        openContractIndex.contractChanged(bern(2L));
+        driverFeed.rebuild(List.of(createDriver(10L, 30, 500, 10)));
+
+        // when
+        driverFeed.driverChanged(createDriver(10L, 150, 500, 10));
+
+        // then
+        assertEquals(List.of(1L, 2L), driverFeed.getContractIds(10L));
+    }
+
+    @Test
+    void driverChanged_newDriverWithoutCar_emptyFeed() {
+        // given
+        openContractIndex.contractChanged(bellevue(1L));
+        Driver driver = createDriver(10L, 30, 500, 10);
+        driver.setCar(null);
+
+        // when
+        driverFeed.driverChanged(driver);
+
+        // then
+        assertTrue(driverFeed.getContractIds(10L).isEmpty());
+    }
+
+    @Test
+    void driverRemoved_feedDropped() {
+        // given
+        driverFeed.rebuild(List.of(createDriver(10L, 30, 500, 10)));
+        openContractIndex.contractChanged(bellevue(1L));
+
+        // when
+        driverFeed.driverRemoved(10L);
+        openContractIndex.contractChanged(winterthur(2L));
+
+        // then
+        assertTrue(driverFeed.getContractIds(10L).isEmpty());
+        assertEquals(0, driverFeed.size());
+    }
+}
@@ -0,0 +1,51 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class GeoDistanceCalculatorTest {
+
+    @Test
+    void haversineKm_samePoint_returnsZero() {
+        assertEquals(0.0, GeoDistanceCalculator.haversineKm(47.3769, 8.5417, 47.3769, 8.5417), 1e-9);
+    }
+
+    @Test
+    void haversineKm_zurichToBern_returnsKnownDistance() {
+        // Zurich HB to Bern HB is roughly 95 km as the crow flies
+        double distance = GeoDistanceCalculator.haversineKm(47.3779, 8.5403, 46.9490, 7.4390);
+        assertEquals(95.0, distance, 2.0);
+    }
+
+    @Test
+    void haversineKm_isSymmetric() {
+        double there = GeoDistanceCalculator.haversineKm(47.3779, 8.5403, 46.9490, 7.4390);
+        double back = GeoDistanceCalculator.haversineKm(46.9490, 7.4390, 47.3779, 8.5403);
+        assertEquals(there, back, 1e-9);
+    }
+
+    @Test
+    void latitudeDelta_oneDegreeIsAbout111Km() {
+        assertEquals(1.0, GeoDistanceCalculator.latitudeDelta(111.195), 0.001);
+    }
+
+    @Test
+    void longitudeDelta_boxContainsPointsOnTheRadius() {
+        double lat = 47.3769;
+        double lng = 8.5417;
+        double radius = 10.0;
+
+        double lngDelta = GeoDistanceCalculator.longitudeDelta(lat, radius);
+
+        // A point exactly on the box edge at the same latitude must not be closer than the radius
+        double edgeDistance = GeoDistanceCalculator.haversineKm(lat, lng, lat, lng + lngDelta);
+        assertTrue(edgeDistance >= radius - 1e-6);
+    }
+
+    @Test
+    void longitudeDelta_nearPole_spansAllLongitudes() {
+        assertEquals(180.0, GeoDistanceCalculator.longitudeDelta(89.99, 50.0), 1e-9);
+    }
+}
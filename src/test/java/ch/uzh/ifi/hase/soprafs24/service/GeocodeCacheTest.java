@@ -0,0 +1,107 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import ch.uzh.ifi.hase.soprafs24.entity.GeocodedAddress;
+import ch.uzh.ifi.hase.soprafs24.repository.GeocodedAddressRepository;
+
+class GeocodeCacheTest {
+
+    @Mock
+    private GeocodedAddressRepository geocodedAddressRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private GeocodeCache geocodeCache;
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.openMocks(this);
+        geocodeCache = new GeocodeCache(geocodedAddressRepository, transactionManager, 100);
+    }
+
+    @Test
+    void normalize_foldsCaseAndWhitespace() {
+        assertEquals("bahnhofstrasse 1, 8001 zürich",
+            GeocodeCache.normalize("  Bahnhofstrasse   1 ,8001\tZürich "));
+    }
+
+    @Test
+    void put_storesNormalizedAddressInDatabase() {
+        // when
+        geocodeCache.put("Bahnhofstrasse 1, 8001 Zürich", new LatLng(47.3769, 8.5417));
+
+        // then
+        ArgumentCaptor<GeocodedAddress> captor = ArgumentCaptor.forClass(GeocodedAddress.class);
+        verify(geocodedAddressRepository).saveAndFlush(captor.capture());
+        assertEquals("bahnhofstrasse 1, 8001 zürich", captor.getValue().getNormalizedAddress());
+        assertEquals(47.3769, captor.getValue().getLatitude());
+    }
+
+    @Test
+    void get_afterPut_servedFromMemory() {
+        // given
+        geocodeCache.put("Bahnhofstrasse 1, 8001 Zürich", new LatLng(47.3769, 8.5417));
+
+        // when
+        Optional<LatLng> cached = geocodeCache.get("BAHNHOFSTRASSE 1,  8001 ZÜRICH");
+
+        // then
+        assertEquals(new LatLng(47.3769, 8.5417), cached.get());
+        verify(geocodedAddressRepository, never()).findById(any());
+    }
+
+    @Test
+    void get_notInMemory_loadsFromDatabaseOnce() {
+        // given
+        GeocodedAddress geocoded = new GeocodedAddress();
+        geocoded.setNormalizedAddress("zürich hb");
+        geocoded.setLatitude(47.3779);
+        geocoded.setLongitude(8.5403);
+        when(geocodedAddressRepository.findById("zürich hb")).thenReturn(Optional.of(geocoded));
+
+        // when
+        geocodeCache.get("Zürich HB");
+        Optional<LatLng> second = geocodeCache.get("zürich hb");
+
+        // then
+        assertEquals(new LatLng(47.3779, 8.5403), second.get());
+        verify(geocodedAddressRepository, times(1)).findById("zürich hb");
+    }
+
+    @Test
+    void get_unknownAddress_returnsEmpty() {
+        when(geocodedAddressRepository.findById(any())).thenReturn(Optional.empty());
+
+        assertFalse(geocodeCache.get("Unknown Street 1").isPresent());
+    }
+
+    @Test
+    void put_databaseConflict_keepsMemoryEntry() {
+        // given
+        when(geocodedAddressRepository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("duplicate"));
+
+        // when
+        geocodeCache.put("Zürich HB", new LatLng(47.3779, 8.5403));
+
+        // then
+        assertEquals(new LatLng(47.3779, 8.5403), geocodeCache.get("Zürich HB").get());
+    }
+}
@@ -0,0 +1,57 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+
+import ch.uzh.ifi.hase.soprafs24.exceptions.GoogleMapsException;
+
+class GoogleMapsCallGuardTest {
+
+    private long now;
+    private GoogleMapsCallGuard callGuard;
+
+    @BeforeEach
+    void setup() {
+        now = 0;
+        CircuitBreaker circuitBreaker = new CircuitBreaker("test", 0.5, 2, 1, Duration.ofSeconds(30), () -> now);
+        callGuard = new GoogleMapsCallGuard(2, Duration.ZERO, Duration.ofSeconds(10), circuitBreaker);
+    }
+
+    private <T> T failingCall() {
+        throw new ResourceAccessException("timeout");
+    }
+
+    @Test
+    void call_failure_opensCircuitBreaker() {
+        // when
+        assertThrows(ResourceAccessException.class, () -> callGuard.call(this::failingCall));
+
+        // then
+        assertEquals(CircuitBreaker.State.OPEN, callGuard.getCircuitBreakerState());
+        assertThrows(GoogleMapsException.class, () -> callGuard.call(() -> "ok"));
+    }
+
+    @Test
+    void call_trialCallThrowsError_nextTrialCallAllowed() {
+        // given -> the breaker is open and its open duration has passed
+        assertThrows(ResourceAccessException.class, () -> callGuard.call(this::failingCall));
+        now += Duration.ofSeconds(31).toNanos();
+
+        // when -> the trial call dies with an error instead of an exception
+        assertThrows(StackOverflowError.class, () -> callGuard.call(() -> {
+            throw new StackOverflowError();
+        }));
+
+        // then -> the failed trial reopened the breaker, the next trial closes it again
+        assertEquals(CircuitBreaker.State.OPEN, callGuard.getCircuitBreakerState());
+        now += Duration.ofSeconds(31).toNanos();
+        assertEquals("ok", callGuard.call(() -> "ok"));
+        assertEquals(CircuitBreaker.State.CLOSED, callGuard.getCircuitBreakerState());
+    }
+}
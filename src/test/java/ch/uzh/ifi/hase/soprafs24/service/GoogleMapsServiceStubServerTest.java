@@ -0,0 +1,218 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import ch.uzh.ifi.hase.soprafs24.exceptions.GoogleMapsException;
+
+/**
+ * Runs the GoogleMapsService against a local stub of the Google Maps API that can
+ * delay its responses or answer with errors
+ */
+class GoogleMapsServiceStubServerTest {
+
+    private static final LatLng ORIGIN = new LatLng(47.3769, 8.5417);
+    private static final LatLng DESTINATION = new LatLng(46.9490, 7.4390);
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private ExecutorService executor;
+
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final CountDownLatch firstRequestReceived = new CountDownLatch(1);
+    private volatile long delayMillis;
+    private volatile int statusCode = 200;
+
+    @BeforeEach
+    void setup() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/distancematrix/json", this::handleDistanceMatrix);
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    private void handleDistanceMatrix(HttpExchange exchange) throws IOException {
+        requestCount.incrementAndGet();
+        firstRequestReceived.countDown();
+        try {
+            Thread.sleep(delayMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        String body = statusCode == 200
+            ? "{\"status\":\"OK\",\"rows\":[{\"elements\":[{\"distance\":{\"value\":5000}}]}]}"
+            : "{\"status\":\"UNKNOWN_ERROR\"}";
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        try {
+            exchange.sendResponseHeaders(statusCode, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } catch (IOException e) {
+            // The client gave up waiting
+        }
+    }
+
+    private GoogleMapsService createService(int maxConcurrentCalls, Duration readTimeout, Duration callTimeout) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(1000);
+        requestFactory.setReadTimeout((int) readTimeout.toMillis());
+        CircuitBreaker circuitBreaker = new CircuitBreaker("test", 0.5, 4, 4, Duration.ofMinutes(1));
+        GoogleMapsCallGuard callGuard = new GoogleMapsCallGuard(maxConcurrentCalls, Duration.ZERO, callTimeout,
+            circuitBreaker);
+        // A cache without entries, so every call reaches the stub server
+        GoogleMapsService service = new GoogleMapsService("test-api-key", new RestTemplate(requestFactory), executor,
+            new DistanceCache(50, 0, Duration.ofHours(1)), Mockito.mock(GeocodeCache.class), callGuard);
+        ReflectionTestUtils.setField(service, "baseUrl", "http://localhost:" + server.getAddress().getPort());
+        return service;
+    }
+
+    @Test
+    void calculateDistancesAsync_success() throws Exception {
+        GoogleMapsService service = createService(4, Duration.ofSeconds(2), Duration.ofSeconds(2));
+
+        List<Double> distances = service.calculateDistancesAsync(ORIGIN, List.of(DESTINATION)).get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of(5.0), distances);
+        assertEquals(1, requestCount.get());
+    }
+
+    @Test
+    void calculateDistanceAsync_slowServer_failsAtDeadline() {
+        // given
+        GoogleMapsService service = createService(4, Duration.ofSeconds(5), Duration.ofMillis(300));
+        delayMillis = 2000;
+
+        // when
+        long start = System.nanoTime();
+        ExecutionException exception = assertThrows(ExecutionException.class,
+            () -> service.calculateDistanceAsync(ORIGIN, DESTINATION).get(5, TimeUnit.SECONDS));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // then -> the caller does not wait for the slow response
+        assertTrue(exception.getCause() instanceof GoogleMapsException);
+        assertTrue(exception.getCause().getMessage().contains("timed out"));
+        assertTrue(elapsedMillis < 1500, "took " + elapsedMillis + " ms");
+    }
+
+    @Test
+    void calculateDistance_slowServer_readTimeoutReleasesThread() {
+        // given
+        GoogleMapsService service = createService(4, Duration.ofMillis(300), Duration.ofSeconds(5));
+        delayMillis = 2000;
+
+        // when
+        long start = System.nanoTime();
+        assertThrows(ResourceAccessException.class,
+            () -> service.calculateDistance(47.3769, 8.5417, 46.9490, 7.4390));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // then
+        assertTrue(elapsedMillis < 1500, "took " + elapsedMillis + " ms");
+    }
+
+    @Test
+    void calculateDistance_serverErrors_openCircuitBreakerAndFailFast() {
+        // given
+        GoogleMapsService service = createService(4, Duration.ofSeconds(2), Duration.ofSeconds(2));
+        statusCode = 500;
+        for (int i = 0; i < 4; i++) {
+            assertThrows(HttpServerErrorException.class,
+                () -> service.calculateDistance(47.3769, 8.5417, 46.9490, 7.4390));
+        }
+
+        // when
+        statusCode = 200;
+        GoogleMapsException exception = assertThrows(GoogleMapsException.class,
+            () -> service.calculateDistance(47.3769, 8.5417, 46.9490, 7.4390));
+
+        // then -> rejected without contacting the server
+        assertTrue(exception.getMessage().contains("too many failed requests"));
+        assertEquals(4, requestCount.get());
+    }
+
+    @Test
+    void calculateDistance_bulkheadFull_failsFast() throws Exception {
+        // given -> a single slot, occupied by a slow asynchronous request
+        GoogleMapsService service = createService(1, Duration.ofSeconds(2), Duration.ofSeconds(2));
+        delayMillis = 500;
+        CompletableFuture<Double> slow = service.calculateDistanceAsync(ORIGIN, DESTINATION);
+        assertTrue(firstRequestReceived.await(2, TimeUnit.SECONDS));
+
+        // when
+        GoogleMapsException exception = assertThrows(GoogleMapsException.class,
+            () -> service.calculateDistance(47.3769, 8.5417, 46.9490, 7.4390));
+
+        // then
+        assertTrue(exception.getMessage().contains("too many concurrent requests"));
+        assertEquals(5.0, slow.get(5, TimeUnit.SECONDS));
+        assertEquals(1, requestCount.get());
+    }
+
+    @Test
+    void calculateDistanceAsync_executorQueueFull_failsWithoutBlockingCaller() throws Exception {
+        // given -> one thread busy with a slow request and a queue of one, already taken
+        executor.shutdownNow();
+        executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1),
+            new ThreadPoolExecutor.AbortPolicy());
+        GoogleMapsService service = createService(4, Duration.ofSeconds(2), Duration.ofSeconds(5));
+        delayMillis = 500;
+        CompletableFuture<Double> running = service.calculateDistanceAsync(ORIGIN, DESTINATION);
+        assertTrue(firstRequestReceived.await(2, TimeUnit.SECONDS));
+        CompletableFuture<Double> queued = service.calculateDistanceAsync(ORIGIN, DESTINATION);
+
+        // when
+        long start = System.nanoTime();
+        CompletableFuture<Double> rejected = service.calculateDistanceAsync(ORIGIN, DESTINATION);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // then -> the caller did not run the request itself
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> rejected.get(1, TimeUnit.SECONDS));
+        assertTrue(exception.getCause() instanceof GoogleMapsException);
+        assertTrue(exception.getCause().getMessage().contains("too many queued requests"));
+        assertTrue(elapsedMillis < 250, "took " + elapsedMillis + " ms");
+        assertEquals(5.0, running.get(5, TimeUnit.SECONDS));
+        assertEquals(5.0, queued.get(5, TimeUnit.SECONDS));
+        assertEquals(2, requestCount.get());
+    }
+}
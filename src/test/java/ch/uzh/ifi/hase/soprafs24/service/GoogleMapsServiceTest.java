@@ -4,17 +4,30 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
+import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpMethod;
@@ -22,6 +35,8 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.client.RestTemplate;
 
+import ch.uzh.ifi.hase.soprafs24.exceptions.GoogleMapsException;
+
 @ExtendWith(MockitoExtension.class)
 @SuppressWarnings("unchecked")
 class GoogleMapsServiceTest {
@@ -29,14 +44,28 @@ class GoogleMapsServiceTest {
     @Mock
     private RestTemplate restTemplate;
 
+    @Mock
+    private GeocodeCache geocodeCache;
+
     private GoogleMapsService googleMapsService;
 
     private final String apiKey = "test-api-key";
     private final ParameterizedTypeReference<Map<String, Object>> responseType = new ParameterizedTypeReference<Map<String, Object>>() {};
 
+    private ExecutorService executor;
+
     @BeforeEach
     void setup() {
-        googleMapsService = new GoogleMapsService(apiKey, restTemplate);
+        executor = Executors.newFixedThreadPool(4);
+        googleMapsService = new GoogleMapsService(apiKey, restTemplate, executor,
+            new DistanceCache(50, 1000, Duration.ofHours(1)), geocodeCache,
+            new GoogleMapsCallGuard(16, Duration.ofSeconds(1), Duration.ofSeconds(10),
+                new CircuitBreaker("test", 0.5, 20, 10, Duration.ofSeconds(30))));
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
     }
 
     @Test
@@ -124,6 +153,7 @@ class GoogleMapsServiceTest {
         double[] coordinates = googleMapsService.geocodeAddress("Zurich, Switzerland");
         assertEquals(47.3769, coordinates[0], 0.0001);
         assertEquals(8.5417, coordinates[1], 0.0001);
+        verify(geocodeCache).put(any(String.class), eq(new LatLng(47.3769, 8.5417)));
     }
 
     @Test
@@ -588,4 +618,191 @@ class GoogleMapsServiceTest {
         });
         assertEquals("Failed to geocode address: invalid location format", exception.getMessage());
     }
-} 
\ No newline at end of file
+
+    /**
+     * Answers Distance Matrix requests with a distance of (origin latitude + destination latitude) km,
+     * so that every result can be traced back to its origin and destination
+     */
+    private void mockDistanceMatrix() {
+        doAnswer(invocation -> {
+            Map<String, String> params = invocation.getArgument(4);
+            List<Double> originLats = parseLatitudes(params.get("origins"));
+            List<Double> destLats = parseLatitudes(params.get("destinations"));
+            List<Map<String, Object>> rows = new ArrayList<>();
+            for (double originLat : originLats) {
+                List<Map<String, Object>> elements = new ArrayList<>();
+                for (double destLat : destLats) {
+                    Map<String, Object> distance = new HashMap<>();
+                    distance.put("value", (originLat + destLat) * 1000);
+                    Map<String, Object> element = new HashMap<>();
+                    element.put("status", "OK");
+                    element.put("distance", distance);
+                    elements.add(element);
+                }
+                Map<String, Object> row = new HashMap<>();
+                row.put("elements", elements);
+                rows.add(row);
+            }
+            Map<String, Object> responseBody = new HashMap<>();
+            responseBody.put("status", "OK");
+            responseBody.put("rows", rows);
+            return ResponseEntity.ok(responseBody);
+        }).when(restTemplate).exchange(
+            eq("https://maps.googleapis.com/maps/api/distancematrix/json?origins={origins}&destinations={destinations}&key={key}"),
+            eq(HttpMethod.GET),
+            eq(null),
+            eq(responseType),
+            any(Map.class)
+        );
+    }
+
+    private static List<Double> parseLatitudes(String coordinates) {
+        return Arrays.stream(coordinates.split("\\|"))
+            .map(coordinate -> Double.valueOf(coordinate.split(",")[0]))
+            .collect(Collectors.toList());
+    }
+
+    private static List<LatLng> points(int count, double latOffset) {
+        return IntStream.range(0, count)
+            .mapToObj(i -> new LatLng(latOffset + i, 8.0))
+            .collect(Collectors.toList());
+    }
+
+    @Test
+    void testCalculateDistances_splitsIntoBatchesAndKeepsOrder() {
+        // given
+        mockDistanceMatrix();
+        LatLng origin = new LatLng(0.0, 8.0);
+        List<LatLng> destinations = points(60, 1.0);
+
+        // when
+        List<Double> distances = googleMapsService.calculateDistances(origin, destinations);
+
+        // then -> 60 destinations need three requests of at most 25 destinations
+        assertEquals(60, distances.size());
+        for (int i = 0; i < destinations.size(); i++) {
+            assertEquals(destinations.get(i).getLatitude(), distances.get(i), 1e-9);
+        }
+        verify(restTemplate, times(3)).exchange(any(String.class), eq(HttpMethod.GET), eq(null), eq(responseType),
+            any(Map.class));
+    }
+
+    @Test
+    void testCalculateDistanceMatrix_respectsElementLimit() {
+        // given
+        mockDistanceMatrix();
+        List<LatLng> origins = points(10, 100.0);
+        List<LatLng> destinations = points(30, 1.0);
+
+        // when
+        double[][] matrix = googleMapsService.calculateDistanceMatrix(origins, destinations);
+
+        // then -> blocks of 4 origins x 25 destinations: 3 origin blocks x 2 destination blocks
+        assertEquals(10, matrix.length);
+        for (int i = 0; i < origins.size(); i++) {
+            assertEquals(30, matrix[i].length);
+            for (int j = 0; j < destinations.size(); j++) {
+                assertEquals(origins.get(i).getLatitude() + destinations.get(j).getLatitude(), matrix[i][j], 1e-9);
+            }
+        }
+        verify(restTemplate, times(6)).exchange(any(String.class), eq(HttpMethod.GET), eq(null), eq(responseType),
+            any(Map.class));
+    }
+
+    @Test
+    void testCalculateDistances_elementWithoutRoute_returnsInfinity() {
+        // given
+        Map<String, Object> distance = new HashMap<>();
+        distance.put("value", 5000);
+        Map<String, Object> routed = new HashMap<>();
+        routed.put("status", "OK");
+        routed.put("distance", distance);
+        Map<String, Object> unrouted = new HashMap<>();
+        unrouted.put("status", "ZERO_RESULTS");
+        Map<String, Object> row = new HashMap<>();
+        row.put("elements", List.of(routed, unrouted));
+        Map<String, Object> responseBody = new HashMap<>();
+        responseBody.put("rows", List.of(row));
+        doReturn(ResponseEntity.ok(responseBody)).when(restTemplate).exchange(
+            any(String.class), eq(HttpMethod.GET), eq(null), eq(responseType), any(Map.class));
+
+        // when
+        List<Double> distances = googleMapsService.calculateDistances(new LatLng(47.0, 8.0),
+            List.of(new LatLng(47.1, 8.0), new LatLng(10.0, -30.0)));
+
+        // then
+        assertEquals(5.0, distances.get(0), 1e-9);
+        assertEquals(Double.POSITIVE_INFINITY, distances.get(1));
+    }
+
+    @Test
+    void testCalculateDistances_errorResponse_throwsGoogleMapsException() {
+        // given
+        Map<String, Object> responseBody = new HashMap<>();
+        responseBody.put("error_message", "Invalid API key");
+        doReturn(ResponseEntity.ok(responseBody)).when(restTemplate).exchange(
+            any(String.class), eq(HttpMethod.GET), eq(null), eq(responseType), any(Map.class));
+
+        // when/then
+        GoogleMapsException exception = assertThrows(GoogleMapsException.class, () ->
+            googleMapsService.calculateDistances(new LatLng(47.0, 8.0), List.of(new LatLng(47.1, 8.0))));
+        assertEquals("Failed to calculate distances: Invalid API key", exception.getMessage());
+    }
+
+    @Test
+    void testCalculateDistances_noDestinations_doesNotCallApi() {
+        assertEquals(0, googleMapsService.calculateDistances(new LatLng(47.0, 8.0), List.of()).size());
+        verify(restTemplate, times(0)).exchange(any(String.class), any(HttpMethod.class), any(), eq(responseType),
+            any(Map.class));
+    }
+
+    @Test
+    void testCalculateDistance_repeatedNearbyQuery_servedFromCache() {
+        // given
+        mockDistanceMatrix();
+
+        // when -> the second query is about 10 m away from the first one
+        double first = googleMapsService.calculateDistance(47.37690, 8.54170, 46.94900, 7.43900);
+        double second = googleMapsService.calculateDistance(47.37695, 8.54175, 46.94905, 7.43905);
+
+        // then
+        assertEquals(first, second, 1e-9);
+        verify(restTemplate, times(1)).exchange(any(String.class), eq(HttpMethod.GET), eq(null), eq(responseType),
+            any(Map.class));
+        assertEquals(1, googleMapsService.getDistanceCacheStats().getHits());
+        assertEquals(1, googleMapsService.getDistanceCacheStats().getMisses());
+    }
+
+    @Test
+    void testCalculateDistances_onlyRequestsUncachedDestinations() {
+        // given
+        mockDistanceMatrix();
+        LatLng origin = new LatLng(0.0, 8.0);
+        googleMapsService.calculateDistances(origin, points(2, 1.0));
+
+        // when
+        List<Double> distances = googleMapsService.calculateDistances(origin, points(3, 1.0));
+
+        // then -> only the third destination is requested again, results keep the input order
+        assertEquals(List.of(1.0, 2.0, 3.0), distances);
+        verify(restTemplate, times(2)).exchange(any(String.class), eq(HttpMethod.GET), eq(null), eq(responseType),
+            any(Map.class));
+        verify(restTemplate, times(1)).exchange(any(String.class), eq(HttpMethod.GET), eq(null), eq(responseType),
+            Mockito.<Map<String, String>>argThat(params -> "3.0,8.0".equals(params.get("destinations"))));
+    }
+
+    @Test
+    void testGeocodeAddress_cached_doesNotCallApi() {
+        // given
+        doReturn(Optional.of(new LatLng(47.3779, 8.5403))).when(geocodeCache).get("Zürich HB");
+
+        // when
+        double[] coordinates = googleMapsService.geocodeAddress("Zürich HB");
+
+        // then
+        assertEquals(47.3779, coordinates[0], 1e-9);
+        assertEquals(8.5403, coordinates[1], 1e-9);
+        verify(restTemplate, times(0)).exchange(any(String.class), any(HttpMethod.class), any(), eq(responseType),
+            any(Map.class));
+    }
+}
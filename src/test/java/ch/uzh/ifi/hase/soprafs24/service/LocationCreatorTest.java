@@ -25,6 +25,9 @@ class LocationCreatorTest {
     @Mock
     private LocationValidator locationValidator;
 
+    @Mock
+    private GeocodeCache geocodeCache;
+
     @InjectMocks
     private LocationCreator locationCreator;
 
@@ -72,6 +75,7 @@ class LocationCreatorTest {
         verify(locationValidator).validateLocation(location);
         verify(locationRepository).save(location);
         verify(locationRepository).flush();
+        verify(geocodeCache).put("Bahnhofstrasse 1, 8001 Zürich", new LatLng(47.3769, 8.5417));
     }
 
     @Test
@@ -1,7 +1,7 @@
 package ch.uzh.ifi.hase.soprafs24.service;
 
 import java.time.LocalDateTime;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
@@ -22,6 +22,7 @@ import static org.mockito.Mockito.when;
 import org.mockito.MockitoAnnotations;
 import org.springframework.http.HttpStatus;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.web.server.ResponseStatusException;
 
 import ch.uzh.ifi.hase.soprafs24.constant.ContractStatus;
@@ -56,6 +57,18 @@ class OfferServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private OpenContractIndex openContractIndex;
+
+    @Mock
+    private ContractExpiryScheduler contractExpiryScheduler;
+
+    @Mock
+    private ChangeEventPublisher changeEventPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @InjectMocks
     private OfferService offerService;
 
@@ -158,6 +171,9 @@ class OfferServiceTest {
         assertEquals(offerDTO.getOfferStatus(), createdOffer.getOfferStatus());
         verify(contractRepository, times(1)).save(any());
         verify(offerRepository, times(1)).save(any());
+        verify(changeEventPublisher, times(1)).offerChanged(savedOffer);
+        verify(changeEventPublisher, times(1)).contractChanged(testContract);
+        verify(openContractIndex, times(1)).contractChanged(testContract);
     }
     @Test
     void createOffer_contractNotFound_throwsException() {
@@ -273,6 +289,10 @@ class OfferServiceTest {
         assertNotNull(testContract.getAcceptedDateTime());
         verify(contractRepository, times(1)).save(any());
         verify(offerRepository, times(1)).save(any());
+        verify(openContractIndex, times(1)).contractChanged(testContract);
+        verify(contractExpiryScheduler, times(1)).contractChanged(testContract);
+        verify(changeEventPublisher, times(1)).contractChanged(testContract);
+        verify(changeEventPublisher, times(1)).offerChanged(argThat(offer -> offer.getOfferStatus() == OfferStatus.ACCEPTED));
     }
 
     @Test
@@ -335,6 +355,8 @@ class OfferServiceTest {
         assertNotNull(rejectedOffer);
         assertEquals(OfferStatus.REJECTED, rejectedOffer.getOfferStatus());
         verify(offerRepository, times(1)).save(any());
+        assertEquals(ContractStatus.REQUESTED, testContract.getContractStatus());
+        verify(openContractIndex, times(1)).contractChanged(testContract);
     }
 
     @Test
@@ -378,6 +400,7 @@ class OfferServiceTest {
         verify(offerRepository, times(1)).delete(any());
         verify(contractRepository, times(1)).save(any());
         assertEquals(ContractStatus.REQUESTED, testContract.getContractStatus());
+        verify(openContractIndex, times(1)).contractChanged(testContract);
     }
 
     @Test
@@ -559,20 +582,9 @@ class OfferServiceTest {
         contract.setContractStatus(ContractStatus.OFFERED);
         offer.setContract(contract);
         
-        // Setup other offers to be rejected
-        Offer otherOffer1 = new Offer();
-        otherOffer1.setOfferId(3L);
-        otherOffer1.setOfferStatus(OfferStatus.CREATED);
-        otherOffer1.setContract(contract);
-        
-        Offer otherOffer2 = new Offer();
-        otherOffer2.setOfferId(4L);
-        otherOffer2.setOfferStatus(OfferStatus.CREATED);
-        otherOffer2.setContract(contract);
-        
         when(offerRepository.findById(offerId)).thenReturn(Optional.of(offer));
-        when(offerRepository.findByContract_ContractIdAndOfferStatus(contractId, OfferStatus.CREATED))
-            .thenReturn(Arrays.asList(otherOffer1, otherOffer2));
+        when(offerRepository.updateOfferStatusOfOtherOffers(contractId, offerId, OfferStatus.CREATED,
+            OfferStatus.REJECTED)).thenReturn(2);
         when(offerRepository.save(any(Offer.class))).thenAnswer(i -> i.getArgument(0));
         when(contractRepository.save(any(Contract.class))).thenAnswer(i -> i.getArgument(0));
         when(offerDTOMapper.convertEntityToOfferGetDTO(any(Offer.class))).thenReturn(new OfferGetDTO());
@@ -587,11 +599,10 @@ class OfferServiceTest {
         assertEquals(offer, contract.getAcceptedOffer());
         assertNotNull(contract.getAcceptedDateTime());
         
-        // Verify other offers were rejected
-        assertEquals(OfferStatus.REJECTED, otherOffer1.getOfferStatus());
-        assertEquals(OfferStatus.REJECTED, otherOffer2.getOfferStatus());
-        
-        verify(offerRepository, times(3)).save(any(Offer.class)); // main offer + 2 other offers
+        // Verify other offers were rejected in one statement
+        verify(offerRepository).updateOfferStatusOfOtherOffers(contractId, offerId, OfferStatus.CREATED,
+            OfferStatus.REJECTED);
+        verify(offerRepository, times(1)).save(any(Offer.class)); // only the main offer
         verify(contractRepository).save(contract);
         verify(offerDTOMapper).convertEntityToOfferGetDTO(offer);
     }
@@ -646,20 +657,9 @@ class OfferServiceTest {
         contract.setContractStatus(ContractStatus.OFFERED);
         offer.setContract(contract);
         
-        // Setup other offers to be rejected
-        Offer otherOffer1 = new Offer();
-        otherOffer1.setOfferId(3L);
-        otherOffer1.setOfferStatus(OfferStatus.CREATED);
-        otherOffer1.setContract(contract);
-        
-        Offer otherOffer2 = new Offer();
-        otherOffer2.setOfferId(4L);
-        otherOffer2.setOfferStatus(OfferStatus.CREATED);
-        otherOffer2.setContract(contract);
-        
         when(offerRepository.findById(offerId)).thenReturn(Optional.of(offer));
-        when(offerRepository.findByContract_ContractIdAndOfferStatus(contractId, OfferStatus.CREATED))
-            .thenReturn(Arrays.asList(otherOffer1, otherOffer2));
+        when(offerRepository.updateOfferStatusOfOtherOffers(contractId, offerId, OfferStatus.CREATED,
+            OfferStatus.REJECTED)).thenReturn(2);
         when(offerRepository.save(any(Offer.class))).thenAnswer(i -> i.getArgument(0));
         when(contractRepository.save(any(Contract.class))).thenAnswer(i -> i.getArgument(0));
         when(offerDTOMapper.convertEntityToOfferGetDTO(any(Offer.class))).thenReturn(new OfferGetDTO());
@@ -674,12 +674,40 @@ class OfferServiceTest {
         assertEquals(offer, contract.getAcceptedOffer());
         assertNotNull(contract.getAcceptedDateTime());
         
-        // Verify other offers were rejected
-        assertEquals(OfferStatus.REJECTED, otherOffer1.getOfferStatus());
-        assertEquals(OfferStatus.REJECTED, otherOffer2.getOfferStatus());
-        
-        verify(offerRepository, times(3)).save(any(Offer.class)); // main offer + 2 other offers
+        // Verify other offers were rejected in one statement
+        verify(offerRepository).updateOfferStatusOfOtherOffers(contractId, offerId, OfferStatus.CREATED,
+            OfferStatus.REJECTED);
+        verify(offerRepository, times(1)).save(any(Offer.class)); // only the main offer
         verify(contractRepository).save(contract);
         verify(offerDTOMapper).convertEntityToOfferGetDTO(offer);
     }
-}
\ No newline at end of file
+
+    @Test
+    void streamOffers_readsBatchesInSeparateTransactions() {
+        // given -> a full batch of 100 offers followed by a last offer
+        List<Offer> firstBatch = new ArrayList<>();
+        for (long offerId = 1; offerId <= 100; offerId++) {
+            Offer offer = new Offer();
+            offer.setOfferId(offerId);
+            firstBatch.add(offer);
+        }
+        Offer last = new Offer();
+        last.setOfferId(101L);
+        when(offerRepository.findBatch(null, 3L, null, OfferStatus.CREATED, null, 100)).thenReturn(firstBatch);
+        when(offerRepository.findBatch(null, 3L, null, OfferStatus.CREATED, 100L, 100)).thenReturn(List.of(last));
+        when(offerDTOMapper.convertEntityToOfferGetDTO(any(Offer.class))).thenAnswer(invocation -> {
+            OfferGetDTO dto = new OfferGetDTO();
+            dto.setOfferId(invocation.<Offer>getArgument(0).getOfferId());
+            return dto;
+        });
+
+        // when
+        List<Long> streamed = new ArrayList<>();
+        offerService.streamOffers(null, 3L, null, OfferStatus.CREATED, offer -> streamed.add(offer.getOfferId()));
+
+        // then
+        assertEquals(101, streamed.size());
+        assertEquals(101L, streamed.get(100));
+        verify(transactionManager, times(2)).commit(any());
+    }
+}
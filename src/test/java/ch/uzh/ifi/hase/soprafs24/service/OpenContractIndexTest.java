@@ -0,0 +1,227 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import ch.uzh.ifi.hase.soprafs24.constant.ContractStatus;
+import ch.uzh.ifi.hase.soprafs24.entity.Contract;
+import ch.uzh.ifi.hase.soprafs24.repository.ContractRepository;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.contract.ContractFilterDTO;
+
+class OpenContractIndexTest {
+
+    @Mock
+    private ContractRepository contractRepository;
+
+    @InjectMocks
+    private OpenContractIndex openContractIndex;
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.openMocks(this);
+        Mockito.when(contractRepository.findByContractStatus(Mockito.any())).thenReturn(Collections.emptyList());
+    }
+
+    private Contract createContract(Long id, ContractStatus status, double price) {
+        Contract contract = new Contract();
+        contract.setContractId(id);
+        contract.setContractStatus(status);
+        contract.setPrice(price);
+        contract.setWeight(10.0);
+        contract.setMoveDateTime(LocalDateTime.of(2030, 6, 15, 10, 0));
+        return contract;
+    }
+
+    @Test
+    void synchronizeWithDatabase_loadsOpenContracts() {
+        // given
+        Contract requested = createContract(1L, ContractStatus.REQUESTED, 100.0);
+        Contract offered = createContract(2L, ContractStatus.OFFERED, 100.0);
+        Mockito.when(contractRepository.findByContractStatus(ContractStatus.REQUESTED)).thenReturn(List.of(requested));
+        Mockito.when(contractRepository.findByContractStatus(ContractStatus.OFFERED)).thenReturn(List.of(offered));
+
+        // when
+        int differences = openContractIndex.synchronizeWithDatabase();
+
+        // then
+        assertTrue(openContractIndex.isReady());
+        assertEquals(2, differences);
+        assertEquals(2, openContractIndex.size());
+    }
+
+    @Test
+    void synchronizeWithDatabase_repairsStaleAndSuperfluousEntries() {
+        // given -> index holds an outdated price and a contract that no longer exists
+        openContractIndex.contractChanged(createContract(1L, ContractStatus.REQUESTED, 100.0));
+        openContractIndex.contractChanged(createContract(2L, ContractStatus.REQUESTED, 100.0));
+        Contract current = createContract(1L, ContractStatus.REQUESTED, 150.0);
+        Mockito.when(contractRepository.findByContractStatus(ContractStatus.REQUESTED)).thenReturn(List.of(current));
+
+        // when
+        int differences = openContractIndex.synchronizeWithDatabase();
+        int differencesAfterRepair = openContractIndex.synchronizeWithDatabase();
+
+        // then
+        assertEquals(2, differences);
+        assertEquals(0, differencesAfterRepair);
+        List<OpenContractSnapshot> all = openContractIndex.search(null);
+        assertEquals(1, all.size());
+        assertEquals(150.0, all.get(0).getPrice());
+    }
+
+    @Test
+    void contractChanged_closedContract_isRemoved() {
+        // given
+        Contract contract = createContract(1L, ContractStatus.OFFERED, 100.0);
+        openContractIndex.contractChanged(contract);
+
+        // when
+        contract.setContractStatus(ContractStatus.ACCEPTED);
+        openContractIndex.contractChanged(contract);
+
+        // then
+        assertEquals(0, openContractIndex.size());
+    }
+
+    @Test
+    void contractsClosed_removesContracts() {
+        // given
+        openContractIndex.contractChanged(createContract(1L, ContractStatus.REQUESTED, 100.0));
+        openContractIndex.contractChanged(createContract(2L, ContractStatus.OFFERED, 100.0));
+        openContractIndex.contractChanged(createContract(3L, ContractStatus.REQUESTED, 100.0));
+
+        // when
+        openContractIndex.contractsClosed(List.of(1L, 2L));
+
+        // then
+        assertEquals(1, openContractIndex.size());
+        assertEquals(3L, openContractIndex.search(null).get(0).getContractId());
+    }
+
+    @Test
+    void contractChanged_olderVersionReportedLate_ignored() {
+        // given
+        Contract newer = createContract(1L, ContractStatus.OFFERED, 150.0);
+        newer.setVersion(3L);
+        Contract older = createContract(1L, ContractStatus.REQUESTED, 100.0);
+        older.setVersion(2L);
+        openContractIndex.contractChanged(newer);
+
+        // when
+        openContractIndex.contractChanged(older);
+
+        // then
+        assertEquals(3L, openContractIndex.search(null).get(0).getVersion());
+        assertEquals(150.0, openContractIndex.search(null).get(0).getPrice());
+    }
+
+    @Test
+    void contractChanged_closedAtOlderVersion_staysIndexed() {
+        // given -> the contract was canceled, then reopened, but the cancellation is reported last
+        Contract reopened = createContract(1L, ContractStatus.REQUESTED, 100.0);
+        reopened.setVersion(5L);
+        Contract canceled = createContract(1L, ContractStatus.CANCELED, 100.0);
+        canceled.setVersion(4L);
+        openContractIndex.contractChanged(reopened);
+
+        // when
+        openContractIndex.contractChanged(canceled);
+
+        // then
+        assertEquals(1, openContractIndex.size());
+    }
+
+    @Test
+    void contractChanged_olderVersionAfterClose_notReopened() {
+        // given
+        Contract accepted = createContract(1L, ContractStatus.ACCEPTED, 100.0);
+        accepted.setVersion(4L);
+        Contract offered = createContract(1L, ContractStatus.OFFERED, 100.0);
+        offered.setVersion(3L);
+        Contract expired = createContract(2L, ContractStatus.REQUESTED, 100.0);
+        expired.setVersion(1L);
+        openContractIndex.contractChanged(createContract(1L, ContractStatus.REQUESTED, 100.0));
+        openContractIndex.contractChanged(accepted);
+        openContractIndex.contractsClosed(List.of(2L));
+
+        // when
+        openContractIndex.contractChanged(offered);
+        openContractIndex.contractChanged(expired);
+
+        // then
+        assertEquals(0, openContractIndex.size());
+    }
+
+    @Test
+    void resynchronize_picksUpChangesOfOtherInstances_notifiesListeners() {
+        // given -> another instance closed contract 1 and opened contract 2
+        OpenContractIndex.Listener listener = Mockito.mock(OpenContractIndex.Listener.class);
+        openContractIndex.addListener(listener);
+        openContractIndex.synchronizeWithDatabase();
+        openContractIndex.contractChanged(createContract(1L, ContractStatus.REQUESTED, 100.0));
+        Mockito.when(contractRepository.findByContractStatus(ContractStatus.REQUESTED))
+            .thenReturn(List.of(createContract(2L, ContractStatus.REQUESTED, 100.0)));
+
+        // when
+        openContractIndex.resynchronize();
+
+        // then
+        assertEquals(2L, openContractIndex.search(null).get(0).getContractId());
+        assertEquals(1, openContractIndex.size());
+        Mockito.verify(listener).contractClosed(1L);
+        Mockito.verify(listener).indexSynchronized();
+    }
+
+    @Test
+    void resynchronize_beforeInitialSynchronization_skipped() {
+        // when
+        openContractIndex.resynchronize();
+
+        // then
+        assertFalse(openContractIndex.isReady());
+        Mockito.verifyNoInteractions(contractRepository);
+    }
+
+    @Test
+    void search_appliesAttributeFilters() {
+        // given
+        Contract cheap = createContract(1L, ContractStatus.REQUESTED, 50.0);
+        Contract fragile = createContract(2L, ContractStatus.REQUESTED, 200.0);
+        fragile.setFragile(true);
+        Contract otherDay = createContract(3L, ContractStatus.REQUESTED, 200.0);
+        otherDay.setMoveDateTime(LocalDateTime.of(2030, 6, 16, 0, 0));
+        openContractIndex.contractChanged(cheap);
+        openContractIndex.contractChanged(fragile);
+        openContractIndex.contractChanged(otherDay);
+
+        ContractFilterDTO filters = new ContractFilterDTO();
+        filters.setPrice(100.0);
+        filters.setFragile(true);
+        filters.setMoveDate(LocalDate.of(2030, 6, 15));
+
+        // when
+        List<OpenContractSnapshot> found = openContractIndex.search(filters);
+
+        // then
+        assertEquals(1, found.size());
+        assertEquals(2L, found.get(0).getContractId());
+    }
+
+    @Test
+    void isReady_beforeSynchronization_returnsFalse() {
+        assertFalse(openContractIndex.isReady());
+    }
+}
@@ -0,0 +1,124 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.web.server.ResponseStatusException;
+
+import ch.uzh.ifi.hase.soprafs24.entity.Contract;
+import ch.uzh.ifi.hase.soprafs24.exceptions.StateConflictException;
+
+class TransitionRetryTest {
+
+    private TransitionRetry transitionRetry;
+
+    @BeforeEach
+    void setup() {
+        transitionRetry = new TransitionRetry(3, Duration.ZERO);
+    }
+
+    private static ObjectOptimisticLockingFailureException lockFailure() {
+        return new ObjectOptimisticLockingFailureException(Contract.class, 1L);
+    }
+
+    @Test
+    void execute_concurrentUpdate_retriesUntilSuccess() {
+        // given
+        AtomicInteger attempts = new AtomicInteger();
+        Supplier<String> transition = () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw lockFailure();
+            }
+            return "accepted";
+        };
+
+        // when
+        String result = transitionRetry.execute(transition, "contract", () -> "current");
+
+        // then
+        assertEquals("accepted", result);
+        assertEquals(3, attempts.get());
+        assertEquals(2, transitionRetry.getStats().getRetries());
+        assertEquals(0, transitionRetry.getStats().getConflicts());
+    }
+
+    @Test
+    void execute_attemptsUsedUp_conflictWithCurrentState() {
+        // given
+        AtomicInteger attempts = new AtomicInteger();
+
+        // when
+        StateConflictException exception = assertThrows(StateConflictException.class,
+            () -> transitionRetry.execute(() -> {
+                attempts.incrementAndGet();
+                throw lockFailure();
+            }, "contract", () -> "current"));
+
+        // then
+        assertEquals(3, attempts.get());
+        assertEquals(HttpStatus.CONFLICT, exception.getStatus());
+        assertEquals("contract", exception.getStateKey());
+        assertEquals("current", exception.getCurrentState());
+    }
+
+    @Test
+    void execute_transitionRejectedAfterConcurrentUpdate_conflictWithoutFurtherRetries() {
+        // given -> the first attempt conflicts, the second finds the contract accepted by another request
+        AtomicInteger attempts = new AtomicInteger();
+        Supplier<String> transition = () -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw lockFailure();
+            }
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "Offers can only be accepted for OFFERED contracts");
+        };
+
+        // when
+        StateConflictException exception = assertThrows(StateConflictException.class,
+            () -> transitionRetry.execute(transition, "offer", () -> "current"));
+
+        // then
+        assertEquals(2, attempts.get());
+        assertEquals("Offers can only be accepted for OFFERED contracts", exception.getReason());
+        assertEquals("current", exception.getCurrentState());
+    }
+
+    @Test
+    void execute_transitionRejectedWithoutConflict_rethrown() {
+        // given
+        ResponseStatusException rejected = new ResponseStatusException(HttpStatus.BAD_REQUEST, "invalid");
+
+        // when
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+            () -> transitionRetry.execute(() -> {
+                throw rejected;
+            }, "offer", () -> "current"));
+
+        // then
+        assertSame(rejected, exception);
+    }
+
+    @Test
+    void execute_currentStateNotLoadable_conflictWithoutState() {
+        // when
+        StateConflictException exception = assertThrows(StateConflictException.class,
+            () -> transitionRetry.execute(() -> {
+                throw lockFailure();
+            }, "contract", () -> {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Contract not found");
+            }));
+
+        // then
+        assertNull(exception.getCurrentState());
+    }
+}
@@ -0,0 +1,266 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import ch.uzh.ifi.hase.soprafs24.constant.ChangeEventType;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.event.ChangeEventDTO;
+
+class UserEventStreamsTest {
+
+    private static final Pattern EVENT_ID = Pattern.compile("id:(\\S+)");
+
+    private final List<RecordingEmitter> emitters = new ArrayList<>();
+    private final List<Runnable> pendingSends = new ArrayList<>();
+
+    private UserEventStreams createStreams(Executor executor, int bufferSize, Duration retention, int queueSize,
+            int maxConnectionsPerUser) {
+        return new UserEventStreams(executor, () -> {
+            RecordingEmitter emitter = new RecordingEmitter();
+            emitters.add(emitter);
+            return emitter;
+        }, bufferSize, retention, queueSize, maxConnectionsPerUser);
+    }
+
+    private UserEventStreams createStreams(int bufferSize) {
+        return createStreams(Runnable::run, bufferSize, Duration.ofHours(1), 64, 5);
+    }
+
+    private ChangeEventDTO contractEvent(Long contractId, String status) {
+        ChangeEventDTO event = new ChangeEventDTO();
+        event.setType(ChangeEventType.CONTRACT);
+        event.setContractId(contractId);
+        event.setStatus(status);
+        return event;
+    }
+
+    private String eventId(String sentEvent) {
+        Matcher matcher = EVENT_ID.matcher(sentEvent);
+        assertTrue(matcher.find(), "event has no id: " + sentEvent);
+        return matcher.group(1);
+    }
+
+    @Test
+    void publish_sendsEventToConnectionsOfRecipients() {
+        // given
+        UserEventStreams streams = createStreams(100);
+        RecordingEmitter requester = (RecordingEmitter) streams.connect(1L, null);
+        RecordingEmitter otherUser = (RecordingEmitter) streams.connect(2L, null);
+
+        // when
+        streams.publish(List.of(1L), contractEvent(10L, "OFFERED"));
+
+        // then
+        assertEquals(1, requester.events.size());
+        assertEquals(10L, requester.data.get(0).getContractId());
+        assertEquals("OFFERED", requester.data.get(0).getStatus());
+        assertTrue(otherUser.events.isEmpty());
+        assertEquals(1, streams.getStats().getEventsPublished());
+    }
+
+    @Test
+    void publish_nullRecipient_ignored() {
+        // given
+        UserEventStreams streams = createStreams(100);
+        List<Long> recipients = new ArrayList<>();
+        recipients.add(1L);
+        recipients.add(null);
+
+        // when
+        streams.publish(recipients, contractEvent(10L, "OFFERED"));
+
+        // then
+        assertEquals(1, streams.getStats().getEventsPublished());
+        assertEquals(1, streams.getStats().getUsers());
+    }
+
+    @Test
+    void connect_lastEventId_resumesMissedEvents() {
+        // given
+        UserEventStreams streams = createStreams(100);
+        RecordingEmitter first = (RecordingEmitter) streams.connect(1L, null);
+        streams.publish(List.of(1L), contractEvent(10L, "OFFERED"));
+        String lastEventId = eventId(first.events.get(0));
+        first.complete();
+        streams.publish(List.of(1L), contractEvent(10L, "ACCEPTED"));
+        streams.publish(List.of(1L), contractEvent(11L, "CANCELED"));
+
+        // when
+        RecordingEmitter reconnected = (RecordingEmitter) streams.connect(1L, lastEventId);
+
+        // then
+        assertEquals(2, reconnected.data.size());
+        assertEquals("ACCEPTED", reconnected.data.get(0).getStatus());
+        assertEquals(11L, reconnected.data.get(1).getContractId());
+        assertEquals(2, streams.getStats().getEventsResumed());
+        assertEquals(0, streams.getStats().getResyncs());
+    }
+
+    @Test
+    void connect_missedEventsNoLongerBuffered_resync() {
+        // given
+        UserEventStreams streams = createStreams(2);
+        RecordingEmitter first = (RecordingEmitter) streams.connect(1L, null);
+        streams.publish(List.of(1L), contractEvent(10L, "OFFERED"));
+        String lastEventId = eventId(first.events.get(0));
+        first.complete();
+        streams.publish(List.of(1L), contractEvent(11L, "OFFERED"));
+        streams.publish(List.of(1L), contractEvent(12L, "OFFERED"));
+        streams.publish(List.of(1L), contractEvent(13L, "OFFERED"));
+
+        // when
+        RecordingEmitter reconnected = (RecordingEmitter) streams.connect(1L, lastEventId);
+
+        // then
+        assertEquals(1, reconnected.data.size());
+        assertEquals(ChangeEventType.RESYNC, reconnected.data.get(0).getType());
+        assertEquals(1, streams.getStats().getResyncs());
+    }
+
+    @Test
+    void connect_eventIdOfOtherEpoch_resync() {
+        // given
+        UserEventStreams streams = createStreams(100);
+        streams.publish(List.of(1L), contractEvent(10L, "OFFERED"));
+
+        // when
+        RecordingEmitter reconnected = (RecordingEmitter) streams.connect(1L, "previous-1");
+
+        // then
+        assertEquals(1, reconnected.data.size());
+        assertEquals(ChangeEventType.RESYNC, reconnected.data.get(0).getType());
+    }
+
+    @Test
+    void connect_eventsOfOtherUsersNotResumed() {
+        // given
+        UserEventStreams streams = createStreams(100);
+        RecordingEmitter first = (RecordingEmitter) streams.connect(1L, null);
+        streams.publish(List.of(1L), contractEvent(10L, "OFFERED"));
+        String lastEventId = eventId(first.events.get(0));
+        first.complete();
+        streams.publish(List.of(2L), contractEvent(20L, "OFFERED"));
+
+        // when
+        RecordingEmitter reconnected = (RecordingEmitter) streams.connect(1L, lastEventId);
+
+        // then
+        assertTrue(reconnected.events.isEmpty());
+    }
+
+    @Test
+    void publish_clientDoesNotKeepUp_connectionClosed() {
+        // given - the sender threads are busy, so nothing is written to the client
+        UserEventStreams streams = createStreams(pendingSends::add, 100, Duration.ofHours(1), 2, 5);
+        RecordingEmitter emitter = (RecordingEmitter) streams.connect(1L, null);
+
+        // when
+        streams.publish(List.of(1L), contractEvent(10L, "OFFERED"));
+        streams.publish(List.of(1L), contractEvent(11L, "OFFERED"));
+        streams.publish(List.of(1L), contractEvent(12L, "OFFERED"));
+        pendingSends.forEach(Runnable::run);
+
+        // then
+        assertTrue(emitter.completed);
+        assertTrue(emitter.events.isEmpty());
+        assertEquals(0, streams.getConnectionCount());
+        assertEquals(1, streams.getStats().getSlowConnectionsClosed());
+        // the events stay buffered for the reconnect
+        assertEquals(3, streams.getStats().getEventsPublished());
+    }
+
+    @Test
+    void publish_sendsQueuedEventsInOrder() {
+        // given
+        UserEventStreams streams = createStreams(pendingSends::add, 100, Duration.ofHours(1), 64, 5);
+        RecordingEmitter emitter = (RecordingEmitter) streams.connect(1L, null);
+        streams.publish(List.of(1L), contractEvent(10L, "OFFERED"));
+        streams.publish(List.of(1L), contractEvent(11L, "OFFERED"));
+        streams.publish(List.of(1L), contractEvent(12L, "OFFERED"));
+
+        // when
+        pendingSends.forEach(Runnable::run);
+
+        // then - one sender drains the queue
+        assertEquals(1, pendingSends.size());
+        assertEquals(List.of(10L, 11L, 12L),
+            emitter.data.stream().map(ChangeEventDTO::getContractId).toList());
+        assertFalse(emitter.completed);
+    }
+
+    @Test
+    void connect_tooManyConnections_oldestClosed() {
+        // given
+        UserEventStreams streams = createStreams(Runnable::run, 100, Duration.ofHours(1), 64, 2);
+        RecordingEmitter oldest = (RecordingEmitter) streams.connect(1L, null);
+        RecordingEmitter second = (RecordingEmitter) streams.connect(1L, null);
+
+        // when
+        RecordingEmitter newest = (RecordingEmitter) streams.connect(1L, null);
+        streams.publish(List.of(1L), contractEvent(10L, "OFFERED"));
+
+        // then
+        assertTrue(oldest.completed);
+        assertTrue(oldest.events.isEmpty());
+        assertEquals(1, second.events.size());
+        assertEquals(1, newest.events.size());
+        assertEquals(2, streams.getConnectionCount());
+    }
+
+    @Test
+    void sendHeartbeats_sendsCommentAndDropsIdleBuffers() {
+        // given - a negative retention makes every buffer count as idle
+        UserEventStreams streams = createStreams(Runnable::run, 100, Duration.ofSeconds(-1), 64, 5);
+        RecordingEmitter connected = (RecordingEmitter) streams.connect(1L, null);
+        streams.publish(List.of(1L, 2L), contractEvent(10L, "OFFERED"));
+
+        // when
+        streams.sendHeartbeats();
+
+        // then
+        assertEquals(2, connected.events.size());
+        assertTrue(connected.events.get(1).contains(":heartbeat"));
+        // only the buffer of the connected user is kept
+        assertEquals(1, streams.getStats().getUsers());
+    }
+
+    /**
+     * Emitter that records the events instead of writing them to a response
+     */
+    private static final class RecordingEmitter extends SseEmitter {
+        private final List<String> events = new ArrayList<>();
+        private final List<ChangeEventDTO> data = new ArrayList<>();
+        private boolean completed;
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            StringBuilder text = new StringBuilder();
+            for (ResponseBodyEmitter.DataWithMediaType part : builder.build()) {
+                if (part.getData() instanceof ChangeEventDTO event) {
+                    data.add(event);
+                } else {
+                    text.append(part.getData());
+                }
+            }
+            events.add(text.toString());
+        }
+
+        @Override
+        public synchronized void complete() {
+            completed = true;
+            super.complete();
+        }
+    }
+}
@@ -102,6 +102,35 @@ class UserControllerTest {
                 .andExpect(jsonPath("$.username").value("testuser"));
     }
 
+    @Test
+    void getUserById_unchangedProfile_notModified() throws Exception {
+        // given
+        when(userService.getUserById(1L, "valid-token", 2L)).thenReturn(testUser);
+        when(publicUserDTOMapper.convertToPublicUserDTO(any(User.class))).thenReturn(testPublicDTO);
+        String eTag = mockMvc.perform(get("/api/v1/users/2")
+                .header("UserId", "1")
+                .header("Authorization", "valid-token"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        // when/then - the same profile is not sent again
+        mockMvc.perform(get("/api/v1/users/2")
+                .header("UserId", "1")
+                .header("Authorization", "valid-token")
+                .header("If-None-Match", eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        // when/then - a changed profile is
+        testPublicDTO.setUsername("renamed");
+        mockMvc.perform(get("/api/v1/users/2")
+                .header("UserId", "1")
+                .header("Authorization", "valid-token")
+                .header("If-None-Match", eTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.username").value("renamed"));
+    }
+
     @Test
     void getUserById_unauthorized() throws Exception {
         // given
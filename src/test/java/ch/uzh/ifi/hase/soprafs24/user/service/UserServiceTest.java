@@ -22,6 +22,7 @@ import ch.uzh.ifi.hase.soprafs24.user.dto.request.update.BaseUserUpdateDTO;
 import ch.uzh.ifi.hase.soprafs24.user.dto.request.update.DriverUpdateDTO;
 import ch.uzh.ifi.hase.soprafs24.user.dto.request.update.RequesterUpdateDTO;
 import ch.uzh.ifi.hase.soprafs24.user.mapper.UserUpdateDTOMapper;
+import ch.uzh.ifi.hase.soprafs24.service.DriverFeed;
 
 class UserServiceTest {
 
@@ -43,6 +44,9 @@ class UserServiceTest {
     @Mock
     private RequesterService requesterService;
 
+    @Mock
+    private DriverFeed driverFeed;
+
     @InjectMocks
     private UserService userService;
 
@@ -136,6 +140,7 @@ class UserServiceTest {
         assertNotNull(result);
         assertEquals(testDriver.getUserId(), result.getUserId());
         assertEquals(testDriver.getUsername(), result.getUsername());
+        verify(driverFeed).driverChanged(testDriver);
     }
 
     @Test
@@ -159,6 +164,7 @@ class UserServiceTest {
         assertNotNull(result);
         assertEquals(testRequester.getUserId(), result.getUserId());
         assertEquals(testRequester.getUsername(), result.getUsername());
+        verifyNoInteractions(driverFeed);
     }
 
     @Test
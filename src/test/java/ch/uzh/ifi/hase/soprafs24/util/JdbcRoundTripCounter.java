@@ -0,0 +1,127 @@
+package ch.uzh.ifi.hase.soprafs24.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+/**
+ * Records the JDBC calls that go to the database, i.e. executions of statements and of
+ * statement batches, by wrapping the DataSource. Unlike {@link SqlStatementCounter},
+ * which sees every SQL string Hibernate prepares once, this counts a batch of inserts
+ * as one round trip per executeBatch and an unbatched insert as one round trip per row.
+ * Only the calls of the thread that last called {@link #reset()} are recorded, so
+ * scheduled jobs running in the background, e.g. the lease of the expiry scheduler,
+ * do not change the counts. Enabled for a Spring test context with
+ * {@code @Import(JdbcRoundTripCounter.class)}.
+ */
+public class JdbcRoundTripCounter implements BeanPostProcessor {
+
+    private static final List<String> roundTrips = Collections.synchronizedList(new ArrayList<>());
+    private static volatile Thread recordedThread;
+
+    /**
+     * Clears the recorded round trips and records those of the calling thread from now on
+     */
+    public static void reset() {
+        recordedThread = Thread.currentThread();
+        roundTrips.clear();
+    }
+
+    /**
+     * @return The SQL of every round trip, batches are prefixed with "batch:"
+     */
+    public static List<String> getRoundTrips() {
+        synchronized (roundTrips) {
+            return new ArrayList<>(roundTrips);
+        }
+    }
+
+    /**
+     * @return Number of round trips starting with the prefix, ignoring case, e.g.
+     * "batch:insert into offers" for the insert batches of offers
+     */
+    public static long count(String prefix) {
+        String lowerCasePrefix = prefix.toLowerCase();
+        return getRoundTrips().stream()
+                .filter(sql -> sql.toLowerCase().startsWith(lowerCasePrefix))
+                .count();
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource) {
+            return proxy(DataSource.class, bean, (target, method, args) -> {
+                Object result = invoke(target, method, args);
+                return result instanceof Connection ? connection((Connection) result) : result;
+            });
+        }
+        return bean;
+    }
+
+    private static Connection connection(Connection connection) {
+        return proxy(Connection.class, connection, (target, method, args) -> {
+            Object result = invoke(target, method, args);
+            String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+            if (result instanceof CallableStatement) {
+                return statement(CallableStatement.class, (Statement) result, sql);
+            }
+            if (result instanceof PreparedStatement) {
+                return statement(PreparedStatement.class, (Statement) result, sql);
+            }
+            if (result instanceof Statement) {
+                return statement(Statement.class, (Statement) result, null);
+            }
+            return result;
+        });
+    }
+
+    private static <T extends Statement> T statement(Class<T> type, Statement statement, String preparedSql) {
+        return proxy(type, statement, (target, method, args) -> {
+            String name = method.getName();
+            if (name.startsWith("execute") && Thread.currentThread() == recordedThread) {
+                boolean batch = name.endsWith("Batch");
+                String sql = args != null && args.length > 0 && args[0] instanceof String
+                        ? (String) args[0] : preparedSql;
+                roundTrips.add((batch ? "batch:" : "") + sql);
+            }
+            return invoke(target, method, args);
+        });
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        Object handle(Object target, Method method, Object[] args) throws Throwable;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Object target, Handler handler) {
+        InvocationHandler invocationHandler = (proxy, method, args) -> {
+            if (method.getName().equals("unwrap") && args.length == 1 && ((Class<?>) args[0]).isInstance(proxy)) {
+                return proxy;
+            }
+            return handler.handle(target, method, args);
+        };
+        return (T) Proxy.newProxyInstance(JdbcRoundTripCounter.class.getClassLoader(), new Class<?>[] { type },
+                invocationHandler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package ch.uzh.ifi.hase.soprafs24.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.function.Executable;
+
+/**
+ * Records the SQL statements Hibernate sends to the database, so tests can assert how
+ * many statements a request needs and catch N+1 selects. Only the statements of the
+ * thread that last called {@link #reset()} are recorded, so scheduled jobs running in
+ * the background do not change the counts. Enabled for a Spring test
+ * context by adding {@link #PROPERTY} to its properties, e.g.
+ * {@code @SpringBootTest(properties = SqlStatementCounter.PROPERTY)}.
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+    public static final String PROPERTY = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+            + "ch.uzh.ifi.hase.soprafs24.util.SqlStatementCounter";
+
+    private static final long serialVersionUID = 1L;
+
+    private static final List<String> statements = Collections.synchronizedList(new ArrayList<>());
+    private static volatile Thread recordedThread;
+
+    @Override
+    public String inspect(String sql) {
+        if (Thread.currentThread() == recordedThread) {
+            statements.add(sql);
+        }
+        return sql;
+    }
+
+    /**
+     * Clears the recorded statements and records those of the calling thread from now on
+     */
+    public static void reset() {
+        recordedThread = Thread.currentThread();
+        statements.clear();
+    }
+
+    public static List<String> getStatements() {
+        synchronized (statements) {
+            return new ArrayList<>(statements);
+        }
+    }
+
+    /**
+     * Runs the action and asserts that it sent exactly {@code expected} statements.
+     * The failure message lists the statements that were sent.
+     */
+    public static void assertStatementCount(int expected, Executable action) throws Throwable {
+        reset();
+        action.execute();
+        List<String> sent = getStatements();
+        assertEquals(expected, sent.size(), () -> "Unexpected number of SQL statements:\n" + String.join("\n", sent));
+    }
+}